@@ -0,0 +1,241 @@
+package benchmarks.jmh;
+
+import benchmarks.TicketDataGenerator;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.ConcurrentTicketRepository;
+import repository.TicketDimension;
+import repository.TicketRepository;
+import repository.UpdateResult;
+import services.AggregationService;
+import services.CreateService;
+import services.DeleteService;
+import services.ReadService;
+import services.SearchService;
+import services.UpdateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of every CRUDService implementation and the SearchService at
+ * several backlog sizes. The backlog is filled by the TicketDataGenerator, with its skewed
+ * category, status and priority distributions. Runs with one thread use a TicketRepository;
+ * runs with more, e.g. -t 8, use a ConcurrentTicketRepository shared by all threads.
+ * Every benchmark runs in a fresh JVM on a freshly filled repository. The 10M backlog needs a
+ * large heap, e.g. -jvmArgsAppend -Xmx16g.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int tickets;
+
+    private TicketRepository repository;
+    private CreateService createService;
+    private ReadService readService;
+    private UpdateService updateService;
+    private DeleteService deleteService;
+    private SearchService searchService;
+    private AggregationService aggregationService;
+
+    /**
+     * Per-thread generator of new tickets and count of calls, for operations that alternate.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        TicketDataGenerator generator;
+        long calls;
+
+        @Setup(Level.Trial)
+        public void setUp(ServiceBenchmark benchmark, ThreadParams thread) {
+            generator = new TicketDataGenerator(thread.getThreadIndex(), Math.max(1, benchmark.tickets / 5));
+        }
+    }
+
+    /**
+     * Dashboard pattern: a few filter combinations polled through a cached SearchService.
+     * The cache only listens to the repository during the dashboard benchmark, so it does not
+     * add to the cost of the writes measured by the others.
+     */
+    @State(Scope.Benchmark)
+    public static class Dashboard {
+        static final String[][] QUERIES = {
+                {null, null, "Open", null}, {null, null, null, "High"},
+                {null, "Network", "Open", null}, {null, null, "In Progress", "Critical"}
+        };
+
+        SearchService cachedSearchService;
+        private TicketRepository repository;
+
+        @Setup(Level.Trial)
+        public void setUp(ServiceBenchmark benchmark) {
+            repository = benchmark.repository;
+            cachedSearchService = new SearchService(repository, 64);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.println("  " + cachedSearchService.getCache());
+            repository.removeListener(cachedSearchService.getCache());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        repository = params.getThreads() == 1 ? new TicketRepository() : new ConcurrentTicketRepository();
+        new TicketDataGenerator(42, Math.max(1, tickets / 5)).fill(repository, tickets);
+        createService = new CreateService(repository);
+        readService = new ReadService(repository);
+        updateService = new UpdateService(repository);
+        deleteService = new DeleteService(repository);
+        searchService = new SearchService(repository);
+        aggregationService = new AggregationService(repository);
+    }
+
+    @Benchmark
+    public TicketModel readServiceRead() {
+        return readService.read(randomId());
+    }
+
+    @Benchmark
+    public UpdateResult updateServiceUpdate(Caller caller) {
+        TicketModel ticket = readService.read(randomId());
+        if (ticket == null) {
+            return null;
+        }
+        TicketModel draft = ticket.copy();
+        draft.setPriority(caller.calls++ % 2 == 0 ? TicketPriority.HIGH : TicketPriority.MEDIUM);
+        return updateService.update(draft);
+    }
+
+    @Benchmark
+    public boolean createServiceCreateThenDelete(Caller caller) {
+        TicketModel ticket = caller.generator.next(repository.getNextId());
+        createService.create(ticket);
+        return deleteService.delete(ticket.getId());
+    }
+
+    @Benchmark
+    public int searchStatusOpen() {
+        return searchService.searchByCriteria(null, null, "Open", null).size();
+    }
+
+    @Benchmark
+    public int searchPriorityHighCategoryNetwork() {
+        return searchService.searchByCriteria(null, "Network", null, "High").size();
+    }
+
+    @Benchmark
+    public int searchCustomerName() {
+        return searchService.searchByCriteria(randomCustomerName(), null, null, null).size();
+    }
+
+    /**
+     * Polls the dashboard queries while every hundredth call updates the priority of a random ticket.
+     */
+    @Benchmark
+    public Object searchCachedDashboard(Dashboard dashboard, Caller caller) {
+        long call = caller.calls++;
+        if (call % 100 == 99) {
+            TicketModel ticket = readService.read(randomId());
+            if (ticket == null) {
+                return null;
+            }
+            TicketModel draft = ticket.copy();
+            draft.setPriority(ticket.getTicketPriority() == TicketPriority.LOW ? TicketPriority.MEDIUM : TicketPriority.LOW);
+            return updateService.update(draft);
+        }
+        String[] query = Dashboard.QUERIES[(int) (call % Dashboard.QUERIES.length)];
+        return dashboard.cachedSearchService.searchByCriteria(query[0], query[1], query[2], query[3]).size();
+    }
+
+    @Benchmark
+    public int searchAutocompleteCustomerName() {
+        String name = randomCustomerName();
+        return searchService.autocompleteCustomerName(name.substring(0, name.indexOf(' ') + 3), 10).size();
+    }
+
+    @Benchmark
+    public int searchFuzzyCustomerName() {
+        String name = randomCustomerName();
+        // Swap the last two letters of the surname to simulate a typo
+        int swap = name.length() - 2;
+        String typo = name.substring(0, swap) + name.charAt(swap + 1) + name.charAt(swap) + name.substring(swap + 2);
+        return searchService.searchByFuzzyCustomerName(typo, 2, 10).size();
+    }
+
+    @Benchmark
+    public int searchTextWords() {
+        return searchService.searchText("router firmware", 10).size();
+    }
+
+    @Benchmark
+    public int searchTextPhrase() {
+        return searchService.searchText("\"cannot reset password\"", 10).size();
+    }
+
+    @Benchmark
+    public int searchTextOr() {
+        return searchService.searchText("modem OR outbox", 10).size();
+    }
+
+    @Benchmark
+    public int searchByFilter() {
+        return searchService.searchByFilter(ticket -> ticket.getContactInfo().contains("42"), Integer.MAX_VALUE).size();
+    }
+
+    @Benchmark
+    public int searchByFilterLimit10() {
+        return searchService.searchByFilter(ticket -> ticket.getContactInfo().contains("42"), 10).size();
+    }
+
+    @Benchmark
+    public Map<?, Long> aggregationCountByStatusPriorityCategory() {
+        return aggregationService.countBy(TicketDimension.STATUS, TicketDimension.PRIORITY, TicketDimension.CATEGORY);
+    }
+
+    @Benchmark
+    public long aggregationCountOpenHigh() {
+        return aggregationService.count("Open", "High", null);
+    }
+
+    @Benchmark
+    public Map<?, ?> aggregationGroupOpenByCategory() {
+        return aggregationService.groupBy(ticket -> ticket.getTicketStatus() == TicketStatus.OPEN, TicketModel::getCategory);
+    }
+
+    @Benchmark
+    public int readServiceReadAll() {
+        return readService.readAll().size();
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(tickets);
+    }
+
+    private String randomCustomerName() {
+        return TicketDataGenerator.customerName(ThreadLocalRandom.current().nextInt(Math.max(1, tickets / 5)));
+    }
+}
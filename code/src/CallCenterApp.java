@@ -1,8 +1,22 @@
+import archive.TicketArchive;
 import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import persistence.TicketPersistence;
+import repository.ConcurrentTicketRepository;
+import repository.TicketPage;
 import repository.TicketRepository;
+import repository.UpdateResult;
 import services.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * Main application class for the Call Center Ticketing System.
@@ -12,6 +26,11 @@ import java.util.Scanner;
 public class CallCenterApp {
 
 
+    /**
+     * Number of recent search results kept by the search service.
+     */
+    private static final int SEARCH_CACHE_CAPACITY = 64;
+
     /**
      * Repository instance for ticket storage.
      * Shared among all services to maintain data consistency.
@@ -19,16 +38,64 @@ public class CallCenterApp {
      * Each service handles a specific aspect of ticket management.
      *
      */
-    private static TicketRepository repository = new TicketRepository();
+    private static TicketRepository repository = new ConcurrentTicketRepository();
     private static CreateService createService = new CreateService(repository);
     private static ReadService readService = new ReadService(repository);
     private static UpdateService updateService = new UpdateService(repository);
     private static DeleteService deleteService = new DeleteService(repository);
-    private static SearchService searchService = new SearchService(repository);
+    private static SearchService searchService = new SearchService(repository, SEARCH_CACHE_CAPACITY);
+    private static DispatchService dispatchService;
     private static Scanner scanner = new Scanner(System.in);
 
+    /**
+     * Directory where tickets are persisted between runs.
+     */
+    private static final String DATA_DIRECTORY = "ticket-data";
+
+    /**
+     * Seconds between automatic snapshots of the repository.
+     */
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 300;
+
+    /**
+     * Number of tickets shown per page when listing all tickets.
+     */
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Maximum number of tickets taken from a text search or a fuzzy customer name search.
+     */
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    /**
+     * Maximum number of customer name suggestions offered when a search finds nothing.
+     */
+    private static final int MAX_SUGGESTIONS = 5;
+
+    /**
+     * Persistence layer that logs every change and restores the tickets on startup.
+     */
+    private static TicketPersistence persistence;
+
+    /**
+     * Archive that closed tickets are moved into when the system exits.
+     */
+    private static TicketArchive archive;
+
     public static void main(String[] args) {
         System.out.println("XXX Solutions - Call Center Ticket System");
+        try {
+            persistence = TicketPersistence.open(Paths.get(DATA_DIRECTORY), repository,
+                    true, SNAPSHOT_INTERVAL_SECONDS);
+            archive = TicketArchive.open(Paths.get(DATA_DIRECTORY, "archive"));
+            repository.attachArchive(archive);
+            dispatchService = new DispatchService(repository);
+            System.out.println("Restored " + persistence.getRecoveredTickets() + " ticket(s), "
+                    + archive.size() + " archived.");
+        } catch (IOException e) {
+            System.out.println("Could not load saved tickets: " + e.getMessage());
+            return;
+        }
         while (true) {
             printMenu();
             int choice = getIntInput("Select option: ");
@@ -41,8 +108,10 @@ public class CallCenterApp {
                 case 4: updateTicket(); break;
                 case 5: deleteTicket(); break;
                 case 6: searchTickets(); break;
-                case 7:
+                case 7: claimNextTicket(); break;
+                case 8:
                     System.out.println("Exiting system...");
+                    shutdown();
                     System.exit(0);
                 default: System.out.println("Invalid option. Try again.");
             }
@@ -50,6 +119,21 @@ public class CallCenterApp {
     }
 
 
+    /**
+     * Archives closed tickets, writes a final snapshot and closes the persistence layer.
+     */
+    private static void shutdown() {
+        try {
+            repository.archiveClosedTickets();
+            persistence.checkpoint();
+            persistence.close();
+            archive.close();
+        } catch (IOException e) {
+            System.out.println("Could not save tickets: " + e.getMessage());
+        }
+    }
+
+
     /**
      * Displays the main menu options to the user.
      * Lists all available operations in the ticketing system.
@@ -62,7 +146,8 @@ public class CallCenterApp {
         System.out.println("4. Update Ticket");
         System.out.println("5. Delete Ticket");
         System.out.println("6. Search Tickets");
-        System.out.println("7. Exit System");
+        System.out.println("7. Claim Next Ticket");
+        System.out.println("8. Exit System");
     }
 
 
@@ -116,12 +201,12 @@ public class CallCenterApp {
 
 
     /**
-     * Displays all tickets in the system.
-     * Uses ReadService to retrieve and display ticket list.
+     * Displays all tickets in the system, one page at a time.
+     * Uses ReadService to page through the ticket list so large backlogs are not loaded at once.
      */
     private static void viewAllTickets() {
-        List<TicketModel> tickets = readService.readAll();
-        if (tickets.isEmpty()) {
+        TicketPage page = readService.readPage(null, PAGE_SIZE);
+        if (page.getTickets().isEmpty()) {
             System.out.println("\nNo tickets found.");
             return;
         }
@@ -129,12 +214,25 @@ public class CallCenterApp {
         System.out.println("\n--- ALL TICKETS ---");
         System.out.println("ID\tCustomer\t\tCategory\tStatus");
         System.out.println("------------------------------------------------");
-        for (TicketModel ticket : tickets) {
-            System.out.printf("%d\t%-20s\t%-15s\t%s%n",
-                    ticket.getId(),
-                    ticket.getCustomerName(),
-                    ticket.getCategory(),
-                    ticket.getStatus());
+        while (true) {
+            for (TicketModel ticket : page.getTickets()) {
+                System.out.printf("%d\t%-20s\t%-15s\t%s%n",
+                        ticket.getId(),
+                        ticket.getCustomerName(),
+                        ticket.getCategory(),
+                        ticket.getStatus());
+            }
+            if (!page.hasNext()) {
+                return;
+            }
+            page = readService.readPage(page.getNextToken(), PAGE_SIZE);
+            if (page.getTickets().isEmpty()) {
+                return;
+            }
+            System.out.print("-- Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
         }
     }
 
@@ -182,13 +280,34 @@ public class CallCenterApp {
         System.out.print("Additional Comments: ");
         String comment = scanner.nextLine();
 
-        // Update the ticket
-        if (!status.isEmpty()) ticket.setStatus(status);
-        if (!priority.isEmpty()) ticket.setPriority(priority);
-        if (!comment.isEmpty()) ticket.addComment(comment);
+        // Validate the new values before touching the ticket
+        if (!status.isEmpty() && TicketStatus.lookup(status) == null) {
+            System.out.println("Invalid status! Use one of: " + Arrays.toString(TicketStatus.values()));
+            return;
+        }
+        if (!priority.isEmpty() && TicketPriority.lookup(priority) == null) {
+            System.out.println("Invalid priority! Use one of: " + Arrays.toString(TicketPriority.values()));
+            return;
+        }
 
-        updateService.update(ticket);
-        System.out.println("\nTicket updated successfully!");
+        // Update a copy, so the ticket is only changed if nobody else changed it meanwhile
+        TicketModel draft = ticket.copy();
+        if (!status.isEmpty()) draft.setStatus(status);
+        if (!priority.isEmpty()) draft.setPriority(priority);
+        if (!comment.isEmpty()) draft.addComment(comment);
+
+        UpdateResult result = updateService.update(draft);
+        switch (result.getOutcome()) {
+            case UPDATED:
+                System.out.println("\nTicket updated successfully!");
+                break;
+            case CONFLICT:
+                System.out.println("\nTicket was changed by someone else in the meantime; nothing was updated."
+                        + "\nCurrent version:\n" + result.getTicket());
+                break;
+            default:
+                System.out.println("\nTicket was deleted in the meantime!");
+        }
     }
 
 
@@ -208,6 +327,32 @@ public class CallCenterApp {
     }
 
 
+    /**
+     * Hands the agent the most urgent open ticket in the categories they handle.
+     * Uses DispatchService so agents do not have to pick tickets from the full list.
+     */
+    private static void claimNextTicket() {
+        System.out.print("\nAgent Name: ");
+        String agent = scanner.nextLine().trim();
+        System.out.print("Categories you handle, comma separated (leave blank for all): ");
+        String categories = scanner.nextLine();
+
+        List<String> skills = new ArrayList<>();
+        for (String category : categories.split(",")) {
+            if (!category.isBlank()) {
+                skills.add(category.trim());
+            }
+        }
+        TicketModel ticket = dispatchService.claimNext(agent.isEmpty() ? TicketModel.DEFAULT_AUTHOR : agent, skills);
+        if (ticket == null) {
+            System.out.println("No open tickets waiting.");
+            return;
+        }
+        System.out.println("\n--- CLAIMED TICKET ---");
+        System.out.println(ticket);
+    }
+
+
     /**
      * Implements ticket search functionality.
      * Allows searching by multiple criteria using SearchService.
@@ -223,17 +368,35 @@ public class CallCenterApp {
         System.out.print("Status (leave blank to skip): ");
         String status = scanner.nextLine();
 
+        System.out.print("Keywords in description or comments (leave blank to skip): ");
+        String keywords = scanner.nextLine();
 
-        List<TicketModel> results = searchService.searchByCriteria(
-                name.isEmpty() ? null : name,
-                category.isEmpty() ? null : category,
-                status.isEmpty() ? null : status,
-                null
-        );
+
+        boolean hasCriteria = !name.isEmpty() || !category.isEmpty() || !status.isEmpty();
+        List<TicketModel> results = List.of();
+        if (hasCriteria || keywords.isBlank()) {
+            results = searchService.searchByCriteria(
+                    name.isEmpty() ? null : name,
+                    category.isEmpty() ? null : category,
+                    status.isEmpty() ? null : status,
+                    null
+            );
+        }
+        if (!keywords.isBlank()) {
+            // Rank by relevance among the tickets matching the other criteria only
+            Set<Integer> allowed = new HashSet<>();
+            for (TicketModel ticket : results) {
+                allowed.add(ticket.getId());
+            }
+            results = searchService.searchText(keywords, MAX_SEARCH_RESULTS, hasCriteria ? allowed::contains : null);
+        }
 
 
         if (results.isEmpty()) {
             System.out.println("\nNo matching tickets found.");
+            if (!name.isEmpty()) {
+                suggestCustomerNames(name);
+            }
             return;
         }
 
@@ -249,4 +412,22 @@ public class CallCenterApp {
         }
         System.out.println("Found " + results.size() + " ticket(s)");
     }
+
+    /**
+     * Prints customer names close to a name that matched no tickets, in case it was misspelled
+     * or only partially typed.
+     *
+     * @param name The customer name that was searched for
+     */
+    private static void suggestCustomerNames(String name) {
+        Set<String> suggestions = new LinkedHashSet<>();
+        for (TicketModel ticket : searchService.searchByFuzzyCustomerName(name, 2, MAX_SEARCH_RESULTS)) {
+            suggestions.add(ticket.getCustomerName());
+        }
+        suggestions.addAll(searchService.autocompleteCustomerName(name, MAX_SUGGESTIONS));
+        if (!suggestions.isEmpty()) {
+            System.out.println("Did you mean: "
+                    + String.join(", ", suggestions.stream().limit(MAX_SUGGESTIONS).toList()) + "?");
+        }
+    }
 }
\ No newline at end of file
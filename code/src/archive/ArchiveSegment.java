@@ -0,0 +1,412 @@
+package archive;
+
+import models.CategoryDictionary;
+import models.TicketComment;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One read-only, memory-mapped segment file of archived tickets.
+ *
+ * The file holds a fixed-size header, a string heap, a table of the categories used in
+ * the segment, and fixed-width columns with one entry per ticket, sorted by ID:
+ * <pre>
+ *   ids       int[count]
+ *   status    byte[count]   (TicketStatus ordinal)
+ *   priority  byte[count]   (TicketPriority ordinal)
+ *   category  short[count]  (index into the segment's category table)
+ *   heap      long[count]   (offset of the ticket's strings and comments in the heap)
+ *   version   long[count]   (the ticket version that was archived)
+ *   created   long[count]   (creation time, milliseconds since the epoch)
+ *   updated   long[count]   (time of the archived version, milliseconds since the epoch)
+ * </pre>
+ * Segments of format 1 end after the heap offsets; their tickets are materialized as version 0
+ * without timestamps.
+ * Nothing is copied onto the heap until a matching ticket is materialized.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x544B4131;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES * 4 + Long.BYTES * 2;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final long number;
+    private final MappedByteBuffer data;
+    private final int count;
+    private final int idsOffset;
+    private final int statusOffset;
+    private final int priorityOffset;
+    private final int categoryOffset;
+    private final int heapOffsetsOffset;
+    private final int versionOffset;
+    private final int createdOffset;
+    private final int updatedOffset;
+    private final int minId;
+    private final int maxId;
+
+    /**
+     * Maps each category of the segment's table to its global CategoryDictionary ID.
+     */
+    private final int[] categoryIds;
+
+    /**
+     * IDs of tickets that have been reopened or deleted since they were archived.
+     */
+    private final Set<Integer> removed = ConcurrentHashMap.newKeySet();
+
+    private ArchiveSegment(long number, MappedByteBuffer data) throws IOException {
+        this.number = number;
+        this.data = data;
+        int format = data.capacity() < HEADER_BYTES ? 0 : data.getInt(4);
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || format < 1 || format > VERSION) {
+            throw new IOException("Not a ticket archive segment: " + number);
+        }
+        this.count = data.getInt(8);
+        int categoryCount = data.getInt(12);
+        long categoryTable = data.getLong(16);
+        long columns = data.getLong(24);
+
+        this.idsOffset = (int) columns;
+        this.statusOffset = idsOffset + Integer.BYTES * count;
+        this.priorityOffset = statusOffset + count;
+        this.categoryOffset = priorityOffset + count;
+        this.heapOffsetsOffset = categoryOffset + Short.BYTES * count;
+        this.versionOffset = format >= 2 ? heapOffsetsOffset + Long.BYTES * count : -1;
+        this.createdOffset = format >= 2 ? versionOffset + Long.BYTES * count : -1;
+        this.updatedOffset = format >= 2 ? createdOffset + Long.BYTES * count : -1;
+        this.minId = count == 0 ? 0 : idAt(0);
+        this.maxId = count == 0 ? -1 : idAt(count - 1);
+
+        this.categoryIds = new int[categoryCount];
+        ByteBuffer table = data.duplicate().position((int) categoryTable);
+        for (int i = 0; i < categoryCount; i++) {
+            categoryIds[i] = CategoryDictionary.intern(readString(table));
+        }
+    }
+
+    /**
+     * Memory-maps an existing segment file.
+     *
+     * @param path The segment file
+     * @param number The sequence number of the segment
+     * @return The opened segment
+     * @throws IOException if the file cannot be mapped or is not a segment
+     */
+    static ArchiveSegment open(Path path, long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ArchiveSegment(number, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the given tickets to a new segment file.
+     * The file is written under a temporary name and renamed once complete.
+     *
+     * @param path The segment file to create
+     * @param tickets The tickets to archive, sorted by ID
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, List<TicketModel> tickets) throws IOException {
+        int count = tickets.size();
+        int[] ids = new int[count];
+        byte[] statuses = new byte[count];
+        byte[] priorities = new byte[count];
+        short[] categories = new short[count];
+        long[] heapOffsets = new long[count];
+        long[] versions = new long[count];
+        long[] createdTimes = new long[count];
+        long[] updatedTimes = new long[count];
+        Map<String, Integer> categoryIndex = new HashMap<>();
+        List<String> categoryNames = new ArrayList<>();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.skip(HEADER_BYTES);
+            for (int i = 0; i < count; i++) {
+                TicketModel ticket = tickets.get(i);
+                ids[i] = ticket.getId();
+                versions[i] = ticket.getVersion();
+                createdTimes[i] = ticket.getCreatedAt();
+                updatedTimes[i] = ticket.getUpdatedAt();
+                statuses[i] = (byte) ticket.getTicketStatus().ordinal();
+                priorities[i] = (byte) ticket.getTicketPriority().ordinal();
+                String category = ticket.getCategory();
+                Integer local = categoryIndex.get(category.toLowerCase(Locale.ROOT));
+                if (local == null) {
+                    local = categoryNames.size();
+                    categoryIndex.put(category.toLowerCase(Locale.ROOT), local);
+                    categoryNames.add(category);
+                }
+                categories[i] = local.shortValue();
+                heapOffsets[i] = out.position();
+                out.writeString(ticket.getCustomerName());
+                out.writeString(ticket.getContactInfo());
+                out.writeString(ticket.getDescription());
+                out.writeInt(ticket.getCommentLog().size());
+                for (TicketComment comment : ticket.getCommentLog()) {
+                    out.writeLong(comment.getTimestamp().getEpochSecond());
+                    out.writeInt(comment.getTimestamp().getNano());
+                    out.writeString(comment.getAuthor());
+                    out.writeString(comment.getText());
+                }
+            }
+
+            long categoryTable = out.position();
+            for (String name : categoryNames) {
+                out.writeString(name);
+            }
+
+            long columns = out.position();
+            for (int id : ids) out.writeInt(id);
+            for (byte status : statuses) out.writeByte(status);
+            for (byte priority : priorities) out.writeByte(priority);
+            for (short category : categories) out.writeShort(category);
+            for (long offset : heapOffsets) out.writeLong(offset);
+            for (long version : versions) out.writeLong(version);
+            for (long createdAt : createdTimes) out.writeLong(createdAt);
+            for (long updatedAt : updatedTimes) out.writeLong(updatedAt);
+            out.flush();
+
+            if (columns + (long) count * 40 > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment too large: " + count + " tickets");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(categoryNames.size())
+                    .putLong(categoryTable).putLong(columns).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The sequence number of the segment
+     */
+    long getNumber() {
+        return number;
+    }
+
+    /**
+     * @return The highest ticket ID written to the segment, removed or not, or -1 if it is empty
+     */
+    int getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * @return The number of tickets in the segment that have not been removed
+     */
+    int liveCount() {
+        return count - removed.size();
+    }
+
+    /**
+     * Finds the column position of a ticket that has not been removed.
+     *
+     * @param id The ticket ID
+     * @return The position of the ticket, or -1 if it is not in this segment
+     */
+    int find(int id) {
+        if (id < minId || id > maxId || removed.contains(id)) {
+            return -1;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = idAt(middle);
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks a ticket as no longer archived in this segment.
+     *
+     * @param id The ticket ID
+     */
+    void markRemoved(int id) {
+        removed.add(id);
+    }
+
+    /**
+     * Collects the tickets matching all given criteria.
+     * Status, priority and category are compared directly in their columns; the customer name
+     * is only decoded for tickets that pass the other criteria.
+     *
+     * @param customerName The customer name to match ignoring case, or null for any
+     * @param categoryId The global category ID to match, or -1 for any
+     * @param status The status to match, or null for any
+     * @param priority The priority to match, or null for any
+     * @param results The list the matching tickets are added to
+     */
+    void search(String customerName, int categoryId, TicketStatus status, TicketPriority priority,
+                List<TicketModel> results) {
+        int statusCode = status == null ? -1 : status.ordinal();
+        int priorityCode = priority == null ? -1 : priority.ordinal();
+        int localCategory = -1;
+        if (categoryId >= 0) {
+            for (int i = 0; i < categoryIds.length; i++) {
+                if (categoryIds[i] == categoryId) {
+                    localCategory = i;
+                }
+            }
+            if (localCategory < 0) {
+                return;
+            }
+        }
+        boolean checkRemoved = !removed.isEmpty();
+        for (int i = 0; i < count; i++) {
+            if (statusCode >= 0 && data.get(statusOffset + i) != statusCode) continue;
+            if (priorityCode >= 0 && data.get(priorityOffset + i) != priorityCode) continue;
+            if (localCategory >= 0 && data.getShort(categoryOffset + Short.BYTES * i) != localCategory) continue;
+            if (checkRemoved && removed.contains(idAt(i))) continue;
+            if (customerName != null) {
+                ByteBuffer heap = heapAt(i);
+                if (!customerName.equalsIgnoreCase(readString(heap))) continue;
+            }
+            results.add(materialize(i));
+        }
+    }
+
+    /**
+     * Builds a TicketModel copy of the ticket at the given column position.
+     *
+     * @param position A position returned by find
+     * @return A new TicketModel holding the archived state, version and timestamps
+     */
+    TicketModel materialize(int position) {
+        ByteBuffer heap = heapAt(position);
+        int categoryId = categoryIds[data.getShort(categoryOffset + Short.BYTES * position)];
+        TicketModel ticket = new TicketModel(idAt(position), readString(heap), readString(heap),
+                CategoryDictionary.nameOf(categoryId), readString(heap));
+        ticket.setStatus(TicketStatus.values()[data.get(statusOffset + position)]);
+        ticket.setPriority(TicketPriority.values()[data.get(priorityOffset + position)]);
+        if (versionOffset >= 0) {
+            ticket.setVersion(data.getLong(versionOffset + Long.BYTES * position));
+            ticket.setCreatedAt(data.getLong(createdOffset + Long.BYTES * position));
+            ticket.setUpdatedAt(data.getLong(updatedOffset + Long.BYTES * position));
+        }
+        int comments = heap.getInt();
+        for (int i = 0; i < comments; i++) {
+            Instant timestamp = Instant.ofEpochSecond(heap.getLong(), heap.getInt());
+            ticket.getCommentLog().append(new TicketComment(timestamp, readString(heap), readString(heap)));
+        }
+        return ticket;
+    }
+
+    private int idAt(int position) {
+        return data.getInt(idsOffset + Integer.BYTES * position);
+    }
+
+    private ByteBuffer heapAt(int position) {
+        long offset = data.getLong(heapOffsetsOffset + Long.BYTES * position);
+        return data.duplicate().position((int) offset);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffered sequential writer that keeps track of the file position.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private long flushed;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void skip(int bytes) throws IOException {
+            for (int i = 0; i < bytes; i++) {
+                writeByte((byte) 0);
+            }
+        }
+
+        void writeByte(byte value) throws IOException {
+            ensure(1).put(value);
+        }
+
+        void writeShort(short value) throws IOException {
+            ensure(Short.BYTES).putShort(value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(encoded.length);
+            int written = 0;
+            while (written < encoded.length) {
+                int chunk = Math.min(encoded.length - written, BUFFER_BYTES);
+                ensure(chunk).put(encoded, written, chunk);
+                written += chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package archive;
+
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Read-only archive of tickets that are no longer expected to change, such as closed tickets.
+ * Tickets are stored in memory-mapped columnar segment files, so archived history adds
+ * almost nothing to the Java heap and nothing to garbage collection work.
+ *
+ * Archived tickets cannot be modified in place. Reopening or deleting one marks it as removed
+ * in its segment; the removal is recorded in a small tombstone log so it survives restarts.
+ */
+public class TicketArchive implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TOMBSTONE_FILE = "tombstones.log";
+    private static final int MAX_TICKETS_PER_SEGMENT = 1 << 20;
+
+    private final Path directory;
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+    private final FileChannel tombstones;
+
+    private TicketArchive(Path directory) throws IOException {
+        this.directory = directory;
+        this.tombstones = FileChannel.open(directory.resolve(TOMBSTONE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Opens the archive stored in the given directory, creating it if needed.
+     *
+     * @param directory The directory holding the segment files
+     * @return The opened archive
+     * @throws IOException if a segment or the tombstone log cannot be read
+     */
+    public static TicketArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        TicketArchive archive = new TicketArchive(directory);
+        for (long number : listSegments(directory)) {
+            archive.segments.add(ArchiveSegment.open(segmentPath(directory, number), number));
+        }
+        archive.loadTombstones();
+        return archive;
+    }
+
+    /**
+     * Writes the given tickets to new segments and makes them visible to readers.
+     *
+     * @param tickets The tickets to archive
+     * @throws IOException if a segment cannot be written
+     */
+    public synchronized void append(List<TicketModel> tickets) throws IOException {
+        List<TicketModel> sorted = new ArrayList<>(tickets);
+        sorted.sort(Comparator.comparingInt(TicketModel::getId));
+        for (int start = 0; start < sorted.size(); start += MAX_TICKETS_PER_SEGMENT) {
+            List<TicketModel> batch = sorted.subList(start, Math.min(sorted.size(), start + MAX_TICKETS_PER_SEGMENT));
+            long number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).getNumber() + 1;
+            Path path = segmentPath(directory, number);
+            ArchiveSegment.write(path, batch);
+            segments.add(ArchiveSegment.open(path, number));
+        }
+    }
+
+    /**
+     * Retrieves an archived ticket.
+     * The returned TicketModel is a copy; changing it does not change the archive.
+     *
+     * @param id The ID of the ticket to find
+     * @return A copy of the archived ticket, or null if it is not archived
+     */
+    public TicketModel get(int id) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            ArchiveSegment segment = segments.get(i);
+            int position = segment.find(id);
+            if (position >= 0) {
+                return segment.materialize(position);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a ticket is archived.
+     *
+     * @param id The ticket ID
+     * @return true if the ticket is archived and has not been removed
+     */
+    public boolean contains(int id) {
+        for (ArchiveSegment segment : segments) {
+            if (segment.find(id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a ticket from the archive, e.g. because it was reopened or deleted.
+     *
+     * @param id The ticket ID
+     * @return true if the ticket was archived
+     * @throws IOException if the removal cannot be recorded
+     */
+    public synchronized boolean remove(int id) throws IOException {
+        boolean found = false;
+        for (ArchiveSegment segment : segments) {
+            if (segment.find(id) >= 0) {
+                ByteBuffer record = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+                record.putLong(segment.getNumber()).putInt(id).flip();
+                while (record.hasRemaining()) {
+                    tombstones.write(record);
+                }
+                tombstones.force(false);
+                segment.markRemoved(id);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Collects the archived tickets matching all given criteria.
+     *
+     * @param customerName The customer name to match ignoring case, or null for any
+     * @param categoryId The CategoryDictionary ID to match, or -1 for any
+     * @param status The status to match, or null for any
+     * @param priority The priority to match, or null for any
+     * @param results The list the matching tickets are added to
+     */
+    public void search(String customerName, int categoryId, TicketStatus status, TicketPriority priority,
+                       List<TicketModel> results) {
+        for (ArchiveSegment segment : segments) {
+            segment.search(customerName, categoryId, status, priority, results);
+        }
+    }
+
+    /**
+     * @return The number of tickets in the archive
+     */
+    public long size() {
+        long size = 0;
+        for (ArchiveSegment segment : segments) {
+            size += segment.liveCount();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the highest ticket ID ever archived, including tickets removed since.
+     * New tickets must get higher IDs so they cannot be mistaken for archived ones.
+     *
+     * @return The highest archived ticket ID, or 0 if the archive is empty
+     */
+    public int getMaxId() {
+        int maxId = 0;
+        for (ArchiveSegment segment : segments) {
+            maxId = Math.max(maxId, segment.getMaxId());
+        }
+        return maxId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        tombstones.close();
+    }
+
+    private void loadTombstones() throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        try (FileChannel channel = FileChannel.open(directory.resolve(TOMBSTONE_FILE), StandardOpenOption.READ)) {
+            while (true) {
+                record.clear();
+                while (record.hasRemaining() && channel.read(record) >= 0) {
+                    // Keep reading until the record is complete
+                }
+                if (record.hasRemaining()) {
+                    return;
+                }
+                record.flip();
+                long number = record.getLong();
+                int id = record.getInt();
+                for (ArchiveSegment segment : segments) {
+                    if (segment.getNumber() == number) {
+                        segment.markRemoved(id);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+}
@@ -0,0 +1,168 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Minimal, dependency-free micro-benchmark harness in the spirit of JMH, for the scenario
+ * benchmarks that run straight from the source tree. The service benchmarks run on JMH itself,
+ * in the jmh module of the Maven build.
+ * Runs an operation for a number of timed warmup and measurement iterations on one or more
+ * threads and reports the throughput of each iteration. Results of the operation are folded
+ * into a sink so the JIT cannot eliminate the work that produces them.
+ *
+ * It lacks two guarantees of JMH, so its numbers are best compared with each other rather than
+ * taken as absolute. There is no fork isolation: every benchmark runs in the JVM of the ones
+ * before it and inherits their profile, compiled code and heap, so running one configuration
+ * per JVM gives the cleanest results. The dead-code protection is weaker than JMH's Blackhole:
+ * only the hash code of the returned value is consumed, so work that does not feed the return
+ * value may still be eliminated, and inputs the JIT can prove constant may be folded away.
+ */
+public class BenchmarkHarness {
+
+    /**
+     * The operation being measured. Called repeatedly from every benchmark thread.
+     */
+    public interface Operation {
+        /**
+         * @param thread Index of the calling benchmark thread, starting at 0
+         * @param iteration Running count of calls made by this thread
+         * @return Any value derived from the work done, consumed by the harness
+         */
+        Object run(int thread, long iteration);
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationMillis;
+    private final List<BenchmarkResult> results = new ArrayList<>();
+    private volatile int sink;
+
+    /**
+     * Constructs a harness with the given iteration settings.
+     *
+     * @param warmupIterations Number of untimed iterations run first
+     * @param measurementIterations Number of timed iterations
+     * @param iterationMillis Duration of each iteration in milliseconds
+     */
+    public BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * Runs a benchmark and records its result.
+     *
+     * @param name The benchmark name
+     * @param params Parameters describing the benchmark setup, e.g. the backlog size
+     * @param threads Number of threads running the operation concurrently
+     * @param operation The operation to measure
+     * @return The measured result
+     */
+    public BenchmarkResult run(String name, Map<String, String> params, int threads, Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(threads, operation);
+        }
+        double[] throughput = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            throughput[i] = iterate(threads, operation);
+        }
+        BenchmarkResult result = new BenchmarkResult(name, new LinkedHashMap<>(params), threads, throughput);
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * @return All results recorded so far, in the order they were run
+     */
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Runs one timed iteration on all threads.
+     *
+     * @return Operations per second over all threads
+     */
+    private double iterate(int threads, Operation operation) {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] counts = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                int local = 0;
+                long calls = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (running.get()) {
+                    Object value = operation.run(thread, calls++);
+                    local += value == null ? 0 : value.hashCode();
+                }
+                counts[thread] = calls;
+                sink += local;
+            }, "benchmark-" + t);
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            Thread.sleep(iterationMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running.set(false);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    /**
+     * Parses command-line options of the form --name value.
+     *
+     * @param args The command-line arguments
+     * @return The option values by name, without the leading dashes
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Parses a comma-separated list of integers, such as --threads 1,8.
+     *
+     * @param list The list to parse
+     * @return The parsed values
+     */
+    static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import java.util.Map;
+
+/**
+ * Throughput measured for one benchmark configuration.
+ */
+public class BenchmarkResult {
+
+    private final String name;
+    private final Map<String, String> params;
+    private final int threads;
+    private final double[] throughput;
+
+    /**
+     * Constructs a result.
+     *
+     * @param name The benchmark name
+     * @param params Parameters describing the benchmark setup
+     * @param threads Number of threads that ran the benchmark
+     * @param throughput Operations per second of each measurement iteration
+     */
+    public BenchmarkResult(String name, Map<String, String> params, int threads, double[] throughput) {
+        this.name = name;
+        this.params = params;
+        this.threads = threads;
+        this.throughput = throughput;
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public Map<String, String> getParams() { return params; }
+    public int getThreads() { return threads; }
+
+    /**
+     * @return Mean operations per second over the measurement iterations
+     */
+    public double getMean() {
+        double sum = 0;
+        for (double value : throughput) {
+            sum += value;
+        }
+        return sum / throughput.length;
+    }
+
+    /**
+     * @return Sample standard deviation of the operations per second
+     */
+    public double getError() {
+        if (throughput.length < 2) {
+            return 0;
+        }
+        double mean = getMean();
+        double squares = 0;
+        for (double value : throughput) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (throughput.length - 1));
+    }
+
+    /**
+     * Formats the result as a JSON object, following the field names of JMH's JSON output.
+     *
+     * @return The result as JSON
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"benchmark\":").append(quote(name))
+                .append(",\"mode\":\"thrpt\",\"threads\":").append(threads)
+                .append(",\"params\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (!first) json.append(',');
+            json.append(quote(param.getKey())).append(':').append(quote(param.getValue()));
+            first = false;
+        }
+        json.append("},\"primaryMetric\":{\"score\":").append(getMean())
+                .append(",\"scoreError\":").append(getError())
+                .append(",\"scoreUnit\":\"ops/s\",\"rawData\":[");
+        for (int i = 0; i < throughput.length; i++) {
+            if (i > 0) json.append(',');
+            json.append(throughput[i]);
+        }
+        return json.append("]}}").toString();
+    }
+
+    /**
+     * Formats a list of results as a JSON array.
+     *
+     * @param results The results to format
+     * @return The results as a JSON array
+     */
+    public static String toJson(Iterable<BenchmarkResult> results) {
+        StringBuilder json = new StringBuilder("[\n");
+        boolean first = true;
+        for (BenchmarkResult result : results) {
+            if (!first) json.append(",\n");
+            json.append("  ").append(result.toJson());
+            first = false;
+        }
+        return json.append("\n]\n").toString();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s %-30s %3d thread(s) %,15.1f ops/s  +- %,.1f",
+                name, params, threads, getMean(), getError());
+    }
+}
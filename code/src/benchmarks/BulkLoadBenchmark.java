@@ -0,0 +1,71 @@
+package benchmarks;
+
+import models.TicketModel;
+import persistence.TicketPersistence;
+import repository.TicketRepository;
+import services.CreateService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compares loading tickets one at a time through CreateService.create with loading them
+ * through CreateService.createAll, both in memory and with a durable write-ahead log.
+ *
+ * Usage: java benchmarks.BulkLoadBenchmark [--tickets 100000] [--batch 1000]
+ */
+public class BulkLoadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "100000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "1000"));
+
+        for (boolean durable : new boolean[] {false, true}) {
+            long single = load(count, batchSize, durable, false);
+            long batched = load(count, batchSize, durable, true);
+            System.out.printf("%,d tickets %-10s create loop %,7d ms | createAll (batch %,d) %,7d ms | %.1fx%n",
+                    count, durable ? "(durable)" : "(memory)", single, batchSize, batched,
+                    (double) single / Math.max(1, batched));
+        }
+    }
+
+    private static long load(int count, int batchSize, boolean durable, boolean batched) throws IOException {
+        TicketRepository repository = new TicketRepository();
+        CreateService createService = new CreateService(repository);
+        TicketDataGenerator generator = new TicketDataGenerator(7, Math.max(1, count / 5));
+        Path directory = durable ? Files.createTempDirectory("ticket-bulk") : null;
+        TicketPersistence persistence = durable ? TicketPersistence.open(directory, repository, true, 0) : null;
+        try {
+            long start = System.nanoTime();
+            if (batched) {
+                for (int loaded = 0; loaded < count; loaded += batchSize) {
+                    int size = Math.min(batchSize, count - loaded);
+                    int firstId = repository.reserveIds(size);
+                    List<TicketModel> batch = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        batch.add(generator.next(firstId + i));
+                    }
+                    createService.createAll(batch);
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    createService.create(generator.next(repository.getNextId()));
+                }
+            }
+            return (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            if (persistence != null) {
+                persistence.close();
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+}
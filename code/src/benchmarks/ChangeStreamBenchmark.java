@@ -0,0 +1,69 @@
+package benchmarks;
+
+import changes.ChangeStream;
+import models.TicketModel;
+import models.TicketPriority;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures what change capture costs on the write path: ticket updates without a ChangeStream,
+ * with a subscriber that keeps up, and with one that sleeps on every batch and falls behind.
+ * The last two should cost the same, since writers never wait for subscribers.
+ *
+ * Usage: java benchmarks.ChangeStreamBenchmark [--tickets 100000] [--threads 1,8] [--capacity 65536]
+ */
+public class ChangeStreamBenchmark {
+
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "100000"));
+        int[] threadCounts = BenchmarkHarness.parseInts(options.getOrDefault("threads",
+                "1," + Runtime.getRuntime().availableProcessors()));
+        int capacity = Integer.parseInt(options.getOrDefault("capacity", "65536"));
+        BenchmarkHarness harness = new BenchmarkHarness(2, 5, 1000);
+
+        for (int threads : threadCounts) {
+            TicketRepository repository = threads == 1 ? new TicketRepository() : new ConcurrentTicketRepository();
+            new TicketDataGenerator(42, Math.max(1, count / 5)).fill(repository, count);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("tickets", String.valueOf(count));
+            params.put("repository", repository.getClass().getSimpleName());
+
+            update(harness, "update(no stream)", params, threads, repository, count);
+            try (ChangeStream stream = new ChangeStream(repository, capacity)) {
+                ChangeStream.Subscription subscription = stream.subscribe("fast", batch -> { }, 1024);
+                update(harness, "update(fast subscriber)", params, threads, repository, count);
+                System.out.printf("  fast subscriber: delivered %,d, missed %,d%n",
+                        subscription.getDeliveredCount(), subscription.getMissedCount());
+            }
+            try (ChangeStream stream = new ChangeStream(repository, capacity)) {
+                ChangeStream.Subscription subscription = stream.subscribe("slow", batch -> sleep(), 1024);
+                update(harness, "update(slow subscriber)", params, threads, repository, count);
+                System.out.printf("  slow subscriber: delivered %,d, missed %,d%n",
+                        subscription.getDeliveredCount(), subscription.getMissedCount());
+            }
+        }
+    }
+
+    private static void update(BenchmarkHarness harness, String name, Map<String, String> params, int threads,
+                               TicketRepository repository, int count) {
+        harness.run("ChangeStream." + name, params, threads, (thread, i) -> repository.modifyTicket(
+                1 + ThreadLocalRandom.current().nextInt(count), ChangeStreamBenchmark::togglePriority));
+    }
+
+    private static void togglePriority(TicketModel ticket) {
+        ticket.setPriority(ticket.getTicketPriority() == TicketPriority.LOW ? TicketPriority.MEDIUM : TicketPriority.LOW);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package benchmarks;
+
+import codec.TicketCodec;
+import models.TicketComment;
+import models.TicketModel;
+import server.Json;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the TicketCodec with Java serialization and JSON: encoded bytes per ticket and
+ * single-threaded encode and decode throughput over the same generated tickets.
+ * TicketModel is not Serializable, so Java serialization writes an equivalent record holding
+ * the same fields; converting to and from it is part of the measured work.
+ *
+ * Usage: java benchmarks.CodecBenchmark [--tickets 10000] [--comments 3]
+ */
+public class CodecBenchmark {
+
+    private static final String[] AUTHORS = {"Agent", "alice", "bob", "carol", "dave"};
+
+    /**
+     * Serializable copy of a ticket for the Java serialization baseline.
+     */
+    private record SerialTicket(int id, long version, long createdAt, long updatedAt, String customerName, String contactInfo, String category,
+                                String description, String status, String priority,
+                                List<SerialComment> comments) implements Serializable {
+    }
+
+    private record SerialComment(Instant timestamp, String author, String text) implements Serializable {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "10000"));
+        int commentsPerTicket = Integer.parseInt(options.getOrDefault("comments", "3"));
+        TicketModel[] tickets = generate(count, commentsPerTicket);
+
+        // Encoded forms, prepared once for the decode benchmarks
+        ByteBuffer stream = ByteBuffer.allocate(encodedSize(tickets));
+        TicketCodec streamCodec = new TicketCodec();
+        for (TicketModel ticket : tickets) {
+            streamCodec.encode(ticket, stream);
+        }
+        stream.flip();
+        long standalone = 0;
+        ByteBuffer scratch = ByteBuffer.allocate(1 << 16);
+        for (TicketModel ticket : tickets) {
+            scratch.clear();
+            standalone += new TicketCodec().encode(ticket, scratch);
+        }
+        byte[][] serialized = new byte[count][];
+        byte[][] json = new byte[count][];
+        long serializedBytes = 0;
+        long jsonBytes = 0;
+        for (int i = 0; i < count; i++) {
+            serialized[i] = serialize(tickets[i]);
+            json[i] = toJson(tickets[i]);
+            serializedBytes += serialized[i].length;
+            jsonBytes += json[i].length;
+        }
+        System.out.printf("Bytes per ticket (%d comments each): TicketCodec stream %.1f, TicketCodec standalone %.1f,"
+                        + " Java serialization %.1f, JSON %.1f%n", commentsPerTicket, stream.limit() / (double) count,
+                standalone / (double) count, serializedBytes / (double) count, jsonBytes / (double) count);
+
+        BenchmarkHarness harness = new BenchmarkHarness(3, 5, 1000);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("tickets", String.valueOf(count));
+        params.put("comments", String.valueOf(commentsPerTicket));
+
+        ByteBuffer out = ByteBuffer.allocate(1 << 16);
+        TicketCodec[] encoder = {new TicketCodec()};
+        harness.run("Codec.encode(TicketCodec)", params, 1, (thread, i) -> {
+            out.clear();
+            return encoder[0].encode(tickets[(int) (i % count)], out);
+        });
+        ByteBuffer in = stream.duplicate();
+        TicketCodec[] decoder = {new TicketCodec()};
+        harness.run("Codec.decode(TicketCodec)", params, 1, (thread, i) -> {
+            if (!in.hasRemaining()) {
+                // Start the stream over with a fresh dictionary
+                in.rewind();
+                decoder[0] = new TicketCodec();
+            }
+            return decoder[0].decode(in);
+        });
+        harness.run("Codec.encode(Java serialization)", params, 1,
+                (thread, i) -> serialize(tickets[(int) (i % count)]));
+        harness.run("Codec.decode(Java serialization)", params, 1,
+                (thread, i) -> deserialize(serialized[(int) (i % count)]));
+        harness.run("Codec.encode(JSON)", params, 1, (thread, i) -> toJson(tickets[(int) (i % count)]));
+        harness.run("Codec.decode(JSON)", params, 1, (thread, i) -> fromJson(json[(int) (i % count)]));
+    }
+
+    private static TicketModel[] generate(int count, int commentsPerTicket) {
+        TicketDataGenerator generator = new TicketDataGenerator(42, Math.max(1, count / 5));
+        TicketModel[] tickets = new TicketModel[count];
+        for (int i = 0; i < count; i++) {
+            tickets[i] = generator.next(i + 1);
+            for (int c = 0; c < commentsPerTicket; c++) {
+                tickets[i].addComment(AUTHORS[(i + c) % AUTHORS.length], "Called customer back, step " + c);
+            }
+            tickets[i].setVersion(1 + commentsPerTicket);
+            tickets[i].setCreatedAt(1_700_000_000_000L + i * 1000L);
+            tickets[i].setUpdatedAt(tickets[i].getCreatedAt() + commentsPerTicket * 60_000L);
+        }
+        return tickets;
+    }
+
+    private static int encodedSize(TicketModel[] tickets) {
+        int size = 0;
+        for (TicketModel ticket : tickets) {
+            size += TicketCodec.maxEncodedSize(ticket);
+        }
+        return size;
+    }
+
+    private static byte[] serialize(TicketModel ticket) {
+        List<SerialComment> comments = new ArrayList<>(ticket.getCommentLog().size());
+        for (TicketComment comment : ticket.getCommentLog()) {
+            comments.add(new SerialComment(comment.getTimestamp(), comment.getAuthor(), comment.getText()));
+        }
+        SerialTicket serial = new SerialTicket(ticket.getId(), ticket.getVersion(), ticket.getCreatedAt(),
+                ticket.getUpdatedAt(), ticket.getCustomerName(), ticket.getContactInfo(), ticket.getCategory(),
+                ticket.getDescription(), ticket.getStatus(), ticket.getPriority(), comments);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(serial);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static TicketModel deserialize(byte[] bytes) {
+        SerialTicket serial;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            serial = (SerialTicket) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        TicketModel ticket = new TicketModel(serial.id(), serial.customerName(), serial.contactInfo(),
+                serial.category(), serial.description());
+        ticket.setStatus(serial.status());
+        ticket.setPriority(serial.priority());
+        ticket.setVersion(serial.version());
+        ticket.setCreatedAt(serial.createdAt());
+        ticket.setUpdatedAt(serial.updatedAt());
+        for (SerialComment comment : serial.comments()) {
+            ticket.getCommentLog().append(new TicketComment(comment.timestamp(), comment.author(), comment.text()));
+        }
+        return ticket;
+    }
+
+    private static byte[] toJson(TicketModel ticket) {
+        return Json.ticket(new StringBuilder(512), ticket).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TicketModel fromJson(byte[] bytes) {
+        return Json.readTicket((Map<String, Object>) Json.parse(new String(bytes, StandardCharsets.UTF_8)));
+    }
+}
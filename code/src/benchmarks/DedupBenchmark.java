@@ -0,0 +1,119 @@
+package benchmarks;
+
+import dedup.DuplicateDetector;
+import metrics.Histogram;
+import models.TicketModel;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import services.CreateResult;
+import services.CreateService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Replays the calls of a simulated incident through the CreateService, without duplicate
+ * detection and with duplicates flagged or merged, and reports the create latency, throughput
+ * and how many tickets the repository grew by. Most calls are about unrelated problems; the
+ * given share is about one of a few outages, described in varying words, and some of those
+ * come from callers phoning back.
+ *
+ * Usage: java benchmarks.DedupBenchmark [--calls 200000] [--incident 30] [--capacity 20000]
+ */
+public class DedupBenchmark {
+
+    private static final String[] OUTAGES = {
+        "internet connection down in the whole office since this morning",
+        "cannot log in to the customer portal password rejected",
+        "email not syncing on phone and laptop since the update",
+        "vpn disconnects every few minutes when working from home",
+        "invoice for last month charged twice on my credit card"
+    };
+
+    private static final String[] FILLERS = {"again", "still", "please help", "urgent", "since today", "for everyone"};
+
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int calls = Integer.parseInt(options.getOrDefault("calls", "200000"));
+        int incidentPercent = Integer.parseInt(options.getOrDefault("incident", "30"));
+        int capacity = Integer.parseInt(options.getOrDefault("capacity", String.valueOf(DuplicateDetector.DEFAULT_CAPACITY)));
+
+        // Warm up every path once, then measure
+        for (int round = 0; round < 2; round++) {
+            for (DuplicateDetector.Action action : new DuplicateDetector.Action[] {null,
+                    DuplicateDetector.Action.FLAG, DuplicateDetector.Action.MERGE}) {
+                run(action, round == 0 ? Math.min(calls, 20_000) : calls, incidentPercent, capacity, round == 1);
+            }
+        }
+    }
+
+    private static void run(DuplicateDetector.Action action, int calls, int incidentPercent, int capacity,
+                            boolean print) {
+        TicketRepository repository = new ConcurrentTicketRepository();
+        DuplicateDetector duplicates = action == null ? null
+                : new DuplicateDetector(repository, action, Duration.ofHours(1), DuplicateDetector.DEFAULT_THRESHOLD, capacity);
+        CreateService createService = duplicates == null ? new CreateService(repository)
+                : new CreateService(repository, duplicates);
+        List<TicketModel> tickets = generate(calls, incidentPercent);
+        Histogram latencies = new Histogram();
+        int merged = 0;
+        int flagged = 0;
+        long start = System.nanoTime();
+        for (TicketModel ticket : tickets) {
+            long callStart = System.nanoTime();
+            CreateResult result = createService.createDeduplicated(ticket);
+            latencies.record(System.nanoTime() - callStart);
+            if (result.getOutcome() == CreateResult.Outcome.MERGED) {
+                merged++;
+            } else if (result.getOutcome() == CreateResult.Outcome.FLAGGED) {
+                flagged++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (print) {
+            System.out.printf("%-6s %,d calls  %,9.0f calls/s  p50 %,6.1f us  p99 %,7.1f us  max %,8.1f us"
+                            + "  %,d tickets (%,d flagged, %,d merged)%n",
+                    action == null ? "NONE" : action, calls, calls * 1e9 / elapsed,
+                    latencies.getValueAtPercentile(50) / 1e3, latencies.getValueAtPercentile(99) / 1e3,
+                    latencies.getMax() / 1e3, repository.getTicketCount(), flagged, merged);
+        }
+    }
+
+    /**
+     * Generates the calls: unrelated problems made of random words, and outage reports
+     * reworded by dropping a word and adding a filler, from a small pool of repeat callers.
+     */
+    private static List<TicketModel> generate(int calls, int incidentPercent) {
+        SplittableRandom random = new SplittableRandom(7);
+        List<TicketModel> tickets = new ArrayList<>(calls);
+        for (int id = 1; id <= calls; id++) {
+            String name = TicketDataGenerator.customerName(random.nextInt(50_000));
+            String category = TicketDataGenerator.CATEGORIES[random.nextInt(TicketDataGenerator.CATEGORIES.length)];
+            if (random.nextInt(100) < incidentPercent) {
+                int outage = random.nextInt(OUTAGES.length);
+                String[] words = OUTAGES[outage].split(" ");
+                StringBuilder description = new StringBuilder();
+                int dropped = random.nextInt(words.length);
+                for (int i = 0; i < words.length; i++) {
+                    if (i != dropped) {
+                        description.append(words[i]).append(' ');
+                    }
+                }
+                description.append(FILLERS[random.nextInt(FILLERS.length)]);
+                String contact = "+1-555-" + String.format("%07d", random.nextInt(2_000));
+                tickets.add(new TicketModel(id, name, contact, category, description.toString()));
+            } else {
+                StringBuilder description = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    description.append(TicketDataGenerator.customerName(random.nextInt(100_000))
+                            .substring(0, 3).toLowerCase()).append(random.nextInt(100)).append(' ');
+                }
+                String contact = "+1-555-" + String.format("%07d", random.nextInt(10_000_000));
+                tickets.add(new TicketModel(id, name, contact, category, description.toString()));
+            }
+        }
+        return tickets;
+    }
+}
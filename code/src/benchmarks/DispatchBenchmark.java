@@ -0,0 +1,117 @@
+package benchmarks;
+
+import models.TicketModel;
+import repository.ConcurrentTicketRepository;
+import services.DispatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the latency of DispatchService.claimNext while many agents claim at once.
+ * Every agent handles two categories, so agents with overlapping skills contend for the heads
+ * of the same queues, while a producer keeps adding new tickets at a steady rate.
+ * Reports the claim rate and the latency percentiles over all claims.
+ *
+ * Usage: java benchmarks.DispatchBenchmark [--tickets 200000] [--agents 1,4,16,64] [--claims 20000]
+ *        [--arrivals 10000]
+ */
+public class DispatchBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "200000"));
+        int[] agentCounts = BenchmarkHarness.parseInts(options.getOrDefault("agents", "1,4,16,64"));
+        int claimsPerAgent = Integer.parseInt(options.getOrDefault("claims", "20000"));
+        int arrivalsPerSecond = Integer.parseInt(options.getOrDefault("arrivals", "10000"));
+
+        for (int agents : agentCounts) {
+            ConcurrentTicketRepository repository = new ConcurrentTicketRepository();
+            new TicketDataGenerator(42, Math.max(1, count / 5)).fill(repository, count);
+            DispatchService dispatchService = new DispatchService(repository);
+            run(repository, dispatchService, agents, claimsPerAgent, arrivalsPerSecond);
+        }
+    }
+
+    private static void run(ConcurrentTicketRepository repository, DispatchService dispatchService,
+                            int agents, int claimsPerAgent, int arrivalsPerSecond) throws InterruptedException {
+        long[][] latencies = new long[agents][claimsPerAgent];
+        int[] claimed = new int[agents];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int a = 0; a < agents; a++) {
+            int agent = a;
+            List<String> skills = List.of(
+                    TicketDataGenerator.CATEGORIES[agent % TicketDataGenerator.CATEGORIES.length],
+                    TicketDataGenerator.CATEGORIES[(agent + 1) % TicketDataGenerator.CATEGORIES.length]);
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < claimsPerAgent; i++) {
+                    long begin = System.nanoTime();
+                    TicketModel ticket = dispatchService.claimNext("agent-" + agent, skills);
+                    latencies[agent][i] = System.nanoTime() - begin;
+                    if (ticket == null) {
+                        break;
+                    }
+                    claimed[agent]++;
+                }
+            }));
+        }
+        Thread producer = new Thread(() -> {
+            TicketDataGenerator generator = new TicketDataGenerator(7, 1000);
+            awaitQuietly(start);
+            while (!Thread.currentThread().isInterrupted()) {
+                TicketModel ticket = generator.next(repository.getNextId());
+                ticket.setStatus("Open");
+                repository.createTicket(ticket);
+                LockSupport.parkNanos(1_000_000_000L / arrivalsPerSecond);
+            }
+        });
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        producer.start();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        producer.interrupt();
+        producer.join();
+
+        int total = 0;
+        for (int agent = 0; agent < agents; agent++) {
+            total += claimed[agent];
+        }
+        long[] all = new long[total];
+        int next = 0;
+        for (int agent = 0; agent < agents; agent++) {
+            System.arraycopy(latencies[agent], 0, all, next, claimed[agent]);
+            next += claimed[agent];
+        }
+        Arrays.sort(all);
+        System.out.printf("%3d agents: %,9d claims %,10.0f claims/s  p50 %,7.1f us  p99 %,8.1f us  p99.9 %,8.1f us  max %,9.1f us%n",
+                agents, total, total / (elapsed / 1e9), percentile(all, 0.50), percentile(all, 0.99),
+                percentile(all, 0.999), all.length == 0 ? 0 : all[all.length - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1000.0;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
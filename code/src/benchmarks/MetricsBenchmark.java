@@ -0,0 +1,102 @@
+package benchmarks;
+
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import models.TicketModel;
+import models.TicketPriority;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import services.ReadService;
+import services.SearchService;
+import services.UpdateService;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures what the service metrics cost: read, update and searchByCriteria through plain
+ * services and through services recording into a MetricsRegistry, the raw cost of recording a
+ * value and of timing a call, and the bytes allocated per recording (expected: 0).
+ * Prints the collected metrics at the end.
+ *
+ * Usage: java benchmarks.MetricsBenchmark [--tickets 100000] [--threads 1,8]
+ */
+public class MetricsBenchmark {
+
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "100000"));
+        int[] threadCounts = BenchmarkHarness.parseInts(options.getOrDefault("threads",
+                "1," + Runtime.getRuntime().availableProcessors()));
+        BenchmarkHarness harness = new BenchmarkHarness(2, 5, 1000);
+
+        System.out.printf("Allocated bytes per Histogram.record: %.3f, per Timer.record: %.3f%n",
+                allocatedPerCall(new Histogram(), null), allocatedPerCall(null, new Timer()));
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.registerHeapGauges();
+        for (int threads : threadCounts) {
+            TicketRepository repository = threads == 1 ? new TicketRepository() : new ConcurrentTicketRepository();
+            new TicketDataGenerator(42, Math.max(1, count / 5)).fill(repository, count);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("tickets", String.valueOf(count));
+            params.put("repository", repository.getClass().getSimpleName());
+
+            Histogram histogram = new Histogram();
+            harness.run("Metrics.Histogram.record", params, threads,
+                    (thread, i) -> { histogram.record(i & 0xFFFFF); return null; });
+            Timer timer = new Timer();
+            harness.run("Metrics.Timer.record", params, threads,
+                    (thread, i) -> { timer.record(System.nanoTime()); return null; });
+
+            run(harness, "plain", params, threads, count, new ReadService(repository),
+                    new UpdateService(repository), new SearchService(repository));
+            run(harness, "instrumented", params, threads, count, new ReadService(repository, metrics),
+                    new UpdateService(repository, metrics), new SearchService(repository, metrics));
+        }
+        System.out.println();
+        System.out.print(metrics.toText());
+    }
+
+    private static void run(BenchmarkHarness harness, String variant, Map<String, String> params, int threads,
+                            int count, ReadService readService, UpdateService updateService,
+                            SearchService searchService) {
+        harness.run("Metrics.read(" + variant + ")", params, threads,
+                (thread, i) -> readService.read(1 + ThreadLocalRandom.current().nextInt(count)));
+        harness.run("Metrics.update(" + variant + ")", params, threads, (thread, i) -> {
+            TicketModel ticket = readService.read(1 + ThreadLocalRandom.current().nextInt(count));
+            if (ticket == null) {
+                return null;
+            }
+            TicketModel draft = ticket.copy();
+            draft.setPriority(draft.getTicketPriority() == TicketPriority.LOW ? TicketPriority.MEDIUM : TicketPriority.LOW);
+            return updateService.update(draft);
+        });
+        harness.run("Metrics.searchByCriteria(" + variant + ")", params, threads,
+                (thread, i) -> searchService.searchByCriteria(null,
+                        TicketDataGenerator.CATEGORIES[(int) (i % TicketDataGenerator.CATEGORIES.length)], "Open", null));
+    }
+
+    /**
+     * Returns the bytes the current thread allocates per recording, after a warmup that lets the
+     * JIT compile the recording path.
+     */
+    private static double allocatedPerCall(Histogram histogram, Timer timer) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int calls = 1_000_000;
+        long before = 0;
+        for (int round = 0; round < 5; round++) {
+            before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < calls; i++) {
+                if (histogram != null) {
+                    histogram.record(i);
+                } else {
+                    timer.record(System.nanoTime());
+                }
+            }
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / (double) calls;
+    }
+}
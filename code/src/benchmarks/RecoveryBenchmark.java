@@ -0,0 +1,76 @@
+package benchmarks;
+
+import models.TicketModel;
+import persistence.TicketPersistence;
+import repository.TicketRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long it takes to recover a repository from disk.
+ * For each backlog size the benchmark loads the tickets through the persistence layer,
+ * takes a snapshot, applies a tail of updates to the log, and then times recovery
+ * into a fresh repository.
+ *
+ * Usage: java benchmarks.RecoveryBenchmark [ticketCount...]   (default: 1000000 10000000)
+ */
+public class RecoveryBenchmark {
+
+    private static final String[] CATEGORIES = {"Network", "Billing", "Hardware", "Software", "Account"};
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[] {1_000_000, 10_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int ticketCount) throws IOException {
+        Path directory = Files.createTempDirectory("ticket-recovery");
+        try {
+            TicketRepository repository = new TicketRepository();
+            long loadStart = System.nanoTime();
+            try (TicketPersistence persistence = TicketPersistence.open(directory, repository, false, 0)) {
+                for (int i = 0; i < ticketCount; i++) {
+                    repository.createTicket(new TicketModel(repository.getNextId(), "Customer " + (i % 50_000),
+                            "customer" + i + "@example.com", CATEGORIES[i % CATEGORIES.length],
+                            "Issue reported by phone, reference " + i));
+                }
+                persistence.checkpoint();
+                // Leave a tail of 10% updates in the log to be replayed after the snapshot
+                for (int id = 1; id <= ticketCount; id += 10) {
+                    repository.modifyTicket(id, ticket -> {
+                        ticket.setStatus("In Progress");
+                        ticket.addComment("Escalated to second line");
+                    });
+                }
+            }
+            long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+            repository = null;
+            System.gc();
+
+            TicketRepository recovered = new TicketRepository();
+            long recoveryStart = System.nanoTime();
+            try (TicketPersistence persistence = TicketPersistence.open(directory, recovered, false, 0)) {
+                long recoveryMillis = (System.nanoTime() - recoveryStart) / 1_000_000;
+                System.out.printf("%,d tickets: load+log %,d ms, recovery %,d ms (%,d tickets, %,d log records replayed)%n",
+                        ticketCount, loadMillis, recoveryMillis,
+                        persistence.getRecoveredTickets(), persistence.getReplayedRecords());
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package benchmarks;
+
+import models.TicketComment;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.ColumnarTicketStore;
+import repository.ConcurrentTicketRepository;
+import repository.TicketDimension;
+import repository.UpdateResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+
+/**
+ * Stress test of the ConcurrentTicketRepository: many agent threads create, batch-create, comment
+ * on, compare-and-update, update and delete tickets at the same time while others search, and
+ * the final state is then checked against what the agents did. Most updates go to a small set
+ * of hot tickets so that writers contend for the same stripes. The run fails with an
+ * IllegalStateException if
+ * - an ID was handed out twice, or the repository holds a ticket twice,
+ * - a created ticket is missing or a deleted one is still there,
+ * - an update or comment was lost, or a ticket's version does not count its updates,
+ * - searchByCriteria, countTickets, countTicketsBy or searchText disagree with a full scan.
+ *
+ * Usage: java benchmarks.RepositoryStressTest [--threads 16] [--operations 5000] [--hot 32]
+ *        [--store concurrent|columnar] [--rounds 3]
+ */
+public class RepositoryStressTest {
+
+    private static final int BATCH_SIZE = 8;
+
+    /**
+     * What one agent thread did, checked once all agents have finished.
+     */
+    private static final class Agent {
+        final List<Integer> created = new ArrayList<>();
+        final Set<Integer> deleted = new HashSet<>();
+        final List<String> hotComments = new ArrayList<>();
+        final Map<Integer, TicketStatus> ownStatus = new HashMap<>();
+        final Map<Integer, TicketPriority> ownPriority = new HashMap<>();
+        int conflicts;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int operations = Integer.parseInt(options.getOrDefault("operations", "5000"));
+        int hot = Integer.parseInt(options.getOrDefault("hot", "32"));
+        String store = options.getOrDefault("store", "concurrent");
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "3"));
+
+        for (int round = 1; round <= rounds; round++) {
+            ConcurrentTicketRepository repository;
+            switch (store) {
+                case "concurrent": repository = new ConcurrentTicketRepository(); break;
+                case "columnar": repository = new ConcurrentTicketRepository(new ColumnarTicketStore(), 64); break;
+                default: throw new IllegalArgumentException("Unknown store: " + store);
+            }
+            run(repository, round, threads, operations, hot);
+        }
+    }
+
+    private static void run(ConcurrentTicketRepository repository, int round, int threads, int operations,
+                            int hot) throws InterruptedException {
+        int[] hotIds = new int[hot];
+        TicketDataGenerator seeds = new TicketDataGenerator(round, 100);
+        for (int i = 0; i < hot; i++) {
+            hotIds[i] = repository.getNextId();
+            repository.createTicket(seeds.next(hotIds[i]));
+        }
+        int maxHotId = Arrays.stream(hotIds).max().orElse(0);
+        AtomicIntegerArray hotUpdates = new AtomicIntegerArray(maxHotId + 1);
+        Agent[] agents = new Agent[threads];
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            agents[t] = new Agent();
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    work(repository, thread, agents[thread], operations, hotIds, hotUpdates, round);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "agent-" + t);
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (!failures.isEmpty()) {
+            IllegalStateException failure = new IllegalStateException("Agent threads failed");
+            failures.forEach(failure::addSuppressed);
+            throw failure;
+        }
+
+        int conflicts = 0;
+        for (Agent agent : agents) {
+            conflicts += agent.conflicts;
+        }
+        checkIds(repository, agents, hotIds);
+        checkUpdates(repository, agents, hotIds, hotUpdates);
+        checkIndexes(repository, threads);
+        System.out.printf("round %d: %d threads x %,d operations in %,.0f ms, %,d tickets, %,d conflicts retried: OK%n",
+                round, threads, operations, elapsed / 1e6, repository.getTicketCount(), conflicts);
+    }
+
+    /**
+     * Runs one agent's mix of operations. Hot tickets are changed by every agent; tickets an
+     * agent created itself are only updated and deleted by that agent, so their final state
+     * is known.
+     */
+    private static void work(ConcurrentTicketRepository repository, int thread, Agent agent, int operations,
+                             int[] hotIds, AtomicIntegerArray hotUpdates, int round) {
+        SplittableRandom random = new SplittableRandom(round * 1000L + thread);
+        TicketDataGenerator generator = new TicketDataGenerator(round * 1000L + thread, 200);
+        TicketStatus[] statuses = TicketStatus.values();
+        TicketPriority[] priorities = TicketPriority.values();
+        long sink = 0;
+        for (int i = 0; i < operations; i++) {
+            int choice = random.nextInt(100);
+            if (choice < 15) {
+                int id = repository.getNextId();
+                repository.createTicket(generator.next(id));
+                agent.created.add(id);
+            } else if (choice < 20) {
+                int first = repository.reserveIds(BATCH_SIZE);
+                List<TicketModel> batch = new ArrayList<>(BATCH_SIZE);
+                for (int id = first; id < first + BATCH_SIZE; id++) {
+                    batch.add(generator.next(id));
+                    agent.created.add(id);
+                }
+                repository.createTickets(batch);
+            } else if (choice < 40) {
+                // Comment through a locked read-modify-write
+                int id = hotIds[random.nextInt(hotIds.length)];
+                String text = "w" + thread + " s" + i;
+                TicketStatus status = statuses[random.nextInt(statuses.length)];
+                repository.modifyTicket(id, ticket -> {
+                    ticket.addComment(text);
+                    ticket.setStatus(status.getLabel());
+                });
+                hotUpdates.incrementAndGet(id);
+                agent.hotComments.add(id + ":" + text);
+            } else if (choice < 55) {
+                // Comment through optimistic compare-and-update, retried on conflicts
+                int id = hotIds[random.nextInt(hotIds.length)];
+                String text = "w" + thread + " c" + i;
+                TicketPriority priority = priorities[random.nextInt(priorities.length)];
+                while (true) {
+                    TicketModel draft = repository.getTicketById(id).copy();
+                    draft.addComment(text);
+                    draft.setPriority(priority.getLabel());
+                    if (repository.compareAndUpdate(draft).getOutcome() == UpdateResult.Outcome.UPDATED) {
+                        break;
+                    }
+                    agent.conflicts++;
+                }
+                hotUpdates.incrementAndGet(id);
+                agent.hotComments.add(id + ":" + text);
+            } else if (choice < 65 && !agent.created.isEmpty()) {
+                int id = agent.created.get(random.nextInt(agent.created.size()));
+                if (!agent.deleted.contains(id)) {
+                    TicketModel draft = repository.getTicketById(id).copy();
+                    TicketStatus status = statuses[random.nextInt(statuses.length)];
+                    TicketPriority priority = priorities[random.nextInt(priorities.length)];
+                    draft.setStatus(status.getLabel());
+                    draft.setPriority(priority.getLabel());
+                    repository.updateTicket(draft);
+                    agent.ownStatus.put(id, status);
+                    agent.ownPriority.put(id, priority);
+                }
+            } else if (choice < 70 && !agent.created.isEmpty()) {
+                int id = agent.created.get(random.nextInt(agent.created.size()));
+                if (agent.deleted.add(id) && !repository.deleteTicket(id)) {
+                    throw new IllegalStateException("Ticket " + id + " vanished before it was deleted");
+                }
+            } else if (choice < 85) {
+                String category = TicketDataGenerator.CATEGORIES[random.nextInt(TicketDataGenerator.CATEGORIES.length)];
+                sink += repository.searchByCriteria(null, category, statuses[random.nextInt(statuses.length)].getLabel(),
+                        priorities[random.nextInt(priorities.length)].getLabel()).size();
+            } else if (choice < 95) {
+                sink += repository.searchText("w" + random.nextInt(16), 10).size();
+            } else {
+                sink += repository.countTicketsBy(TicketDimension.STATUS, TicketDimension.CATEGORY).size();
+            }
+        }
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+    }
+
+    /**
+     * Checks that no ID was handed out twice and that exactly the created, undeleted tickets remain.
+     */
+    private static void checkIds(ConcurrentTicketRepository repository, Agent[] agents, int[] hotIds) {
+        Set<Integer> expected = new HashSet<>();
+        int handedOut = hotIds.length;
+        for (int id : hotIds) {
+            expected.add(id);
+        }
+        for (Agent agent : agents) {
+            handedOut += agent.created.size();
+            expected.addAll(agent.created);
+        }
+        check(expected.size() == handedOut, (handedOut - expected.size()) + " duplicate IDs were handed out");
+        for (Agent agent : agents) {
+            expected.removeAll(agent.deleted);
+        }
+        List<TicketModel> all = repository.getAllTickets();
+        Set<Integer> stored = new HashSet<>();
+        for (TicketModel ticket : all) {
+            check(stored.add(ticket.getId()), "Ticket " + ticket.getId() + " is stored twice");
+        }
+        check(stored.equals(expected), "Stored tickets differ from the created ones: "
+                + difference(expected, stored) + " missing, " + difference(stored, expected) + " unexpected");
+        check(repository.getTicketCount() == expected.size(),
+                "Ticket count " + repository.getTicketCount() + " instead of " + expected.size());
+    }
+
+    /**
+     * Checks that every update of a hot ticket left exactly one comment and one version behind,
+     * and that each agent's own tickets hold the last status and priority it set.
+     */
+    private static void checkUpdates(ConcurrentTicketRepository repository, Agent[] agents, int[] hotIds,
+                                     AtomicIntegerArray hotUpdates) {
+        Set<String> comments = new HashSet<>();
+        for (Agent agent : agents) {
+            comments.addAll(agent.hotComments);
+        }
+        for (int id : hotIds) {
+            TicketModel ticket = repository.getTicketById(id);
+            int updates = hotUpdates.get(id);
+            check(ticket.getCommentLog().size() == updates,
+                    "Ticket " + id + " has " + ticket.getCommentLog().size() + " comments after " + updates + " updates");
+            check(ticket.getVersion() == 1 + updates,
+                    "Ticket " + id + " is at version " + ticket.getVersion() + " after " + updates + " updates");
+            for (TicketComment comment : ticket.getCommentLog()) {
+                check(comments.remove(id + ":" + comment.getText()),
+                        "Ticket " + id + " has an unexpected or repeated comment: " + comment.getText());
+            }
+        }
+        check(comments.isEmpty(), comments.size() + " comments were lost, e.g. " + comments.stream().findFirst().orElse(""));
+
+        for (Agent agent : agents) {
+            for (Map.Entry<Integer, TicketStatus> entry : agent.ownStatus.entrySet()) {
+                if (agent.deleted.contains(entry.getKey())) {
+                    continue;
+                }
+                TicketModel ticket = repository.getTicketById(entry.getKey());
+                check(ticket.getTicketStatus() == entry.getValue()
+                                && ticket.getTicketPriority() == agent.ownPriority.get(entry.getKey()),
+                        "Update of ticket " + entry.getKey() + " was lost");
+            }
+        }
+    }
+
+    /**
+     * Checks that the indexes answer every search the same way as a full scan of the tickets.
+     */
+    private static void checkIndexes(ConcurrentTicketRepository repository, int threads) {
+        List<TicketModel> all = repository.getAllTickets();
+        for (TicketStatus status : TicketStatus.values()) {
+            for (TicketPriority priority : TicketPriority.values()) {
+                for (String category : TicketDataGenerator.CATEGORIES) {
+                    Set<Integer> scanned = new HashSet<>();
+                    for (TicketModel ticket : all) {
+                        if (ticket.getTicketStatus() == status && ticket.getTicketPriority() == priority
+                                && ticket.getCategory().equals(category)) {
+                            scanned.add(ticket.getId());
+                        }
+                    }
+                    String criteria = status.getLabel() + "/" + priority.getLabel() + "/" + category;
+                    check(ids(repository.searchByCriteria(null, category, status.getLabel(), priority.getLabel()))
+                            .equals(scanned), "searchByCriteria disagrees with a scan for " + criteria);
+                    check(repository.countTickets(status.getLabel(), priority.getLabel(), category) == scanned.size(),
+                            "countTickets disagrees with a scan for " + criteria);
+                }
+            }
+        }
+
+        Map<List<String>, Long> scannedCounts = new TreeMap<>(RepositoryStressTest::compareKeys);
+        Map<String, Set<Integer>> byCustomer = new HashMap<>();
+        for (TicketModel ticket : all) {
+            scannedCounts.merge(Arrays.asList(ticket.getStatus(), ticket.getPriority(), ticket.getCategory()),
+                    1L, Long::sum);
+            byCustomer.computeIfAbsent(ticket.getCustomerName(), name -> new HashSet<>()).add(ticket.getId());
+        }
+        Map<List<String>, Long> counted = new TreeMap<>(RepositoryStressTest::compareKeys);
+        counted.putAll(repository.countTicketsBy(TicketDimension.STATUS, TicketDimension.PRIORITY,
+                TicketDimension.CATEGORY));
+        check(counted.equals(scannedCounts), "countTicketsBy disagrees with a scan");
+
+        for (Map.Entry<String, Set<Integer>> customer : byCustomer.entrySet()) {
+            check(ids(repository.searchByCriteria(customer.getKey(), null, null, null)).equals(customer.getValue()),
+                    "searchByCriteria disagrees with a scan for customer " + customer.getKey());
+        }
+
+        for (int thread = 0; thread < threads; thread++) {
+            String word = "w" + thread;
+            Set<Integer> scanned = all.stream()
+                    .filter(ticket -> ticket.getCommentLog().stream()
+                            .anyMatch(comment -> Arrays.asList(comment.getText().split(" ")).contains(word)))
+                    .map(TicketModel::getId)
+                    .collect(Collectors.toSet());
+            check(ids(repository.searchText(word, all.size() + 1)).equals(scanned),
+                    "searchText disagrees with a scan for " + word);
+        }
+    }
+
+    private static Set<Integer> ids(List<TicketModel> tickets) {
+        Set<Integer> ids = new HashSet<>();
+        for (TicketModel ticket : tickets) {
+            ids.add(ticket.getId());
+        }
+        return ids;
+    }
+
+    private static Set<Integer> difference(Set<Integer> first, Set<Integer> second) {
+        Set<Integer> difference = new HashSet<>(first);
+        difference.removeAll(second);
+        return difference;
+    }
+
+    private static int compareKeys(List<String> first, List<String> second) {
+        return String.join("\u0000", first).compareTo(String.join("\u0000", second));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
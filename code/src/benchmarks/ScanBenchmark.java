@@ -0,0 +1,69 @@
+package benchmarks;
+
+import models.TicketModel;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Measures how the parallel scan behind TicketRepository.scanTickets scales with the number
+ * of worker threads, for a filter no index can answer. Each scan is run inside a fork-join pool
+ * of the given size, and the speedup is reported against the single-threaded pool.
+ * A limited query shows the effect of early termination.
+ *
+ * Usage: java benchmarks.ScanBenchmark [--tickets 1000000] [--threads 1,2,4,8,16,32] [--runs 10]
+ */
+public class ScanBenchmark {
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "1000000"));
+        int[] threadCounts = BenchmarkHarness.parseInts(options.getOrDefault("threads", "1,2,4,8,16,32"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "10"));
+
+        // Phone numbers containing a given run of digits: a contact-info pattern with no index
+        Predicate<TicketModel> filter = ticket -> ticket.getContactInfo().contains("42");
+
+        for (TicketRepository repository : new TicketRepository[] {new TicketRepository(), new ConcurrentTicketRepository()}) {
+            new TicketDataGenerator(42, Math.max(1, count / 5)).fill(repository, count);
+            for (int limit : new int[] {Integer.MAX_VALUE, 10}) {
+                double baseline = 0;
+                for (int threads : threadCounts) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    try {
+                        double millis = measure(pool, repository, filter, limit, runs);
+                        baseline = baseline == 0 ? millis : baseline;
+                        System.out.printf("%,d tickets %-28s limit %-10s %2d threads %,9.2f ms/scan  %5.1fx%n",
+                                count, repository.getClass().getSimpleName(),
+                                limit == Integer.MAX_VALUE ? "none" : String.valueOf(limit),
+                                threads, millis, baseline / millis);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+            }
+        }
+    }
+
+    private static double measure(ForkJoinPool pool, TicketRepository repository, Predicate<TicketModel> filter,
+                                  int limit, int runs) throws InterruptedException, ExecutionException {
+        int sink = 0;
+        for (int i = 0; i < Math.max(1, runs / 2); i++) {
+            sink += pool.submit(() -> repository.scanTickets(filter, limit)).get().size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            List<TicketModel> matches = pool.submit(() -> repository.scanTickets(filter, limit)).get();
+            sink += matches.size();
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return millis;
+    }
+}
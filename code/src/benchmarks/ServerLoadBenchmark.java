@@ -0,0 +1,347 @@
+package benchmarks;
+
+import models.TicketModel;
+import repository.ConcurrentTicketRepository;
+import server.TicketServer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for the TicketServer, simulating many agents at once.
+ * Every agent runs on a virtual thread with its own keep-alive connection and repeatedly reads a
+ * random ticket, searches by customer name, or updates the ticket it read last with the version
+ * it saw, so concurrent updates of the same ticket show up as conflicts. With --pipeline above 1
+ * an agent sends that many requests before reading the responses.
+ * After a warm-up, reports the throughput and the latency percentiles over all requests.
+ *
+ * Without --port an embedded server is started. Every connection needs a file descriptor at
+ * both ends, so for 10,000 agents start the server in a separate process and pass its port;
+ * the tickets are then created over HTTP first, unless --fill false reuses those of an earlier run.
+ *
+ * Usage: java benchmarks.ServerLoadBenchmark [--agents 10000] [--tickets 100000] [--seconds 20]
+ *        [--warmup 5] [--pipeline 1] [--think 0] [--host localhost] [--port 8080] [--fill true]
+ */
+public class ServerLoadBenchmark {
+
+    private static final int CREATE_BATCH_SIZE = 1000;
+    private static final int READ_PERCENT = 80;
+    private static final int SEARCH_PERCENT = 10;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int agents = Integer.parseInt(options.getOrDefault("agents", "10000"));
+        int count = Integer.parseInt(options.getOrDefault("tickets", "100000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
+        int thinkMillis = Integer.parseInt(options.getOrDefault("think", "0"));
+        String host = options.getOrDefault("host", "localhost");
+
+        TicketServer embedded = null;
+        int port;
+        int customers = Math.max(1, count / 5);
+        if (options.containsKey("port")) {
+            port = Integer.parseInt(options.get("port"));
+            if (Boolean.parseBoolean(options.getOrDefault("fill", "true"))) {
+                fill(host, port, count, customers);
+            }
+        } else {
+            ConcurrentTicketRepository repository = new ConcurrentTicketRepository();
+            new TicketDataGenerator(42, customers).fill(repository, count);
+            embedded = new TicketServer(repository, 0);
+            port = embedded.getPort();
+        }
+
+        try {
+            run(host, port, agents, count, customers, seconds, warmup, pipeline, thinkMillis);
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    private static void run(String host, int port, int agents, int count, int customers, int seconds, int warmup,
+                            int pipeline, int thinkMillis) throws InterruptedException {
+        CountDownLatch connected = new CountDownLatch(agents);
+        CountDownLatch start = new CountDownLatch(1);
+        Agent[] all = new Agent[agents];
+        List<Thread> threads = new ArrayList<>(agents);
+        for (int a = 0; a < agents; a++) {
+            all[a] = new Agent(host, port, count, customers, pipeline, thinkMillis);
+            Agent agent = all[a];
+            threads.add(Thread.ofVirtual().name("agent-" + a).start(() -> agent.run(connected, start)));
+        }
+        connected.await();
+        int failedToConnect = Agent.connectFailures.get();
+        long begin = System.nanoTime();
+        long measureFrom = begin + warmup * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+        for (Agent agent : all) {
+            agent.measureFrom = measureFrom;
+            agent.end = end;
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        for (Agent agent : all) {
+            total += agent.recorded;
+        }
+        long[] latencies = new long[total];
+        int next = 0;
+        for (Agent agent : all) {
+            System.arraycopy(agent.latencies, 0, latencies, next, agent.recorded);
+            next += agent.recorded;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%,6d agents, pipeline %d: %,9d requests %,10.0f req/s  p50 %,8.2f ms  p99 %,8.2f ms"
+                        + "  p99.9 %,8.2f ms  max %,8.2f ms  conflicts %,d  errors %,d  unconnected %,d%n",
+                agents, pipeline, total, total / (double) seconds, percentile(latencies, 0.50),
+                percentile(latencies, 0.99), percentile(latencies, 0.999),
+                total == 0 ? 0 : latencies[total - 1] / 1e6, Agent.conflicts.sum(), Agent.errors.sum(), failedToConnect);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+    }
+
+    /**
+     * Creates the tickets on an external server in batches.
+     */
+    private static void fill(String host, int port, int count, int customers) throws IOException {
+        TicketDataGenerator generator = new TicketDataGenerator(42, customers);
+        try (Socket socket = new Socket(host, port)) {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int created = 0; created < count; created += CREATE_BATCH_SIZE) {
+                StringBuilder body = new StringBuilder("[");
+                for (int i = created; i < Math.min(count, created + CREATE_BATCH_SIZE); i++) {
+                    if (i > created) body.append(',');
+                    appendTicket(body, generator.next(i + 1));
+                }
+                Agent.send(out, "POST", "/tickets", body.append(']').toString());
+                out.flush();
+                int status = Agent.readResponse(in, null);
+                if (status != 201) {
+                    throw new IOException("Creating tickets failed with status " + status);
+                }
+            }
+        }
+    }
+
+    private static void appendTicket(StringBuilder body, TicketModel ticket) {
+        body.append("{\"customerName\":\"").append(ticket.getCustomerName())
+                .append("\",\"contactInfo\":\"").append(ticket.getContactInfo())
+                .append("\",\"category\":\"").append(ticket.getCategory())
+                .append("\",\"description\":\"").append(ticket.getDescription())
+                .append("\",\"status\":\"").append(ticket.getStatus())
+                .append("\",\"priority\":\"").append(ticket.getPriority()).append("\"}");
+    }
+
+    /**
+     * One simulated agent with its own connection.
+     */
+    private static final class Agent {
+        static final AtomicInteger connectFailures = new AtomicInteger();
+        static final LongAdder conflicts = new LongAdder();
+        static final LongAdder errors = new LongAdder();
+
+        private final String host;
+        private final int port;
+        private final int count;
+        private final int customers;
+        private final int pipeline;
+        private final int thinkMillis;
+        private final long[] sent;
+        private final StringBuilder body = new StringBuilder(1024);
+        volatile long measureFrom;
+        volatile long end;
+        long[] latencies = new long[256];
+        int recorded;
+        private int lastId = 1;
+        private long lastVersion = 1;
+
+        Agent(String host, int port, int count, int customers, int pipeline, int thinkMillis) {
+            this.host = host;
+            this.port = port;
+            this.count = count;
+            this.customers = customers;
+            this.pipeline = pipeline;
+            this.thinkMillis = thinkMillis;
+            this.sent = new long[pipeline];
+        }
+
+        void run(CountDownLatch connected, CountDownLatch start) {
+            Socket socket = connect();
+            connected.countDown();
+            if (socket == null) {
+                return;
+            }
+            try (Socket client = socket) {
+                start.await();
+                OutputStream out = new BufferedOutputStream(client.getOutputStream());
+                InputStream in = new BufferedInputStream(client.getInputStream());
+                long now = System.nanoTime();
+                while (now < end) {
+                    for (int i = 0; i < pipeline; i++) {
+                        sendNext(out);
+                        sent[i] = System.nanoTime();
+                    }
+                    out.flush();
+                    for (int i = 0; i < pipeline; i++) {
+                        body.setLength(0);
+                        int status = readResponse(in, body);
+                        now = System.nanoTime();
+                        if (status == 200 && body.indexOf("{\"id\":") == 0) {
+                            remember(body);
+                        } else if (status == 409) {
+                            conflicts.increment();
+                        } else if (status != 200) {
+                            errors.increment();
+                        }
+                        if (sent[i] >= measureFrom && now < end) {
+                            record(now - sent[i]);
+                        }
+                    }
+                    if (thinkMillis > 0) {
+                        Thread.sleep(thinkMillis);
+                        now = System.nanoTime();
+                    }
+                }
+            } catch (IOException e) {
+                errors.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Socket connect() {
+            for (int attempt = 0; attempt < 10; attempt++) {
+                try {
+                    Socket socket = new Socket(host, port);
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                } catch (ConnectException e) {
+                    // Accept queue full while thousands of agents connect at once; back off and retry
+                    try {
+                        Thread.sleep(100L << Math.min(attempt, 4));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                } catch (IOException e) {
+                    break;
+                }
+            }
+            connectFailures.incrementAndGet();
+            return null;
+        }
+
+        private void sendNext(OutputStream out) throws IOException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int choice = random.nextInt(100);
+            if (choice < READ_PERCENT) {
+                send(out, "GET", "/tickets/" + (1 + random.nextInt(count)), null);
+            } else if (choice < READ_PERCENT + SEARCH_PERCENT) {
+                String name = URLEncoder.encode(TicketDataGenerator.customerName(random.nextInt(customers)), StandardCharsets.UTF_8);
+                send(out, "GET", "/search?customerName=" + name + "&limit=20", null);
+            } else {
+                send(out, "PUT", "/tickets/" + lastId, "{\"version\":" + lastVersion
+                        + ",\"priority\":\"" + (random.nextBoolean() ? "High" : "Medium") + "\"}");
+            }
+        }
+
+        /**
+         * Keeps the ID and version of a ticket returned by a read or update, for the next update.
+         */
+        private void remember(StringBuilder ticket) {
+            int versionAt = ticket.indexOf(",\"version\":");
+            int versionEnd = ticket.indexOf(",", versionAt + 1);
+            lastId = Integer.parseInt(ticket, 6, versionAt, 10);
+            lastVersion = Long.parseLong(ticket, versionAt + 11, versionEnd, 10);
+        }
+
+        private void record(long latency) {
+            if (recorded == latencies.length) {
+                latencies = Arrays.copyOf(latencies, recorded * 2);
+            }
+            latencies[recorded++] = latency;
+        }
+
+        static void send(OutputStream out, String method, String target, String json) throws IOException {
+            byte[] payload = json == null ? null : json.getBytes(StandardCharsets.UTF_8);
+            StringBuilder head = new StringBuilder(128);
+            head.append(method).append(' ').append(target).append(" HTTP/1.1\r\nHost: localhost\r\n");
+            if (payload != null) {
+                head.append("Content-Type: application/json\r\nContent-Length: ").append(payload.length).append("\r\n");
+            }
+            out.write(head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1));
+            if (payload != null) {
+                out.write(payload);
+            }
+        }
+
+        /**
+         * Reads one response.
+         *
+         * @param body Receives the body, or null to discard it
+         * @return The status code
+         */
+        static int readResponse(InputStream in, StringBuilder body) throws IOException {
+            String statusLine = readLine(in);
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int contentLength = 0;
+            String header;
+            while (!(header = readLine(in)).isEmpty()) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            byte[] bytes = in.readNBytes(contentLength);
+            if (bytes.length < contentLength) {
+                throw new EOFException("Connection closed inside a response");
+            }
+            if (body != null) {
+                body.append(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return status;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b == -1) {
+                    throw new EOFException("Connection closed");
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import models.TicketModel;
+import models.TicketPriority;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import services.UpdateService;
+import sla.SlaEngine;
+import sla.SlaPolicy;
+import sla.TimingWheel;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SLA deadline tracking: rescheduling a deadline in the TimingWheel against cancelling
+ * and resubmitting one task per ticket to a ScheduledThreadPoolExecutor, the memory each needs
+ * to hold a deadline for every ticket, and what an attached SlaEngine adds to ticket updates.
+ *
+ * Usage: java benchmarks.SlaBenchmark [--deadlines 1000000] [--tickets 100000] [--threads 1,8]
+ */
+public class SlaBenchmark {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int deadlines = Integer.parseInt(options.getOrDefault("deadlines", "1000000"));
+        int count = Integer.parseInt(options.getOrDefault("tickets", "100000"));
+        int[] threadCounts = BenchmarkHarness.parseInts(options.getOrDefault("threads",
+                "1," + Runtime.getRuntime().availableProcessors()));
+        BenchmarkHarness harness = new BenchmarkHarness(2, 5, 1000);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("deadlines", String.valueOf(deadlines));
+
+        long before = usedMemory();
+        TimingWheel wheel = new TimingWheel(0);
+        for (int i = 0; i < deadlines; i++) {
+            wheel.schedule(i, 1 + ThreadLocalRandom.current().nextLong(DAY_MILLIS));
+        }
+        System.out.printf("TimingWheel: %,d deadlines in %,d bytes%n", wheel.size(), usedMemory() - before);
+        harness.run("Sla.reschedule(TimingWheel)", params, 1, (thread, i) -> {
+            wheel.schedule((int) (i % deadlines), 1 + ThreadLocalRandom.current().nextLong(DAY_MILLIS));
+            return null;
+        });
+
+        before = usedMemory();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        Runnable task = () -> { };
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[deadlines];
+        for (int i = 0; i < deadlines; i++) {
+            futures[i] = executor.schedule(task,
+                    1 + ThreadLocalRandom.current().nextLong(DAY_MILLIS), TimeUnit.MILLISECONDS);
+        }
+        System.out.printf("ScheduledThreadPoolExecutor: %,d tasks in %,d bytes%n",
+                executor.getQueue().size(), usedMemory() - before);
+        harness.run("Sla.reschedule(ScheduledThreadPoolExecutor)", params, 1, (thread, i) -> {
+            int key = (int) (i % deadlines);
+            futures[key].cancel(false);
+            futures[key] = executor.schedule(task,
+                    1 + ThreadLocalRandom.current().nextLong(DAY_MILLIS), TimeUnit.MILLISECONDS);
+            return null;
+        });
+        executor.shutdownNow();
+
+        for (int threads : threadCounts) {
+            TicketRepository repository = new ConcurrentTicketRepository();
+            new TicketDataGenerator(42, Math.max(1, count / 5)).fill(repository, count);
+            UpdateService updateService = new UpdateService(repository);
+            Map<String, String> updateParams = new LinkedHashMap<>();
+            updateParams.put("tickets", String.valueOf(count));
+            update(harness, "update(no SLA)", updateParams, threads, repository, updateService, count);
+            try (SlaEngine engine = new SlaEngine(repository, updateService, SlaPolicy.defaults(), Duration.ofSeconds(1))) {
+                update(harness, "update(SlaEngine)", updateParams, threads, repository, updateService, count);
+                System.out.printf("  pending deadlines: %,d%n", engine.getPendingCount());
+            }
+        }
+    }
+
+    private static void update(BenchmarkHarness harness, String name, Map<String, String> params, int threads,
+                               TicketRepository repository, UpdateService updateService, int count) {
+        harness.run("Sla." + name, params, threads, (thread, i) -> {
+            TicketModel ticket = repository.getTicketById(1 + ThreadLocalRandom.current().nextInt(count));
+            TicketModel draft = ticket.copy();
+            draft.setPriority(draft.getTicketPriority() == TicketPriority.LOW ? TicketPriority.MEDIUM : TicketPriority.LOW);
+            return updateService.update(draft);
+        });
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
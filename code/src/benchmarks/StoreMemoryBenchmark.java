@@ -0,0 +1,107 @@
+package benchmarks;
+
+import models.TicketModel;
+import models.TicketStatus;
+import repository.ColumnarTicketStore;
+import repository.ConcurrentTicketStore;
+import repository.HashTicketStore;
+import repository.TicketRepository;
+import repository.TicketStore;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Compares the heap held per ticket by a repository on each storage engine, the time the
+ * collector needs to trace the full heap, and the collections caused by a mix of reads,
+ * updates, scans and searches. The tickets go through the repository, so the figures include
+ * its search indexes: their posting lists take about the same space on every engine, but
+ * nothing else they hold grows with the text of the tickets, which stays in the engine.
+ * Run with a heap large enough for the biggest engine, e.g. -Xmx4g for a million tickets.
+ *
+ * Usage: java benchmarks.StoreMemoryBenchmark [--tickets 1000000] [--operations 1000000]
+ */
+public class StoreMemoryBenchmark {
+
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "1000000"));
+        int operations = Integer.parseInt(options.getOrDefault("operations", "1000000"));
+
+        measure("HashTicketStore", HashTicketStore::new, count, operations);
+        measure("ConcurrentTicketStore", ConcurrentTicketStore::new, count, operations);
+        measure("ColumnarTicketStore", ColumnarTicketStore::new, count, operations);
+    }
+
+    private static void measure(String name, Supplier<TicketStore> stores, int count, int operations) {
+        long before = usedMemory();
+        TicketRepository repository = new TicketRepository(stores.get());
+        new TicketDataGenerator(42, Math.max(1, count / 5)).fill(repository, count);
+        long used = usedMemory() - before;
+
+        long fullGcNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            System.gc();
+            fullGcNanos = Math.min(fullGcNanos, System.nanoTime() - start);
+        }
+
+        long collections = collectionCount();
+        long collectionMillis = collectionMillis();
+        long start = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sink = 0;
+        for (int i = 0; i < operations; i++) {
+            int id = 1 + random.nextInt(count);
+            if (i % 10 == 0) {
+                repository.modifyTicket(id, draft -> draft.addComment("Followed up"));
+            } else {
+                sink += repository.getTicketById(id).getDescription().length();
+            }
+            if (i % 1_000 == 0) {
+                sink += repository.searchText("router \"followed up\"", 10).size();
+            }
+            if (i % 100_000 == 0) {
+                sink += repository.streamTickets()
+                        .filter(candidate -> candidate.getTicketStatus() == TicketStatus.RESOLVED
+                                && candidate.getContactInfo().endsWith("7"))
+                        .count();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-22s %,d tickets  %,6.0f bytes/ticket  full GC %,7.1f ms%n",
+                name, count, (double) used / count, fullGcNanos / 1e6);
+        System.out.printf("%-22s %,d operations in %,.0f ms  %,d collections taking %,d ms%n",
+                name, operations, elapsed / 1e6, collectionCount() - collections, collectionMillis() - collectionMillis);
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+    }
+
+    private static long collectionCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
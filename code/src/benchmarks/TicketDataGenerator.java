@@ -0,0 +1,130 @@
+package benchmarks;
+
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.TicketRepository;
+import java.util.SplittableRandom;
+
+/**
+ * Generates backlogs with a realistic mix of categories, statuses and priorities.
+ * Most tickets are closed or resolved history, a few categories dominate the traffic, and
+ * high priorities are rare, roughly matching what a production call center sees.
+ */
+public class TicketDataGenerator {
+
+    /**
+     * Categories ordered from most to least frequent.
+     */
+    public static final String[] CATEGORIES = {
+            "Network", "Billing", "Account", "Hardware", "Software", "Email",
+            "Mobile", "Outage", "Security", "Installation", "Cancellation", "Other"
+    };
+
+    private static final String[] ISSUES = {
+            "router firmware keeps rebooting", "invoice shows duplicate charge", "cannot reset password",
+            "modem lights blinking orange", "application crashes on startup", "emails stuck in outbox",
+            "no signal since this morning", "whole street without internet", "suspicious login attempt",
+            "technician missed appointment", "wants to cancel contract", "general question about plan"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Sandra", "Steven", "Ashley",
+            "Paul", "Emily", "Andrew", "Donna", "Joshua", "Michelle", "Kevin", "Carol", "Brian", "Amanda"
+    };
+
+    private static final String[] SYLLABLES = {
+            "ba", "ker", "son", "mil", "ler", "wil", "li", "ams", "brow", "ne", "dav", "is", "gar",
+            "ci", "ro", "dri", "guez", "mar", "tin", "hern", "an", "dez", "lo", "pez", "gon", "za"
+    };
+
+    private final SplittableRandom random;
+    private final int customerCount;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param seed Seed for the random generator, so runs are repeatable
+     * @param customerCount Number of distinct customers the tickets are spread over
+     */
+    public TicketDataGenerator(long seed, int customerCount) {
+        this.random = new SplittableRandom(seed);
+        this.customerCount = Math.max(1, customerCount);
+    }
+
+    /**
+     * Fills the repository with the given number of tickets.
+     *
+     * @param repository The repository to fill
+     * @param count The number of tickets to create
+     */
+    public void fill(TicketRepository repository, int count) {
+        for (int i = 0; i < count; i++) {
+            repository.createTicket(next(repository.getNextId()));
+        }
+    }
+
+    /**
+     * Generates a single ticket.
+     *
+     * @param id The ID of the new ticket
+     * @return The generated ticket
+     */
+    public TicketModel next(int id) {
+        int category = skewed(CATEGORIES.length);
+        TicketModel ticket = new TicketModel(id, customerName(random.nextInt(customerCount)),
+                "+1-555-" + String.format("%07d", random.nextInt(10_000_000)),
+                CATEGORIES[category], ISSUES[category] + " (ref " + id + ")");
+        ticket.setStatus(status());
+        ticket.setPriority(priority());
+        return ticket;
+    }
+
+    /**
+     * Returns the name of the customer with the given number.
+     *
+     * @param number The customer number
+     * @return The customer name
+     */
+    public static String customerName(int number) {
+        StringBuilder name = new StringBuilder(FIRST_NAMES[number % FIRST_NAMES.length]).append(' ');
+        // Spell the rest of the number as syllables, giving customers varied, mostly distinct surnames
+        int rest = number / FIRST_NAMES.length;
+        int start = name.length();
+        do {
+            name.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0);
+        name.setCharAt(start, Character.toUpperCase(name.charAt(start)));
+        return name.toString();
+    }
+
+    private TicketStatus status() {
+        int roll = random.nextInt(100);
+        if (roll < 15) return TicketStatus.OPEN;
+        if (roll < 25) return TicketStatus.IN_PROGRESS;
+        if (roll < 40) return TicketStatus.RESOLVED;
+        return TicketStatus.CLOSED;
+    }
+
+    private TicketPriority priority() {
+        int roll = random.nextInt(100);
+        if (roll < 25) return TicketPriority.LOW;
+        if (roll < 80) return TicketPriority.MEDIUM;
+        if (roll < 97) return TicketPriority.HIGH;
+        return TicketPriority.CRITICAL;
+    }
+
+    /**
+     * Picks an index in [0, size) where lower indexes are geometrically more likely.
+     */
+    private int skewed(int size) {
+        int index = 0;
+        while (index < size - 1 && random.nextInt(100) < 45) {
+            index++;
+        }
+        return index;
+    }
+}
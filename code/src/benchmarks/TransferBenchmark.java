@@ -0,0 +1,77 @@
+package benchmarks;
+
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import server.Json;
+import transfer.DumpFormat;
+import transfer.TicketExporter;
+import transfer.TicketImporter;
+import transfer.TransferResult;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Measures bulk export and import throughput in rows per second, for CSV and JSON lines dumps,
+ * with different numbers of parser threads. For comparison, the JSON lines dump is also loaded
+ * the simple way: reading it line by line on one thread and creating tickets one at a time.
+ *
+ * Usage: java benchmarks.TransferBenchmark [--tickets 500000] [--threads 1,8] [--batch 1000] [--rounds 2]
+ */
+public class TransferBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = BenchmarkHarness.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("tickets", "500000"));
+        int[] threadCounts = BenchmarkHarness.parseInts(options.getOrDefault("threads",
+                "1," + Runtime.getRuntime().availableProcessors()));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "1000"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "2"));
+
+        TicketRepository source = new ConcurrentTicketRepository();
+        new TicketDataGenerator(42, Math.max(1, count / 5)).fill(source, count);
+        Path directory = Files.createTempDirectory("ticket-transfer");
+        try {
+            // Later rounds show throughput once the JIT has compiled the parsers
+            for (int round = 1; round <= rounds; round++) {
+                System.out.printf("Round %d of %d%n", round, rounds);
+                for (DumpFormat format : DumpFormat.values()) {
+                    Path file = directory.resolve(format == DumpFormat.CSV ? "tickets.csv" : "tickets.jsonl");
+                    TransferResult exported = new TicketExporter(source).export(file, format);
+                    System.out.printf("%-10s export                 %s%n", format, exported);
+                    for (int threads : threadCounts) {
+                        TicketRepository target = new ConcurrentTicketRepository();
+                        TransferResult imported = new TicketImporter(target, threads, batchSize, 1 << 20)
+                                .importFile(file, format);
+                        System.out.printf("%-10s import (%2d parser(s))  %s%n", format, threads, imported);
+                    }
+                }
+                loadLineByLine(directory.resolve("tickets.jsonl"));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void loadLineByLine(Path file) throws IOException {
+        TicketRepository target = new ConcurrentTicketRepository();
+        long start = System.nanoTime();
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                target.createTicket(Json.readTicket((Map<String, Object>) Json.parse(line)));
+                rows++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-10s line-by-line createTicket  %,d rows in %.2f s: %,.0f rows/s%n",
+                DumpFormat.JSON_LINES, rows, elapsed / 1e9, rows * 1e9 / elapsed);
+    }
+}
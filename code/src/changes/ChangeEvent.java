@@ -0,0 +1,61 @@
+package changes;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An immutable record of one change to a ticket, as published on a ChangeStream.
+ * Events carry a sequence number that increases by one for every published event, so
+ * subscribers can tell the order of events and notice gaps.
+ */
+public final class ChangeEvent {
+
+    private final long sequence;
+    private final ChangeType type;
+    private final int ticketId;
+    private final Instant timestamp;
+    private final List<FieldChange> changes;
+
+    /**
+     * Constructs a change event.
+     *
+     * @param sequence The position of the event in the stream
+     * @param type The kind of change
+     * @param ticketId The ID of the changed ticket
+     * @param timestamp When the change was made
+     * @param changes The fields that changed
+     */
+    public ChangeEvent(long sequence, ChangeType type, int ticketId, Instant timestamp, List<FieldChange> changes) {
+        this.sequence = sequence;
+        this.type = type;
+        this.ticketId = ticketId;
+        this.timestamp = timestamp;
+        this.changes = List.copyOf(changes);
+    }
+
+    public long getSequence() { return sequence; }
+    public ChangeType getType() { return type; }
+    public int getTicketId() { return ticketId; }
+    public Instant getTimestamp() { return timestamp; }
+    public List<FieldChange> getChanges() { return changes; }
+
+    /**
+     * Returns the change of the given field, if the field changed.
+     *
+     * @param field The field name, one of the constants of FieldChange
+     * @return The first change of the field, or null if it did not change
+     */
+    public FieldChange getChange(String field) {
+        for (FieldChange change : changes) {
+            if (change.getField().equals(field)) {
+                return change;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " ticket " + ticketId + " " + changes;
+    }
+}
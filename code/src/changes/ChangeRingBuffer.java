@@ -0,0 +1,113 @@
+package changes;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring of change events with many writers and many independent readers.
+ * A writer claims the next sequence number with a single atomic increment and writes its event
+ * into the slot the sequence maps to, marking the slot with the sequence once the event is in
+ * place. Writers never wait for readers: when the ring is full the oldest slot is overwritten.
+ * Each reader keeps its own position and detects that it was overtaken by checking the sequence
+ * recorded in the slot before and after reading it.
+ */
+final class ChangeRingBuffer {
+
+    /**
+     * Returned by get when the requested event has already been overwritten.
+     */
+    static final ChangeEvent OVERWRITTEN = new ChangeEvent(-1, ChangeType.UPDATED, 0, null, List.of());
+
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * Constructs a ring holding the given number of events.
+     *
+     * @param capacity The number of events kept, rounded up to a power of two
+     */
+    ChangeRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.events = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i - (long) this.capacity);
+        }
+    }
+
+    /**
+     * Claims the sequence number of the next event.
+     * The caller must publish an event with this number promptly, since readers deliver events
+     * in order and wait for it.
+     *
+     * @return The claimed sequence number
+     */
+    long claim() {
+        return claimed.getAndIncrement();
+    }
+
+    /**
+     * Writes the event of a claimed sequence number into its slot.
+     *
+     * @param sequence The sequence number returned by claim
+     * @param event The event to publish
+     */
+    void publish(long sequence, ChangeEvent event) {
+        int slot = (int) sequence & mask;
+        while (true) {
+            long current = sequences.get(slot);
+            if (current > sequence) {
+                // A writer a full lap ahead already reused the slot; the event is lost to every reader
+                return;
+            }
+            if (current != WRITING && sequences.compareAndSet(slot, current, WRITING)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        events.set(slot, event);
+        sequences.set(slot, sequence);
+    }
+
+    /**
+     * Reads the event with the given sequence number.
+     *
+     * @param sequence The sequence number to read
+     * @return The event, null if it has not been published yet, or OVERWRITTEN if it is no
+     *         longer in the ring
+     */
+    ChangeEvent get(long sequence) {
+        if (claimed.get() - sequence > capacity) {
+            return OVERWRITTEN;
+        }
+        int slot = (int) sequence & mask;
+        long before = sequences.get(slot);
+        if (before != sequence) {
+            return before > sequence || (before == WRITING && claimed.get() - sequence > capacity) ? OVERWRITTEN : null;
+        }
+        ChangeEvent event = events.get(slot);
+        return sequences.get(slot) == sequence ? event : OVERWRITTEN;
+    }
+
+    /**
+     * @return The sequence number the next claimed event will get
+     */
+    long getClaimed() {
+        return claimed.get();
+    }
+
+    /**
+     * @return The number of events kept in the ring
+     */
+    int getCapacity() {
+        return capacity;
+    }
+}
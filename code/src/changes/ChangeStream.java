@@ -0,0 +1,344 @@
+package changes;
+
+import models.CategoryDictionary;
+import models.CommentLog;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.RepositoryListener;
+import repository.TicketRepository;
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process change data capture for a TicketRepository.
+ * Every create, update, delete, archive and unarchive is turned into a ChangeEvent listing the
+ * fields that changed with their before and after values, and published to a bounded,
+ * lock-free ring buffer. Each subscriber reads the ring from its own position on its own
+ * thread and receives the events in batches.
+ * Publishing never waits for subscribers, so the write path cannot be held up by a slow one.
+ * Instead, a subscriber that falls a full ring behind is told how many events it missed and
+ * continues from the oldest event still kept.
+ * To compute the before values, the stream remembers the last published field values of every
+ * ticket held in memory.
+ */
+public final class ChangeStream implements RepositoryListener, Closeable {
+
+    /**
+     * How long an idle subscriber sleeps before looking for events again, in case a wake-up
+     * from a writer was missed.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * The field values of a ticket as of its last published event.
+     */
+    private static final class TicketState {
+        final String customerName;
+        final String contactInfo;
+        final int categoryId;
+        final String description;
+        final TicketStatus status;
+        final TicketPriority priority;
+        final CommentLog comments;
+        final int commentCount;
+
+        TicketState(TicketModel ticket) {
+            this.customerName = ticket.getCustomerName();
+            this.contactInfo = ticket.getContactInfo();
+            this.categoryId = ticket.getCategoryId();
+            this.description = ticket.getDescription();
+            this.status = ticket.getTicketStatus();
+            this.priority = ticket.getTicketPriority();
+            this.comments = ticket.getCommentLog();
+            this.commentCount = comments.size();
+        }
+    }
+
+    private final TicketRepository repository;
+    private final ChangeRingBuffer ring;
+    private final Map<Integer, TicketState> states = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a change stream and starts capturing the changes made to a repository.
+     * The current state of the tickets held in memory is recorded so that their first update
+     * already reports before values.
+     *
+     * @param repository The repository to capture changes from
+     * @param capacity The number of events kept for subscribers that fall behind
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public ChangeStream(TicketRepository repository, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.repository = repository;
+        this.ring = new ChangeRingBuffer(capacity);
+        repository.addListener(this);
+        repository.streamTickets().forEach(ticket -> states.putIfAbsent(ticket.getId(), new TicketState(ticket)));
+    }
+
+    /**
+     * Subscribes to the events published from now on.
+     * The subscriber is called on a new daemon thread named after the subscription.
+     *
+     * @param name The name of the subscription, used for its thread
+     * @param subscriber The subscriber to deliver events to
+     * @param maxBatchSize The maximum number of events per call to the subscriber
+     * @return The subscription, which can be used to monitor and cancel it
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public Subscription subscribe(String name, ChangeSubscriber subscriber, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        Subscription subscription = new Subscription(name, subscriber, maxBatchSize, ring.getClaimed());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * @return The number of events published so far
+     */
+    public long getPublishedCount() {
+        return ring.getClaimed();
+    }
+
+    /**
+     * @return The number of events kept for subscribers that fall behind
+     */
+    public int getCapacity() {
+        return ring.getCapacity();
+    }
+
+    /**
+     * Stops capturing changes and cancels every subscription.
+     */
+    @Override
+    public void close() {
+        repository.removeListener(this);
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    @Override
+    public void ticketCreated(TicketModel ticket) {
+        TicketState after = new TicketState(ticket);
+        states.put(ticket.getId(), after);
+        publish(ChangeType.CREATED, ticket.getId(), diff(null, after));
+    }
+
+    @Override
+    public void ticketUpdated(TicketModel ticket) {
+        TicketState after = new TicketState(ticket);
+        TicketState before = states.put(ticket.getId(), after);
+        List<FieldChange> changes = diff(before, after);
+        if (!changes.isEmpty()) {
+            publish(ChangeType.UPDATED, ticket.getId(), changes);
+        }
+    }
+
+    @Override
+    public void ticketDeleted(int id) {
+        TicketState before = states.remove(id);
+        publish(ChangeType.DELETED, id, before == null ? List.of() : diff(before, null));
+    }
+
+    @Override
+    public void ticketArchived(TicketModel ticket) {
+        states.remove(ticket.getId());
+        publish(ChangeType.ARCHIVED, ticket.getId(), List.of());
+    }
+
+    @Override
+    public void ticketUnarchived(TicketModel ticket) {
+        TicketState after = new TicketState(ticket);
+        states.put(ticket.getId(), after);
+        publish(ChangeType.UNARCHIVED, ticket.getId(), diff(null, after));
+    }
+
+    private void publish(ChangeType type, int ticketId, List<FieldChange> changes) {
+        long sequence = ring.claim();
+        ring.publish(sequence, new ChangeEvent(sequence, type, ticketId, Instant.now(), changes));
+        for (Subscription subscription : subscriptions) {
+            if (subscription.idle) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    /**
+     * Lists the fields whose values differ between two states, and the comments added since the
+     * earlier one. A missing state counts as every field being absent.
+     */
+    private static List<FieldChange> diff(TicketState before, TicketState after) {
+        List<FieldChange> changes = new ArrayList<>();
+        addIfChanged(changes, FieldChange.CUSTOMER_NAME,
+                before == null ? null : before.customerName, after == null ? null : after.customerName);
+        addIfChanged(changes, FieldChange.CONTACT_INFO,
+                before == null ? null : before.contactInfo, after == null ? null : after.contactInfo);
+        addIfChanged(changes, FieldChange.CATEGORY, before == null ? null : CategoryDictionary.nameOf(before.categoryId),
+                after == null ? null : CategoryDictionary.nameOf(after.categoryId));
+        addIfChanged(changes, FieldChange.DESCRIPTION,
+                before == null ? null : before.description, after == null ? null : after.description);
+        addIfChanged(changes, FieldChange.STATUS,
+                before == null ? null : before.status.getLabel(), after == null ? null : after.status.getLabel());
+        addIfChanged(changes, FieldChange.PRIORITY,
+                before == null ? null : before.priority.getLabel(), after == null ? null : after.priority.getLabel());
+        if (after != null) {
+            // Comments are only ever appended, so the ones past the previous count are new
+            int first = before == null ? 0 : Math.min(before.commentCount, after.commentCount);
+            for (int i = first; i < after.commentCount; i++) {
+                changes.add(new FieldChange(FieldChange.COMMENT, null, after.comments.get(i).toString()));
+            }
+        }
+        return changes;
+    }
+
+    private static void addIfChanged(List<FieldChange> changes, String field, String before, String after) {
+        if (!Objects.equals(before, after)) {
+            changes.add(new FieldChange(field, before, after));
+        }
+    }
+
+    /**
+     * A subscriber reading the stream on its own thread.
+     */
+    public final class Subscription implements Closeable {
+        private final ChangeSubscriber subscriber;
+        private final int maxBatchSize;
+        private final Thread thread;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong missed = new AtomicLong();
+        private volatile long position;
+        private volatile boolean running = true;
+        private volatile boolean idle;
+        private volatile RuntimeException failure;
+
+        private Subscription(String name, ChangeSubscriber subscriber, int maxBatchSize, long position) {
+            this.subscriber = subscriber;
+            this.maxBatchSize = maxBatchSize;
+            this.position = position;
+            this.thread = new Thread(this::deliver, name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * @return The number of published events this subscription has not delivered yet
+         */
+        public long getLag() {
+            return Math.max(0, ring.getClaimed() - position);
+        }
+
+        /**
+         * @return The number of events delivered to the subscriber
+         */
+        public long getDeliveredCount() {
+            return delivered.get();
+        }
+
+        /**
+         * @return The number of events the subscriber missed because it fell behind
+         */
+        public long getMissedCount() {
+            return missed.get();
+        }
+
+        /**
+         * @return true until the subscription is closed or the subscriber fails
+         */
+        public boolean isActive() {
+            return running;
+        }
+
+        /**
+         * @return The exception that ended the subscription, or null if the subscriber has not failed
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        /**
+         * Cancels the subscription and waits for its thread to finish delivering the current batch.
+         */
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void deliver() {
+            List<ChangeEvent> batch = new ArrayList<>(Math.min(maxBatchSize, ring.getCapacity()));
+            long next = position;
+            try {
+                while (running) {
+                    batch.clear();
+                    long lost = 0;
+                    while (batch.size() < maxBatchSize) {
+                        ChangeEvent event = ring.get(next);
+                        if (event == null) {
+                            break;
+                        }
+                        if (event == ChangeRingBuffer.OVERWRITTEN) {
+                            // Skip to the oldest event that cannot be overwritten before it is read
+                            long oldest = ring.getClaimed() - ring.getCapacity() + 1;
+                            lost += oldest - next;
+                            next = oldest;
+                            continue;
+                        }
+                        batch.add(event);
+                        next++;
+                    }
+                    if (lost > 0) {
+                        missed.addAndGet(lost);
+                        subscriber.onMissedChanges(lost);
+                    }
+                    if (!batch.isEmpty()) {
+                        subscriber.onChanges(batch);
+                        delivered.addAndGet(batch.size());
+                        position = next;
+                    } else {
+                        position = next;
+                        awaitEvent(next);
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+                running = false;
+                subscriptions.remove(this);
+            }
+        }
+
+        /**
+         * Parks until a writer publishes, announcing the wait first and then checking once more
+         * so that an event published in between is not slept through.
+         */
+        private void awaitEvent(long next) {
+            idle = true;
+            if (ring.get(next) == null && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package changes;
+
+import java.util.List;
+
+/**
+ * Receives the events of a ChangeStream.
+ * Callbacks run on a thread dedicated to the subscription, never on the thread that changed
+ * the ticket, so a slow subscriber delays only itself.
+ */
+public interface ChangeSubscriber {
+
+    /**
+     * Called with the next events in the order they were published.
+     * Events that accumulated while the previous batch was being handled are delivered
+     * together, so a subscriber that falls behind catches up in larger batches.
+     *
+     * @param batch The events, oldest first; the list must not be kept after the call
+     */
+    void onChanges(List<ChangeEvent> batch);
+
+    /**
+     * Called when the subscriber fell so far behind that events it had not read yet were
+     * overwritten. Delivery continues with the oldest event still available. Subscribers that
+     * need a complete view should reload the affected state, e.g. through getTicketPage.
+     *
+     * @param missed The number of events that were lost
+     */
+    default void onMissedChanges(long missed) {
+    }
+}
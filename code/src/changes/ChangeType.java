@@ -0,0 +1,27 @@
+package changes;
+
+/**
+ * Kinds of change published on a ChangeStream.
+ */
+public enum ChangeType {
+    /**
+     * A ticket was created; the field changes hold its initial values.
+     */
+    CREATED,
+    /**
+     * A ticket was updated; the field changes hold the values that changed and any new comments.
+     */
+    UPDATED,
+    /**
+     * A ticket was deleted; the field changes hold its last values, if they were known.
+     */
+    DELETED,
+    /**
+     * A closed ticket was moved into the read-only archive. It is still readable.
+     */
+    ARCHIVED,
+    /**
+     * An archived ticket was updated and moved back into memory; the field changes hold its values.
+     */
+    UNARCHIVED
+}
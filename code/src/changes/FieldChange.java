@@ -0,0 +1,58 @@
+package changes;
+
+import java.util.Objects;
+
+/**
+ * The before and after value of one ticket field in a ChangeEvent.
+ * New comments are reported as changes of the "comment" field with no before value.
+ */
+public final class FieldChange {
+
+    public static final String CUSTOMER_NAME = "customerName";
+    public static final String CONTACT_INFO = "contactInfo";
+    public static final String CATEGORY = "category";
+    public static final String DESCRIPTION = "description";
+    public static final String STATUS = "status";
+    public static final String PRIORITY = "priority";
+    public static final String COMMENT = "comment";
+
+    private final String field;
+    private final String before;
+    private final String after;
+
+    /**
+     * Constructs a field change.
+     *
+     * @param field The name of the field
+     * @param before The value before the change, or null if the field had no known value
+     * @param after The value after the change, or null if the ticket no longer exists
+     */
+    public FieldChange(String field, String before, String after) {
+        this.field = field;
+        this.before = before;
+        this.after = after;
+    }
+
+    public String getField() { return field; }
+    public String getBefore() { return before; }
+    public String getAfter() { return after; }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof FieldChange)) {
+            return false;
+        }
+        FieldChange change = (FieldChange) other;
+        return field.equals(change.field) && Objects.equals(before, change.before) && Objects.equals(after, change.after);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, before, after);
+    }
+
+    @Override
+    public String toString() {
+        return field + ": " + before + " -> " + after;
+    }
+}
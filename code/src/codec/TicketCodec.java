@@ -0,0 +1,312 @@
+package codec;
+
+import models.CommentLog;
+import models.TicketComment;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, schema-versioned binary encoding of tickets, read and written directly from and to
+ * a ByteBuffer.
+ *
+ * <pre>
+ * byte     schema version (2)
+ * varint   id
+ * varint   ticket version
+ * varint   created at, in milliseconds since the epoch
+ * zigzag   updated at minus created at
+ * string   customer name, contact info
+ * dict     category
+ * string   description
+ * byte     status ordinal &lt;&lt; 4 | priority ordinal
+ * varint   comment count, then per comment:
+ *          zigzag varint epoch second, varint nanos, dict author, string text
+ * </pre>
+ *
+ * Strings are a varint of the UTF-8 length plus one, 0 standing for null, followed by the bytes.
+ * Categories and comment authors repeat across tickets, so they are dictionary-encoded: a value
+ * seen before is written as its index in the dictionary plus one, and a new value as 0 followed
+ * by the string, which then gets the next index. The dictionary lives in the codec instance,
+ * so one instance encodes one stream and a separate instance must decode it in the same order;
+ * use a fresh instance per ticket for self-contained messages. Instances are not thread-safe.
+ * Schema version 1, written before tickets had timestamps, lacks the two timestamp fields and
+ * is still decoded.
+ */
+public final class TicketCodec {
+
+    /**
+     * Schema version written in front of every ticket.
+     */
+    public static final int SCHEMA_VERSION = 2;
+
+    private static final int SCHEMA_VERSION_WITHOUT_TIMESTAMPS = 1;
+
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int MAX_VARLONG_BYTES = 10;
+    private static final TicketStatus[] STATUSES = TicketStatus.values();
+    private static final TicketPriority[] PRIORITIES = TicketPriority.values();
+
+    private final Map<String, Integer> encodeDictionary = new HashMap<>();
+    private final List<String> decodeDictionary = new ArrayList<>();
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Returns an upper bound of the number of bytes encode needs for a ticket.
+     * Computed from the string lengths in constant time per field, without encoding anything.
+     *
+     * @param ticket The ticket to encode
+     * @return The maximum encoded size in bytes
+     */
+    public static int maxEncodedSize(TicketModel ticket) {
+        return maxEncodedSize(ticket, ticket.getCommentLog().size());
+    }
+
+    private static int maxEncodedSize(TicketModel ticket, int commentCount) {
+        int size = 1 + MAX_VARINT_BYTES + MAX_VARLONG_BYTES * 3 + 1 + MAX_VARINT_BYTES;
+        size += maxStringSize(ticket.getCustomerName()) + maxStringSize(ticket.getContactInfo())
+                + maxStringSize(ticket.getCategory()) + MAX_VARINT_BYTES + maxStringSize(ticket.getDescription());
+        CommentLog log = ticket.getCommentLog();
+        for (int i = 0; i < commentCount; i++) {
+            TicketComment comment = log.get(i);
+            size += MAX_VARLONG_BYTES + MAX_VARINT_BYTES + MAX_VARINT_BYTES
+                    + maxStringSize(comment.getAuthor()) + maxStringSize(comment.getText());
+        }
+        return size;
+    }
+
+    /**
+     * Writes a ticket at the buffer's position and advances it.
+     * Nothing is written if the buffer has less than maxEncodedSize bytes remaining.
+     *
+     * @param ticket The ticket to encode
+     * @param out The buffer to write to
+     * @return The number of bytes written
+     * @throws BufferOverflowException if less than maxEncodedSize bytes remain
+     */
+    public int encode(TicketModel ticket, ByteBuffer out) {
+        CommentLog log = ticket.getCommentLog();
+        int commentCount = log.size();
+        if (out.remaining() < maxEncodedSize(ticket, commentCount)) {
+            throw new BufferOverflowException();
+        }
+        int start = out.position();
+        out.put((byte) SCHEMA_VERSION);
+        writeVarLong(out, ticket.getId() & 0xFFFFFFFFL);
+        writeVarLong(out, ticket.getVersion());
+        writeVarLong(out, ticket.getCreatedAt());
+        long age = ticket.getUpdatedAt() - ticket.getCreatedAt();
+        writeVarLong(out, (age << 1) ^ (age >> 63));
+        writeString(out, ticket.getCustomerName());
+        writeString(out, ticket.getContactInfo());
+        writeDictionary(out, ticket.getCategory());
+        writeString(out, ticket.getDescription());
+        out.put((byte) (ticket.getTicketStatus().ordinal() << 4 | ticket.getTicketPriority().ordinal()));
+        writeVarLong(out, commentCount);
+        for (int i = 0; i < commentCount; i++) {
+            TicketComment comment = log.get(i);
+            Instant timestamp = comment.getTimestamp();
+            long second = timestamp.getEpochSecond();
+            writeVarLong(out, (second << 1) ^ (second >> 63));
+            writeVarLong(out, timestamp.getNano());
+            writeDictionary(out, comment.getAuthor());
+            writeString(out, comment.getText());
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * Reads a ticket at the buffer's position and advances it past the ticket.
+     *
+     * @param in The buffer to read from
+     * @return The decoded ticket
+     * @throws IllegalArgumentException if the data has an unknown schema version or is malformed
+     */
+    public TicketModel decode(ByteBuffer in) {
+        int schema = in.get();
+        if (schema != SCHEMA_VERSION && schema != SCHEMA_VERSION_WITHOUT_TIMESTAMPS) {
+            throw new IllegalArgumentException("Unsupported ticket schema version: " + schema);
+        }
+        int id = (int) readVarLong(in);
+        long version = readVarLong(in);
+        long createdAt = 0;
+        long updatedAt = 0;
+        if (schema != SCHEMA_VERSION_WITHOUT_TIMESTAMPS) {
+            createdAt = readVarLong(in);
+            long age = readVarLong(in);
+            updatedAt = createdAt + ((age >>> 1) ^ -(age & 1));
+        }
+        String customerName = readString(in);
+        String contactInfo = readString(in);
+        String category = readDictionary(in);
+        String description = readString(in);
+        int states = in.get() & 0xFF;
+        if ((states >>> 4) >= STATUSES.length || (states & 0xF) >= PRIORITIES.length) {
+            throw new IllegalArgumentException("Invalid status or priority: " + states);
+        }
+        TicketModel ticket = new TicketModel(id, customerName, contactInfo, category, description);
+        ticket.setStatus(STATUSES[states >>> 4]);
+        ticket.setPriority(PRIORITIES[states & 0xF]);
+        ticket.setVersion(version);
+        ticket.setCreatedAt(createdAt);
+        ticket.setUpdatedAt(updatedAt);
+        long comments = readVarLong(in);
+        for (long i = 0; i < comments; i++) {
+            long zigzag = readVarLong(in);
+            long second = (zigzag >>> 1) ^ -(zigzag & 1);
+            Instant timestamp = Instant.ofEpochSecond(second, readVarLong(in));
+            String author = readDictionary(in);
+            ticket.getCommentLog().append(new TicketComment(timestamp, author, readString(in)));
+        }
+        return ticket;
+    }
+
+    private static int maxStringSize(String value) {
+        return MAX_VARINT_BYTES + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Writes the UTF-8 length and then the characters, encoding them straight into the buffer.
+     */
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                utf8Length = utf8Length(value);
+                break;
+            }
+        }
+        writeVarLong(out, utf8Length + 1L);
+        if (utf8Length == length) {
+            for (int i = 0; i < length; i++) {
+                out.put((byte) value.charAt(i));
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18))).put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F))).put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced like String.getBytes does
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a string, decoding straight from the backing array of heap buffers.
+     */
+    private String readString(ByteBuffer in) {
+        long encoded = readVarLong(in);
+        if (encoded == 0) {
+            return null;
+        }
+        if (encoded - 1 > in.remaining()) {
+            throw new IllegalArgumentException("String length exceeds the data: " + (encoded - 1));
+        }
+        int length = (int) (encoded - 1);
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private void writeDictionary(ByteBuffer out, String value) {
+        Integer index = value == null ? null : encodeDictionary.get(value);
+        if (index != null) {
+            writeVarLong(out, index + 1L);
+            return;
+        }
+        out.put((byte) 0);
+        writeString(out, value);
+        if (value != null) {
+            encodeDictionary.put(value, encodeDictionary.size());
+        }
+    }
+
+    private String readDictionary(ByteBuffer in) {
+        long index = readVarLong(in);
+        if (index == 0) {
+            String value = readString(in);
+            if (value != null) {
+                decodeDictionary.add(value);
+            }
+            return value;
+        }
+        if (index > decodeDictionary.size()) {
+            throw new IllegalArgumentException("Unknown dictionary entry: " + index);
+        }
+        return decodeDictionary.get((int) index - 1);
+    }
+}
@@ -0,0 +1,690 @@
+package dedup;
+
+import models.TicketModel;
+import models.TicketStatus;
+import repository.RepositoryListener;
+import repository.TicketRepository;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the earlier ticket a new call duplicates, so that callers phoning back about the same
+ * problem do not each open a ticket.
+ * A call duplicates an open ticket created within the time window if it comes from the same
+ * contact, compared exactly after normalizing phone numbers to their last ten digits and
+ * e-mail addresses to lower case, and is in the same category; or if its description is
+ * similar to the ticket's, whoever called. Similarity is estimated from MinHash signatures and
+ * candidates are found by locality-sensitive hashing over their bands, so a lookup compares
+ * the new call with at most 80 tickets, not with every recent one.
+ * The detector follows the repository as a listener: tickets are added as they are created,
+ * and dropped once resolved, closed, deleted or archived, or when they leave the window.
+ * It holds at most a fixed number of tickets in preallocated primitive tables, the oldest being
+ * dropped first, so its memory does not grow with the repository or the call rate.
+ * What to do with a match, flag it or merge the call into the earlier ticket, is up to the
+ * caller; see CreateService.
+ * The detector is thread-safe. Tickets are spread over stripes by ID, each with its own tables
+ * and monitor, so creates in different stripes do not wait for each other. findOrReserve
+ * checks a call and reserves its place in one step: the call takes a sequence number and a
+ * pending entry under its stripe's monitor, then only matches entries with a lower number.
+ * Of two concurrent calls that duplicate each other, the later one is therefore sure to see
+ * the earlier one's reservation, even though neither ticket is stored yet.
+ */
+public final class DuplicateDetector implements RepositoryListener {
+
+    /**
+     * What the create path does with a call that duplicates an earlier ticket.
+     */
+    public enum Action {
+        /** Create the ticket anyway, with a comment naming the earlier one. */
+        FLAG,
+        /** Add the call to the earlier ticket as a comment instead of creating a ticket. */
+        MERGE
+    }
+
+    /**
+     * Author of the comments recording duplicates.
+     */
+    public static final String AUTHOR = "Dedup";
+
+    /**
+     * Default minimum estimated similarity of two descriptions for them to be duplicates.
+     */
+    public static final double DEFAULT_THRESHOLD = 0.6;
+
+    /**
+     * Default number of tickets the detector holds.
+     */
+    public static final int DEFAULT_CAPACITY = 20_000;
+
+    private static final int MAX_CAPACITY = 1_000_000;
+    private static final int STRIPES = 4;
+
+    /**
+     * Limit on the tickets compared per band, and held per band key in a stripe, which bounds
+     * a lookup when many recent tickets share a band, as during an incident; those are all
+     * alike, so any of them is a good match.
+     */
+    private static final int MAX_CANDIDATES_PER_BAND = 4;
+    private static final int SIGNATURE = MinHash.SIGNATURE_LENGTH;
+
+    private final Action action;
+    private final long windowMillis;
+    private final double threshold;
+    private final Stripe[] stripes;
+
+    /**
+     * Orders the entries across stripes; a lookup only matches entries numbered before it.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructs a detector with the default capacity and similarity threshold.
+     *
+     * @param repository The repository whose tickets new calls are checked against
+     * @param action What the create path does with a duplicate
+     * @param window How long after its creation a ticket can be duplicated
+     */
+    public DuplicateDetector(TicketRepository repository, Action action, Duration window) {
+        this(repository, action, window, DEFAULT_THRESHOLD, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a detector, adds the open tickets created within the window and starts
+     * following the repository's changes.
+     *
+     * @param repository The repository whose tickets new calls are checked against
+     * @param action What the create path does with a duplicate
+     * @param window How long after its creation a ticket can be duplicated
+     * @param threshold The minimum estimated similarity of two descriptions, between 0 and 1
+     * @param capacity The maximum number of tickets held, up to 1,000,000
+     * @throws IllegalArgumentException if the window is not positive, or the threshold or
+     *         capacity is out of range
+     */
+    public DuplicateDetector(TicketRepository repository, Action action, Duration window,
+                             double threshold, int capacity) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Threshold must be above 0 and at most 1: " + threshold);
+        }
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.action = action;
+        this.windowMillis = window.toMillis();
+        this.threshold = threshold;
+        int count = Integer.highestOneBit(Math.min(STRIPES, capacity));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe((capacity + count - 1) / count);
+        }
+        repository.addListener(this);
+        long now = System.currentTimeMillis();
+        repository.streamTickets().forEach(ticket -> stripeOf(ticket.getId()).add(ticket, now));
+    }
+
+    /**
+     * @return What the create path does with a duplicate
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * @return The number of tickets new calls are currently checked against, counting reserved calls
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Looks for the ticket a new call duplicates, as of now, without reserving anything.
+     *
+     * @param ticket The new call, not yet stored
+     * @return The earlier ticket, or null if the call is not a duplicate
+     */
+    public DuplicateMatch find(TicketModel ticket) {
+        return find(ticket, System.currentTimeMillis());
+    }
+
+    /**
+     * Looks for the ticket a new call duplicates, without reserving anything. A ticket from
+     * the same caller in the same category wins over one with a similar description; among
+     * similar descriptions, the most similar wins. Two concurrent calls can both miss each
+     * other, which is why the create path uses findOrReserve.
+     *
+     * @param ticket The new call, not yet stored
+     * @param nowMillis The time of the call in milliseconds since the epoch
+     * @return The earlier ticket, or null if the call is not a duplicate
+     */
+    public DuplicateMatch find(TicketModel ticket, long nowMillis) {
+        return search(new Call(ticket, nowMillis), Long.MAX_VALUE);
+    }
+
+    /**
+     * Looks for the ticket a new call duplicates, as of now, and reserves the call's place.
+     *
+     * @param ticket The new call, with its ID but not yet stored
+     * @return The earlier ticket or reserved call, or null if the call is not a duplicate
+     */
+    public DuplicateMatch findOrReserve(TicketModel ticket) {
+        return findOrReserve(ticket, System.currentTimeMillis());
+    }
+
+    /**
+     * Looks for the ticket a new call duplicates, as find does, and leaves the call reserved,
+     * so that later calls find it before it is stored. The match may itself be a reserved call
+     * whose ticket is not stored yet; see awaitCreated. A reservation is confirmed when the
+     * repository reports the ticket created, without hashing the description again, and must
+     * be released if the ticket is not created after all, e.g. because the call was merged.
+     *
+     * @param ticket The new call, with its ID but not yet stored
+     * @param nowMillis The time of the call in milliseconds since the epoch
+     * @return The earlier ticket or reserved call, or null if the call is not a duplicate
+     */
+    public DuplicateMatch findOrReserve(TicketModel ticket, long nowMillis) {
+        // The expensive part runs outside the monitors
+        Call call = new Call(ticket, nowMillis);
+        return search(call, stripeOf(call.id).reserve(call));
+    }
+
+    /**
+     * Drops the reservation of a call that was not created after all, because it was merged
+     * or storing it failed. Does nothing if the call is not reserved.
+     *
+     * @param id The ID of the call
+     */
+    public void release(int id) {
+        stripeOf(id).release(id);
+    }
+
+    /**
+     * Waits until a reserved call is created or released, for a call that matched it and
+     * needs the stored ticket.
+     *
+     * @param id The ID of the reserved call
+     * @param timeoutMillis How long to wait at most
+     * @return true if the call is no longer reserved, false if the timeout expired or the
+     *         thread was interrupted
+     */
+    public boolean awaitCreated(int id, long timeoutMillis) {
+        return stripeOf(id).awaitCreated(id, timeoutMillis);
+    }
+
+    @Override
+    public void ticketCreated(TicketModel ticket) {
+        stripeOf(ticket.getId()).add(ticket, System.currentTimeMillis());
+    }
+
+    @Override
+    public void ticketsCreated(List<TicketModel> tickets) {
+        long now = System.currentTimeMillis();
+        for (TicketModel ticket : tickets) {
+            stripeOf(ticket.getId()).add(ticket, now);
+        }
+    }
+
+    /**
+     * Drops a ticket once it is resolved or closed, and adds it again if it is reopened while
+     * still within the window.
+     */
+    @Override
+    public void ticketUpdated(TicketModel ticket) {
+        stripeOf(ticket.getId()).update(ticket);
+    }
+
+    @Override
+    public void ticketDeleted(int id) {
+        stripeOf(id).remove(id);
+    }
+
+    @Override
+    public void ticketArchived(TicketModel ticket) {
+        stripeOf(ticket.getId()).remove(ticket.getId());
+    }
+
+    /**
+     * Searches the stripes, holding one monitor at a time, for the entries numbered before
+     * the given number that the call duplicates.
+     */
+    private DuplicateMatch search(Call call, long before) {
+        call.reset(before);
+        for (Stripe stripe : stripes) {
+            stripe.search(call);
+        }
+        if (call.callerId >= 0) {
+            return new DuplicateMatch(call.callerId, DuplicateMatch.Reason.SAME_CALLER, call.callerSimilarity);
+        }
+        if (call.similar < 0 || call.similarity < threshold) {
+            return null;
+        }
+        return new DuplicateMatch(call.similar, DuplicateMatch.Reason.SIMILAR_DESCRIPTION, call.similarity);
+    }
+
+    private Stripe stripeOf(int id) {
+        int h = id * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * A call being looked up: what is computed from it outside the monitors, and the best
+     * matches found so far.
+     */
+    private final class Call {
+        final int id;
+        final long time;
+        final long since;
+        final String caller;
+        final int[] signature = new int[SIGNATURE];
+        final boolean signed;
+        final int[] bandKeys = new int[MinHash.BANDS];
+
+        /**
+         * Tickets compared so far per band, over all stripes.
+         */
+        final int[] compared = new int[MinHash.BANDS];
+
+        long before;
+        int callerId;
+        long callerSequence;
+        double callerSimilarity;
+        int similar;
+        double similarity;
+
+        Call(TicketModel ticket, long nowMillis) {
+            this.id = ticket.getId();
+            this.time = nowMillis;
+            this.since = nowMillis - windowMillis;
+            this.caller = callerKey(ticket);
+            this.signed = MinHash.signature(ticket.getDescription(), signature);
+            if (signed) {
+                for (int band = 0; band < MinHash.BANDS; band++) {
+                    bandKeys[band] = MinHash.bandKey(signature, 0, band);
+                }
+            }
+        }
+
+        void reset(long before) {
+            this.before = before;
+            callerId = -1;
+            callerSequence = Long.MAX_VALUE;
+            similar = -1;
+            similarity = 0;
+            Arrays.fill(compared, 0);
+        }
+    }
+
+    /**
+     * The tables of the tickets whose IDs fall in one stripe, guarded by the stripe's monitor.
+     */
+    private final class Stripe {
+        private final int capacity;
+
+        /**
+         * Ring of slots in the order entries were added, which is also the order of their
+         * sequence numbers; head is the oldest.
+         */
+        private final int[] ids;
+        private final long[] times;
+        private final long[] sequences;
+        private final int[] signatures;
+        private final boolean[] hasSignature;
+        private final String[] callers;
+        private final boolean[] live;
+        private final boolean[] pending;
+        private int head;
+        private int count;
+        private int liveCount;
+
+        private final Map<Integer, Integer> slotsById = new HashMap<>();
+
+        /**
+         * The earliest live slot per contact and category.
+         */
+        private final Map<String, Integer> slotsByCaller = new HashMap<>();
+
+        /**
+         * Open-addressing multimap from band keys to slots: pairs of the key and the slot plus
+         * one, 0 marking an empty pair. Every live slot with a signature has a pair per band,
+         * unless the band key already had enough slots when it was added.
+         */
+        private final int[] buckets;
+        private final int bucketMask;
+
+        /**
+         * Marks the slots already compared in the current lookup.
+         */
+        private final int[] visited;
+        private int visit;
+
+        /**
+         * Signature of the ticket being added, used under the monitor.
+         */
+        private final int[] scratchSignature = new int[SIGNATURE];
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.ids = new int[capacity];
+            this.times = new long[capacity];
+            this.sequences = new long[capacity];
+            this.signatures = new int[capacity * SIGNATURE];
+            this.hasSignature = new boolean[capacity];
+            this.callers = new String[capacity];
+            this.live = new boolean[capacity];
+            this.pending = new boolean[capacity];
+            this.visited = new int[capacity];
+            // At most half full when every slot has all its bands
+            int pairs = Integer.highestOneBit(capacity * MinHash.BANDS * 2 - 1) << 1;
+            this.buckets = new int[2 * pairs];
+            this.bucketMask = pairs - 1;
+        }
+
+        synchronized int size() {
+            return liveCount;
+        }
+
+        /**
+         * Adds a pending entry for a call, replacing an entry with the same ID. A call that is
+         * already reserved, and looks again because its match was never stored, keeps its
+         * sequence number: were it to take a new one, two such calls could each match the
+         * other and wait for a ticket neither stores.
+         *
+         * @return The call's sequence number, taken under the monitor, so that any lookup
+         *         numbered after it finds the entry
+         */
+        synchronized long reserve(Call call) {
+            Integer reserved = slotsById.get(call.id);
+            long number = reserved != null && pending[reserved] ? sequences[reserved] : sequence.incrementAndGet();
+            remove(call.id);
+            int slot = insert(call.id, call.time, call.caller, number);
+            pending[slot] = true;
+            hasSignature[slot] = call.signed;
+            if (call.signed) {
+                System.arraycopy(call.signature, 0, signatures, slot * SIGNATURE, SIGNATURE);
+                for (int band = 0; band < MinHash.BANDS; band++) {
+                    insertBucket(call.bandKeys[band], slot);
+                }
+            }
+            return number;
+        }
+
+        synchronized void release(int id) {
+            Integer slot = slotsById.get(id);
+            if (slot != null && pending[slot]) {
+                unindex(slot);
+            }
+        }
+
+        synchronized boolean awaitCreated(int id, long timeoutMillis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            Integer slot;
+            while ((slot = slotsById.get(id)) != null && pending[slot]) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Confirms the reservation of a created ticket, or adds an open ticket created within
+         * the window, replacing an entry with the same ID.
+         */
+        synchronized void add(TicketModel ticket, long nowMillis) {
+            Integer reserved = slotsById.get(ticket.getId());
+            if (reserved != null && pending[reserved]) {
+                if (isOpen(ticket)) {
+                    pending[reserved] = false;
+                    notifyAll();
+                } else {
+                    unindex(reserved);
+                }
+                return;
+            }
+            long time = ticket.getCreatedAt() != 0 ? ticket.getCreatedAt() : nowMillis;
+            remove(ticket.getId());
+            if (!isOpen(ticket) || time < nowMillis - windowMillis) {
+                return;
+            }
+            int slot = insert(ticket.getId(), time, callerKey(ticket), sequence.incrementAndGet());
+            hasSignature[slot] = MinHash.signature(ticket.getDescription(), scratchSignature);
+            if (hasSignature[slot]) {
+                System.arraycopy(scratchSignature, 0, signatures, slot * SIGNATURE, SIGNATURE);
+                for (int band = 0; band < MinHash.BANDS; band++) {
+                    insertBucket(MinHash.bandKey(signatures, slot * SIGNATURE, band), slot);
+                }
+            }
+        }
+
+        synchronized void update(TicketModel ticket) {
+            if (!isOpen(ticket)) {
+                remove(ticket.getId());
+            } else if (!slotsById.containsKey(ticket.getId())) {
+                add(ticket, System.currentTimeMillis());
+            }
+        }
+
+        synchronized void remove(int id) {
+            Integer slot = slotsById.get(id);
+            if (slot != null) {
+                unindex(slot);
+            }
+        }
+
+        /**
+         * Records in the call the entries of this stripe it duplicates, where better than those
+         * found so far: the earliest from the same caller, and the most similar description.
+         */
+        synchronized void search(Call call) {
+            expire(call.time);
+            Integer slot = call.caller == null ? null : slotsByCaller.get(call.caller);
+            if (slot != null && isEarlier(slot, call) && sequences[slot] < call.callerSequence) {
+                call.callerId = ids[slot];
+                call.callerSequence = sequences[slot];
+                call.callerSimilarity = call.signed && hasSignature[slot]
+                        ? MinHash.similarity(call.signature, 0, signatures, slot * SIGNATURE) : 0;
+            }
+            if (!call.signed) {
+                return;
+            }
+            if (++visit == 0) {
+                Arrays.fill(visited, 0);
+                visit = 1;
+            }
+            for (int band = 0; band < MinHash.BANDS; band++) {
+                int key = call.bandKeys[band];
+                for (int pair = key & bucketMask; call.compared[band] < MAX_CANDIDATES_PER_BAND
+                        && buckets[2 * pair + 1] != 0; pair = (pair + 1) & bucketMask) {
+                    int candidate = buckets[2 * pair + 1] - 1;
+                    if (buckets[2 * pair] != key || visited[candidate] == visit) {
+                        continue;
+                    }
+                    visited[candidate] = visit;
+                    if (!isEarlier(candidate, call)) {
+                        continue;
+                    }
+                    call.compared[band]++;
+                    double similarity = MinHash.similarity(call.signature, 0, signatures, candidate * SIGNATURE);
+                    if (similarity > call.similarity) {
+                        call.similar = ids[candidate];
+                        call.similarity = similarity;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Whether a live slot can be the earlier ticket of a call: another ticket, within the
+         * window, added or reserved before the call.
+         */
+        private boolean isEarlier(int slot, Call call) {
+            return ids[slot] != call.id && times[slot] >= call.since && sequences[slot] < call.before;
+        }
+
+        /**
+         * Takes the next slot of the ring for an entry, evicting the oldest if the ring is full.
+         */
+        private int insert(int id, long time, String caller, long number) {
+            expire(time);
+            if (count == capacity) {
+                evictHead();
+            }
+            int slot = (head + count) % capacity;
+            count++;
+            liveCount++;
+            ids[slot] = id;
+            times[slot] = time;
+            sequences[slot] = number;
+            live[slot] = true;
+            pending[slot] = false;
+            callers[slot] = caller;
+            if (caller != null) {
+                slotsByCaller.putIfAbsent(caller, slot);
+            }
+            slotsById.put(id, slot);
+            return slot;
+        }
+
+        /**
+         * Drops tickets that left the window, and removed tickets at the head of the ring.
+         */
+        private void expire(long nowMillis) {
+            long since = nowMillis - windowMillis;
+            while (count > 0 && (!live[head] || times[head] < since)) {
+                evictHead();
+            }
+        }
+
+        private void evictHead() {
+            unindex(head);
+            head = (head + 1) % capacity;
+            count--;
+        }
+
+        /**
+         * Removes a slot from the lookup tables; the slot stays in the ring until it reaches
+         * the head. Wakes the threads waiting for the slot if it was a reserved call.
+         */
+        private void unindex(int slot) {
+            if (!live[slot]) {
+                return;
+            }
+            live[slot] = false;
+            liveCount--;
+            if (pending[slot]) {
+                pending[slot] = false;
+                notifyAll();
+            }
+            if (hasSignature[slot]) {
+                for (int band = 0; band < MinHash.BANDS; band++) {
+                    deleteBucket(MinHash.bandKey(signatures, slot * SIGNATURE, band), slot);
+                }
+            }
+            if (callers[slot] != null) {
+                slotsByCaller.remove(callers[slot], slot);
+                callers[slot] = null;
+            }
+            slotsById.remove(ids[slot], slot);
+        }
+
+        /**
+         * Adds a pair unless the band key already has as many slots as a lookup compares, which
+         * keeps the probe runs short while a burst of alike tickets comes in.
+         */
+        private void insertBucket(int key, int slot) {
+            int pair = key & bucketMask;
+            int same = 0;
+            while (buckets[2 * pair + 1] != 0) {
+                if (buckets[2 * pair] == key && ++same == MAX_CANDIDATES_PER_BAND) {
+                    return;
+                }
+                pair = (pair + 1) & bucketMask;
+            }
+            buckets[2 * pair] = key;
+            buckets[2 * pair + 1] = slot + 1;
+        }
+
+        /**
+         * Removes a pair, if it was added, using backward-shift deletion as the hash tables of
+         * the ticket stores do.
+         */
+        private void deleteBucket(int key, int slot) {
+            int hole = key & bucketMask;
+            while (buckets[2 * hole] != key || buckets[2 * hole + 1] != slot + 1) {
+                if (buckets[2 * hole + 1] == 0) {
+                    return;
+                }
+                hole = (hole + 1) & bucketMask;
+            }
+            int next = (hole + 1) & bucketMask;
+            while (buckets[2 * next + 1] != 0) {
+                int home = buckets[2 * next] & bucketMask;
+                if (((next - home) & bucketMask) >= ((next - hole) & bucketMask)) {
+                    buckets[2 * hole] = buckets[2 * next];
+                    buckets[2 * hole + 1] = buckets[2 * next + 1];
+                    hole = next;
+                }
+                next = (next + 1) & bucketMask;
+            }
+            buckets[2 * hole + 1] = 0;
+        }
+    }
+
+    private static boolean isOpen(TicketModel ticket) {
+        TicketStatus status = ticket.getTicketStatus();
+        return status != TicketStatus.RESOLVED && status != TicketStatus.CLOSED;
+    }
+
+    /**
+     * @return The key of a ticket's contact and category, or null if it has no contact info
+     */
+    private static String callerKey(TicketModel ticket) {
+        String contact = contactKey(ticket.getContactInfo());
+        return contact == null ? null : contact + '#' + ticket.getCategoryId();
+    }
+
+    /**
+     * Normalizes contact info for exact matching: an e-mail address to lower case without
+     * spaces, a phone number to its last ten digits, so the same number written with or without
+     * a country code or separators gives the same key.
+     *
+     * @return The key, or null if there is no contact info
+     */
+    static String contactKey(String contactInfo) {
+        if (contactInfo == null || contactInfo.isBlank()) {
+            return null;
+        }
+        if (contactInfo.indexOf('@') >= 0) {
+            return contactInfo.replace(" ", "").toLowerCase(Locale.ROOT);
+        }
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < contactInfo.length(); i++) {
+            char c = contactInfo.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() < 6) {
+            return contactInfo.trim().toLowerCase(Locale.ROOT);
+        }
+        return digits.substring(Math.max(0, digits.length() - 10));
+    }
+}
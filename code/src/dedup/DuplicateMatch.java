@@ -0,0 +1,63 @@
+package dedup;
+
+/**
+ * An earlier ticket that a new call was found to duplicate.
+ */
+public final class DuplicateMatch {
+
+    /**
+     * Why the tickets were matched.
+     */
+    public enum Reason {
+        /** The caller's contact info is the same and the ticket is in the same category. */
+        SAME_CALLER,
+        /** The descriptions are similar enough, whoever called. */
+        SIMILAR_DESCRIPTION
+    }
+
+    private final int ticketId;
+    private final Reason reason;
+    private final double similarity;
+
+    DuplicateMatch(int ticketId, Reason reason, double similarity) {
+        this.ticketId = ticketId;
+        this.reason = reason;
+        this.similarity = similarity;
+    }
+
+    /**
+     * @return The ID of the earlier ticket
+     */
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    /**
+     * @return Why the tickets were matched
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return The estimated similarity of the descriptions, between 0 and 1
+     */
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    /**
+     * @return A sentence for the comment recording the match
+     */
+    public String describe() {
+        String why = reason == Reason.SAME_CALLER ? "same caller, " : "";
+        return String.format("Possible duplicate of ticket %d (%sdescription %.0f%% similar)",
+                ticketId, why, similarity * 100);
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateMatch[ticket=" + ticketId + ", reason=" + reason
+                + ", similarity=" + String.format("%.2f", similarity) + "]";
+    }
+}
@@ -0,0 +1,126 @@
+package dedup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures of text, for estimating how similar two descriptions are without
+ * comparing them. The text is lower-cased and reduced to letters and digits with single spaces
+ * between words, and cut into overlapping shingles of four characters; the signature holds the
+ * minimum of each of SIGNATURE_LENGTH hash functions over the shingles. The share of positions
+ * at which two signatures agree estimates the Jaccard similarity of their shingle sets.
+ * Signatures are split into BANDS bands of ROWS values for locality-sensitive hashing: texts
+ * sharing any band are candidates, which makes a pair with similarity s a candidate with
+ * probability 1 - (1 - s^3)^20, e.g. 93% at 0.5 and over 99% at 0.7.
+ */
+final class MinHash {
+
+    static final int BANDS = 20;
+    static final int ROWS = 3;
+    static final int SIGNATURE_LENGTH = BANDS * ROWS;
+
+    private static final int SHINGLE = 4;
+    private static final int[] MULTIPLIERS = new int[SIGNATURE_LENGTH];
+    private static final int[] ADDENDS = new int[SIGNATURE_LENGTH];
+
+    static {
+        // Fixed seed, so signatures are comparable between runs
+        SplittableRandom random = new SplittableRandom(0x5EED_D0D0L);
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            MULTIPLIERS[i] = random.nextInt() | 1;
+            ADDENDS[i] = random.nextInt();
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * Computes the signature of a text.
+     *
+     * @param text The text, may be null
+     * @param signature Array of SIGNATURE_LENGTH values to fill
+     * @return false if the text is too short to have a single shingle, in which case the
+     *         signature is meaningless
+     */
+    static boolean signature(String text, int[] signature) {
+        if (text == null) {
+            return false;
+        }
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        // The last SHINGLE normalized characters, 16 bits each
+        long window = 0;
+        int length = 0;
+        boolean space = true;
+        boolean any = false;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c;
+            if (i == n) {
+                if (space) {
+                    break;
+                }
+                c = ' ';
+            } else {
+                c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    c = Character.toLowerCase(c);
+                    space = false;
+                } else if (space) {
+                    continue;
+                } else {
+                    c = ' ';
+                    space = true;
+                }
+            }
+            window = window << 16 | c;
+            if (++length >= SHINGLE) {
+                add((int) mix(window), signature);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the texts behind two signatures.
+     *
+     * @return The share of positions at which the signatures agree, between 0 and 1
+     */
+    static double similarity(int[] first, int firstOffset, int[] second, int secondOffset) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (first[firstOffset + i] == second[secondOffset + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_LENGTH;
+    }
+
+    /**
+     * Hashes one band of a signature together with its number, so equal values in different
+     * bands do not collide.
+     */
+    static int bandKey(int[] signature, int offset, int band) {
+        long h = band;
+        for (int i = 0; i < ROWS; i++) {
+            h = h * 0x9E3779B97F4A7C15L + signature[offset + band * ROWS + i];
+        }
+        return (int) (mix(h) >>> 32);
+    }
+
+    /**
+     * Applies the hash functions to a shingle. Multiplying and adding in 32 bits, written as
+     * below, lets the JIT compiler use vector instructions for the whole signature.
+     */
+    private static void add(int shingle, int[] signature) {
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            signature[i] = Math.min(signature[i], MULTIPLIERS[i] * shingle + ADDENDS[i]);
+        }
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
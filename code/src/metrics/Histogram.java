@@ -0,0 +1,142 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative long values with a fixed relative precision, laid out
+ * like HdrHistogram: values are grouped into buckets covering powers of two, and each bucket is
+ * split into 128 linear sub-buckets, so any recorded value is reported within 1% of itself
+ * while the whole range up to the highest trackable value needs only a few thousand counters.
+ * Recording is lock-free and does not allocate; reading percentiles walks the counters.
+ */
+public final class Histogram {
+
+    /**
+     * Highest value tracked by default: one hour in nanoseconds. Larger values count as this.
+     */
+    public static final long DEFAULT_HIGHEST_VALUE = 3_600_000_000_000L;
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    private final long highestValue;
+    private final AtomicLongArray counts;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructs a histogram tracking values up to one hour in nanoseconds.
+     */
+    public Histogram() {
+        this(DEFAULT_HIGHEST_VALUE);
+    }
+
+    /**
+     * Constructs a histogram.
+     *
+     * @param highestValue The highest value tracked precisely; larger values count as this value
+     * @throws IllegalArgumentException if the highest value is less than 1
+     */
+    public Histogram(long highestValue) {
+        if (highestValue < 1) {
+            throw new IllegalArgumentException("Highest value must be positive: " + highestValue);
+        }
+        this.highestValue = highestValue;
+        this.counts = new AtomicLongArray(indexOf(highestValue) + 1);
+    }
+
+    /**
+     * Records a value. Negative values count as 0.
+     *
+     * @param value The value to record
+     */
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), highestValue);
+        counts.incrementAndGet(indexOf(clamped));
+        sum.add(clamped);
+        if (clamped > max.get()) {
+            max.accumulateAndGet(clamped, Math::max);
+        }
+    }
+
+    /**
+     * @return The number of recorded values
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return The largest recorded value, or 0 if none was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the recorded values, or 0 if none was recorded
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall.
+     * The result is the highest value of the sub-bucket holding that rank, so it never
+     * understates a latency. Values recorded concurrently may or may not be included.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The value at the percentile, or 0 if none was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Maps a value to its counter: bucket b holds values with b more significant bits than a
+     * sub-bucket index can hold, and its upper half of sub-buckets follows bucket b - 1.
+     */
+    private static int indexOf(long value) {
+        int bucket = Math.max(0, 64 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - SUB_BUCKET_BITS);
+        int subBucket = (int) (value >>> bucket);
+        return (bucket << SUB_BUCKET_HALF_BITS) + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        int bucket = Math.max(0, (index >> SUB_BUCKET_HALF_BITS) - 1);
+        long subBucket = index - ((long) bucket << SUB_BUCKET_HALF_BITS);
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
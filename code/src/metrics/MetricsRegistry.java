@@ -0,0 +1,176 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, timers, value histograms and gauges of one process.
+ * Components look their metrics up once, when they are constructed, and then update them
+ * directly, so recording costs no map lookup and no allocation. The registry renders all
+ * metrics, sorted by name, as text for people or as JSON for tools, on demand or periodically.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     *
+     * @param name The metric name
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use.
+     *
+     * @param name The metric name
+     * @return The timer
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it on first use.
+     *
+     * @param name The metric name
+     * @return The histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge, whose value is read whenever the metrics are rendered.
+     * Replaces any gauge with the same name.
+     *
+     * @param name The metric name
+     * @param value Supplies the current value; must be cheap and safe to call from any thread
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Registers gauges for the used, committed and maximum heap size in bytes.
+     */
+    public void registerHeapGauges() {
+        Runtime runtime = Runtime.getRuntime();
+        gauge("heap.used", () -> runtime.totalMemory() - runtime.freeMemory());
+        gauge("heap.committed", runtime::totalMemory);
+        gauge("heap.max", runtime::maxMemory);
+    }
+
+    /**
+     * Renders all metrics as text, one per line. Timer latencies are shown in microseconds.
+     *
+     * @return The metrics as text
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+            Histogram latencies = timer.getValue().getLatencies();
+            text.append(String.format("%-32s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                    timer.getKey(), latencies.getCount(), latencies.getMean() / 1e3,
+                    latencies.getValueAtPercentile(50) / 1e3, latencies.getValueAtPercentile(99) / 1e3,
+                    latencies.getValueAtPercentile(99.9) / 1e3, latencies.getMax() / 1e3));
+        }
+        for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+            Histogram values = histogram.getValue();
+            text.append(String.format("%-32s count=%d mean=%.1f p50=%d p99=%d p99.9=%d max=%d%n",
+                    histogram.getKey(), values.getCount(), values.getMean(), values.getValueAtPercentile(50),
+                    values.getValueAtPercentile(99), values.getValueAtPercentile(99.9), values.getMax()));
+        }
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            text.append(String.format("%-32s %d%n", counter.getKey(), counter.getValue().sum()));
+        }
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            text.append(String.format("%-32s %d%n", gauge.getKey(), gauge.getValue().getAsLong()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Renders all metrics as a JSON object with the sections timers, histograms, counters and
+     * gauges. Timer latencies are in nanoseconds.
+     *
+     * @return The metrics as JSON
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"timers\":{");
+        boolean first = true;
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+            first = appendName(json, timer.getKey(), first);
+            appendHistogram(json, timer.getValue().getLatencies());
+        }
+        json.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+            first = appendName(json, histogram.getKey(), first);
+            appendHistogram(json, histogram.getValue());
+        }
+        json.append("},\"counters\":{");
+        first = true;
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            first = appendName(json, counter.getKey(), first);
+            json.append(counter.getValue().sum());
+        }
+        json.append("},\"gauges\":{");
+        first = true;
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            first = appendName(json, gauge.getKey(), first);
+            json.append(gauge.getValue().getAsLong());
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Prints the metrics at a fixed interval on a daemon thread until the returned handle is closed.
+     *
+     * @param out The stream to print to
+     * @param intervalSeconds The seconds between two dumps
+     * @param json true to print JSON, one object per line, false to print text
+     * @return A handle that stops the dumps when closed
+     */
+    public Closeable startDump(PrintStream out, long intervalSeconds, boolean json) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> out.println(json ? toJson() : toText()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return scheduler::shutdownNow;
+    }
+
+    private static boolean appendName(StringBuilder json, String name, boolean first) {
+        if (!first) {
+            json.append(',');
+        }
+        json.append('"').append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\":");
+        return false;
+    }
+
+    private static void appendHistogram(StringBuilder json, Histogram histogram) {
+        json.append("{\"count\":").append(histogram.getCount())
+                .append(",\"mean\":").append(histogram.getMean())
+                .append(",\"p50\":").append(histogram.getValueAtPercentile(50))
+                .append(",\"p90\":").append(histogram.getValueAtPercentile(90))
+                .append(",\"p99\":").append(histogram.getValueAtPercentile(99))
+                .append(",\"p999\":").append(histogram.getValueAtPercentile(99.9))
+                .append(",\"max\":").append(histogram.getMax()).append('}');
+    }
+}
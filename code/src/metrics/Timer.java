@@ -0,0 +1,33 @@
+package metrics;
+
+/**
+ * Counts the calls of one operation and records their latencies in nanoseconds.
+ * Callers take System.nanoTime() before the operation and pass it to record afterwards.
+ */
+public final class Timer {
+
+    private final Histogram latencies = new Histogram();
+
+    /**
+     * Records one call.
+     *
+     * @param startNanos The value of System.nanoTime() when the call started
+     */
+    public void record(long startNanos) {
+        latencies.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return The number of recorded calls
+     */
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    /**
+     * @return The distribution of call latencies, in nanoseconds
+     */
+    public Histogram getLatencies() {
+        return latencies;
+    }
+}
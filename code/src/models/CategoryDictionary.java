@@ -0,0 +1,74 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary that encodes ticket categories as small dense integer IDs.
+ * Categories are compared case-insensitively, so "Network" and "network" share one ID,
+ * and the spelling seen first is kept as the display name.
+ * IDs are never reused, which lets index structures address categories by array position.
+ * This class is thread-safe.
+ */
+public final class CategoryDictionary {
+
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];
+    private static int count;
+
+    private CategoryDictionary() {
+    }
+
+    /**
+     * Returns the ID of the given category, assigning a new one if the category is unknown.
+     *
+     * @param category The category name
+     * @return The dense ID of the category
+     */
+    public static int intern(String category) {
+        String value = category == null ? "" : category.trim();
+        Integer id = IDS.get(key(value));
+        return id != null ? id : IDS.computeIfAbsent(key(value), k -> assign(value));
+    }
+
+    /**
+     * Returns the ID of the given category without assigning a new one.
+     *
+     * @param category The category name
+     * @return The dense ID of the category, or -1 if no ticket ever used it
+     */
+    public static int lookup(String category) {
+        Integer id = IDS.get(key(category == null ? "" : category.trim()));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the display name of a category ID.
+     *
+     * @param id An ID previously returned by intern
+     * @return The category name
+     */
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return The number of distinct categories seen so far
+     */
+    public static synchronized int size() {
+        return count;
+    }
+
+    private static synchronized int assign(String name) {
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+        }
+        names[count] = name;
+        return count++;
+    }
+
+    private static String key(String category) {
+        return category.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,188 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only log of the comments written on a ticket.
+ * Entries are stored in fixed-size chunks, so appending never copies earlier entries;
+ * only the small directory of chunk references grows.
+ * Appends must not run concurrently with each other, but readers may run alongside
+ * a writer and always see a consistent prefix of the log.
+ * A log can be forked in constant time; the fork shares the full chunks with the original and
+ * copies the partly filled one only when either side appends to it.
+ */
+public class CommentLog implements Iterable<TicketComment> {
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile TicketComment[][] chunks = new TicketComment[1][];
+    private volatile int size;
+
+    /**
+     * Set once the last chunk may be visible to a fork, so the next append must copy it.
+     */
+    private volatile boolean shared;
+
+    /**
+     * Constructs an empty log.
+     */
+    public CommentLog() {
+    }
+
+    private CommentLog(TicketComment[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+        this.shared = true;
+    }
+
+    /**
+     * Returns a copy of the log that can be appended to independently of this one.
+     * Earlier entries are shared rather than copied.
+     *
+     * @return A new log holding the same entries
+     */
+    public CommentLog fork() {
+        shared = true;
+        // Read the size first: the directory written before it holds at least that many entries
+        int end = size;
+        return new CommentLog(chunks, end);
+    }
+
+    /**
+     * Appends an entry to the end of the log.
+     *
+     * @param comment The entry to append
+     */
+    public void append(TicketComment comment) {
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        TicketComment[][] directory = chunks;
+        if (shared) {
+            // Entries past the shared size may belong to a fork, so write into private copies
+            directory = Arrays.copyOf(directory, Math.max(directory.length, chunk + 1));
+            if (directory[chunk] != null) {
+                directory[chunk] = directory[chunk].clone();
+            }
+            shared = false;
+        } else if (chunk == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new TicketComment[CHUNK_SIZE];
+        }
+        directory[chunk][index & CHUNK_MASK] = comment;
+        chunks = directory;
+        size = index + 1;
+    }
+
+    /**
+     * Tells whether this log holds the entries of another log, plus possibly more, as it does
+     * when it was forked from that log and only appended to since.
+     * Only the last entry of the other log is compared, and by value rather than identity:
+     * forks share the entries of their origin, but a store handing out views decodes new ones
+     * on every read, and two forks that appended on their own differ from their first new entry.
+     *
+     * @param previous The log to compare with
+     * @return true if this log starts with the entries of the other
+     */
+    public boolean extendsLog(CommentLog previous) {
+        int last = previous.size() - 1;
+        return this == previous || size > last && (last < 0 || sameComment(get(last), previous.get(last)));
+    }
+
+    private static boolean sameComment(TicketComment comment, TicketComment other) {
+        return comment == other || Objects.equals(comment.getTimestamp(), other.getTimestamp())
+                && Objects.equals(comment.getAuthor(), other.getAuthor())
+                && Objects.equals(comment.getText(), other.getText());
+    }
+
+    /**
+     * @return The number of entries in the log
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no comment has been written yet
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the entry at the given position.
+     *
+     * @param index The position of the entry, starting at 0 for the oldest
+     * @return The entry at that position
+     * @throws IndexOutOfBoundsException if the position is outside the log
+     */
+    public TicketComment get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Comment " + index + " of " + size);
+        }
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Returns the most recent entries, oldest first.
+     *
+     * @param count The maximum number of entries to return
+     * @return A new List holding at most count entries
+     */
+    public List<TicketComment> last(int count) {
+        int end = size;
+        TicketComment[][] directory = chunks;
+        int start = Math.max(0, end - Math.max(0, count));
+        List<TicketComment> result = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            result.add(directory[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
+        }
+        return result;
+    }
+
+    /**
+     * @return A sequential stream over all entries, oldest first
+     */
+    public Stream<TicketComment> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns an iterator over the entries present when the iteration starts, oldest first.
+     *
+     * @return An iterator over the log
+     */
+    @Override
+    public Iterator<TicketComment> iterator() {
+        int end = size;
+        TicketComment[][] directory = chunks;
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public TicketComment next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                TicketComment comment = directory[next >>> CHUNK_SHIFT][next & CHUNK_MASK];
+                next++;
+                return comment;
+            }
+        };
+    }
+}
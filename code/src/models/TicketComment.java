@@ -0,0 +1,45 @@
+package models;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A single entry in a ticket's comment log.
+ * Entries are immutable once written.
+ */
+public final class TicketComment {
+
+    private static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private final Instant timestamp;
+    private final String author;
+    private final String text;
+
+    /**
+     * Constructs a comment entry.
+     *
+     * @param timestamp The moment the comment was written
+     * @param author The agent who wrote the comment
+     * @param text The comment text
+     */
+    public TicketComment(Instant timestamp, String author, String text) {
+        this.timestamp = timestamp;
+        this.author = author;
+        this.text = text;
+    }
+
+    // Getters
+    public Instant getTimestamp() { return timestamp; }
+    public String getAuthor() { return author; }
+    public String getText() { return text; }
+
+    /**
+     * @return the comment formatted as "[date time] author: text"
+     */
+    @Override
+    public String toString() {
+        return "[" + FORMAT.format(timestamp) + "] " + author + ": " + text;
+    }
+}
@@ -1,19 +1,37 @@
 package models;
 
+import java.time.Instant;
+
+/**
+ * A support ticket.
+ * Tickets held by the repository are snapshots: the repository never changes a stored ticket
+ * in place, but replaces it with a new version, so a ticket that has been read stays consistent
+ * without locking. To change a ticket, edit a copy() and pass it back to the repository, which
+ * rejects the copy if another version was stored since the ticket was read.
+ */
 public class TicketModel {
         private int id;
         private String customerName;
         private String contactInfo;
-        private String category;
+        private int categoryId;
         private String description;
-        private String status;
-        private String priority;
-        private String comments;
+        private TicketStatus status;
+        private TicketPriority priority;
+        private CommentLog comments;
+        private long version;
+        private long createdAt;
+        private long updatedAt;
+
+    /**
+     * Author recorded for comments added without naming an agent.
+     */
+    public static final String DEFAULT_AUTHOR = "Agent";
 
 
     /**
      * Constructor to create a new ticket with initial values.
      * Sets default values for status, priority, and comments.
+     * The category is encoded once through the CategoryDictionary.
      *
      * @param id Unique identifier for the ticket
      * @param customerName Name of the customer
@@ -26,47 +44,176 @@ public class TicketModel {
             this.id = id;
             this.customerName = customerName;
             this.contactInfo = contactInfo;
-            this.category = category;
+            this.categoryId = CategoryDictionary.intern(category);
             this.description = description;
-            this.status = "Open";
-            this.priority = "Medium";
-            this.comments = "";
+            this.status = TicketStatus.OPEN;
+            this.priority = TicketPriority.MEDIUM;
+            this.comments = new CommentLog();
+        }
+
+    /**
+     * Constructor for subclasses that keep the fields elsewhere and override every getter, such
+     * as the read-only views handed out by a columnar store. Only the ID is set.
+     *
+     * @param id Unique identifier for the ticket
+     */
+    protected TicketModel(int id) {
+            this.id = id;
+        }
+
+    /**
+     * Copy constructor used by copy(). Reads the source through its getters, so copying a
+     * view yields an ordinary, editable ticket.
+     */
+    private TicketModel(TicketModel source) {
+            this.id = source.getId();
+            this.customerName = source.getCustomerName();
+            this.contactInfo = source.getContactInfo();
+            this.categoryId = source.getCategoryId();
+            this.description = source.getDescription();
+            this.status = source.getTicketStatus();
+            this.priority = source.getTicketPriority();
+            this.comments = source.getCommentLog().fork();
+            this.version = source.getVersion();
+            this.createdAt = source.getCreatedAt();
+            this.updatedAt = source.getUpdatedAt();
+        }
+
+    /**
+     * Returns an editable copy of this ticket with the same version.
+     * The comment log is forked rather than copied, so copying is cheap regardless of the
+     * number of comments, and comments added to the copy do not appear on this ticket.
+     *
+     * @return A new TicketModel with the same field values
+     */
+    public TicketModel copy() {
+            return new TicketModel(this);
         }
 
         // Getters
         public int getId() { return id; }
         public String getCustomerName() { return customerName; }
         public String getContactInfo() { return contactInfo; }
-        public String getCategory() { return category; }
+        public String getCategory() { return CategoryDictionary.nameOf(categoryId); }
+        public int getCategoryId() { return categoryId; }
         public String getDescription() { return description; }
-        public String getStatus() { return status; }
-        public String getPriority() { return priority; }
-        public String getComments() { return comments; }
+        public String getStatus() { return status.getLabel(); }
+        public TicketStatus getTicketStatus() { return status; }
+        public String getPriority() { return priority.getLabel(); }
+        public TicketPriority getTicketPriority() { return priority; }
+        public CommentLog getCommentLog() { return comments; }
+
+    /**
+     * Returns the version of the ticket: 0 before it is first stored, and increased by the
+     * repository every time a new version is stored. Copies keep the version they were made from.
+     *
+     * @return The version number
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * Returns when the ticket was first stored, in milliseconds since the epoch, or 0 before that.
+     *
+     * @return The creation time
+     */
+    public long getCreatedAt() { return createdAt; }
+
+    /**
+     * Returns when the current version of the ticket was stored, in milliseconds since the epoch,
+     * or 0 before the ticket is first stored. Copies keep the time of the version they were made from.
+     *
+     * @return The time of the last change
+     */
+    public long getUpdatedAt() { return updatedAt; }
+
+    /**
+     * Returns the text of all comments, one per line.
+     * Builds a new string on every call; use getCommentLog() to read individual entries.
+     *
+     * @return the comment texts separated by newlines, or an empty string
+     */
+    public String getComments() {
+        StringBuilder builder = new StringBuilder();
+        for (TicketComment comment : getCommentLog()) {
+            if (builder.length() > 0) builder.append('\n');
+            builder.append(comment.getText());
+        }
+        return builder.toString();
+    }
 
     // Setter methods - only for fields that should be allowed to be updated
+    /**
+     * Updates the ticket's status.
+     * @param status new status value, e.g. "Open" or "in progress"
+     * @throws IllegalArgumentException if the value is not a known status
+     */
+    public void setStatus(String status) { this.status = TicketStatus.fromString(status); }
+
     /**
      * Updates the ticket's status.
      * @param status new status value
      */
-    public void setStatus(String status) { this.status = status; }
+    public void setStatus(TicketStatus status) { this.status = status; }
+
+    /**
+     * Updates the ticket's priority.
+     * @param priority new priority value, e.g. "High" or "low"
+     * @throws IllegalArgumentException if the value is not a known priority
+     */
+
+    public void setPriority(String priority) { this.priority = TicketPriority.fromString(priority); }
 
     /**
      * Updates the ticket's priority.
      * @param priority new priority value
      */
+    public void setPriority(TicketPriority priority) { this.priority = priority; }
+
+    /**
+     * Sets the version number. Called by the repository when it stores the ticket.
+     * @param version new version number
+     */
+    public void setVersion(long version) { this.version = version; }
 
-    public void setPriority(String priority) { this.priority = priority; }
+    /**
+     * Sets the creation time. Called by the repository when the ticket is first stored, and when
+     * tickets are restored with their original times.
+     * @param createdAt milliseconds since the epoch
+     */
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    /**
+     * Sets the time of the last change. Called by the repository when it stores a new version.
+     * @param updatedAt milliseconds since the epoch
+     */
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+
+    /**
+     * Replaces the comment log. Used when a recorded comment history is restored.
+     * @param comments the new comment log
+     */
+    public void setCommentLog(CommentLog comments) { this.comments = comments; }
 
     /**
      * Adds a new comment to the ticket's comment history.
-     * If comments already exist, adds a newline before the new comment.
+     * The comment is attributed to the default author.
      *
      * @param comment The comment text to add
      */
 
     public void addComment(String comment) {
-            if (!comments.isEmpty()) comments += "\n";
-            comments += comment;
+            addComment(DEFAULT_AUTHOR, comment);
+        }
+
+    /**
+     * Appends a new comment to the ticket's comment log.
+     * Earlier comments are not copied.
+     *
+     * @param author The agent writing the comment
+     * @param comment The comment text to add
+     */
+    public void addComment(String author, String comment) {
+            comments.append(new TicketComment(Instant.now(), author, comment));
         }
     /**
      * Overrides the default toString method to provide a formatted string
@@ -78,14 +225,28 @@ public class TicketModel {
      */
     @Override
     public String toString() {
-            return "ID: " + id +
-                    "\nCustomer: " + customerName +
-                    "\nContact: " + contactInfo +
-                    "\nCategory: " + category +
-                    "\nDescription: " + description +
-                    "\nStatus: " + status +
-                    "\nPriority: " + priority +
-                    "\nComments:\n" + (comments.isEmpty() ? "No comments" : comments) +
+            return "ID: " + getId() +
+                    "\nCustomer: " + getCustomerName() +
+                    "\nContact: " + getContactInfo() +
+                    "\nCategory: " + getCategory() +
+                    "\nDescription: " + getDescription() +
+                    "\nStatus: " + getTicketStatus() +
+                    "\nPriority: " + getTicketPriority() +
+                    (getCreatedAt() == 0 ? "" : "\nCreated: " + Instant.ofEpochMilli(getCreatedAt())
+                            + "\nUpdated: " + Instant.ofEpochMilli(getUpdatedAt())) +
+                    "\nComments:\n" + (getCommentLog().isEmpty() ? "No comments" : formatComments()) +
                     "\n----------------------------------";
         }
-}
+
+    /**
+     * Formats every comment on its own line, with its timestamp and author.
+     */
+    private String formatComments() {
+            StringBuilder builder = new StringBuilder();
+            for (TicketComment comment : getCommentLog()) {
+                if (builder.length() > 0) builder.append('\n');
+                builder.append(comment);
+            }
+            return builder.toString();
+        }
+}
\ No newline at end of file
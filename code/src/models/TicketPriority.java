@@ -0,0 +1,73 @@
+package models;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Canonical set of priorities a ticket can have.
+ * Priorities are parsed and validated once when they are set on a ticket,
+ * so comparisons afterwards are simple identity checks.
+ */
+public enum TicketPriority {
+    LOW("Low"),
+    MEDIUM("Medium"),
+    HIGH("High"),
+    CRITICAL("Critical");
+
+    private static final Map<String, TicketPriority> BY_KEY = new HashMap<>();
+
+    static {
+        for (TicketPriority priority : values()) {
+            BY_KEY.put(key(priority.label), priority);
+            BY_KEY.put(key(priority.name()), priority);
+        }
+    }
+
+    private final String label;
+
+    TicketPriority(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return The human-readable name shown to agents
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the priority matching the given text, ignoring case, spaces and underscores.
+     *
+     * @param text The priority text, e.g. "high" or "Medium"
+     * @return The matching priority, or null if the text is not a known priority
+     */
+    public static TicketPriority lookup(String text) {
+        return text == null ? null : BY_KEY.get(key(text));
+    }
+
+    /**
+     * Parses the given text into a priority.
+     *
+     * @param text The priority text, e.g. "high" or "Medium"
+     * @return The matching priority
+     * @throws IllegalArgumentException if the text is not a known priority
+     */
+    public static TicketPriority fromString(String text) {
+        TicketPriority priority = lookup(text);
+        if (priority == null) {
+            throw new IllegalArgumentException("Unknown priority: " + text);
+        }
+        return priority;
+    }
+
+    private static String key(String text) {
+        return text.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,73 @@
+package models;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Canonical set of statuses a ticket can be in.
+ * Statuses are parsed and validated once when they are set on a ticket,
+ * so comparisons afterwards are simple identity checks.
+ */
+public enum TicketStatus {
+    OPEN("Open"),
+    IN_PROGRESS("In Progress"),
+    RESOLVED("Resolved"),
+    CLOSED("Closed");
+
+    private static final Map<String, TicketStatus> BY_KEY = new HashMap<>();
+
+    static {
+        for (TicketStatus status : values()) {
+            BY_KEY.put(key(status.label), status);
+            BY_KEY.put(key(status.name()), status);
+        }
+    }
+
+    private final String label;
+
+    TicketStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return The human-readable name shown to agents
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the status matching the given text, ignoring case, spaces and underscores.
+     *
+     * @param text The status text, e.g. "open" or "In Progress"
+     * @return The matching status, or null if the text is not a known status
+     */
+    public static TicketStatus lookup(String text) {
+        return text == null ? null : BY_KEY.get(key(text));
+    }
+
+    /**
+     * Parses the given text into a status.
+     *
+     * @param text The status text, e.g. "open" or "In Progress"
+     * @return The matching status
+     * @throws IllegalArgumentException if the text is not a known status
+     */
+    public static TicketStatus fromString(String text) {
+        TicketStatus status = lookup(text);
+        if (status == null) {
+            throw new IllegalArgumentException("Unknown status: " + text);
+        }
+        return status;
+    }
+
+    private static String key(String text) {
+        return text.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,134 @@
+package persistence;
+
+import models.TicketModel;
+import repository.TicketRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * Compact binary snapshot of every ticket in a repository.
+ * The file starts with a header holding a magic number, the format version, the first
+ * write-ahead log segment that must be replayed on top of the snapshot and the ticket count,
+ * followed by one length-prefixed ticket record per ticket.
+ * Snapshots are written to a temporary file and renamed into place, so a crash while
+ * writing never leaves a half-written snapshot behind.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x544B5331;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES * 2;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot of the repository.
+     *
+     * @param path The snapshot file to write
+     * @param repository The repository to snapshot
+     * @param firstSegment The first log segment not covered by this snapshot
+     * @return The number of tickets written
+     * @throws IOException if the snapshot cannot be written
+     */
+    static long write(Path path, TicketRepository repository, long firstSegment) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.position(HEADER_BYTES);
+            Iterator<TicketModel> iterator = repository.streamTickets().iterator();
+            while (iterator.hasNext()) {
+                byte[] record = TicketRecords.encodeTicket(iterator.next());
+                if (buffer.remaining() < Integer.BYTES + record.length) {
+                    drain(channel, buffer);
+                    if (buffer.remaining() < Integer.BYTES + record.length) {
+                        buffer = ByteBuffer.allocateDirect(Integer.BYTES + record.length);
+                    }
+                }
+                buffer.putInt(record.length).put(record);
+                count++;
+            }
+            drain(channel, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(firstSegment).putLong(count).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Loads a snapshot into the repository by memory-mapping the file.
+     *
+     * @param path The snapshot file to read
+     * @param repository The repository to fill
+     * @return The first log segment that must be replayed on top of the snapshot,
+     *         or 0 if there is no snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    static long read(Path path, TicketRepository repository) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a ticket snapshot: " + path);
+            }
+            long firstSegment = header.getLong();
+            long count = header.getLong();
+
+            long position = HEADER_BYTES;
+            long size = channel.size();
+            long loaded = 0;
+            while (loaded < count) {
+                // Map the file in windows so snapshots larger than 2 GB can be read
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, MAP_WINDOW_BYTES));
+                int consumed = 0;
+                while (loaded < count && window.remaining() >= Integer.BYTES) {
+                    int length = window.getInt(consumed);
+                    if (window.remaining() < Integer.BYTES + length) {
+                        break;
+                    }
+                    ByteBuffer record = window.duplicate().position(consumed + Integer.BYTES)
+                            .limit(consumed + Integer.BYTES + length);
+                    repository.restoreTicket(TicketRecords.decodeTicket(record));
+                    consumed += Integer.BYTES + length;
+                    window.position(consumed);
+                    loaded++;
+                }
+                if (consumed == 0) {
+                    throw new IOException("Truncated ticket snapshot: " + path);
+                }
+                position += consumed;
+            }
+            return firstSegment;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,263 @@
+package persistence;
+
+import models.CommentLog;
+import models.TicketModel;
+import repository.RepositoryListener;
+import repository.TicketRepository;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable storage for a TicketRepository.
+ * Every create, update, delete and new comment is recorded in a write-ahead log, and the
+ * whole repository is periodically written to a snapshot so that recovery only has to load
+ * the snapshot and replay the log written since.
+ */
+public class TicketPersistence implements RepositoryListener, Closeable {
+
+    private static final String SNAPSHOT_NAME = "tickets.snapshot";
+
+    private final Path directory;
+    private final TicketRepository repository;
+    private final WriteAheadLog log;
+    private final ScheduledExecutorService scheduler;
+
+    private long recoveredTickets;
+    private long replayedRecords;
+
+    private TicketPersistence(Path directory, TicketRepository repository, WriteAheadLog log,
+                              long snapshotIntervalSeconds) {
+        this.directory = directory;
+        this.repository = repository;
+        this.log = log;
+        if (snapshotIntervalSeconds > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ticket-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::checkpointQuietly,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Recovers the repository from the given directory and starts logging its changes.
+     * The repository should be empty; tickets found on disk are added with their original IDs.
+     *
+     * @param directory The directory holding the snapshot and log segments
+     * @param repository The repository to recover into and persist
+     * @param syncOnCommit true to make every change wait until it is on disk
+     * @param snapshotIntervalSeconds Seconds between automatic snapshots, or 0 to disable them.
+     *                                Snapshots read the repository from a background thread, so it
+     *                                must be a ConcurrentTicketRepository when they are enabled
+     * @return The persistence layer attached to the repository
+     * @throws IOException if the stored data cannot be read or the log cannot be opened
+     */
+    public static TicketPersistence open(Path directory, TicketRepository repository,
+                                         boolean syncOnCommit, long snapshotIntervalSeconds) throws IOException {
+        int[] maxId = {0};
+        long firstSegment = SnapshotFile.read(directory.resolve(SNAPSHOT_NAME), repository);
+        long replayed = WriteAheadLog.replay(directory, firstSegment, (type, payload) ->
+                maxId[0] = Math.max(maxId[0], TicketRecords.apply(type, payload, repository)));
+
+        WriteAheadLog log = new WriteAheadLog(directory, syncOnCommit, 2);
+        TicketPersistence persistence = new TicketPersistence(directory, repository, log, snapshotIntervalSeconds);
+        long[] recovered = new long[1];
+        repository.streamTickets().forEach(ticket -> {
+            maxId[0] = Math.max(maxId[0], ticket.getId());
+            recovered[0]++;
+        });
+        repository.advanceNextId(maxId[0] + 1);
+        persistence.recoveredTickets = recovered[0];
+        persistence.replayedRecords = replayed;
+        repository.addListener(persistence);
+        return persistence;
+    }
+
+    /**
+     * @return The number of tickets present after recovery
+     */
+    public long getRecoveredTickets() {
+        return recoveredTickets;
+    }
+
+    /**
+     * @return The number of log records replayed on top of the snapshot during recovery
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Writes a snapshot of the repository and deletes the log segments it makes redundant.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        long firstSegment = log.roll();
+        SnapshotFile.write(directory.resolve(SNAPSHOT_NAME), repository, firstSegment);
+        log.deleteSegmentsBefore(firstSegment);
+    }
+
+    /**
+     * Waits until every change made so far is on disk.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    @Override
+    public void ticketCreated(TicketModel ticket) {
+        append(TicketRecords.CREATE, TicketRecords.encodeTicket(ticket));
+    }
+
+    /**
+     * Logs an update whose replaced version is not known, together with the whole comment log.
+     */
+    @Override
+    public void ticketUpdated(TicketModel ticket) {
+        ticketUpdated(null, ticket);
+    }
+
+    /**
+     * Logs an update, together with the comments added since the replaced version, or with the
+     * whole comment log if it does not extend the replaced one.
+     */
+    @Override
+    public void ticketUpdated(TicketModel previous, TicketModel ticket) {
+        List<Byte> types = new ArrayList<>(2);
+        List<byte[]> payloads = new ArrayList<>(2);
+        addUpdate(previous, ticket, types, payloads);
+        if (types.size() == 1) {
+            append(types.get(0), payloads.get(0));
+        } else {
+            append(TicketRecords.BATCH, encodeBatch(types, payloads));
+        }
+    }
+
+    /**
+     * Logs a batch of created tickets as a single record.
+     */
+    @Override
+    public void ticketsCreated(List<TicketModel> tickets) {
+        byte[] types = new byte[tickets.size()];
+        byte[][] payloads = new byte[tickets.size()][];
+        for (int i = 0; i < tickets.size(); i++) {
+            types[i] = TicketRecords.CREATE;
+            payloads[i] = TicketRecords.encodeTicket(tickets.get(i));
+        }
+        append(TicketRecords.BATCH, TicketRecords.encodeBatch(types, payloads, payloads.length));
+    }
+
+    /**
+     * Logs a batch of updates, including any new comments, as a single record.
+     */
+    @Override
+    public void ticketsUpdated(List<TicketModel> previous, List<TicketModel> tickets) {
+        List<Byte> types = new ArrayList<>(tickets.size());
+        List<byte[]> payloads = new ArrayList<>(tickets.size());
+        for (int i = 0; i < tickets.size(); i++) {
+            addUpdate(previous.get(i), tickets.get(i), types, payloads);
+        }
+        append(TicketRecords.BATCH, encodeBatch(types, payloads));
+    }
+
+    /**
+     * Adds the records of an update: the new status and priority, then each comment added since
+     * the replaced version, or a replacement of the whole comment log if the update was made
+     * from another version than the one it replaced, or the replaced version is not known.
+     */
+    private static void addUpdate(TicketModel previous, TicketModel ticket, List<Byte> types, List<byte[]> payloads) {
+        types.add(TicketRecords.UPDATE);
+        payloads.add(TicketRecords.encodeUpdate(ticket));
+        CommentLog comments = ticket.getCommentLog();
+        if (previous == null || !comments.extendsLog(previous.getCommentLog())) {
+            types.add(TicketRecords.COMMENTS);
+            payloads.add(TicketRecords.encodeComments(ticket));
+            return;
+        }
+        for (int position = previous.getCommentLog().size(); position < comments.size(); position++) {
+            types.add(TicketRecords.COMMENT);
+            payloads.add(TicketRecords.encodeComment(ticket.getId(), position, comments.get(position),
+                    ticket.getUpdatedAt(), ticket.getVersion()));
+        }
+    }
+
+    private static byte[] encodeBatch(List<Byte> types, List<byte[]> payloads) {
+        byte[] typeArray = new byte[types.size()];
+        for (int i = 0; i < typeArray.length; i++) {
+            typeArray[i] = types.get(i);
+        }
+        return TicketRecords.encodeBatch(typeArray, payloads.toArray(new byte[0][]), typeArray.length);
+    }
+
+    /**
+     * Logs a batch of deletions as a single record.
+     */
+    @Override
+    public void ticketsDeleted(int[] ids) {
+        byte[] types = new byte[ids.length];
+        byte[][] payloads = new byte[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            types[i] = TicketRecords.DELETE;
+            payloads[i] = TicketRecords.encodeDelete(ids[i]);
+        }
+        append(TicketRecords.BATCH, TicketRecords.encodeBatch(types, payloads, payloads.length));
+    }
+
+    @Override
+    public void ticketDeleted(int id) {
+        append(TicketRecords.DELETE, TicketRecords.encodeDelete(id));
+    }
+
+    @Override
+    public void ticketArchived(TicketModel ticket) {
+        // The archive keeps the ticket from now on, so it leaves the logged state
+        append(TicketRecords.DELETE, TicketRecords.encodeDelete(ticket.getId()));
+    }
+
+    @Override
+    public void ticketUnarchived(TicketModel ticket) {
+        ticketCreated(ticket);
+    }
+
+    /**
+     * Stops automatic snapshots, detaches from the repository and flushes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        repository.removeListener(this);
+        log.close();
+    }
+
+    private void append(byte type, byte[] payload) {
+        try {
+            log.append(type, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("Snapshot failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package persistence;
+
+import models.CommentLog;
+import models.TicketComment;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.TicketRepository;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Binary encoding of the records written to the write-ahead log and to snapshots.
+ * Each log record describes one change, and replaying it is idempotent so a record
+ * that is also reflected in a snapshot can safely be applied twice.
+ */
+final class TicketRecords {
+
+    static final byte CREATE = 1;
+    static final byte UPDATE = 2;
+    static final byte DELETE = 3;
+    static final byte COMMENT = 4;
+    static final byte BATCH = 5;
+    static final byte COMMENTS = 6;
+
+    private TicketRecords() {
+    }
+
+    /**
+     * Encodes the full state of a ticket, including its comments.
+     *
+     * @param ticket The ticket to encode
+     * @return The encoded ticket
+     */
+    static byte[] encodeTicket(TicketModel ticket) {
+        Encoder out = new Encoder();
+        out.writeInt(ticket.getId());
+        out.writeString(ticket.getCustomerName());
+        out.writeString(ticket.getContactInfo());
+        out.writeString(ticket.getCategory());
+        out.writeString(ticket.getDescription());
+        out.writeByte(ticket.getTicketStatus().ordinal());
+        out.writeByte(ticket.getTicketPriority().ordinal());
+        out.writeInt(ticket.getCommentLog().size());
+        for (TicketComment comment : ticket.getCommentLog()) {
+            writeComment(out, comment);
+        }
+        out.writeLong(ticket.getCreatedAt());
+        out.writeLong(ticket.getUpdatedAt());
+        out.writeLong(ticket.getVersion());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a ticket written by encodeTicket.
+     * Records written before tickets had timestamps end after the comments; their tickets are
+     * stamped with the time they are restored. Records written before versions were stored end
+     * after the timestamps; their tickets are restored without a version.
+     *
+     * @param in The buffer positioned at the start of the ticket, limited to its end
+     * @return The restored ticket
+     */
+    static TicketModel decodeTicket(ByteBuffer in) {
+        TicketModel ticket = new TicketModel(in.getInt(), readString(in), readString(in),
+                readString(in), readString(in));
+        ticket.setStatus(TicketStatus.values()[in.get()]);
+        ticket.setPriority(TicketPriority.values()[in.get()]);
+        int comments = in.getInt();
+        for (int i = 0; i < comments; i++) {
+            ticket.getCommentLog().append(readComment(in));
+        }
+        if (in.remaining() >= Long.BYTES * 2) {
+            ticket.setCreatedAt(in.getLong());
+            ticket.setUpdatedAt(in.getLong());
+        }
+        if (in.remaining() >= Long.BYTES) {
+            ticket.setVersion(in.getLong());
+        }
+        return ticket;
+    }
+
+    /**
+     * Encodes the mutable fields of a ticket and the time and version of the update.
+     *
+     * @param ticket The updated ticket
+     * @return The encoded update
+     */
+    static byte[] encodeUpdate(TicketModel ticket) {
+        Encoder out = new Encoder();
+        out.writeInt(ticket.getId());
+        out.writeByte(ticket.getTicketStatus().ordinal());
+        out.writeByte(ticket.getTicketPriority().ordinal());
+        out.writeLong(ticket.getUpdatedAt());
+        out.writeLong(ticket.getVersion());
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a comment appended to a ticket, together with its position in the comment log
+     * and the time and version of the update that added it.
+     *
+     * @param id The ID of the ticket
+     * @param position The position of the comment in the ticket's comment log
+     * @param comment The appended comment
+     * @param updatedAt The update time of the ticket version holding the comment
+     * @param version The ticket version holding the comment
+     * @return The encoded comment
+     */
+    static byte[] encodeComment(int id, int position, TicketComment comment, long updatedAt, long version) {
+        Encoder out = new Encoder();
+        out.writeInt(id);
+        out.writeInt(position);
+        writeComment(out, comment);
+        out.writeLong(updatedAt);
+        out.writeLong(version);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes the whole comment log of a ticket, for an update whose log does not extend the
+     * one stored before, e.g. because it was made from an older version.
+     *
+     * @param ticket The updated ticket
+     * @return The encoded comment log
+     */
+    static byte[] encodeComments(TicketModel ticket) {
+        Encoder out = new Encoder();
+        out.writeInt(ticket.getId());
+        out.writeInt(ticket.getCommentLog().size());
+        for (TicketComment comment : ticket.getCommentLog()) {
+            writeComment(out, comment);
+        }
+        out.writeLong(ticket.getUpdatedAt());
+        out.writeLong(ticket.getVersion());
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes the deletion of a ticket.
+     *
+     * @param id The ID of the deleted ticket
+     * @return The encoded deletion
+     */
+    static byte[] encodeDelete(int id) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(id).array();
+    }
+
+    /**
+     * Encodes several records as one batch record, so that they are written,
+     * checksummed and committed together.
+     *
+     * @param types The types of the records
+     * @param payloads The payloads of the records
+     * @param count The number of records to take from the arrays
+     * @return The encoded batch
+     */
+    static byte[] encodeBatch(byte[] types, byte[][] payloads, int count) {
+        int size = Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            size += 1 + Integer.BYTES + payloads[i].length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.put(types[i]).putInt(payloads[i].length).put(payloads[i]);
+        }
+        return out.array();
+    }
+
+    /**
+     * Applies a log record to the repository.
+     * Tickets are restored with their logged versions, and updates and comments are stored as the
+     * version and with the time they were logged with; records written before tickets had
+     * timestamps are stamped with the time they are replayed, and records written before versions
+     * were logged are stored as the next version.
+     *
+     * @param type The record type
+     * @param payload The record payload
+     * @param repository The repository being recovered
+     * @return The ID of the ticket the record refers to, or the highest such ID for a batch
+     */
+    static int apply(byte type, ByteBuffer payload, TicketRepository repository) {
+        switch (type) {
+            case CREATE: {
+                TicketModel ticket = decodeTicket(payload);
+                repository.restoreTicket(ticket);
+                return ticket.getId();
+            }
+            case UPDATE: {
+                int id = payload.getInt();
+                TicketStatus status = TicketStatus.values()[payload.get()];
+                TicketPriority priority = TicketPriority.values()[payload.get()];
+                long updatedAt = readUpdatedAt(payload);
+                repository.replayUpdate(id, readVersion(payload), updatedAt, ticket -> {
+                    ticket.setStatus(status);
+                    ticket.setPriority(priority);
+                });
+                return id;
+            }
+            case COMMENT: {
+                int id = payload.getInt();
+                int position = payload.getInt();
+                TicketComment comment = readComment(payload);
+                long updatedAt = readUpdatedAt(payload);
+                repository.replayUpdate(id, readVersion(payload), updatedAt, ticket -> {
+                    // Skip comments that the snapshot already contains
+                    if (ticket.getCommentLog().size() <= position) {
+                        ticket.getCommentLog().append(comment);
+                    }
+                });
+                return id;
+            }
+            case COMMENTS: {
+                int id = payload.getInt();
+                CommentLog comments = new CommentLog();
+                int count = payload.getInt();
+                for (int i = 0; i < count; i++) {
+                    comments.append(readComment(payload));
+                }
+                long updatedAt = payload.getLong();
+                repository.replayUpdate(id, payload.getLong(), updatedAt, ticket -> ticket.setCommentLog(comments));
+                return id;
+            }
+            case DELETE: {
+                int id = payload.getInt();
+                repository.deleteTicket(id);
+                return id;
+            }
+            case BATCH: {
+                int count = payload.getInt();
+                int maxId = 0;
+                for (int i = 0; i < count; i++) {
+                    byte entryType = payload.get();
+                    int length = payload.getInt();
+                    ByteBuffer entry = payload.slice().limit(length);
+                    maxId = Math.max(maxId, apply(entryType, entry, repository));
+                    payload.position(payload.position() + length);
+                }
+                return maxId;
+            }
+            default:
+                throw new IllegalStateException("Unknown log record type: " + type);
+        }
+    }
+
+    /**
+     * Reads the update time at the end of an update or comment record, if it has one.
+     */
+    private static long readUpdatedAt(ByteBuffer in) {
+        return in.remaining() >= Long.BYTES ? in.getLong() : System.currentTimeMillis();
+    }
+
+    /**
+     * Reads the ticket version after the update time of an update or comment record, or returns
+     * 0 if the record was written before versions were logged.
+     */
+    private static long readVersion(ByteBuffer in) {
+        return in.remaining() >= Long.BYTES ? in.getLong() : 0;
+    }
+
+    private static void writeComment(Encoder out, TicketComment comment) {
+        out.writeLong(comment.getTimestamp().getEpochSecond());
+        out.writeInt(comment.getTimestamp().getNano());
+        out.writeString(comment.getAuthor());
+        out.writeString(comment.getText());
+    }
+
+    private static TicketComment readComment(ByteBuffer in) {
+        Instant timestamp = Instant.ofEpochSecond(in.getLong(), in.getInt());
+        return new TicketComment(timestamp, readString(in), readString(in));
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Growable output buffer for building a single record.
+     */
+    private static final class Encoder {
+        private ByteBuffer buffer = ByteBuffer.allocate(128);
+
+        void writeByte(int value) {
+            ensureCapacity(1).put((byte) value);
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(Integer.BYTES).putInt(value);
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(Long.BYTES).putLong(value);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(encoded.length);
+            ensureCapacity(encoded.length).put(encoded);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        private ByteBuffer ensureCapacity(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+            return buffer;
+        }
+    }
+}
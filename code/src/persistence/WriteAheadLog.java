@@ -0,0 +1,382 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of ticket changes, split into numbered segment files.
+ * Writers copy their records into a shared buffer, and a single flusher thread writes the
+ * buffer to the current segment and forces it to disk. Every record that arrived while the
+ * previous batch was being written goes out in the next batch, so many writers share one
+ * fsync (group commit).
+ *
+ * Each record is laid out as [payload length][type][payload][CRC32 of type and payload],
+ * which lets recovery detect and drop a record that was torn by a crash.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = Integer.BYTES + 1;
+    private static final int TRAILER_BYTES = Integer.BYTES;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    /**
+     * Callback receiving the records of a segment during replay.
+     */
+    public interface RecordHandler {
+        /**
+         * @param type The record type
+         * @param payload The record payload, positioned at its first byte
+         */
+        void handle(byte type, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private final boolean syncOnCommit;
+    private final long commitIntervalMillis;
+    private final Object lock = new Object();
+    private final Thread flusher;
+
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens the log in the given directory, appending to a new segment after the existing ones.
+     *
+     * @param directory The directory holding the segment files
+     * @param syncOnCommit true to make append wait until its record is on disk,
+     *                     false to return immediately and let the flusher catch up
+     * @param commitIntervalMillis How long the flusher gathers records before writing
+     *                             when syncOnCommit is false
+     * @throws IOException if the directory or segment cannot be created
+     */
+    public WriteAheadLog(Path directory, boolean syncOnCommit, long commitIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.syncOnCommit = syncOnCommit;
+        this.commitIntervalMillis = commitIntervalMillis;
+        Files.createDirectories(directory);
+        List<Long> existing = listSegments(directory);
+        this.segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        this.channel = openSegment(segment);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param type The record type
+     * @param payload The record payload
+     * An interrupt does not cut the wait for buffer space or for the disk short, as the change
+     * the record describes has already been made; the thread is interrupted again on return.
+     *
+     * @throws IOException if the log is closed or a previous write failed
+     */
+    public void append(byte type, byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length + TRAILER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                while (pending.remaining() < size) {
+                    checkUsable();
+                    if (pending.position() == 0) {
+                        pending = ByteBuffer.allocateDirect(Math.max(size, BUFFER_BYTES));
+                    } else {
+                        lock.notifyAll();
+                        interrupted |= awaitUninterruptibly(0);
+                    }
+                }
+                checkUsable();
+                pending.putInt(payload.length).put(type).put(payload).putInt((int) crc.getValue());
+                long sequence = ++appendedSequence;
+                lock.notifyAll();
+                if (syncOnCommit) {
+                    while (durableSequence < sequence) {
+                        checkUsable();
+                        interrupted |= awaitUninterruptibly(0);
+                    }
+                }
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is on disk.
+     *
+     * Like append, it is not cut short by an interrupt.
+     *
+     * @throws IOException if a write failed
+     */
+    public void sync() throws IOException {
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                long target = appendedSequence;
+                lock.notifyAll();
+                while (durableSequence < target) {
+                    checkUsable();
+                    interrupted |= awaitUninterruptibly(0);
+                }
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+    }
+
+    /**
+     * Makes all appended records durable and starts a new segment.
+     * Records appended afterwards go to the new segment, so a snapshot taken after
+     * this call only needs the new segment and its successors to be replayed.
+     *
+     * @return The number of the new segment
+     * @throws IOException if the segments cannot be written or created
+     */
+    public long roll() throws IOException {
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                lock.notifyAll();
+                while (pending.position() > 0 || flushing) {
+                    checkUsable();
+                    interrupted |= awaitUninterruptibly(0);
+                }
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+                return segment;
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+    }
+
+    /**
+     * Deletes all segments numbered below the given segment.
+     *
+     * @param firstNeeded The lowest segment number that must be kept
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void deleteSegmentsBefore(long firstNeeded) throws IOException {
+        for (long number : listSegments(directory)) {
+            if (number < firstNeeded) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /**
+     * Flushes all pending records and closes the current segment.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            lock.notifyAll();
+            while ((pending.position() > 0 || flushing) && failure == null) {
+                interrupted |= awaitUninterruptibly(0);
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        restoreInterrupt(interrupted);
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Replays the records of every segment numbered at or above the given segment, in order.
+     * A torn record at the end of a segment, as left by a crash, ends the replay of that segment
+     * and is cut off so that new records are never appended behind garbage.
+     *
+     * @param directory The directory holding the segment files
+     * @param firstSegment The lowest segment number to replay
+     * @param handler The callback receiving each record
+     * @return The number of records replayed
+     * @throws IOException if a segment cannot be read
+     */
+    public static long replay(Path directory, long firstSegment, RecordHandler handler) throws IOException {
+        long records = 0;
+        if (!Files.isDirectory(directory)) {
+            return records;
+        }
+        for (long number : listSegments(directory)) {
+            if (number >= firstSegment) {
+                records += replaySegment(segmentPath(directory, number), handler);
+            }
+        }
+        return records;
+    }
+
+    private static long replaySegment(Path path, RecordHandler handler) throws IOException {
+        long records = 0;
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = file.size();
+            if (size == 0) {
+                return records;
+            }
+            MappedByteBuffer data = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= HEADER_BYTES + TRAILER_BYTES) {
+                int start = data.position();
+                int length = data.getInt(start);
+                if (length < 0 || data.remaining() < HEADER_BYTES + length + TRAILER_BYTES) {
+                    break;
+                }
+                byte type = data.get(start + Integer.BYTES);
+                ByteBuffer payload = data.duplicate().position(start + HEADER_BYTES).limit(start + HEADER_BYTES + length);
+                crc.reset();
+                crc.update(type);
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != data.getInt(start + HEADER_BYTES + length)) {
+                    break;
+                }
+                handler.handle(type, payload.slice());
+                data.position(start + HEADER_BYTES + length + TRAILER_BYTES);
+                records++;
+            }
+            if (data.position() < size) {
+                file.truncate(data.position());
+            }
+        }
+        return records;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    awaitUninterruptibly(0);
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                if (!syncOnCommit && !closed && commitIntervalMillis > 0) {
+                    // Gather more records into this batch
+                    awaitUninterruptibly(commitIntervalMillis);
+                }
+                batch = pending;
+                pending = spare.clear();
+                batchSequence = appendedSequence;
+                flushing = true;
+            }
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                if (channel.size() >= MAX_SEGMENT_BYTES) {
+                    // Keep segments small enough to be memory-mapped in one piece during replay
+                    channel.close();
+                    channel = openSegment(++segment);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (lock) {
+                spare = batch.capacity() == BUFFER_BYTES ? batch : ByteBuffer.allocateDirect(BUFFER_BYTES);
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = batchSequence;
+                }
+                lock.notifyAll();
+                if (error != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Write-ahead log is closed");
+        }
+    }
+
+    /**
+     * Waits on the lock, for at most the given time or without limit if it is 0.
+     * An interrupt ends the wait without setting the interrupt status again, so that a
+     * caller waiting in a loop blocks on its next wait instead of spinning; the caller
+     * restores the status once it is done.
+     *
+     * @return true if the thread was interrupted
+     */
+    private boolean awaitUninterruptibly(long millis) {
+        try {
+            lock.wait(millis);
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    private static void restoreInterrupt(boolean interrupted) {
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+}
@@ -0,0 +1,759 @@
+package repository;
+
+import models.CategoryDictionary;
+import models.CommentLog;
+import models.TicketComment;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine that keeps tickets in primitive columns instead of TicketModel objects.
+ * Rows are written once into blocks of 1,024: the ID, category ID, version and timestamps each
+ * go to a primitive array, status and priority share one byte, and the customer name, contact
+ * info, description and comments are encoded as UTF-8 into a byte arena owned by the block,
+ * located by an int offset. A stored ticket therefore costs 37 bytes of columns and about 30 of
+ * index, plus its text, and the garbage collector never has to trace it: the store holds a few
+ * arrays per block, however many tickets there are.
+ * get and the traversals hand out views: lightweight, read-only TicketModels that decode fields
+ * from their row on demand and never allocate the strings or comments that are not asked for.
+ * Rows are never changed once written; replacing a ticket appends a new row and points its entry
+ * at it, so a view keeps showing the version it was created from, just like the immutable
+ * snapshots of the other stores. Superseded rows are reclaimed by copying the live rows into new
+ * blocks once they make up half of all rows; views of the old blocks keep them alive until they
+ * are dropped. copy() on a view yields an ordinary, editable ticket.
+ * An open-addressing table of int pairs maps IDs to entries, and the entries keep insertion
+ * order as in HashTicketStore. The store is thread-safe: writers take a StampedLock exclusively,
+ * point lookups are optimistic and only retry under the read lock if a writer interfered, and
+ * traversals read a page of entries at a time under the read lock, so they are weakly
+ * consistent and never hold up writers for long.
+ */
+public class ColumnarTicketStore implements TicketStore {
+
+    private static final int BLOCK_SHIFT = 10;
+    private static final int BLOCK_ROWS = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_ROWS - 1;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int INITIAL_ARENA_BYTES = 16 * 1024;
+
+    /**
+     * Number of tickets a traversal reads under the read lock at a time.
+     */
+    private static final int PAGE_SIZE = 256;
+
+    private static final TicketStatus[] STATUSES = TicketStatus.values();
+    private static final TicketPriority[] PRIORITIES = TicketPriority.values();
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Open-addressing table of pairs: the ticket ID at even indexes and its entry plus one at
+     * odd ones, 0 marking an empty slot.
+     */
+    private int[] table;
+
+    /**
+     * Row of each entry in insertion order, or -1 for an entry whose ticket was removed.
+     */
+    private int[] entryRows;
+    private long[] entryPositions;
+    private int entryCount;
+    private int size;
+    private long nextPosition;
+
+    private Block[] blocks = new Block[1];
+    private int rowCount;
+    private int deadRows;
+
+    /**
+     * Buffer the record of a row is encoded into before it is copied to the arena.
+     */
+    private byte[] scratch = new byte[256];
+    private int scratchLength;
+
+    /**
+     * Constructs an empty store with the default capacity.
+     */
+    public ColumnarTicketStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store sized for the expected number of tickets.
+     *
+     * @param expectedSize The number of tickets the store should hold without resizing its index
+     */
+    public ColumnarTicketStore(int expectedSize) {
+        int capacity = Math.max(expectedSize, DEFAULT_CAPACITY);
+        this.table = new int[2 * tableSizeFor(capacity)];
+        this.entryRows = new int[capacity];
+        this.entryPositions = new long[capacity];
+    }
+
+    @Override
+    public void put(TicketModel ticket) {
+        long stamp = lock.writeLock();
+        try {
+            putLocked(ticket);
+            compactRowsIfSparse();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Stores a batch of tickets under a single acquisition of the lock, growing the index at
+     * most once up front.
+     */
+    @Override
+    public void putAll(List<TicketModel> batch) {
+        long stamp = lock.writeLock();
+        try {
+            int required = size + batch.size();
+            if (entryCount + batch.size() > entryRows.length) {
+                resizeEntries(Math.max(entryRows.length * 2, entryCount + batch.size()));
+            }
+            if (required * 2 > capacity()) {
+                rehash(tableSizeFor(required));
+            }
+            for (TicketModel ticket : batch) {
+                putLocked(ticket);
+            }
+            compactRowsIfSparse();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public TicketModel get(int id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            TicketModel view;
+            try {
+                view = lookup(id);
+            } catch (RuntimeException e) {
+                // A writer changed the arrays while they were read; validation fails below
+                view = null;
+            }
+            if (lock.validate(stamp)) {
+                return view;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return lookup(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public TicketModel replace(TicketModel ticket) {
+        long stamp = lock.writeLock();
+        try {
+            int entry = table[2 * findSlot(ticket.getId()) + 1] - 1;
+            if (entry < 0) {
+                return null;
+            }
+            TicketModel previous = viewOf(entryRows[entry]);
+            entryRows[entry] = appendRow(ticket);
+            deadRows++;
+            compactRowsIfSparse();
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public TicketModel remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(id);
+            int entry = table[2 * slot + 1] - 1;
+            if (entry < 0) {
+                return null;
+            }
+            TicketModel removed = viewOf(entryRows[entry]);
+            entryRows[entry] = -1;
+            size--;
+            deadRows++;
+            deleteSlot(slot);
+            compactRowsIfSparse();
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Visits every stored ticket in insertion order, a page at a time. The action runs outside
+     * the lock, so it may modify the store.
+     */
+    @Override
+    public void forEach(Consumer<? super TicketModel> action) {
+        List<TicketModel> page = new ArrayList<>(PAGE_SIZE);
+        long after = -1;
+        while (true) {
+            page.clear();
+            after = collect(after, Long.MAX_VALUE, PAGE_SIZE, page);
+            for (TicketModel ticket : page) {
+                action.accept(ticket);
+            }
+            if (page.size() < PAGE_SIZE) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long collectPage(long afterPosition, int limit, List<TicketModel> page) {
+        return collect(afterPosition, Long.MAX_VALUE, limit, page);
+    }
+
+    /**
+     * Returns a spliterator over the range of positions stored when it is created, which splits
+     * in constant time by halving the range and reads a page of tickets at a time.
+     */
+    @Override
+    public Spliterator<TicketModel> spliterator() {
+        long stamp = lock.readLock();
+        try {
+            return new PageSpliterator(-1, nextPosition - 1);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<TicketModel> values() {
+        List<TicketModel> result = new ArrayList<>(size());
+        forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Collects the next tickets after a position, up to an end position, under the read lock.
+     *
+     * @return The position of the last collected ticket, or afterPosition if none was collected
+     */
+    private long collect(long afterPosition, long lastPosition, int limit, List<TicketModel> page) {
+        long stamp = lock.readLock();
+        try {
+            // Entries are kept in position order, so the starting point can be found by binary search
+            int low = 0;
+            int high = entryCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entryPositions[middle] <= afterPosition) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            long last = afterPosition;
+            int collected = 0;
+            for (int i = low; i < entryCount && collected < limit && entryPositions[i] <= lastPosition; i++) {
+                if (entryRows[i] >= 0) {
+                    page.add(viewOf(entryRows[i]));
+                    last = entryPositions[i];
+                    collected++;
+                }
+            }
+            return last;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds a ticket and creates its view. Called under the read lock, or optimistically, in
+     * which case inconsistent arrays may cause any runtime exception.
+     */
+    private TicketModel lookup(int id) {
+        int[] slots = table;
+        int mask = (slots.length >>> 1) - 1;
+        int slot = hash(id) & mask;
+        int entry;
+        while ((entry = slots[2 * slot + 1]) != 0 && slots[2 * slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if (entry == 0) {
+            return null;
+        }
+        int row = entryRows[entry - 1];
+        return row < 0 ? null : viewOf(row);
+    }
+
+    private TicketModel viewOf(int row) {
+        return new View(blocks[row >>> BLOCK_SHIFT], row & BLOCK_MASK);
+    }
+
+    private void putLocked(TicketModel ticket) {
+        int slot = findSlot(ticket.getId());
+        int entry = table[2 * slot + 1] - 1;
+        if (entry >= 0) {
+            if (entryRows[entry] >= 0) {
+                deadRows++;
+            }
+            entryRows[entry] = appendRow(ticket);
+            return;
+        }
+        if (entryCount == entryRows.length) {
+            growEntries();
+            slot = findSlot(ticket.getId());
+        }
+        entryRows[entryCount] = appendRow(ticket);
+        entryPositions[entryCount] = nextPosition++;
+        table[2 * slot] = ticket.getId();
+        table[2 * slot + 1] = ++entryCount;
+        size++;
+        if (size * 2 > capacity()) {
+            rehash(capacity() * 2);
+        }
+    }
+
+    /**
+     * Writes a ticket into the next free row.
+     *
+     * @return The row number
+     */
+    private int appendRow(TicketModel ticket) {
+        encodeRecord(ticket);
+        Block block = blockForNextRow();
+        int index = rowCount & BLOCK_MASK;
+        block.ids[index] = ticket.getId();
+        block.categories[index] = ticket.getCategoryId();
+        block.states[index] = (byte) (ticket.getTicketStatus().ordinal() << 4 | ticket.getTicketPriority().ordinal());
+        block.versions[index] = ticket.getVersion();
+        block.createdAt[index] = ticket.getCreatedAt();
+        block.updatedAt[index] = ticket.getUpdatedAt();
+        block.records[index] = block.appendRecord(scratch, 0, scratchLength);
+        block.finishRow();
+        return rowCount++;
+    }
+
+    /**
+     * Copies a row, including its record, into the next free row.
+     *
+     * @return The new row number
+     */
+    private int copyRow(Block source, int from) {
+        Block block = blockForNextRow();
+        int index = rowCount & BLOCK_MASK;
+        block.ids[index] = source.ids[from];
+        block.categories[index] = source.categories[from];
+        block.states[index] = source.states[from];
+        block.versions[index] = source.versions[from];
+        block.createdAt[index] = source.createdAt[from];
+        block.updatedAt[index] = source.updatedAt[from];
+        int start = source.records[from];
+        int end = from + 1 < source.rows ? source.records[from + 1] : source.arenaLength;
+        block.records[index] = block.appendRecord(source.arena, start, end - start);
+        block.finishRow();
+        return rowCount++;
+    }
+
+    private Block blockForNextRow() {
+        int number = rowCount >>> BLOCK_SHIFT;
+        if (number == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blocks.length * 2);
+        }
+        if (blocks[number] == null) {
+            blocks[number] = new Block();
+        }
+        return blocks[number];
+    }
+
+    /**
+     * Copies the live rows into new blocks once superseded and removed rows make up half of all
+     * rows. Views keep the old blocks they point into.
+     */
+    private void compactRowsIfSparse() {
+        if (rowCount < BLOCK_ROWS || deadRows * 2 < rowCount) {
+            return;
+        }
+        Block[] old = blocks;
+        blocks = new Block[Math.max(1, Integer.highestOneBit(Math.max(1, size - 1) >>> BLOCK_SHIFT) << 1)];
+        rowCount = 0;
+        deadRows = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int row = entryRows[i];
+            if (row >= 0) {
+                entryRows[i] = copyRow(old[row >>> BLOCK_SHIFT], row & BLOCK_MASK);
+            }
+        }
+    }
+
+    /**
+     * Encodes the variable-length fields of a ticket into the scratch buffer:
+     * the customer name, contact info and description as strings, then the comment count and
+     * per comment the zigzag epoch second, nanos, author and text. A string is a varint of its
+     * UTF-8 length plus one, 0 standing for null, followed by the bytes.
+     */
+    private void encodeRecord(TicketModel ticket) {
+        scratchLength = 0;
+        writeString(ticket.getCustomerName());
+        writeString(ticket.getContactInfo());
+        writeString(ticket.getDescription());
+        CommentLog comments = ticket.getCommentLog();
+        int count = comments.size();
+        writeVarLong(count);
+        for (int i = 0; i < count; i++) {
+            TicketComment comment = comments.get(i);
+            long second = comment.getTimestamp().getEpochSecond();
+            writeVarLong((second << 1) ^ (second >> 63));
+            writeVarLong(comment.getTimestamp().getNano());
+            writeString(comment.getAuthor());
+            writeString(comment.getText());
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        ensureScratch(bytes.length);
+        System.arraycopy(bytes, 0, scratch, scratchLength, bytes.length);
+        scratchLength += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+        ensureScratch(10);
+        while ((value & ~0x7FL) != 0) {
+            scratch[scratchLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        scratch[scratchLength++] = (byte) value;
+    }
+
+    private void ensureScratch(int extra) {
+        if (scratchLength + extra > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(scratchLength + extra, scratch.length * 2));
+        }
+    }
+
+    private int capacity() {
+        return table.length >>> 1;
+    }
+
+    /**
+     * Finds the slot holding the given ID, or the empty slot where it would be inserted.
+     */
+    private int findSlot(int id) {
+        int mask = capacity() - 1;
+        int slot = hash(id) & mask;
+        while (table[2 * slot + 1] != 0 && table[2 * slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot using backward-shift deletion, as in HashTicketStore.
+     */
+    private void deleteSlot(int slot) {
+        int mask = capacity() - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[2 * next + 1] != 0) {
+            int home = hash(table[2 * next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[2 * hole] = table[2 * next];
+                table[2 * hole + 1] = table[2 * next + 1];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[2 * hole + 1] = 0;
+    }
+
+    /**
+     * Makes room for more entries, compacting the holes left by removals if they make up half
+     * of the entries and doubling the arrays otherwise.
+     */
+    private void growEntries() {
+        if (size <= entryCount / 2) {
+            int live = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (entryRows[i] >= 0) {
+                    entryPositions[live] = entryPositions[i];
+                    entryRows[live++] = entryRows[i];
+                }
+            }
+            entryCount = live;
+            rehash(capacity());
+        } else {
+            resizeEntries(entryRows.length * 2);
+        }
+    }
+
+    private void resizeEntries(int capacity) {
+        entryRows = Arrays.copyOf(entryRows, capacity);
+        entryPositions = Arrays.copyOf(entryPositions, capacity);
+    }
+
+    /**
+     * Rebuilds the table with the given capacity from the entries. The new table is filled
+     * before it is published, so optimistic readers see either the old or the new one whole.
+     */
+    private void rehash(int capacity) {
+        int[] rebuilt = new int[2 * capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < entryCount; i++) {
+            int row = entryRows[i];
+            if (row >= 0) {
+                int id = blocks[row >>> BLOCK_SHIFT].ids[row & BLOCK_MASK];
+                int slot = hash(id) & mask;
+                while (rebuilt[2 * slot + 1] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                rebuilt[2 * slot] = id;
+                rebuilt[2 * slot + 1] = i + 1;
+            }
+        }
+        table = rebuilt;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(expectedSize * 2 - 1) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Columns of up to BLOCK_ROWS rows and the arena holding their records.
+     * Rows are only appended; once written, neither a row nor its record changes.
+     */
+    private static final class Block {
+        final int[] ids = new int[BLOCK_ROWS];
+        final int[] categories = new int[BLOCK_ROWS];
+        final byte[] states = new byte[BLOCK_ROWS];
+        final long[] versions = new long[BLOCK_ROWS];
+        final long[] createdAt = new long[BLOCK_ROWS];
+        final long[] updatedAt = new long[BLOCK_ROWS];
+        final int[] records = new int[BLOCK_ROWS];
+        byte[] arena = new byte[INITIAL_ARENA_BYTES];
+        int arenaLength;
+        int rows;
+
+        /**
+         * Appends a record to the arena, replacing it by a larger copy if it is full.
+         *
+         * @return The offset of the record
+         */
+        int appendRecord(byte[] source, int offset, int length) {
+            if (arenaLength + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arenaLength + length, arena.length * 2));
+            }
+            System.arraycopy(source, offset, arena, arenaLength, length);
+            int start = arenaLength;
+            arenaLength += length;
+            return start;
+        }
+
+        /**
+         * Counts a written row, trimming the arena to its length once the block is full, so
+         * the slack left by doubling it is given back.
+         */
+        void finishRow() {
+            if (++rows == BLOCK_ROWS && arenaLength < arena.length) {
+                arena = Arrays.copyOf(arena, arenaLength);
+            }
+        }
+    }
+
+    /**
+     * Read-only ticket backed by a row. Reads the arena it was created with, which holds the row's
+     * record even if the block has moved on to a larger copy since.
+     */
+    private static final class View extends TicketModel {
+        private final Block block;
+        private final int index;
+        private final byte[] arena;
+
+        View(Block block, int index) {
+            super(block.ids[index]);
+            this.block = block;
+            this.index = index;
+            this.arena = block.arena;
+        }
+
+        @Override public String getCustomerName() { return readString(block.records[index]); }
+        @Override public String getContactInfo() { return readString(skipStrings(block.records[index], 1)); }
+        @Override public String getDescription() { return readString(skipStrings(block.records[index], 2)); }
+        @Override public String getCategory() { return CategoryDictionary.nameOf(getCategoryId()); }
+        @Override public int getCategoryId() { return block.categories[index]; }
+        @Override public String getStatus() { return getTicketStatus().getLabel(); }
+        @Override public TicketStatus getTicketStatus() { return STATUSES[(block.states[index] & 0xFF) >>> 4]; }
+        @Override public String getPriority() { return getTicketPriority().getLabel(); }
+        @Override public TicketPriority getTicketPriority() { return PRIORITIES[block.states[index] & 0xF]; }
+        @Override public long getVersion() { return block.versions[index]; }
+        @Override public long getCreatedAt() { return block.createdAt[index]; }
+        @Override public long getUpdatedAt() { return block.updatedAt[index]; }
+
+        /**
+         * Decodes the comments into a new log on every call.
+         */
+        @Override
+        public CommentLog getCommentLog() {
+            CommentLog log = new CommentLog();
+            int[] position = {skipStrings(block.records[index], 3)};
+            long count = readVarLong(position);
+            for (long i = 0; i < count; i++) {
+                long zigzag = readVarLong(position);
+                Instant timestamp = Instant.ofEpochSecond((zigzag >>> 1) ^ -(zigzag & 1), readVarLong(position));
+                String author = readString(position[0]);
+                position[0] = skipStrings(position[0], 1);
+                String text = readString(position[0]);
+                position[0] = skipStrings(position[0], 1);
+                log.append(new TicketComment(timestamp, author, text));
+            }
+            return log;
+        }
+
+        /**
+         * Views of the same row are equal, as repeated reads of an unchanged ticket return the
+         * same object in the other stores.
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof View && ((View) other).block == block && ((View) other).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(block) * 31 + index;
+        }
+
+        @Override public void setStatus(String status) { throw readOnly(); }
+        @Override public void setStatus(TicketStatus status) { throw readOnly(); }
+        @Override public void setPriority(String priority) { throw readOnly(); }
+        @Override public void setPriority(TicketPriority priority) { throw readOnly(); }
+        @Override public void setVersion(long version) { throw readOnly(); }
+        @Override public void setCreatedAt(long createdAt) { throw readOnly(); }
+        @Override public void setUpdatedAt(long updatedAt) { throw readOnly(); }
+        @Override public void addComment(String author, String comment) { throw readOnly(); }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Ticket " + getId() + " is a stored snapshot; change a copy() instead");
+        }
+
+        private String readString(int offset) {
+            int[] position = {offset};
+            long encoded = readVarLong(position);
+            return encoded == 0 ? null
+                    : new String(arena, position[0], (int) (encoded - 1), StandardCharsets.UTF_8);
+        }
+
+        private int skipStrings(int offset, int count) {
+            int[] position = {offset};
+            for (int i = 0; i < count; i++) {
+                long encoded = readVarLong(position);
+                position[0] += (int) Math.max(0, encoded - 1);
+            }
+            return position[0];
+        }
+
+        private long readVarLong(int[] position) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = arena[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Spliterator over a range of positions, reading a page of tickets at a time under the
+     * read lock and resuming after the last position read.
+     */
+    private final class PageSpliterator implements Spliterator<TicketModel> {
+        private long after;
+        private final long last;
+        private final List<TicketModel> buffer = new ArrayList<>(PAGE_SIZE);
+        private int next;
+        private boolean exhausted;
+
+        PageSpliterator(long after, long last) {
+            this.after = after;
+            this.last = last;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TicketModel> action) {
+            if (next == buffer.size()) {
+                if (exhausted) {
+                    return false;
+                }
+                buffer.clear();
+                next = 0;
+                after = collect(after, last, PAGE_SIZE, buffer);
+                exhausted = buffer.size() < PAGE_SIZE;
+                if (buffer.isEmpty()) {
+                    return false;
+                }
+            }
+            action.accept(buffer.get(next++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<TicketModel> trySplit() {
+            if (next < buffer.size() || exhausted) {
+                return null;
+            }
+            long middle = after + (last - after) / 2;
+            if (middle - after < PAGE_SIZE) {
+                return null;
+            }
+            Spliterator<TicketModel> prefix = new PageSpliterator(after, middle);
+            after = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return exhausted ? buffer.size() - next : last - after + buffer.size() - next;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | DISTINCT;
+        }
+    }
+}
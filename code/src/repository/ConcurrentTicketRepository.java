@@ -0,0 +1,244 @@
+package repository;
+
+import models.TicketModel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe variant of the TicketRepository for many agents working at the same time.
+ * IDs come from an atomic counter, tickets are kept in a lock-free ConcurrentTicketStore,
+ * and mutations of a single ticket are serialized through a fixed set of striped locks,
+ * so agents working on different tickets rarely contend with each other.
+ * Reads, getAllTickets and searchByCriteria never take a lock: writers store a new version of
+ * a ticket instead of changing the stored one, so readers always see a complete version.
+ */
+public class ConcurrentTicketRepository extends TicketRepository {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructs a new ConcurrentTicketRepository with the default number of lock stripes.
+     */
+    public ConcurrentTicketRepository() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs a new ConcurrentTicketRepository.
+     *
+     * @param stripeCount The number of locks that ticket mutations are spread over,
+     *                    rounded up to a power of two
+     */
+    public ConcurrentTicketRepository(int stripeCount) {
+        this(new ConcurrentTicketStore(), stripeCount);
+    }
+
+    /**
+     * Constructs a new ConcurrentTicketRepository backed by the given storage engine,
+     * such as a ColumnarTicketStore to keep large data sets compact.
+     *
+     * @param store A thread-safe TicketStore used to hold the tickets
+     * @param stripeCount The number of locks that ticket mutations are spread over,
+     *                    rounded up to a power of two
+     */
+    public ConcurrentTicketRepository(TicketStore store, int stripeCount) {
+        super(store);
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void createTicket(TicketModel ticket) {
+        ReentrantLock lock = lockFor(ticket.getId());
+        lock.lock();
+        try {
+            super.createTicket(ticket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreTicket(TicketModel ticket) {
+        ReentrantLock lock = lockFor(ticket.getId());
+        lock.lock();
+        try {
+            super.restoreTicket(ticket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void createTickets(List<TicketModel> batch) {
+        boolean[] held = lockAll(batch);
+        try {
+            super.createTickets(batch);
+        } finally {
+            unlockAll(held);
+        }
+    }
+
+    @Override
+    public List<UpdateResult> updateTickets(List<TicketModel> batch) {
+        boolean[] held = lockAll(batch);
+        try {
+            return super.updateTickets(batch);
+        } finally {
+            unlockAll(held);
+        }
+    }
+
+    @Override
+    public int deleteTickets(int[] ids) {
+        boolean[] held = new boolean[stripes.length];
+        for (int id : ids) {
+            held[stripeOf(id)] = true;
+        }
+        lockAll(held);
+        try {
+            return super.deleteTickets(ids);
+        } finally {
+            unlockAll(held);
+        }
+    }
+
+    @Override
+    public void updateTicket(TicketModel updatedTicket) {
+        ReentrantLock lock = lockFor(updatedTicket.getId());
+        lock.lock();
+        try {
+            super.updateTicket(updatedTicket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public UpdateResult compareAndUpdate(TicketModel draft) {
+        ReentrantLock lock = lockFor(draft.getId());
+        lock.lock();
+        try {
+            return super.compareAndUpdate(draft);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean modifyTicket(int id, Consumer<TicketModel> modification) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return super.modifyTicket(id, modification);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replayUpdate(int id, long version, long updatedAt, Consumer<TicketModel> modification) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return super.replayUpdate(id, version, updatedAt, modification);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean evictArchived(TicketModel ticket) {
+        ReentrantLock lock = lockFor(ticket.getId());
+        lock.lock();
+        try {
+            return super.evictArchived(ticket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteTicket(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return super.deleteTicket(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Generates and returns the next available ticket ID.
+     * Uses an atomic counter so concurrent callers never receive the same ID.
+     *
+     * @return The next available ticket ID
+     */
+    @Override
+    public int getNextId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Reserves a contiguous range of ticket IDs with a single atomic operation.
+     *
+     * @param count The number of IDs to reserve
+     * @return The first ID of the range
+     */
+    @Override
+    public int reserveIds(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    @Override
+    public void advanceNextId(int id) {
+        nextId.accumulateAndGet(id, Math::max);
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return stripes[stripeOf(id)];
+    }
+
+    private int stripeOf(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Locks the stripes of all tickets in a batch, always in stripe order so that
+     * concurrent batches cannot deadlock.
+     */
+    private boolean[] lockAll(List<TicketModel> batch) {
+        boolean[] held = new boolean[stripes.length];
+        for (TicketModel ticket : batch) {
+            held[stripeOf(ticket.getId())] = true;
+        }
+        lockAll(held);
+        return held;
+    }
+
+    private void lockAll(boolean[] held) {
+        for (int i = 0; i < held.length; i++) {
+            if (held[i]) {
+                stripes[i].lock();
+            }
+        }
+    }
+
+    private void unlockAll(boolean[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            if (held[i]) {
+                stripes[i].unlock();
+            }
+        }
+    }
+}
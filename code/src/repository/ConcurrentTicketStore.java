@@ -0,0 +1,166 @@
+package repository;
+
+import models.TicketModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe storage engine for tickets built on lock-free maps.
+ * Point operations go through a ConcurrentHashMap keyed by ticket ID, while a
+ * ConcurrentSkipListMap keyed by an insertion sequence number keeps the iteration order.
+ * Iteration is weakly consistent: it never throws and never blocks writers, and it
+ * reflects the state of the store at some point during the traversal.
+ */
+public class ConcurrentTicketStore implements TicketStore {
+
+    /**
+     * A stored ticket together with the sequence number that fixes its iteration position.
+     */
+    private static final class Entry {
+        final long sequence;
+        volatile TicketModel ticket;
+
+        Entry(long sequence, TicketModel ticket) {
+            this.sequence = sequence;
+            this.ticket = ticket;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Entry> inOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public void put(TicketModel ticket) {
+        byId.compute(ticket.getId(), (id, entry) -> {
+            if (entry != null) {
+                entry.ticket = ticket;
+                return entry;
+            }
+            Entry created = new Entry(sequence.getAndIncrement(), ticket);
+            inOrder.put(created.sequence, created);
+            return created;
+        });
+    }
+
+    @Override
+    public TicketModel get(int id) {
+        Entry entry = byId.get(id);
+        return entry == null ? null : entry.ticket;
+    }
+
+    @Override
+    public TicketModel replace(TicketModel ticket) {
+        TicketModel[] previous = new TicketModel[1];
+        byId.computeIfPresent(ticket.getId(), (id, entry) -> {
+            previous[0] = entry.ticket;
+            entry.ticket = ticket;
+            return entry;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public TicketModel remove(int id) {
+        Entry removed = byId.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        inOrder.remove(removed.sequence);
+        return removed.ticket;
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super TicketModel> action) {
+        for (Entry entry : inOrder.values()) {
+            action.accept(entry.ticket);
+        }
+    }
+
+    @Override
+    public long collectPage(long afterPosition, int limit, List<TicketModel> page) {
+        long last = afterPosition;
+        int collected = 0;
+        for (Entry entry : inOrder.tailMap(afterPosition, false).values()) {
+            if (collected == limit) {
+                break;
+            }
+            page.add(entry.ticket);
+            last = entry.sequence;
+            collected++;
+        }
+        return last;
+    }
+
+    /**
+     * Returns a weakly consistent spliterator over the insertion-ordered map, which splits
+     * along the levels of the skip list.
+     */
+    @Override
+    public Spliterator<TicketModel> spliterator() {
+        return new TicketSpliterator(inOrder.values().spliterator());
+    }
+
+    @Override
+    public List<TicketModel> values() {
+        List<TicketModel> result = new ArrayList<>(byId.size());
+        forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Adapts a spliterator over the entries of the store to one over their tickets.
+     * Single steps go through one reusable consumer, so advancing allocates nothing.
+     */
+    private static final class TicketSpliterator implements Spliterator<TicketModel> {
+        private final Spliterator<Entry> entries;
+        private final Consumer<Entry> capture = entry -> this.current = entry.ticket;
+        private TicketModel current;
+
+        TicketSpliterator(Spliterator<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TicketModel> action) {
+            if (!entries.tryAdvance(capture)) {
+                return false;
+            }
+            TicketModel ticket = current;
+            current = null;
+            action.accept(ticket);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super TicketModel> action) {
+            entries.forEachRemaining(entry -> action.accept(entry.ticket));
+        }
+
+        @Override
+        public Spliterator<TicketModel> trySplit() {
+            Spliterator<Entry> prefix = entries.trySplit();
+            return prefix == null ? null : new TicketSpliterator(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            return entries.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | DISTINCT | CONCURRENT;
+        }
+    }
+}
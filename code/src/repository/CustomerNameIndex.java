@@ -0,0 +1,301 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Dictionary of the distinct (case-folded) customer names, supporting autocomplete and
+ * fuzzy lookup.
+ * Names are stored in a trie kept in flat arrays: each node holds one character, its first
+ * child and its next sibling, with siblings kept in alphabetical order. Prefix completion walks
+ * down to the node of the prefix and lists the names below it. Fuzzy lookup walks the trie
+ * computing one row of the edit distance table per node, and abandons a branch as soon as every
+ * entry of the row exceeds the allowed distance, so only names that share a close prefix with
+ * the query are ever visited.
+ * Later words of names ("smith" in "john smith") are kept in a sorted set so they can be
+ * completed too.
+ * Reads share a lock and may run concurrently; adding and removing names is exclusive.
+ */
+final class CustomerNameIndex {
+
+    private static final char SEPARATOR = '\0';
+    private static final int NONE = -1;
+
+    private char[] labels = new char[1024];
+    private int[] firstChildren = new int[1024];
+    private int[] nextSiblings = new int[1024];
+    private boolean[] terminal = new boolean[1024];
+    private int nodeCount = 1;
+    private int nameCount;
+    private int removedCount;
+
+    private final NavigableSet<String> laterWords = new TreeSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    CustomerNameIndex() {
+        firstChildren[0] = NONE;
+        nextSiblings[0] = NONE;
+    }
+
+    /**
+     * Adds a name to the dictionary.
+     *
+     * @param name The case-folded customer name
+     */
+    void add(String name) {
+        lock.writeLock().lock();
+        try {
+            int node = 0;
+            for (int i = 0; i < name.length(); i++) {
+                node = childOrInsert(node, name.charAt(i));
+            }
+            if (terminal[node]) {
+                return;
+            }
+            terminal[node] = true;
+            nameCount++;
+            for (int start : laterWordStarts(name)) {
+                laterWords.add(name.substring(start) + SEPARATOR + name);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a name from the dictionary.
+     * The nodes of removed names are reclaimed by rebuilding the trie once removed names
+     * outnumber the remaining ones.
+     *
+     * @param name The case-folded customer name
+     */
+    void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            int node = find(name);
+            if (node == NONE || !terminal[node]) {
+                return;
+            }
+            terminal[node] = false;
+            nameCount--;
+            removedCount++;
+            for (int start : laterWordStarts(name)) {
+                laterWords.remove(name.substring(start) + SEPARATOR + name);
+            }
+            if (removedCount > 1024 && removedCount > nameCount) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns names starting with the given prefix, followed by names with a later word
+     * starting with it, each group in alphabetical order.
+     *
+     * @param prefix The case-folded prefix
+     * @param limit The maximum number of names to return
+     * @return The matching case-folded names
+     */
+    List<String> complete(String prefix, int limit) {
+        List<String> results = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int node = find(prefix);
+            if (node != NONE) {
+                collect(node, new StringBuilder(prefix), limit, results);
+            }
+            for (String entry : laterWords.tailSet(prefix, true)) {
+                if (results.size() >= limit || !entry.startsWith(prefix)) {
+                    break;
+                }
+                String name = entry.substring(entry.indexOf(SEPARATOR) + 1);
+                // A name that also matched in full, or through an earlier word, is listed once
+                if (!name.startsWith(prefix) && !results.contains(name)) {
+                    results.add(name);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Returns the names within the given number of edits (insertions, deletions, substitutions
+     * or swaps of adjacent letters) of the query, closest first.
+     * The number of edits is capped at a quarter of the length of the query, so that short
+     * queries do not match almost every name.
+     *
+     * @param query The case-folded name to look up
+     * @param maxEdits The maximum number of edits
+     * @param limit The maximum number of names to return
+     * @return The matching case-folded names, by increasing distance and then alphabetically
+     */
+    List<String> similar(String query, int maxEdits, int limit) {
+        int edits = Math.max(0, Math.min(maxEdits, query.length() / 4));
+        List<List<String>> byDistance = new ArrayList<>();
+        for (int i = 0; i <= edits; i++) {
+            byDistance.add(new ArrayList<>());
+        }
+        // One row of the distance table per depth of the walk; row 0 belongs to the root
+        int[][] rows = new int[query.length() + edits + 2][query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) {
+            rows[0][j] = j;
+        }
+        lock.readLock().lock();
+        try {
+            walk(0, 0, query, edits, rows, new StringBuilder(), byDistance);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<String> results = new ArrayList<>();
+        for (List<String> matches : byDistance) {
+            for (int i = 0; i < matches.size() && results.size() < limit; i++) {
+                results.add(matches.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Visits the children of a node in alphabetical order, extending the distance table by one
+     * row for each, and descends only into children whose row is still within the bound.
+     * Swaps of adjacent letters are detected by looking back two rows (optimal string alignment).
+     */
+    private void walk(int node, int depth, String query, int edits, int[][] rows,
+                      StringBuilder path, List<List<String>> byDistance) {
+        int[] previous = rows[depth];
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            char c = labels[child];
+            int[] row = rows[depth + 1];
+            row[0] = depth + 1;
+            int rowMinimum = row[0];
+            for (int j = 1; j <= query.length(); j++) {
+                int cost = query.charAt(j - 1) == c ? 0 : 1;
+                int value = Math.min(Math.min(row[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (depth > 0 && j > 1 && query.charAt(j - 1) == path.charAt(depth - 1)
+                        && query.charAt(j - 2) == c) {
+                    value = Math.min(value, rows[depth - 1][j - 2] + 1);
+                }
+                row[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > edits) {
+                continue;
+            }
+            path.append(c);
+            if (terminal[child] && row[query.length()] <= edits) {
+                byDistance.get(row[query.length()]).add(path.toString());
+            }
+            if (depth + 2 < rows.length) {
+                walk(child, depth + 1, query, edits, rows, path, byDistance);
+            }
+            path.setLength(depth);
+        }
+    }
+
+    /**
+     * Adds the names at and below a node to the results in alphabetical order.
+     */
+    private void collect(int node, StringBuilder path, int limit, List<String> results) {
+        if (results.size() >= limit) {
+            return;
+        }
+        if (terminal[node]) {
+            results.add(path.toString());
+        }
+        for (int child = firstChildren[node]; child != NONE && results.size() < limit; child = nextSiblings[child]) {
+            path.append(labels[child]);
+            collect(child, path, limit, results);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private int find(String name) {
+        int node = 0;
+        for (int i = 0; i < name.length() && node != NONE; i++) {
+            node = child(node, name.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        for (int child = firstChildren[node]; child != NONE && labels[child] <= c; child = nextSiblings[child]) {
+            if (labels[child] == c) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the child of a node for the given character, inserting it in alphabetical
+     * position among its siblings if it does not exist yet.
+     */
+    private int childOrInsert(int node, char c) {
+        int previous = NONE;
+        int child = firstChildren[node];
+        while (child != NONE && labels[child] < c) {
+            previous = child;
+            child = nextSiblings[child];
+        }
+        if (child != NONE && labels[child] == c) {
+            return child;
+        }
+        if (nodeCount == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        int created = nodeCount++;
+        labels[created] = c;
+        firstChildren[created] = NONE;
+        nextSiblings[created] = child;
+        if (previous == NONE) {
+            firstChildren[node] = created;
+        } else {
+            nextSiblings[previous] = created;
+        }
+        return created;
+    }
+
+    private void rebuild() {
+        List<String> live = new ArrayList<>(nameCount);
+        collect(0, new StringBuilder(), Integer.MAX_VALUE, live);
+        int capacity = Math.max(1024, nodeCount / 2);
+        labels = new char[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        terminal = new boolean[capacity];
+        firstChildren[0] = NONE;
+        nextSiblings[0] = NONE;
+        nodeCount = 1;
+        for (String name : live) {
+            int node = 0;
+            for (int i = 0; i < name.length(); i++) {
+                node = childOrInsert(node, name.charAt(i));
+            }
+            terminal[node] = true;
+        }
+        removedCount = 0;
+    }
+
+    private static List<Integer> laterWordStarts(String name) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 1; i < name.length(); i++) {
+            if (name.charAt(i - 1) == ' ' && name.charAt(i) != ' ') {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,332 @@
+package repository;
+
+import models.TicketModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Hash-indexed storage engine for tickets.
+ * Uses an open-addressing table of primitive int keys (no boxing) that points into an
+ * insertion-ordered entry array, so lookups, replacements and removals run in O(1)
+ * while iteration still follows the order in which tickets were created.
+ * This class is not thread-safe.
+ */
+public class HashTicketStore implements TicketStore {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Open-addressing table. A slot is empty when its position is 0,
+     * otherwise it holds the ticket ID and its position in the entry array plus one.
+     */
+    private int[] keys;
+    private int[] positions;
+    private int mask;
+
+    /**
+     * Entries in insertion order. Removed entries are left as null holes
+     * until enough of them accumulate to make compaction worthwhile.
+     */
+    private TicketModel[] entries;
+    private long[] positionsInOrder;
+    private int entryCount;
+    private int size;
+    private long nextPosition;
+
+    /**
+     * Constructs an empty store with the default capacity.
+     */
+    public HashTicketStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store sized for the expected number of tickets.
+     *
+     * @param expectedSize The number of tickets the store should hold without resizing
+     */
+    public HashTicketStore(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(expectedSize, DEFAULT_CAPACITY));
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        this.mask = capacity - 1;
+        this.entries = new TicketModel[Math.max(expectedSize, DEFAULT_CAPACITY)];
+        this.positionsInOrder = new long[entries.length];
+    }
+
+    @Override
+    public void put(TicketModel ticket) {
+        int slot = findSlot(ticket.getId());
+        if (positions[slot] != 0) {
+            entries[positions[slot] - 1] = ticket;
+            return;
+        }
+        if (entryCount == entries.length) {
+            growEntries();
+            slot = findSlot(ticket.getId());
+        }
+        entries[entryCount] = ticket;
+        positionsInOrder[entryCount] = nextPosition++;
+        keys[slot] = ticket.getId();
+        positions[slot] = ++entryCount;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Stores a batch of tickets, growing the table and entry array at most once up front.
+     */
+    @Override
+    public void putAll(List<TicketModel> batch) {
+        int required = size + batch.size();
+        if (entryCount + batch.size() > entries.length) {
+            resizeEntries(Math.max(entries.length * 2, entryCount + batch.size()));
+        }
+        if (required * 2 > keys.length) {
+            rehash(tableSizeFor(required));
+        }
+        for (TicketModel ticket : batch) {
+            put(ticket);
+        }
+    }
+
+    @Override
+    public TicketModel get(int id) {
+        int position = positions[findSlot(id)];
+        return position == 0 ? null : entries[position - 1];
+    }
+
+    @Override
+    public TicketModel replace(TicketModel ticket) {
+        int position = positions[findSlot(ticket.getId())];
+        if (position == 0) {
+            return null;
+        }
+        TicketModel previous = entries[position - 1];
+        entries[position - 1] = ticket;
+        return previous;
+    }
+
+    @Override
+    public TicketModel remove(int id) {
+        int slot = findSlot(id);
+        int position = positions[slot];
+        if (position == 0) {
+            return null;
+        }
+        TicketModel removed = entries[position - 1];
+        entries[position - 1] = null;
+        size--;
+        deleteSlot(slot);
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<? super TicketModel> action) {
+        for (int i = 0; i < entryCount; i++) {
+            TicketModel ticket = entries[i];
+            if (ticket != null) {
+                action.accept(ticket);
+            }
+        }
+    }
+
+    @Override
+    public long collectPage(long afterPosition, int limit, List<TicketModel> page) {
+        // Entries are kept in position order, so the starting point can be found by binary search
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positionsInOrder[middle] <= afterPosition) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        long last = afterPosition;
+        int collected = 0;
+        for (int i = low; i < entryCount && collected < limit; i++) {
+            if (entries[i] != null) {
+                page.add(entries[i]);
+                last = positionsInOrder[i];
+                collected++;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Returns a spliterator over a range of the entry array, which splits in constant time
+     * by halving the range.
+     */
+    @Override
+    public Spliterator<TicketModel> spliterator() {
+        return new EntrySpliterator(entries, 0, entryCount);
+    }
+
+    @Override
+    public List<TicketModel> values() {
+        List<TicketModel> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Finds the slot holding the given ID, or the empty slot where it would be inserted.
+     * Uses linear probing from the slot chosen by the hash of the ID.
+     */
+    private int findSlot(int id) {
+        int slot = hash(id) & mask;
+        while (positions[slot] != 0 && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot using backward-shift deletion, moving later entries of the
+     * same probe sequence back so that no tombstones are needed in the table.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (positions[next] != 0) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry back if the hole lies between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                positions[hole] = positions[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        positions[hole] = 0;
+    }
+
+    /**
+     * Makes room for more entries. If most of the entry array consists of holes left by
+     * removals the live entries are compacted in place, otherwise the array is doubled.
+     */
+    private void growEntries() {
+        if (size <= entryCount / 2) {
+            int live = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (entries[i] != null) {
+                    positionsInOrder[live] = positionsInOrder[i];
+                    entries[live++] = entries[i];
+                }
+            }
+            for (int i = live; i < entryCount; i++) {
+                entries[i] = null;
+            }
+            entryCount = live;
+            rehash(keys.length);
+        } else {
+            resizeEntries(entries.length * 2);
+        }
+    }
+
+    private void resizeEntries(int capacity) {
+        TicketModel[] grown = new TicketModel[capacity];
+        System.arraycopy(entries, 0, grown, 0, entryCount);
+        entries = grown;
+        long[] grownPositions = new long[capacity];
+        System.arraycopy(positionsInOrder, 0, grownPositions, 0, entryCount);
+        positionsInOrder = grownPositions;
+    }
+
+    /**
+     * Rebuilds the hash table with the given capacity from the entry array.
+     */
+    private void rehash(int capacity) {
+        keys = new int[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < entryCount; i++) {
+            TicketModel ticket = entries[i];
+            if (ticket != null) {
+                int slot = findSlot(ticket.getId());
+                keys[slot] = ticket.getId();
+                positions[slot] = i + 1;
+            }
+        }
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(expectedSize * 2 - 1) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Spliterator over a range of the entry array that skips the holes left by removals.
+     */
+    private static final class EntrySpliterator implements Spliterator<TicketModel> {
+        private final TicketModel[] entries;
+        private int next;
+        private final int end;
+
+        EntrySpliterator(TicketModel[] entries, int next, int end) {
+            this.entries = entries;
+            this.next = next;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TicketModel> action) {
+            while (next < end) {
+                TicketModel ticket = entries[next++];
+                if (ticket != null) {
+                    action.accept(ticket);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super TicketModel> action) {
+            for (; next < end; next++) {
+                TicketModel ticket = entries[next];
+                if (ticket != null) {
+                    action.accept(ticket);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<TicketModel> trySplit() {
+            int middle = (next + end) >>> 1;
+            if (middle <= next) {
+                return null;
+            }
+            Spliterator<TicketModel> prefix = new EntrySpliterator(entries, next, middle);
+            next = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - next;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | DISTINCT;
+        }
+    }
+}
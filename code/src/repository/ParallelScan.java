@@ -0,0 +1,171 @@
+package repository;
+
+import models.TicketModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Fork-join scan that tests every ticket of a store against a predicate, for filters the
+ * secondary indexes cannot answer.
+ * The store is split into ordered chunks, a few per worker thread so that fast workers can
+ * take over the chunks of slow ones, and each chunk is scanned by its own task into its own
+ * result list. The lists are concatenated in chunk order, so results keep insertion order.
+ * With a limit, the scan stops early: a chunk stops once it alone holds enough matches, and as
+ * soon as the finished chunks at the front of the store hold enough matches between them,
+ * every later chunk abandons its work.
+ * The scan runs in the fork-join pool of the calling task, or in the common pool.
+ */
+final class ParallelScan {
+
+    /**
+     * Stores smaller than this are not worth splitting.
+     */
+    private static final int MIN_CHUNK_SIZE = 4096;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Number of tickets a chunk scans between checks for early termination.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final Predicate<? super TicketModel> filter;
+    private final int limit;
+    private final int[] matchCounts;
+    private final boolean[] finished;
+    private int finishedPrefix;
+    private long prefixMatches;
+
+    /**
+     * Index of the last chunk whose results are needed; later chunks stop scanning.
+     */
+    private volatile int lastNeededChunk = Integer.MAX_VALUE;
+
+    private ParallelScan(Predicate<? super TicketModel> filter, int limit, int chunkCount) {
+        this.filter = filter;
+        this.limit = limit;
+        this.matchCounts = new int[chunkCount];
+        this.finished = new boolean[chunkCount];
+    }
+
+    /**
+     * Returns the first tickets of a store, in insertion order, that match a predicate.
+     *
+     * @param store The store to scan
+     * @param filter The predicate; called from several threads at once
+     * @param limit The maximum number of tickets to return
+     * @return The matching tickets
+     */
+    static List<TicketModel> scan(TicketStore store, Predicate<? super TicketModel> filter, int limit) {
+        int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+        int chunkCount = Math.min(parallelism * CHUNKS_PER_THREAD, store.size() / MIN_CHUNK_SIZE);
+        List<Spliterator<TicketModel>> chunks = split(store.spliterator(), chunkCount);
+
+        ParallelScan scan = new ParallelScan(filter, limit, chunks.size());
+        List<Chunk> tasks = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            tasks.add(scan.new Chunk(i, chunks.get(i)));
+        }
+        if (tasks.size() == 1) {
+            tasks.get(0).compute();
+        } else {
+            ForkJoinTask.invokeAll(tasks);
+        }
+
+        List<TicketModel> results = new ArrayList<>();
+        for (Chunk task : tasks) {
+            for (TicketModel ticket : task.matches) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                results.add(ticket);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Splits the store into about the given number of ordered chunks, or fewer if it cannot be
+     * split that far.
+     */
+    private static List<Spliterator<TicketModel>> split(Spliterator<TicketModel> tickets, int chunkCount) {
+        List<Spliterator<TicketModel>> chunks = new ArrayList<>();
+        chunks.add(tickets);
+        boolean splitAny = true;
+        while (chunks.size() < chunkCount && splitAny) {
+            splitAny = false;
+            List<Spliterator<TicketModel>> halves = new ArrayList<>(chunks.size() * 2);
+            for (Spliterator<TicketModel> chunk : chunks) {
+                Spliterator<TicketModel> prefix = chunk.trySplit();
+                if (prefix != null) {
+                    halves.add(prefix);
+                    splitAny = true;
+                }
+                halves.add(chunk);
+            }
+            chunks = halves;
+        }
+        return chunks;
+    }
+
+    /**
+     * Records the number of matches of a finished chunk and, once the chunks at the front of
+     * the store have finished with enough matches, tells all later chunks to stop.
+     */
+    private synchronized void finish(int chunk, int matches) {
+        matchCounts[chunk] = matches;
+        finished[chunk] = true;
+        while (lastNeededChunk == Integer.MAX_VALUE && finishedPrefix < finished.length && finished[finishedPrefix]) {
+            prefixMatches += matchCounts[finishedPrefix];
+            if (prefixMatches >= limit) {
+                lastNeededChunk = finishedPrefix;
+            }
+            finishedPrefix++;
+        }
+    }
+
+    /**
+     * Scans one chunk. The task is its own consumer, so advancing through the chunk allocates nothing.
+     */
+    @SuppressWarnings("serial")
+    private final class Chunk extends RecursiveAction implements Consumer<TicketModel> {
+        private final int index;
+        private final Spliterator<TicketModel> tickets;
+        private final List<TicketModel> matches = new ArrayList<>();
+
+        Chunk(int index, Spliterator<TicketModel> tickets) {
+            this.index = index;
+            this.tickets = tickets;
+        }
+
+        @Override
+        protected void compute() {
+            int untilCheck = 0;
+            while (matches.size() < limit) {
+                if (untilCheck-- == 0) {
+                    untilCheck = CHECK_INTERVAL;
+                    if (index > lastNeededChunk) {
+                        break;
+                    }
+                }
+                if (!tickets.tryAdvance(this)) {
+                    break;
+                }
+            }
+            finish(index, matches.size());
+        }
+
+        @Override
+        public void accept(TicketModel ticket) {
+            if (filter.test(ticket)) {
+                matches.add(ticket);
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Compressed posting list of the full-text index: the IDs of the tickets containing a term,
+ * each with the number of times the term occurs in the ticket.
+ * Entries are kept sorted by ticket ID and stored as variable-length encoded ID gaps and
+ * frequencies, in blocks of BLOCK_SIZE entries. The first ID of every block is kept
+ * uncompressed in a skip table, so a reader can jump straight to the block that may hold
+ * a given ID instead of decoding the whole list.
+ *
+ * New tickets always get a higher ID than any ticket already indexed, so in the common case
+ * an entry is simply appended. Changes to tickets already in the list (new comments, edited
+ * descriptions, removals) are buffered as frequency deltas, which readers overlay on the
+ * compressed entries, and are merged into the compressed data in bulk once enough accumulate.
+ *
+ * All methods are synchronized; readers work on an immutable view and never block writers
+ * while they decode.
+ */
+final class PostingList {
+
+    /**
+     * Returned by a Reader once all entries have been read.
+     */
+    static final int NO_MORE = Integer.MAX_VALUE;
+
+    private static final int BLOCK_SIZE = 128;
+    private static final int PENDING_LIMIT = 256;
+    private static final int[] NONE = new int[0];
+
+    private byte[] data = new byte[16];
+    private int dataLength;
+    private int[] blockFirstIds = new int[1];
+    private int[] blockOffsets = new int[1];
+    private int blockCount;
+    private int count;
+    private int lastId;
+
+    /**
+     * Buffered deltas in the order they came; allocated on the first, as the many lists of
+     * rare words never get one.
+     */
+    private int[] pendingIds = NONE;
+    private int[] pendingDeltas = NONE;
+    private int pendingCount;
+
+    /**
+     * Buffered deltas sorted by ID with the deltas of each ID summed, shared by all readers
+     * until the next change. Null when it has to be rebuilt.
+     */
+    private int[] sortedPendingIds = NONE;
+    private int[] sortedPendingDeltas = NONE;
+
+    /**
+     * Adds the given number of occurrences of the term to a ticket.
+     * A negative delta removes occurrences; an entry whose frequency drops to zero is removed.
+     *
+     * @param id The ID of the ticket
+     * @param delta The change in the number of occurrences
+     */
+    synchronized void add(int id, int delta) {
+        if (pendingCount == 0 && delta > 0 && (count == 0 || id > lastId)) {
+            append(id, delta);
+            return;
+        }
+        if (pendingCount == pendingIds.length) {
+            pendingIds = Arrays.copyOf(pendingIds, Math.max(4, pendingCount * 2));
+            pendingDeltas = Arrays.copyOf(pendingDeltas, pendingIds.length);
+        }
+        pendingIds[pendingCount] = id;
+        pendingDeltas[pendingCount] = delta;
+        pendingCount++;
+        sortedPendingIds = null;
+        if (pendingCount >= PENDING_LIMIT) {
+            merge();
+        }
+    }
+
+    /**
+     * Returns a reader over the current entries, including buffered changes.
+     * Later changes to the list are not visible through the returned reader.
+     *
+     * @return A new Reader positioned before the first entry
+     */
+    synchronized Reader reader() {
+        if (sortedPendingIds == null) {
+            sortPending();
+        }
+        return new Reader(data, dataLength, blockFirstIds, blockOffsets, blockCount, count,
+                sortedPendingIds, sortedPendingDeltas);
+    }
+
+    private void append(int id, int frequency) {
+        if (count % BLOCK_SIZE == 0) {
+            if (blockCount == blockFirstIds.length) {
+                blockFirstIds = Arrays.copyOf(blockFirstIds, blockCount * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockFirstIds[blockCount] = id;
+            blockOffsets[blockCount] = dataLength;
+            blockCount++;
+            writeVarint(0);
+        } else {
+            writeVarint(id - lastId);
+        }
+        writeVarint(frequency);
+        lastId = id;
+        count++;
+    }
+
+    private void writeVarint(int value) {
+        if (dataLength + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[dataLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[dataLength++] = (byte) value;
+    }
+
+    /**
+     * Sorts the buffered deltas by ticket ID and sums the deltas of each ID.
+     */
+    private void sortPending() {
+        long[] order = new long[pendingCount];
+        for (int i = 0; i < pendingCount; i++) {
+            order[i] = ((long) pendingIds[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        int[] ids = new int[pendingCount];
+        int[] deltas = new int[pendingCount];
+        int unique = 0;
+        for (long entry : order) {
+            int id = (int) (entry >>> 32);
+            if (unique > 0 && ids[unique - 1] == id) {
+                deltas[unique - 1] += pendingDeltas[(int) entry];
+            } else {
+                ids[unique] = id;
+                deltas[unique++] = pendingDeltas[(int) entry];
+            }
+        }
+        sortedPendingIds = Arrays.copyOf(ids, unique);
+        sortedPendingDeltas = Arrays.copyOf(deltas, unique);
+    }
+
+    /**
+     * Folds the buffered deltas into the compressed entries by reading the list through
+     * a reader, which already applies them, and rebuilding the compressed data from it.
+     */
+    private void merge() {
+        Reader merged = reader();
+        data = new byte[Math.max(16, dataLength + pendingCount * 2)];
+        dataLength = 0;
+        blockFirstIds = new int[Math.max(1, blockCount + 1)];
+        blockOffsets = new int[blockFirstIds.length];
+        blockCount = 0;
+        count = 0;
+        for (int id = merged.next(); id != NO_MORE; id = merged.next()) {
+            append(id, merged.frequency());
+        }
+        pendingCount = 0;
+        sortedPendingIds = NONE;
+        sortedPendingDeltas = NONE;
+    }
+
+    /**
+     * Forward-only cursor over an immutable view of a posting list.
+     * Merges the compressed entries with the buffered deltas on the fly and skips entries
+     * whose frequency the deltas bring down to zero.
+     * Not thread-safe; each query creates its own readers.
+     */
+    static final class Reader {
+        private final byte[] data;
+        private final int dataLength;
+        private final int[] blockFirstIds;
+        private final int[] blockOffsets;
+        private final int blockCount;
+        private final int size;
+        private final int[] pendingIds;
+        private final int[] pendingDeltas;
+
+        private int block = -1;
+        private int offset;
+        private int blockEnd;
+        private int baseId = -1;
+        private int baseFrequency;
+        private int pending;
+        private int current = -1;
+        private int frequency;
+
+        private Reader(byte[] data, int dataLength, int[] blockFirstIds, int[] blockOffsets, int blockCount,
+                       int size, int[] pendingIds, int[] pendingDeltas) {
+            this.data = data;
+            this.dataLength = dataLength;
+            this.blockFirstIds = blockFirstIds;
+            this.blockOffsets = blockOffsets;
+            this.blockCount = blockCount;
+            this.size = size;
+            this.pendingIds = pendingIds;
+            this.pendingDeltas = pendingDeltas;
+        }
+
+        /**
+         * @return The number of compressed entries, a close estimate of the number of
+         *         tickets in the list while changes are buffered
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return The frequency of the term in the ticket the reader is positioned on
+         */
+        int frequency() {
+            return frequency;
+        }
+
+        /**
+         * Moves to the next entry.
+         *
+         * @return The ID of the next ticket, or NO_MORE at the end of the list
+         */
+        int next() {
+            while (true) {
+                if (baseId <= current) {
+                    nextBase();
+                }
+                while (pending < pendingIds.length && pendingIds[pending] <= current) {
+                    pending++;
+                }
+                int pendingId = pending < pendingIds.length ? pendingIds[pending] : NO_MORE;
+                int id = Math.min(baseId, pendingId);
+                current = id;
+                if (id == NO_MORE) {
+                    return NO_MORE;
+                }
+                int total = (baseId == id ? baseFrequency : 0) + (pendingId == id ? pendingDeltas[pending] : 0);
+                if (total > 0) {
+                    frequency = total;
+                    return id;
+                }
+            }
+        }
+
+        /**
+         * Moves to the first entry with an ID of at least the target, skipping whole blocks
+         * where possible. Does not move backwards.
+         *
+         * @param target The smallest ID of interest
+         * @return The ID of the entry reached, or NO_MORE if there is none
+         */
+        int advance(int target) {
+            if (current >= target) {
+                return current;
+            }
+            if (baseId < target) {
+                advanceBase(target);
+            }
+            current = target - 1;
+            return next();
+        }
+
+        private void nextBase() {
+            if (offset == blockEnd) {
+                if (block + 1 >= blockCount) {
+                    baseId = NO_MORE;
+                    return;
+                }
+                enterBlock(block + 1);
+                return;
+            }
+            baseId += readVarint();
+            baseFrequency = readVarint();
+        }
+
+        private void advanceBase(int target) {
+            if (block >= 0 && (block + 1 == blockCount || blockFirstIds[block + 1] > target)) {
+                // The target lies in the current block
+                while (baseId < target) {
+                    nextBase();
+                }
+                return;
+            }
+            // Binary search the skip table for the last block starting at or before the target
+            int low = block + 1;
+            int high = blockCount - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blockFirstIds[middle] <= target) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (found > block) {
+                enterBlock(found);
+            }
+            while (baseId < target) {
+                nextBase();
+            }
+        }
+
+        /**
+         * Positions the compressed cursor on the first entry of a block.
+         */
+        private void enterBlock(int index) {
+            block = index;
+            offset = blockOffsets[index];
+            blockEnd = index + 1 < blockCount ? blockOffsets[index + 1] : dataLength;
+            baseId = blockFirstIds[index] + readVarint();
+            baseFrequency = readVarint();
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package repository;
+
+import models.TicketModel;
+import java.util.List;
+
+/**
+ * Callback interface for components that need to follow changes made to a TicketRepository,
+ * such as the persistence layer.
+ * Callbacks run synchronously on the thread that made the change, after the change has been
+ * applied to the store, and in the ConcurrentTicketRepository while the ticket's lock is held.
+ */
+public interface RepositoryListener {
+
+    /**
+     * Called after a ticket has been created.
+     *
+     * @param ticket The ticket that was stored
+     */
+    void ticketCreated(TicketModel ticket);
+
+    /**
+     * Called after an existing ticket has been updated.
+     *
+     * @param ticket The ticket in its updated state
+     */
+    void ticketUpdated(TicketModel ticket);
+
+    /**
+     * Called after an existing ticket has been updated, together with the version it replaced.
+     * By default notifies ticketUpdated; override to compare the two versions.
+     *
+     * @param previous The version that was replaced
+     * @param ticket The ticket in its updated state
+     */
+    default void ticketUpdated(TicketModel previous, TicketModel ticket) {
+        ticketUpdated(ticket);
+    }
+
+    /**
+     * Called after a ticket has been deleted.
+     *
+     * @param id The ID of the deleted ticket
+     */
+    void ticketDeleted(int id);
+
+    /**
+     * Called after a ticket has been moved out of memory into the read-only archive.
+     * The ticket is still readable through the repository.
+     *
+     * @param ticket The archived ticket
+     */
+    default void ticketArchived(TicketModel ticket) {
+    }
+
+    /**
+     * Called after an archived ticket has been updated and moved back into memory.
+     *
+     * @param ticket The ticket in its updated state
+     */
+    default void ticketUnarchived(TicketModel ticket) {
+    }
+
+    /**
+     * Called after a batch of tickets has been created.
+     * By default notifies ticketCreated for each ticket; override to handle the batch as a whole.
+     *
+     * @param tickets The tickets that were stored
+     */
+    default void ticketsCreated(List<TicketModel> tickets) {
+        for (TicketModel ticket : tickets) {
+            ticketCreated(ticket);
+        }
+    }
+
+    /**
+     * Called after a batch of existing tickets has been updated.
+     * By default notifies ticketUpdated for each ticket; override to handle the batch as a whole.
+     *
+     * @param tickets The tickets in their updated state
+     */
+    default void ticketsUpdated(List<TicketModel> tickets) {
+        for (TicketModel ticket : tickets) {
+            ticketUpdated(ticket);
+        }
+    }
+
+    /**
+     * Called after a batch of existing tickets has been updated, together with the versions
+     * they replaced. By default notifies ticketsUpdated; override to compare the versions.
+     *
+     * @param previous The replaced versions, in the order of the tickets
+     * @param tickets The tickets in their updated state
+     */
+    default void ticketsUpdated(List<TicketModel> previous, List<TicketModel> tickets) {
+        ticketsUpdated(tickets);
+    }
+
+    /**
+     * Called after a batch of tickets has been deleted.
+     * By default notifies ticketDeleted for each ticket; override to handle the batch as a whole.
+     *
+     * @param ids The IDs of the deleted tickets
+     */
+    default void ticketsDeleted(int[] ids) {
+        for (int id : ids) {
+            ticketDeleted(id);
+        }
+    }
+}
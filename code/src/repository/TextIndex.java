@@ -0,0 +1,350 @@
+package repository;
+
+import models.CommentLog;
+import models.TicketModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * Inverted full-text index over ticket descriptions and comments.
+ * Text is split into lower-case words of letters and digits, and every word maps to a
+ * compressed PostingList of the tickets containing it together with the number of occurrences.
+ * Queries intersect the posting lists of each clause, smallest first, and rank the matches
+ * with BM25 so that only the best few tickets need to be returned.
+ *
+ * The index is maintained incrementally: because comments are only ever appended, a ticket
+ * whose description is unchanged only has its new comments indexed when it is updated.
+ * Apart from the posting lists, only the number of words of each ticket is kept. The text is
+ * not: the repository hands over the version a change replaces, whose words are taken back,
+ * so a store handing out views does not end up with a second, decoded copy of every text here.
+ * Phrases are matched by intersecting the posting lists of their words and then checking the
+ * word order in the candidate tickets, read back from the storage engine, which keeps word
+ * positions out of the posting lists.
+ * Changes to different tickets may run concurrently; changes to the same ticket must not.
+ */
+final class TextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * A ranked search result.
+     */
+    private static final class Hit {
+        final int id;
+        final double score;
+
+        Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private final Map<String, PostingList> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Number of words of every indexed ticket, used to normalise scores.
+     */
+    private final Map<Integer, Integer> lengths = new ConcurrentHashMap<>();
+    private final LongAdder totalLength = new LongAdder();
+    private final TicketStore store;
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param store The storage engine holding the indexed tickets, read to check phrases
+     */
+    TextIndex(TicketStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Indexes the description and comments of a ticket.
+     * Used for both newly created and updated tickets; only the text added since the
+     * ticket was last indexed is processed when the description has not changed.
+     *
+     * @param replaced The version of the ticket indexed before, or null if there is none
+     * @param ticket The ticket to index
+     */
+    void index(TicketModel replaced, TicketModel ticket) {
+        int id = ticket.getId();
+        Integer previousLength = replaced == null ? null : lengths.get(id);
+        String description = ticket.getDescription();
+        CommentLog comments = ticket.getCommentLog();
+        Map<String, Integer> deltas = new HashMap<>();
+        int length;
+
+        if (previousLength == null) {
+            length = count(description, 1, deltas) + count(comments, 0, comments.size(), 1, deltas);
+        } else {
+            String previousDescription = replaced.getDescription();
+            CommentLog previousComments = replaced.getCommentLog();
+            if (comments.extendsLog(previousComments) && Objects.equals(previousDescription, description)) {
+                if (previousComments.size() == comments.size()) {
+                    return;
+                }
+                length = previousLength + count(comments, previousComments.size(), comments.size(), 1, deltas);
+            } else {
+                count(previousDescription, -1, deltas);
+                count(previousComments, 0, previousComments.size(), -1, deltas);
+                length = count(description, 1, deltas) + count(comments, 0, comments.size(), 1, deltas);
+            }
+        }
+        lengths.put(id, length);
+        totalLength.add(length - (previousLength == null ? 0 : previousLength));
+        apply(id, deltas);
+    }
+
+    /**
+     * Removes a ticket from the index.
+     *
+     * @param removed The version of the ticket indexed last
+     */
+    void remove(TicketModel removed) {
+        Integer previousLength = lengths.remove(removed.getId());
+        if (previousLength == null) {
+            return;
+        }
+        Map<String, Integer> deltas = new HashMap<>();
+        CommentLog comments = removed.getCommentLog();
+        count(removed.getDescription(), -1, deltas);
+        count(comments, 0, comments.size(), -1, deltas);
+        totalLength.add(-previousLength);
+        apply(removed.getId(), deltas);
+    }
+
+    /**
+     * Finds the tickets matching a query, best matches first.
+     *
+     * @param query The parsed query
+     * @param limit The maximum number of results
+     * @param filter The IDs of the tickets that may be returned, or null for all; tickets it
+     *               rejects are left out before the limit is applied
+     * @return The IDs of the best matching tickets, ordered by descending score
+     */
+    int[] search(TextQuery query, int limit, IntPredicate filter) {
+        int documents = lengths.size();
+        if (query.isEmpty() || documents == 0 || limit <= 0) {
+            return new int[0];
+        }
+        double averageLength = Math.max(1.0, (double) totalLength.sum() / documents);
+
+        // Inverse document frequency of every query word that occurs in at least one ticket
+        Map<String, Double> weights = new HashMap<>();
+        for (String term : query.terms()) {
+            PostingList list = postings.get(term);
+            int df = list == null ? 0 : list.reader().size();
+            if (df > 0) {
+                weights.put(term, Math.log(1 + (documents - df + 0.5) / (df + 0.5)));
+            }
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1,
+                (a, b) -> a.score != b.score ? Double.compare(a.score, b.score) : Integer.compare(b.id, a.id));
+        Set<Integer> seen = query.clauses.size() > 1 ? new HashSet<>() : null;
+        for (List<String[]> clause : query.clauses) {
+            searchClause(query, clause, weights, averageLength, limit, filter, best, seen);
+        }
+
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll().id;
+        }
+        return result;
+    }
+
+    /**
+     * Collects the tickets matching every phrase of one clause into the top-k heap.
+     * Walks the shortest posting list and skips ahead in the others, so the cost is driven
+     * by the rarest word of the clause. Tickets that cannot beat the current top-k are
+     * dropped before their phrases are checked, which is the only step that reads the text.
+     */
+    private void searchClause(TextQuery query, List<String[]> clause, Map<String, Double> weights, double averageLength,
+                              int limit, IntPredicate filter, PriorityQueue<Hit> best, Set<Integer> seen) {
+        Set<String> clauseTerms = new HashSet<>();
+        for (String[] phrase : clause) {
+            clauseTerms.addAll(Arrays.asList(phrase));
+        }
+        if (!weights.keySet().containsAll(clauseTerms)) {
+            return;
+        }
+        List<PostingList.Reader> readerList = new ArrayList<>();
+        List<Double> weightList = new ArrayList<>();
+        for (String term : clauseTerms) {
+            readerList.add(postings.get(term).reader());
+            weightList.add(weights.get(term));
+        }
+        // Words of other clauses also contribute to the score when they occur in the ticket
+        int required = readerList.size();
+        if (seen != null) {
+            for (String term : query.terms()) {
+                if (!clauseTerms.contains(term) && weights.containsKey(term)) {
+                    readerList.add(postings.get(term).reader());
+                    weightList.add(weights.get(term));
+                }
+            }
+        }
+        PostingList.Reader[] readers = readerList.toArray(new PostingList.Reader[0]);
+        double[] termWeights = new double[readers.length];
+        for (int i = 0; i < termWeights.length; i++) {
+            termWeights[i] = weightList.get(i);
+        }
+        // Required readers sorted so the shortest posting list leads the intersection
+        Integer[] order = new Integer[required];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(readers[a].size(), readers[b].size()));
+
+        PostingList.Reader lead = readers[order[0]];
+        int candidate = lead.next();
+        while (candidate != PostingList.NO_MORE) {
+            int next = candidate;
+            for (int i = 1; i < order.length && next == candidate; i++) {
+                next = readers[order[i]].advance(candidate);
+            }
+            if (next != candidate) {
+                candidate = next == PostingList.NO_MORE ? next : lead.advance(next);
+                continue;
+            }
+            // Absent if the ticket is being removed concurrently
+            Integer length = lengths.get(candidate);
+            if (length == null || filter != null && !filter.test(candidate)) {
+                candidate = lead.next();
+                continue;
+            }
+            double score = 0;
+            for (int i = 0; i < readers.length; i++) {
+                int frequency = i < required ? readers[i].frequency()
+                        : readers[i].advance(candidate) == candidate ? readers[i].frequency() : 0;
+                score += score(termWeights[i], frequency, length, averageLength);
+            }
+            Hit worst = best.size() < limit ? null : best.peek();
+            if ((worst == null || score > worst.score || (score == worst.score && candidate < worst.id))
+                    && (seen == null || !seen.contains(candidate))) {
+                if (containsPhrases(candidate, clause)) {
+                    if (seen != null) {
+                        seen.add(candidate);
+                    }
+                    best.add(new Hit(candidate, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            candidate = lead.next();
+        }
+    }
+
+    private static double score(double weight, int frequency, int length, double averageLength) {
+        if (frequency == 0) {
+            return 0;
+        }
+        return weight * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    /**
+     * Checks that every multi-word phrase of a clause occurs in the ticket with its words in order,
+     * either in the description or within a single comment. The ticket is read from the store
+     * only if the clause has such a phrase; a concurrent update may already have replaced the
+     * version that was indexed, in which case the new text is checked.
+     */
+    private boolean containsPhrases(int id, List<String[]> clause) {
+        TicketModel ticket = null;
+        CommentLog comments = null;
+        for (String[] phrase : clause) {
+            if (phrase.length < 2) {
+                continue;
+            }
+            if (ticket == null) {
+                ticket = store.get(id);
+                if (ticket == null) {
+                    return false;
+                }
+                comments = ticket.getCommentLog();
+            }
+            boolean found = containsPhrase(tokenize(ticket.getDescription()), phrase);
+            for (int i = 0; !found && i < comments.size(); i++) {
+                found = containsPhrase(tokenize(comments.get(i).getText()), phrase);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsPhrase(List<String> words, String[] phrase) {
+        for (int start = 0; start + phrase.length <= words.size(); start++) {
+            int i = 0;
+            while (i < phrase.length && words.get(start + i).equals(phrase[i])) {
+                i++;
+            }
+            if (i == phrase.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(int id, Map<String, Integer> deltas) {
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                postings.computeIfAbsent(delta.getKey(), term -> new PostingList()).add(id, delta.getValue());
+            }
+        }
+    }
+
+    private static int count(CommentLog comments, int from, int to, int sign, Map<String, Integer> deltas) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            length += count(comments.get(i).getText(), sign, deltas);
+        }
+        return length;
+    }
+
+    private static int count(String text, int sign, Map<String, Integer> deltas) {
+        List<String> words = tokenize(text);
+        for (String word : words) {
+            deltas.merge(word, sign, Integer::sum);
+        }
+        return words.size();
+    }
+
+    /**
+     * Splits text into lower-case words made of letters and digits.
+     *
+     * @param text The text to split, may be null
+     * @return The words in the order they occur
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,101 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parsed full-text query.
+ * A query is a list of clauses joined by OR; each clause is a list of terms and quoted
+ * phrases that must all occur in a ticket. Words are joined by AND implicitly, and the
+ * keywords AND and OR must be written in capitals to be treated as operators.
+ * For example {@code router firmware OR "modem reboot"} matches tickets mentioning both
+ * router and firmware, or the exact phrase "modem reboot".
+ */
+final class TextQuery {
+
+    /**
+     * Clauses joined by OR. Each clause holds phrases joined by AND, and each phrase
+     * holds one or more consecutive terms.
+     */
+    final List<List<String[]>> clauses;
+
+    private TextQuery(List<List<String[]>> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Parses a query string.
+     *
+     * @param query The query text
+     * @return The parsed query; it has no clauses if the text contains no searchable words
+     */
+    static TextQuery parse(String query) {
+        List<List<String[]>> clauses = new ArrayList<>();
+        List<String[]> clause = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                List<String> terms = TextIndex.tokenize(query.substring(i + 1, end));
+                if (!terms.isEmpty()) {
+                    clause.add(terms.toArray(new String[0]));
+                }
+                i = end + 1;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))
+                        && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                if (word.equals("OR")) {
+                    if (!clause.isEmpty()) {
+                        clauses.add(clause);
+                        clause = new ArrayList<>();
+                    }
+                } else if (!word.equals("AND")) {
+                    // A word such as "wi-fi" splits into several terms that must occur together
+                    List<String> terms = TextIndex.tokenize(word);
+                    if (!terms.isEmpty()) {
+                        clause.add(terms.toArray(new String[0]));
+                    }
+                }
+                i = end;
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+        return new TextQuery(clauses);
+    }
+
+    /**
+     * @return true if the query contains no searchable words
+     */
+    boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * @return Every distinct term used anywhere in the query
+     */
+    Set<String> terms() {
+        Set<String> terms = new LinkedHashSet<>();
+        for (List<String[]> clause : clauses) {
+            for (String[] phrase : clause) {
+                for (String term : phrase) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,150 @@
+package repository;
+
+import models.CategoryDictionary;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live ticket counts for every combination of status, priority and category.
+ * Each category owns a small dense block of counters indexed by status and priority ordinal,
+ * so a change is a single counter increment and decrement. Counters are LongAdders, which
+ * spread concurrent updates over several cells instead of contending on one.
+ */
+final class TicketCounters {
+
+    private static final int STATUSES = TicketStatus.values().length;
+    private static final int PRIORITIES = TicketPriority.values().length;
+
+    private final Map<Integer, LongAdder[]> byCategory = new ConcurrentHashMap<>();
+
+    /**
+     * Adjusts the count of one status, priority and category combination.
+     *
+     * @param status The status of the ticket
+     * @param priority The priority of the ticket
+     * @param categoryId The dictionary ID of the category of the ticket
+     * @param delta 1 when a ticket enters the combination, -1 when it leaves it
+     */
+    void add(TicketStatus status, TicketPriority priority, int categoryId, int delta) {
+        byCategory.computeIfAbsent(categoryId, id -> newBlock())[cell(status.ordinal(), priority.ordinal())].add(delta);
+    }
+
+    /**
+     * Returns the number of tickets matching the given values, summing over every value of the
+     * fields left unspecified. Costs one read per matching combination.
+     *
+     * @param status The status to count, or null for any status
+     * @param priority The priority to count, or null for any priority
+     * @param categoryId The category dictionary ID to count, or -1 for any category
+     * @return The current count
+     */
+    long count(TicketStatus status, TicketPriority priority, int categoryId) {
+        long total = 0;
+        for (Map.Entry<Integer, LongAdder[]> block : byCategory.entrySet()) {
+            if (categoryId >= 0 && block.getKey() != categoryId) {
+                continue;
+            }
+            for (int s = 0; s < STATUSES; s++) {
+                if (status != null && status.ordinal() != s) {
+                    continue;
+                }
+                for (int p = 0; p < PRIORITIES; p++) {
+                    if (priority == null || priority.ordinal() == p) {
+                        total += block.getValue()[cell(s, p)].sum();
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the ticket counts grouped by the given fields.
+     * Each group is keyed by the labels of its values, in the order the fields were given.
+     * Groups are ordered by status and priority in their declared order and by category name,
+     * and groups without tickets are left out.
+     *
+     * @param dimensions The fields to group by; none gives a single group holding the total
+     * @return The count of every non-empty group
+     */
+    Map<List<String>, Long> countBy(TicketDimension... dimensions) {
+        Integer[] categoryIds = byCategory.keySet().toArray(new Integer[0]);
+        Arrays.sort(categoryIds, Comparator.comparing(CategoryDictionary::nameOf, String.CASE_INSENSITIVE_ORDER));
+        Map<Integer, Integer> categoryRanks = new HashMap<>();
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryRanks.put(categoryIds[i], i);
+        }
+
+        // Groups are first keyed by the positions of their values, which sort in the intended order
+        Map<List<Integer>, Long> groups = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder[]> block : byCategory.entrySet()) {
+            int rank = categoryRanks.getOrDefault(block.getKey(), -1);
+            if (rank < 0) {
+                continue;
+            }
+            for (int s = 0; s < STATUSES; s++) {
+                for (int p = 0; p < PRIORITIES; p++) {
+                    long count = block.getValue()[cell(s, p)].sum();
+                    if (count == 0) {
+                        continue;
+                    }
+                    List<Integer> group = new ArrayList<>(dimensions.length);
+                    for (TicketDimension dimension : dimensions) {
+                        group.add(switch (dimension) {
+                            case STATUS -> s;
+                            case PRIORITY -> p;
+                            case CATEGORY -> rank;
+                        });
+                    }
+                    groups.merge(group, count, Long::sum);
+                }
+            }
+        }
+
+        List<List<Integer>> ordered = new ArrayList<>(groups.keySet());
+        ordered.sort((a, b) -> {
+            for (int i = 0; i < a.size(); i++) {
+                int order = Integer.compare(a.get(i), b.get(i));
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return 0;
+        });
+        Map<List<String>, Long> result = new LinkedHashMap<>();
+        for (List<Integer> group : ordered) {
+            List<String> labels = new ArrayList<>(dimensions.length);
+            for (int i = 0; i < dimensions.length; i++) {
+                int value = group.get(i);
+                labels.add(switch (dimensions[i]) {
+                    case STATUS -> TicketStatus.values()[value].getLabel();
+                    case PRIORITY -> TicketPriority.values()[value].getLabel();
+                    case CATEGORY -> CategoryDictionary.nameOf(categoryIds[value]);
+                });
+            }
+            result.put(List.copyOf(labels), groups.get(group));
+        }
+        return result;
+    }
+
+    private static int cell(int status, int priority) {
+        return status * PRIORITIES + priority;
+    }
+
+    private static LongAdder[] newBlock() {
+        LongAdder[] block = new LongAdder[STATUSES * PRIORITIES];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = new LongAdder();
+        }
+        return block;
+    }
+}
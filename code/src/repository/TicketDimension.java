@@ -0,0 +1,12 @@
+package repository;
+
+/**
+ * Ticket fields that ticket counts can be grouped by.
+ * Counts over these fields are maintained incrementally by the repository, so grouping
+ * by them costs time proportional to the number of groups rather than the number of tickets.
+ */
+public enum TicketDimension {
+    STATUS,
+    PRIORITY,
+    CATEGORY
+}
@@ -0,0 +1,308 @@
+package repository;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact, thread-safe set of ticket IDs, used for the posting lists of TicketIndex in place of
+ * concurrent sets of boxed Integers, which take about 50 bytes per entry.
+ * A set starts out as a sorted int array that every change replaces with a copy, which suits
+ * the few tickets of a typical customer. Once it holds more than SMALL_LIMIT IDs it turns, for
+ * good, into a bitmap cut into chunks of 4,096 IDs, each allocated when first needed and
+ * changed in place with compare-and-set, so the posting lists of statuses, priorities and
+ * categories take about a bit per ticket. The chunk directory is sized by the highest ID held,
+ * which assumes IDs are handed out from a counter, as the repository does.
+ * Reads never lock. Iteration is in ascending ID order and weakly consistent, as with the
+ * concurrent sets it replaces; iterators do not support remove.
+ */
+final class TicketIdSet extends AbstractSet<Integer> {
+
+    private static final int SMALL_LIMIT = 1024;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_WORDS = 1 << (CHUNK_SHIFT - 6);
+    private static final int[] EMPTY = new int[0];
+    private static final AtomicLongArray[] NO_CHUNKS = new AtomicLongArray[0];
+
+    private static final AtomicIntegerFieldUpdater<TicketIdSet> BITMAP_SIZE =
+            AtomicIntegerFieldUpdater.newUpdater(TicketIdSet.class, "bitmapSize");
+
+    /**
+     * The sorted IDs while the set is small, null once it is a bitmap.
+     */
+    private volatile int[] small = EMPTY;
+
+    /**
+     * The bitmap chunks by ID divided by 4,096, null entries standing for empty chunks.
+     * Published before small is cleared, and replaced by a longer copy when an ID beyond its
+     * end is added.
+     */
+    private volatile AtomicLongArray[] chunks = NO_CHUNKS;
+    private volatile int bitmapSize;
+
+    /**
+     * Adds an ID to the set.
+     *
+     * @param id The ticket ID
+     * @return true if the set did not hold the ID yet
+     */
+    boolean add(int id) {
+        if (small != null) {
+            synchronized (this) {
+                int[] ids = small;
+                if (ids != null) {
+                    int position = Arrays.binarySearch(ids, id);
+                    if (position >= 0) {
+                        return false;
+                    }
+                    if (ids.length < SMALL_LIMIT) {
+                        small = inserted(ids, -position - 1, id);
+                        return true;
+                    }
+                    toBitmap(ids);
+                }
+            }
+        }
+        AtomicLongArray chunk = chunkOf(id, true);
+        int word = wordOf(id);
+        long bit = 1L << id;
+        while (true) {
+            long bits = chunk.get(word);
+            if ((bits & bit) != 0) {
+                return false;
+            }
+            if (chunk.compareAndSet(word, bits, bits | bit)) {
+                BITMAP_SIZE.incrementAndGet(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes an ID from the set.
+     *
+     * @param id The ticket ID
+     * @return true if the set held the ID
+     */
+    boolean remove(int id) {
+        if (small != null) {
+            synchronized (this) {
+                int[] ids = small;
+                if (ids != null) {
+                    int position = Arrays.binarySearch(ids, id);
+                    if (position < 0) {
+                        return false;
+                    }
+                    small = removed(ids, position);
+                    return true;
+                }
+            }
+        }
+        AtomicLongArray chunk = chunkOf(id, false);
+        if (chunk == null) {
+            return false;
+        }
+        int word = wordOf(id);
+        long bit = 1L << id;
+        while (true) {
+            long bits = chunk.get(word);
+            if ((bits & bit) == 0) {
+                return false;
+            }
+            if (chunk.compareAndSet(word, bits, bits & ~bit)) {
+                BITMAP_SIZE.decrementAndGet(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Tells whether the set holds an ID.
+     *
+     * @param id The ticket ID
+     * @return true if the set holds the ID
+     */
+    boolean contains(int id) {
+        int[] ids = small;
+        if (ids != null) {
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+        AtomicLongArray chunk = chunkOf(id, false);
+        return chunk != null && (chunk.get(wordOf(id)) & (1L << id)) != 0;
+    }
+
+    @Override
+    public boolean add(Integer id) {
+        return add(id.intValue());
+    }
+
+    @Override
+    public boolean remove(Object id) {
+        return id instanceof Integer && remove(((Integer) id).intValue());
+    }
+
+    @Override
+    public boolean contains(Object id) {
+        return id instanceof Integer && contains(((Integer) id).intValue());
+    }
+
+    @Override
+    public int size() {
+        int[] ids = small;
+        return ids != null ? ids.length : bitmapSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] ids = small;
+        return ids != null ? new ArrayIterator(ids) : new BitmapIterator(chunks);
+    }
+
+    /**
+     * Moves the IDs of a full small set into a bitmap; called under the monitor.
+     */
+    private void toBitmap(int[] ids) {
+        int last = 0;
+        for (int id : ids) {
+            last = Math.max(last, chunkIndexOf(id));
+        }
+        AtomicLongArray[] directory = new AtomicLongArray[last + 1];
+        for (int id : ids) {
+            int index = chunkIndexOf(id);
+            if (directory[index] == null) {
+                directory[index] = new AtomicLongArray(CHUNK_WORDS);
+            }
+            AtomicLongArray chunk = directory[index];
+            chunk.set(wordOf(id), chunk.get(wordOf(id)) | (1L << id));
+        }
+        bitmapSize = ids.length;
+        chunks = directory;
+        small = null;
+    }
+
+    /**
+     * Returns the chunk holding an ID, allocating it and growing the directory if asked to.
+     */
+    private AtomicLongArray chunkOf(int id, boolean create) {
+        int index = chunkIndexOf(id);
+        AtomicLongArray[] directory = chunks;
+        AtomicLongArray chunk = index < directory.length ? directory[index] : null;
+        if (chunk != null || !create) {
+            return chunk;
+        }
+        synchronized (this) {
+            directory = chunks;
+            if (index >= directory.length) {
+                directory = Arrays.copyOf(directory, Math.max(index + 1, directory.length * 2));
+            }
+            if (directory[index] == null) {
+                directory[index] = new AtomicLongArray(CHUNK_WORDS);
+            }
+            // Publishes the new chunk to readers that got the directory before it was stored
+            chunks = directory;
+            return directory[index];
+        }
+    }
+
+    /**
+     * Returns the directory index of an ID; negative IDs, which the repository never hands
+     * out, sort after all others.
+     */
+    private static int chunkIndexOf(int id) {
+        return id >>> CHUNK_SHIFT;
+    }
+
+    private static int wordOf(int id) {
+        return (id >>> 6) & (CHUNK_WORDS - 1);
+    }
+
+    private static int[] inserted(int[] ids, int position, int id) {
+        int[] copy = new int[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, position);
+        copy[position] = id;
+        System.arraycopy(ids, position, copy, position + 1, ids.length - position);
+        return copy;
+    }
+
+    private static int[] removed(int[] ids, int position) {
+        int[] copy = new int[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, position);
+        System.arraycopy(ids, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+
+    /**
+     * Iterator over the snapshot of a small set.
+     */
+    private static final class ArrayIterator implements Iterator<Integer> {
+        private final int[] ids;
+        private int next;
+
+        ArrayIterator(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < ids.length;
+        }
+
+        @Override
+        public Integer next() {
+            if (next == ids.length) {
+                throw new NoSuchElementException();
+            }
+            return ids[next++];
+        }
+    }
+
+    /**
+     * Iterator over a bitmap, reading each word when it gets there.
+     */
+    private static final class BitmapIterator implements Iterator<Integer> {
+        private final AtomicLongArray[] directory;
+        private int chunk;
+        private int word = -1;
+        private long bits;
+
+        BitmapIterator(AtomicLongArray[] directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (bits == 0) {
+                if (++word == CHUNK_WORDS) {
+                    word = 0;
+                    chunk++;
+                }
+                while (chunk < directory.length && directory[chunk] == null) {
+                    chunk++;
+                }
+                if (chunk >= directory.length) {
+                    return false;
+                }
+                bits = directory[chunk].get(word);
+            }
+            return true;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int bit = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            return (chunk << CHUNK_SHIFT) | (word << 6) | bit;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package repository;
+
+import models.CategoryDictionary;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Secondary indexes over the searchable ticket fields.
+ * Maps the value of each field to the set of IDs of the tickets holding it,
+ * so searches only touch the tickets that can actually match.
+ * Status and priority are indexed by enum ordinal in small dense arrays and categories by
+ * their dictionary ID; customer names are indexed by their case-folded value.
+ * Posting lists are TicketIdSets, compact sets of IDs that are safe for concurrent use, which
+ * lets the same index serve the ConcurrentTicketRepository.
+ * Descriptions and comments are covered by a full-text TextIndex maintained alongside, and the
+ * distinct customer names by a CustomerNameIndex for autocomplete and fuzzy lookup.
+ * Live counts per status, priority and category are kept in TicketCounters.
+ */
+final class TicketIndex {
+
+    /**
+     * The values a version of a ticket is indexed under. Nothing is kept per ticket: the
+     * repository hands over the version it replaced or removed, whose values are taken back.
+     */
+    private static final class IndexedKeys {
+        final String customerName;
+        final int categoryId;
+        final TicketStatus status;
+        final TicketPriority priority;
+
+        IndexedKeys(TicketModel ticket) {
+            this.customerName = normalize(ticket.getCustomerName());
+            this.categoryId = ticket.getCategoryId();
+            this.status = ticket.getTicketStatus();
+            this.priority = ticket.getTicketPriority();
+        }
+    }
+
+    private final Map<String, TicketIdSet> byCustomerName = new ConcurrentHashMap<>();
+    private final Map<Integer, TicketIdSet> byCategory = new ConcurrentHashMap<>();
+    private final TicketIdSet[] byStatus = newPostingArray(TicketStatus.values().length);
+    private final TicketIdSet[] byPriority = newPostingArray(TicketPriority.values().length);
+    private final TextIndex text;
+    private final CustomerNameIndex customerNames = new CustomerNameIndex();
+    private final TicketCounters counters = new TicketCounters();
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param store The storage engine the indexed tickets are read back from, to check phrases
+     */
+    TicketIndex(TicketStore store) {
+        this.text = new TextIndex(store);
+    }
+
+    /**
+     * Indexes a ticket, moving it out of any posting lists it no longer belongs to.
+     * Used for both newly created and updated tickets.
+     *
+     * @param replaced The version of the ticket indexed before, or null if there is none
+     * @param ticket The ticket to index
+     */
+    void index(TicketModel replaced, TicketModel ticket) {
+        int id = ticket.getId();
+        IndexedKeys keys = new IndexedKeys(ticket);
+        IndexedKeys previous = replaced == null ? null : new IndexedKeys(replaced);
+
+        if (previous == null || !previous.customerName.equals(keys.customerName)) {
+            if (previous != null) {
+                removeCustomerPosting(previous.customerName, id);
+            }
+            addCustomerPosting(keys.customerName, id);
+        }
+        if (previous == null || previous.categoryId != keys.categoryId) {
+            if (previous != null) {
+                removePosting(byCategory, previous.categoryId, id);
+            }
+            addPosting(byCategory, keys.categoryId, id);
+        }
+        if (previous == null || previous.status != keys.status) {
+            if (previous != null) {
+                byStatus[previous.status.ordinal()].remove(id);
+            }
+            byStatus[keys.status.ordinal()].add(id);
+        }
+        if (previous == null || previous.priority != keys.priority) {
+            if (previous != null) {
+                byPriority[previous.priority.ordinal()].remove(id);
+            }
+            byPriority[keys.priority.ordinal()].add(id);
+        }
+        if (previous == null) {
+            counters.add(keys.status, keys.priority, keys.categoryId, 1);
+        } else if (previous.status != keys.status || previous.priority != keys.priority
+                || previous.categoryId != keys.categoryId) {
+            counters.add(previous.status, previous.priority, previous.categoryId, -1);
+            counters.add(keys.status, keys.priority, keys.categoryId, 1);
+        }
+        text.index(replaced, ticket);
+    }
+
+    /**
+     * Removes a ticket from all posting lists.
+     *
+     * @param removed The version of the ticket indexed last, or null if there is none
+     */
+    void remove(TicketModel removed) {
+        if (removed == null) {
+            return;
+        }
+        int id = removed.getId();
+        text.remove(removed);
+        IndexedKeys previous = new IndexedKeys(removed);
+        removeCustomerPosting(previous.customerName, id);
+        removePosting(byCategory, previous.categoryId, id);
+        byStatus[previous.status.ordinal()].remove(id);
+        byPriority[previous.priority.ordinal()].remove(id);
+        counters.add(previous.status, previous.priority, previous.categoryId, -1);
+    }
+
+    /**
+     * Returns the IDs of the tickets for the given customer, ignoring case.
+     *
+     * @param customerName The customer name to look up
+     * @return The live posting list, or an empty set if no ticket matches
+     */
+    Set<Integer> lookupCustomerName(String customerName) {
+        return orEmpty(byCustomerName.get(normalize(customerName)));
+    }
+
+    /**
+     * Returns the IDs of the tickets in the given category, ignoring case.
+     *
+     * @param category The category to look up
+     * @return The live posting list, or an empty set if no ticket matches
+     */
+    Set<Integer> lookupCategory(String category) {
+        int categoryId = CategoryDictionary.lookup(category);
+        return categoryId < 0 ? Set.of() : orEmpty(byCategory.get(categoryId));
+    }
+
+    /**
+     * Returns the IDs of the tickets with the given status.
+     *
+     * @param status The status text to look up
+     * @return The live posting list, or an empty set if the status is unknown
+     */
+    Set<Integer> lookupStatus(String status) {
+        TicketStatus value = TicketStatus.lookup(status);
+        return value == null ? Set.of() : byStatus[value.ordinal()];
+    }
+
+    /**
+     * Returns the IDs of the tickets with the given priority.
+     *
+     * @param priority The priority text to look up
+     * @return The live posting list, or an empty set if the priority is unknown
+     */
+    Set<Integer> lookupPriority(String priority) {
+        TicketPriority value = TicketPriority.lookup(priority);
+        return value == null ? Set.of() : byPriority[value.ordinal()];
+    }
+
+    /**
+     * Tells whether a ticket has the given values, compared as they are keyed in the posting lists.
+     * An ID can still be found in a posting list of values its ticket is just leaving, so lookups
+     * check again the version they fetch.
+     *
+     * @param ticket The ticket to check
+     * @param customerName The normalized customer name, or null for any
+     * @param categoryId The category dictionary ID, or -1 for any
+     * @param status The status, or null for any
+     * @param priority The priority, or null for any
+     * @return true if the ticket has all the given values
+     */
+    static boolean matches(TicketModel ticket, String customerName, int categoryId,
+                           TicketStatus status, TicketPriority priority) {
+        return (status == null || ticket.getTicketStatus() == status)
+                && (priority == null || ticket.getTicketPriority() == priority)
+                && (categoryId < 0 || ticket.getCategoryId() == categoryId)
+                && (customerName == null || customerName.equals(normalize(ticket.getCustomerName())));
+    }
+
+    /**
+     * Returns the customer names starting with the given prefix, or with a later word starting with it.
+     *
+     * @param prefix The beginning of the name, in any case
+     * @param limit The maximum number of names to return
+     * @return The matching case-folded names
+     */
+    List<String> completeCustomerName(String prefix, int limit) {
+        return customerNames.complete(normalize(prefix).stripLeading(), limit);
+    }
+
+    /**
+     * Returns the customer names within the given number of edits of a name, ignoring case.
+     *
+     * @param customerName The name to look up
+     * @param maxEdits The maximum number of edits
+     * @param limit The maximum number of names to return
+     * @return The matching case-folded names, closest first
+     */
+    List<String> similarCustomerNames(String customerName, int maxEdits, int limit) {
+        return customerNames.similar(normalize(customerName).strip(), maxEdits, limit);
+    }
+
+    /**
+     * Returns the number of indexed tickets with the given values.
+     *
+     * @param status The status to count, or null for any status
+     * @param priority The priority to count, or null for any priority
+     * @param categoryId The category dictionary ID to count, or -1 for any category
+     * @return The current count
+     */
+    long count(TicketStatus status, TicketPriority priority, int categoryId) {
+        return counters.count(status, priority, categoryId);
+    }
+
+    /**
+     * Returns the number of indexed tickets grouped by the given fields.
+     *
+     * @param dimensions The fields to group by
+     * @return The count of every non-empty group, keyed by the labels of its values
+     */
+    Map<List<String>, Long> countBy(TicketDimension... dimensions) {
+        return counters.countBy(dimensions);
+    }
+
+    /**
+     * Returns the IDs of the tickets whose description or comments match a full-text query.
+     *
+     * @param query The query text, see TextQuery for the syntax
+     * @param limit The maximum number of results
+     * @param filter The IDs of the tickets that may be returned, or null for all
+     * @return The IDs of the best matching tickets, best match first
+     */
+    int[] searchText(String query, int limit, IntPredicate filter) {
+        return text.search(TextQuery.parse(query), limit, filter);
+    }
+
+    /**
+     * Case-folds a field value into the key used by the index.
+     *
+     * @param value The field value, possibly null
+     * @return The normalized key
+     */
+    static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a ticket to the posting list of its customer, registering names seen for the first time.
+     * The name dictionary is updated inside compute so it cannot race with the list emptying.
+     */
+    private void addCustomerPosting(String customerName, int id) {
+        byCustomerName.compute(customerName, (k, ids) -> {
+            TicketIdSet result = ids;
+            if (result == null) {
+                result = new TicketIdSet();
+                customerNames.add(customerName);
+            }
+            result.add(id);
+            return result;
+        });
+    }
+
+    private void removeCustomerPosting(String customerName, int id) {
+        byCustomerName.computeIfPresent(customerName, (k, ids) -> {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                customerNames.remove(customerName);
+                return null;
+            }
+            return ids;
+        });
+    }
+
+    private static <K> void addPosting(Map<K, TicketIdSet> postings, K key, int id) {
+        postings.compute(key, (k, ids) -> {
+            TicketIdSet result = ids == null ? new TicketIdSet() : ids;
+            result.add(id);
+            return result;
+        });
+    }
+
+    private static <K> void removePosting(Map<K, TicketIdSet> postings, K key, int id) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static Set<Integer> orEmpty(Set<Integer> ids) {
+        return ids == null ? Set.of() : ids;
+    }
+
+    private static TicketIdSet[] newPostingArray(int length) {
+        TicketIdSet[] postings = new TicketIdSet[length];
+        for (int i = 0; i < length; i++) {
+            postings[i] = new TicketIdSet();
+        }
+        return postings;
+    }
+}
@@ -0,0 +1,48 @@
+package repository;
+
+import models.TicketModel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of tickets returned by a paginated read.
+ * Carries the tickets of the page and an opaque continuation token that is passed back
+ * to fetch the following page. The token is null once the last page has been reached.
+ */
+public class TicketPage {
+
+    private final List<TicketModel> tickets;
+    private final String nextToken;
+
+    /**
+     * Constructs a page.
+     *
+     * @param tickets The tickets on this page, in insertion order
+     * @param nextToken The token for the following page, or null if this is the last page
+     */
+    public TicketPage(List<TicketModel> tickets, String nextToken) {
+        this.tickets = Collections.unmodifiableList(tickets);
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * @return The tickets on this page, in insertion order
+     */
+    public List<TicketModel> getTickets() {
+        return tickets;
+    }
+
+    /**
+     * @return The continuation token for the following page, or null if this is the last page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * @return true if another page may follow this one
+     */
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -1,8 +1,29 @@
 package repository;
 
+import archive.TicketArchive;
+import metrics.Histogram;
+import models.CategoryDictionary;
 import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Repository class that manages the storage and operations of tickets.
@@ -12,129 +33,865 @@ import java.util.List;
 public class TicketRepository {
 
     /**
-     * In-memory storage for tickets using ArrayList.
-     * Provides dynamic sizing and indexed access to ticket objects.
+     * Number of tickets fetched from the storage engine at a time by streamTickets.
      */
-    private List<TicketModel> tickets;
+    private static final int STREAM_PAGE_SIZE = 1024;
+
+    /**
+     * In-memory storage engine for tickets, keyed by ticket ID.
+     * Provides constant-time access by ID and iteration in insertion order.
+     */
+    private TicketStore tickets;
     private int nextId;
 
+    /**
+     * Secondary indexes on customer name, category, status and priority.
+     * Kept up to date on every create, update and delete so searches avoid full scans.
+     */
+    private TicketIndex index;
+
+    /**
+     * Components notified after every change, e.g. the persistence layer.
+     */
+    private List<RepositoryListener> listeners;
+
+    /**
+     * Read-only, memory-mapped archive holding closed tickets, or null if none is attached.
+     */
+    private volatile TicketArchive archive;
+
 
     /**
      * Constructs a new TicketRepository.
-     * Initializes an empty ticket list and sets the initial ID counter.
+     * Uses the hash-indexed storage engine and sets the initial ID counter.
      */
     public TicketRepository() {
-        this.tickets = new ArrayList<>();
+        this(new HashTicketStore());
+    }
+
+    /**
+     * Constructs a new TicketRepository backed by the given storage engine.
+     *
+     * @param store The TicketStore used to hold the tickets
+     */
+    public TicketRepository(TicketStore store) {
+        this.tickets = store;
         this.nextId = 1;
+        this.index = new TicketIndex(store);
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Registers a listener to be notified after every create, update and delete.
+     *
+     * @param listener The listener to add
+     */
+    public void addListener(RepositoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a previously added listener.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeListener(RepositoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Attaches an archive of closed tickets.
+     * Archived tickets become readable through getTicketById and searchByCriteria.
+     * Tickets that are present both in memory and in the archive, e.g. after a crash
+     * during archiving, are dropped from memory. IDs handed out from now on are higher than
+     * any archived ID.
+     *
+     * @param archive The archive to read from and archive into
+     */
+    public void attachArchive(TicketArchive archive) {
+        this.archive = archive;
+        advanceNextId(archive.getMaxId() + 1);
+        for (TicketModel ticket : tickets.values()) {
+            if (archive.contains(ticket.getId())) {
+                evictArchived(ticket);
+            }
+        }
+    }
+
+    /**
+     * Moves every closed ticket from memory into the attached archive.
+     * Tickets that change while they are being archived stay in memory.
+     *
+     * @return The number of tickets archived
+     * @throws IOException if the archive cannot be written
+     */
+    public int archiveClosedTickets() throws IOException {
+        TicketArchive target = archive;
+        if (target == null) {
+            throw new IllegalStateException("No archive attached");
+        }
+        List<TicketModel> closed = new ArrayList<>();
+        for (Integer id : index.lookupStatus(TicketStatus.CLOSED.getLabel())) {
+            TicketModel ticket = tickets.get(id);
+            if (ticket != null) {
+                closed.add(ticket);
+            }
+        }
+        if (closed.isEmpty()) {
+            return 0;
+        }
+        target.append(closed);
+        int archived = 0;
+        for (TicketModel ticket : closed) {
+            if (evictArchived(ticket)) {
+                archived++;
+            } else {
+                target.remove(ticket.getId());
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Removes a ticket that has just been written to the archive from memory,
+     * unless it was replaced or reopened in the meantime.
+     * Stores that hand out views return a new object for every read, so the stored ticket is
+     * compared by version and update time rather than by identity.
+     *
+     * @param ticket The archived ticket
+     * @return true if the ticket was removed from memory
+     */
+    protected boolean evictArchived(TicketModel ticket) {
+        TicketModel current = tickets.get(ticket.getId());
+        boolean unchanged = current == ticket || current != null
+                && current.getVersion() == ticket.getVersion() && current.getUpdatedAt() == ticket.getUpdatedAt();
+        if (!unchanged || ticket.getTicketStatus() != TicketStatus.CLOSED) {
+            return false;
+        }
+        index.remove(tickets.remove(ticket.getId()));
+        for (RepositoryListener listener : listeners) {
+            listener.ticketArchived(ticket);
+        }
+        return true;
     }
 
     /**
      * Creates a new ticket in the repository.
-     * Adds the ticket to the internal list of tickets.
+     * Adds the ticket to the storage engine as version 1, replacing any ticket with the same ID.
+     * Stamps the creation and update times unless the ticket already carries them, as restored
+     * tickets do. The ticket must not be changed afterwards; see updateTicket.
      *
      * @param ticket The TicketModel object to be stored
      */
     public void createTicket(TicketModel ticket) {
-        tickets.add(ticket);
+        ticket.setVersion(1);
+        insert(ticket);
+    }
+
+    /**
+     * Adds a ticket recovered from storage, keeping the version and timestamps it was stored with.
+     * Tickets written before versions were stored carry none and are added as version 1.
+     *
+     * @param ticket The recovered ticket
+     */
+    public void restoreTicket(TicketModel ticket) {
+        if (ticket.getVersion() <= 0) {
+            ticket.setVersion(1);
+        }
+        insert(ticket);
+    }
+
+    /**
+     * Stores and indexes a new ticket and notifies the listeners.
+     */
+    private void insert(TicketModel ticket) {
+        stampCreated(ticket, System.currentTimeMillis());
+        TicketModel previous = tickets.get(ticket.getId());
+        tickets.put(ticket);
+        index.index(previous, ticket);
+        for (RepositoryListener listener : listeners) {
+            listener.ticketCreated(ticket);
+        }
+    }
+
+    /**
+     * Creates a batch of tickets in the repository.
+     * Stores and indexes the whole batch in one pass and notifies listeners once,
+     * so the persistence layer can write the batch as a single log record.
+     * Unlike createTicket, it never replaces a ticket: the batch is refused as a whole if any
+     * of its IDs is already stored or archived, so that a bulk load cannot overwrite a ticket
+     * created concurrently under an ID it meant to use.
+     *
+     * @param batch The tickets to be stored, with distinct IDs, typically from reserveIds
+     * @throws IllegalArgumentException if a ticket with one of the IDs already exists
+     */
+    public void createTickets(List<TicketModel> batch) {
+        TicketArchive source = archive;
+        for (TicketModel ticket : batch) {
+            int id = ticket.getId();
+            if (tickets.get(id) != null || source != null && source.contains(id)) {
+                throw new IllegalArgumentException("Ticket " + id + " already exists");
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (TicketModel ticket : batch) {
+            ticket.setVersion(1);
+            stampCreated(ticket, now);
+        }
+        tickets.putAll(batch);
+        for (TicketModel ticket : batch) {
+            index.index(null, ticket);
+        }
+        for (RepositoryListener listener : listeners) {
+            listener.ticketsCreated(batch);
+        }
+    }
+
+    /**
+     * Sets the creation and update times of a new ticket that does not carry them yet.
+     */
+    private static void stampCreated(TicketModel ticket, long now) {
+        if (ticket.getCreatedAt() == 0) {
+            ticket.setCreatedAt(now);
+        }
+        if (ticket.getUpdatedAt() == 0) {
+            ticket.setUpdatedAt(ticket.getCreatedAt());
+        }
     }
 
     /**
      * Retrieves all tickets from the repository.
-     * Returns a new ArrayList to prevent external modification of internal list.
+     * Returns a new list in insertion order to prevent external modification of the store.
+     * Only tickets held in memory are included; archived tickets are reached through
+     * getTicketById and searchByCriteria.
      *
-     * @return A new List containing copies of all stored tickets
+     * @return A new List containing all stored tickets
      */
     public List<TicketModel> getAllTickets() {
-        return new ArrayList<>(tickets);
+        return tickets.values();
+    }
+
+    /**
+     * Retrieves one page of tickets in insertion order.
+     * The continuation token records the position of the last ticket on the page, so paging
+     * stays consistent while tickets are created or deleted in between: no ticket is returned
+     * twice, tickets deleted before their page is read are skipped, and tickets created during
+     * the traversal appear on a later page. Like getAllTickets, only tickets held in memory are included.
+     *
+     * @param continuationToken The token returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of tickets on the page
+     * @return The page of tickets and the token for the following page
+     * @throws IllegalArgumentException if the page size is not positive or the token is malformed
+     */
+    public TicketPage getTicketPage(String continuationToken, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        long after = decodeToken(continuationToken);
+        List<TicketModel> page = new ArrayList<>(Math.min(pageSize, STREAM_PAGE_SIZE));
+        long last = tickets.collectPage(after, pageSize, page);
+        // A full page may be followed by more tickets; a short page is always the last one
+        return new TicketPage(page, page.size() == pageSize ? Long.toString(last, Character.MAX_RADIX) : null);
+    }
+
+    /**
+     * Returns a lazy stream over all tickets held in memory, in insertion order.
+     * Tickets are fetched from the storage engine a page at a time as the stream is consumed,
+     * so no full copy of the backlog is made. The stream is weakly consistent in the same way
+     * as getTicketPage: it never fails because of concurrent changes and never returns a
+     * ticket twice.
+     *
+     * @return A sequential Stream of the stored tickets
+     */
+    public Stream<TicketModel> streamTickets() {
+        Iterator<TicketModel> iterator = new Iterator<>() {
+            private final List<TicketModel> buffer = new ArrayList<>(STREAM_PAGE_SIZE);
+            private int next;
+            private long after = -1;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (next < buffer.size()) {
+                    return true;
+                }
+                if (exhausted) {
+                    return false;
+                }
+                buffer.clear();
+                next = 0;
+                after = tickets.collectPage(after, STREAM_PAGE_SIZE, buffer);
+                exhausted = buffer.size() < STREAM_PAGE_SIZE;
+                return !buffer.isEmpty();
+            }
+
+            @Override
+            public TicketModel next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return buffer.get(next++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    private static long decodeToken(String continuationToken) {
+        if (continuationToken == null) {
+            return -1;
+        }
+        try {
+            long position = Long.parseLong(continuationToken, Character.MAX_RADIX);
+            if (position < 0) {
+                throw new NumberFormatException();
+            }
+            return position;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+        }
     }
 
     /**
      * Retrieves a specific ticket by its ID.
-     * Performs a sequential search through the tickets list.
+     * Performs a constant-time lookup in the storage engine and falls back to the archive.
+     * Archived tickets are returned as copies; pass them to updateTicket to reopen them.
      *
      * @param id The ID of the ticket to find
      * @return The matching TicketModel or null if not found
      */
     public TicketModel getTicketById(int id) {
-        for (TicketModel ticket : tickets) {
-            if (ticket.getId() == id) {
-                return ticket;
-            }
+        TicketModel ticket = tickets.get(id);
+        TicketArchive source = archive;
+        if (ticket == null && source != null) {
+            ticket = source.get(id);
         }
-        return null;
+        return ticket;
     }
 
     /**
-     * Updates an existing ticket in the repository.
-     * Replaces the old ticket with the updated version if found.
+     * Updates an existing ticket in the repository, regardless of its version.
+     * Replaces the old ticket with the updated version if found, stamped with the current time,
+     * and re-indexes any searchable fields that changed. The updated ticket becomes the stored
+     * snapshot, so pass a copy() of a stored ticket rather than changing the stored one in place.
+     * Updating an archived ticket removes it from the archive and brings it back into memory.
+     * Use compareAndUpdate to avoid overwriting changes made since the ticket was read.
      *
      * @param updatedTicket The ticket with updated information
+     * @throws IllegalArgumentException if the ticket is the stored ticket itself, changed in place
      */
     public void updateTicket(TicketModel updatedTicket) {
-        for (int i = 0; i < tickets.size(); i++) {
-            if (tickets.get(i).getId() == updatedTicket.getId()) {
-                tickets.set(i, updatedTicket);
-                break;
+        storeUpdate(updatedTicket, 0, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores a new version of a ticket, stamped with the given time.
+     * A reopened archived ticket continues from the version it was archived with and keeps its
+     * creation time.
+     *
+     * @param version The version to store, or 0 for the one after the current version
+     */
+    private void storeUpdate(TicketModel updatedTicket, long version, long updatedAt) {
+        TicketModel current = tickets.get(updatedTicket.getId());
+        requireCopy(current, updatedTicket);
+        TicketArchive source = archive;
+        if (current == null && source != null) {
+            TicketModel archived = source.get(updatedTicket.getId());
+            if (archived != null) {
+                updatedTicket.setVersion(Math.max(updatedTicket.getVersion(), archived.getVersion()));
+                if (updatedTicket.getCreatedAt() == 0) {
+                    // Segments written before timestamps were archived carry none
+                    updatedTicket.setCreatedAt(archived.getCreatedAt() > 0 ? archived.getCreatedAt() : updatedAt);
+                }
+            }
+        }
+        updatedTicket.setVersion(version > 0 ? version
+                : (current != null ? current.getVersion() : updatedTicket.getVersion()) + 1);
+        updatedTicket.setUpdatedAt(updatedAt);
+        TicketModel previous = tickets.replace(updatedTicket);
+        if (previous != null) {
+            index.index(previous, updatedTicket);
+            for (RepositoryListener listener : listeners) {
+                listener.ticketUpdated(previous, updatedTicket);
+            }
+        } else if (removeFromArchive(updatedTicket.getId())) {
+            tickets.put(updatedTicket);
+            index.index(null, updatedTicket);
+            for (RepositoryListener listener : listeners) {
+                listener.ticketUnarchived(updatedTicket);
+            }
+        }
+    }
+
+    /**
+     * Stores a batch of edited copies of tickets, each provided no other version of it was stored
+     * since the copy was made, as compareAndUpdate does for a single ticket.
+     * The updates that pass the check are stored and reported to the listeners together; archived
+     * tickets are reopened one by one. A conflicting or missing ticket does not hold up the others.
+     *
+     * @param batch copy() of stored tickets with the changes applied, each carrying the version it was made from
+     * @return The outcome of each update, in the order of the batch
+     * @throws IllegalArgumentException if a ticket is the stored ticket itself, changed in place;
+     *                                  nothing is stored then
+     */
+    public List<UpdateResult> updateTickets(List<TicketModel> batch) {
+        for (TicketModel ticket : batch) {
+            requireCopy(tickets.get(ticket.getId()), ticket);
+        }
+        List<UpdateResult> results = new ArrayList<>(batch.size());
+        List<TicketModel> updated = new ArrayList<>(batch.size());
+        List<TicketModel> replaced = new ArrayList<>(batch.size());
+        long now = System.currentTimeMillis();
+        for (TicketModel ticket : batch) {
+            TicketModel current = tickets.get(ticket.getId());
+            if (current == null) {
+                results.add(compareAndUpdate(ticket));
+            } else if (current.getVersion() != ticket.getVersion()) {
+                results.add(UpdateResult.conflict(current));
+            } else {
+                ticket.setVersion(current.getVersion() + 1);
+                ticket.setUpdatedAt(now);
+                TicketModel previous = tickets.replace(ticket);
+                index.index(previous, ticket);
+                replaced.add(previous);
+                updated.add(ticket);
+                results.add(UpdateResult.updated(ticket));
+            }
+        }
+        if (!updated.isEmpty()) {
+            for (RepositoryListener listener : listeners) {
+                listener.ticketsUpdated(replaced, updated);
             }
         }
+        return results;
+    }
+
+    /**
+     * Stores an edited copy of a ticket, provided no other version was stored since the copy was made.
+     * The check compares the version of the copy with the stored one, so a change made by another
+     * agent in the meantime is reported as a conflict instead of being silently overwritten.
+     *
+     * @param draft A copy() of a stored ticket, with the changes applied
+     * @return UPDATED with the stored ticket, CONFLICT with the current version, or NOT_FOUND
+     * @throws IllegalArgumentException if the draft is the stored ticket itself, changed in place
+     */
+    public UpdateResult compareAndUpdate(TicketModel draft) {
+        TicketModel current = getTicketById(draft.getId());
+        if (current == null) {
+            return UpdateResult.notFound();
+        }
+        requireCopy(current, draft);
+        if (current.getVersion() != draft.getVersion()) {
+            return UpdateResult.conflict(current);
+        }
+        updateTicket(draft);
+        return UpdateResult.updated(draft);
+    }
+
+    /**
+     * Rejects an update made by changing the stored ticket in place: the stored version would
+     * already show the change, so the indexes and listeners could not tell what it replaced.
+     */
+    private static void requireCopy(TicketModel current, TicketModel ticket) {
+        if (current == ticket) {
+            throw new IllegalArgumentException("Ticket " + ticket.getId() + " was changed in place; update a copy instead");
+        }
+    }
+
+    /**
+     * Applies a modification to a copy of a stored ticket and stores the copy as the next version.
+     * Lets callers change a ticket without racing other writers in between reading and updating it,
+     * while readers of the previous version keep seeing it unchanged.
+     *
+     * @param id The ID of the ticket to modify
+     * @param modification The change to apply to the ticket
+     * @return true if the ticket was found and modified, false otherwise
+     */
+    public boolean modifyTicket(int id, Consumer<TicketModel> modification) {
+        TicketModel ticket = getTicketById(id);
+        if (ticket == null) {
+            return false;
+        }
+        TicketModel draft = ticket.copy();
+        modification.accept(draft);
+        updateTicket(draft);
+        return true;
+    }
+
+    /**
+     * Replays a change recorded earlier: applies it like modifyTicket, but stores the result as
+     * the version and with the time the change was recorded with. Changes older than the stored
+     * ticket are skipped, so a change that a snapshot already reflects can be replayed on top of it.
+     *
+     * @param id The ID of the ticket to modify
+     * @param version The version the change produced, or 0 if it was recorded without one,
+     *                to store the version after the current one
+     * @param updatedAt The time of the change, in milliseconds since the epoch
+     * @param modification The change to apply to the ticket
+     * @return true if the ticket was found and modified, false otherwise
+     */
+    public boolean replayUpdate(int id, long version, long updatedAt, Consumer<TicketModel> modification) {
+        TicketModel ticket = getTicketById(id);
+        if (ticket == null || ticket.getVersion() > version && version > 0) {
+            return false;
+        }
+        TicketModel draft = ticket.copy();
+        modification.accept(draft);
+        storeUpdate(draft, version, updatedAt);
+        return true;
     }
 
     /**
      * Deletes a ticket from the repository by its ID.
-     * Removes the first ticket found with the matching ID.
+     * Removes the ticket stored under the matching ID without shifting other tickets,
+     * or removes it from the archive if it was archived.
      *
      * @param id The ID of the ticket to delete
      * @return true if ticket was found and deleted, false otherwise
      */
     public boolean deleteTicket(int id) {
-        for (int i = 0; i < tickets.size(); i++) {
-            if (tickets.get(i).getId() == id) {
-                tickets.remove(i);
-                return true;
+        TicketModel removed = tickets.remove(id);
+        if (removed != null) {
+            index.remove(removed);
+        } else if (!removeFromArchive(id)) {
+            return false;
+        }
+        for (RepositoryListener listener : listeners) {
+            listener.ticketDeleted(id);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a batch of tickets from the repository.
+     *
+     * @param ids The IDs of the tickets to delete
+     * @return The number of tickets that were found and deleted
+     */
+    public int deleteTickets(int[] ids) {
+        int[] deleted = new int[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            TicketModel removed = tickets.remove(id);
+            if (removed != null) {
+                index.remove(removed);
+                deleted[count++] = id;
+            } else if (removeFromArchive(id)) {
+                deleted[count++] = id;
+            }
+        }
+        if (count > 0) {
+            int[] batch = Arrays.copyOf(deleted, count);
+            for (RepositoryListener listener : listeners) {
+                listener.ticketsDeleted(batch);
             }
         }
-        return false;
+        return count;
+    }
+
+    /**
+     * Suggests customer names for autocomplete.
+     * Names starting with the prefix come first, followed by names with a later word starting
+     * with it (so "smi" suggests "John Smith"), each group in alphabetical order. Matching ignores
+     * case; each name is returned as spelled on one of its tickets.
+     * Only customers with tickets held in memory are suggested.
+     *
+     * @param prefix The beginning of the name typed so far
+     * @param limit The maximum number of names to return
+     * @return The suggested customer names
+     */
+    public List<String> suggestCustomerNames(String prefix, int limit) {
+        List<String> names = new ArrayList<>();
+        if (prefix == null || limit <= 0) {
+            return names;
+        }
+        for (String name : index.completeCustomerName(prefix, limit)) {
+            names.add(displayName(name));
+        }
+        return names;
+    }
+
+    /**
+     * Finds the tickets of customers whose name is close to the given one, to tolerate typos.
+     * Names within maxEdits insertions, deletions, substitutions or swaps of adjacent letters
+     * match, ignoring case. Tickets of the closest names come first, ordered by ID within a name.
+     * The number of edits allowed is reduced for short names, which would otherwise match almost
+     * anything. Only tickets held in memory are searched.
+     *
+     * @param customerName The customer name, possibly misspelled
+     * @param maxEdits The maximum number of edits between the given and the stored name
+     * @param limit The maximum number of tickets to return
+     * @return The matching tickets
+     */
+    public List<TicketModel> searchByFuzzyCustomerName(String customerName, int maxEdits, int limit) {
+        List<TicketModel> results = new ArrayList<>();
+        if (customerName == null || limit <= 0) {
+            return results;
+        }
+        for (String name : index.similarCustomerNames(customerName, maxEdits, limit)) {
+            List<TicketModel> matches = new ArrayList<>();
+            for (Integer id : index.lookupCustomerName(name)) {
+                TicketModel ticket = tickets.get(id);
+                if (ticket != null) {
+                    matches.add(ticket);
+                }
+            }
+            matches.sort(Comparator.comparingInt(TicketModel::getId));
+            for (TicketModel ticket : matches) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                results.add(ticket);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns a case-folded customer name as it is spelled on one of its tickets.
+     */
+    private String displayName(String normalizedName) {
+        for (Integer id : index.lookupCustomerName(normalizedName)) {
+            TicketModel ticket = tickets.get(id);
+            if (ticket != null) {
+                return ticket.getCustomerName();
+            }
+        }
+        return normalizedName;
+    }
+
+    /**
+     * Performs a full-text search over ticket descriptions and comments.
+     * Words are matched case-insensitively and must all occur in a ticket; capitalised OR
+     * separates alternatives and double quotes match an exact phrase, e.g.
+     * {@code router firmware OR "modem reboot"}. Matches are ranked by relevance (BM25), so
+     * tickets where the words are frequent and the text is short come first.
+     * Only tickets held in memory are searched; archived tickets are not part of the text index.
+     *
+     * @param query The query text
+     * @param limit The maximum number of tickets to return
+     * @return The best matching tickets, best match first
+     */
+    public List<TicketModel> searchText(String query, int limit) {
+        return searchText(query, limit, null);
+    }
+
+    /**
+     * Performs a full-text search restricted to some tickets, e.g. those matching other criteria.
+     * The restriction is applied while ranking, so the limit counts only tickets it allows.
+     *
+     * @param query The query text, see searchText(String, int)
+     * @param limit The maximum number of tickets to return
+     * @param allowedIds Tells which ticket IDs may be returned, or null to allow all
+     * @return The best matching allowed tickets, best match first
+     */
+    public List<TicketModel> searchText(String query, int limit, IntPredicate allowedIds) {
+        List<TicketModel> results = new ArrayList<>();
+        if (query == null) {
+            return results;
+        }
+        for (int id : index.searchText(query, limit, allowedIds)) {
+            TicketModel ticket = tickets.get(id);
+            if (ticket != null) {
+                results.add(ticket);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds the tickets matching an arbitrary filter, for conditions the secondary indexes
+     * do not cover, such as patterns in descriptions or contact details.
+     * Every ticket is tested, but the store is split into chunks scanned in parallel on the
+     * fork-join pool, and the scan stops early once the first limit matches are known.
+     * Only tickets held in memory are scanned.
+     *
+     * @param filter The condition tickets must satisfy; called from several threads at once
+     * @param limit The maximum number of tickets to return
+     * @return The first matching tickets in insertion order
+     */
+    public List<TicketModel> scanTickets(Predicate<? super TicketModel> filter, int limit) {
+        if (filter == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return ParallelScan.scan(tickets, filter, limit);
+    }
+
+    /**
+     * Counts the tickets matching the given status, priority and category.
+     * Counts are maintained incrementally as tickets change, so this costs time proportional to
+     * the number of status, priority and category combinations rather than the number of tickets.
+     * Matching ignores case; unset criteria match any value and unknown values match nothing.
+     * Only tickets held in memory are counted. Under concurrent changes the count may reflect
+     * a change to one combination before the matching change to another.
+     *
+     * @param status The status to count (can be null or empty)
+     * @param priority The priority to count (can be null or empty)
+     * @param category The category to count (can be null or empty)
+     * @return The number of matching tickets
+     */
+    public long countTickets(String status, String priority, String category) {
+        TicketStatus statusValue = isSet(status) ? TicketStatus.lookup(status) : null;
+        TicketPriority priorityValue = isSet(priority) ? TicketPriority.lookup(priority) : null;
+        int categoryId = isSet(category) ? CategoryDictionary.lookup(category) : -1;
+        if ((isSet(status) && statusValue == null) || (isSet(priority) && priorityValue == null)
+                || (isSet(category) && categoryId < 0)) {
+            return 0;
+        }
+        return index.count(statusValue, priorityValue, categoryId);
+    }
+
+    /**
+     * Counts the tickets grouped by any combination of status, priority and category, e.g.
+     * {@code countTicketsBy(TicketDimension.STATUS, TicketDimension.CATEGORY)} maps
+     * {@code ["Open", "Network"]} to the number of open network tickets.
+     * Answered from the live counters in time proportional to the number of groups.
+     * Groups are ordered by status and priority in their declared order and by category name;
+     * groups without tickets are left out. Only tickets held in memory are counted.
+     *
+     * @param dimensions The fields to group by, in the order their labels appear in the keys
+     * @return The count of every non-empty group
+     */
+    public Map<List<String>, Long> countTicketsBy(TicketDimension... dimensions) {
+        return index.countBy(dimensions);
     }
 
     /**
      * Performs a multi-criteria search on tickets.
      * Matches tickets against all non-null and non-empty criteria.
-     * Uses case-insensitive comparison for all string matches.
+     * Uses case-insensitive comparison for all string matches; unknown status or
+     * priority values match no tickets.
+     * Looks up the posting list of every criterion in the secondary indexes and
+     * probes the others for each ticket of the smallest, so the cost follows the size of
+     * the smallest posting list plus sorting the r results, O(r log r), rather than the number
+     * of stored tickets. Without any criterion every stored ticket is returned.
      *
      * @param customerName The customer name to match (can be null or empty)
      * @param category The category to match (can be null or empty)
      * @param status The status to match (can be null or empty)
      * @param priority The priority to match (can be null or empty)
-     * @return List of tickets matching all specified criteria
+     * @return List of tickets matching all specified criteria, ordered by ID
      */
     public List<TicketModel> searchByCriteria(String customerName, String category,
                                               String status, String priority) {
-        List<TicketModel> results = new ArrayList<>();
-        for (TicketModel ticket : tickets) {
-            boolean matches = true;
+        return searchByCriteria(customerName, category, status, priority, null);
+    }
 
-            if (customerName != null && !customerName.isEmpty()) {
-                matches = matches && ticket.getCustomerName()
-                        .equalsIgnoreCase(customerName);
+    /**
+     * Performs a multi-criteria search on tickets, recording how many in-memory tickets it examined:
+     * the size of the smallest posting list, or all stored tickets when no criterion is given.
+     *
+     * @param customerName The customer name to match (can be null or empty)
+     * @param category The category to match (can be null or empty)
+     * @param status The status to match (can be null or empty)
+     * @param priority The priority to match (can be null or empty)
+     * @param scanLengths The histogram to record the number of examined tickets in, or null
+     * @return List of tickets matching all specified criteria, ordered by ID
+     */
+    public List<TicketModel> searchByCriteria(String customerName, String category,
+                                              String status, String priority, Histogram scanLengths) {
+        int categoryId = isSet(category) ? CategoryDictionary.lookup(category) : -1;
+        TicketStatus statusValue = isSet(status) ? TicketStatus.lookup(status) : null;
+        TicketPriority priorityValue = isSet(priority) ? TicketPriority.lookup(priority) : null;
+        if ((isSet(category) && categoryId < 0) || (isSet(status) && statusValue == null)
+                || (isSet(priority) && priorityValue == null)) {
+            if (scanLengths != null) {
+                scanLengths.record(0);
             }
-            if (category != null && !category.isEmpty()) {
-                matches = matches && ticket.getCategory()
-                        .equalsIgnoreCase(category);
+            return new ArrayList<>();
+        }
+        List<Set<Integer>> postingLists = new ArrayList<>(4);
+        if (isSet(customerName)) postingLists.add(index.lookupCustomerName(customerName));
+        if (isSet(category)) postingLists.add(index.lookupCategory(category));
+        if (isSet(status)) postingLists.add(index.lookupStatus(status));
+        if (isSet(priority)) postingLists.add(index.lookupPriority(priority));
+
+        List<TicketModel> results;
+        if (postingLists.isEmpty()) {
+            results = tickets.values();
+            if (scanLengths != null) {
+                scanLengths.record(results.size());
             }
-            if (status != null && !status.isEmpty()) {
-                matches = matches && ticket.getStatus()
-                        .equalsIgnoreCase(status);
+        } else {
+            postingLists.sort(Comparator.comparingInt(Set::size));
+            results = new ArrayList<>();
+            Set<Integer> smallest = postingLists.get(0);
+            if (scanLengths != null) {
+                scanLengths.record(smallest.size());
             }
-            if (priority != null && !priority.isEmpty()) {
-                matches = matches && ticket.getPriority()
-                        .equalsIgnoreCase(priority);
+            String nameKey = isSet(customerName) ? TicketIndex.normalize(customerName) : null;
+            for (Integer id : smallest) {
+                if (containedInAll(postingLists, id)) {
+                    TicketModel ticket = tickets.get(id);
+                    // The posting lists may still hold a ticket that a writer is moving out of them
+                    if (ticket != null && TicketIndex.matches(ticket, nameKey, categoryId, statusValue, priorityValue)) {
+                        results.add(ticket);
+                    }
+                }
             }
+        }
+        searchArchive(customerName, categoryId, statusValue, priorityValue, results);
+        // The storage engine lists tickets in insertion order, which differs from ID order once
+        // restored or reopened tickets are added; an already sorted list is checked in one pass
+        results.sort(Comparator.comparingInt(TicketModel::getId));
+        return results;
+    }
 
-            if (matches) {
-                results.add(ticket);
+    /**
+     * Adds the archived tickets matching the criteria to the results.
+     * Scans the fixed-width archive columns instead of materializing every archived ticket.
+     */
+    private void searchArchive(String customerName, int categoryId, TicketStatus statusValue,
+                               TicketPriority priorityValue, List<TicketModel> results) {
+        TicketArchive source = archive;
+        if (source != null) {
+            source.search(isSet(customerName) ? customerName : null, categoryId, statusValue, priorityValue, results);
+        }
+    }
+
+    /**
+     * Removes a ticket from the attached archive, if any.
+     *
+     * @return true if the ticket was archived
+     */
+    private boolean removeFromArchive(int id) {
+        TicketArchive source = archive;
+        if (source == null) {
+            return false;
+        }
+        try {
+            return source.remove(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks whether a search criterion was given.
+     */
+    private static boolean isSet(String criterion) {
+        return criterion != null && !criterion.isEmpty();
+    }
+
+    /**
+     * Checks whether an ID from the smallest posting list appears in all the others.
+     */
+    private static boolean containedInAll(List<Set<Integer>> postingLists, Integer id) {
+        for (int i = 1; i < postingLists.size(); i++) {
+            if (!postingLists.get(i).contains(id)) {
+                return false;
             }
         }
-        return results;
+        return true;
+    }
+
+    /**
+     * Returns the number of tickets held in memory; archived tickets are not counted.
+     *
+     * @return The number of stored tickets
+     */
+    public int getTicketCount() {
+        return tickets.size();
     }
 
     /**
@@ -146,4 +903,26 @@ public class TicketRepository {
     public int getNextId() {
         return nextId++;
     }
+
+    /**
+     * Reserves a contiguous range of ticket IDs in a single step.
+     *
+     * @param count The number of IDs to reserve
+     * @return The first ID of the range; the range ends at the returned value plus count minus one
+     */
+    public int reserveIds(int count) {
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    /**
+     * Ensures that IDs handed out from now on are not lower than the given value.
+     * Used when tickets are restored from storage with their original IDs.
+     *
+     * @param id The lowest ID the next call to getNextId may return
+     */
+    public void advanceNextId(int id) {
+        nextId = Math.max(nextId, id);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package repository;
+
+import models.TicketModel;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine abstraction used by the TicketRepository.
+ * Keeps tickets keyed by their ID so that point operations do not depend on the
+ * size of the backlog, while still exposing the tickets in insertion order.
+ */
+public interface TicketStore {
+
+    /**
+     * Stores a ticket, replacing any ticket already stored under the same ID.
+     *
+     * @param ticket The TicketModel object to be stored
+     */
+    void put(TicketModel ticket);
+
+    /**
+     * Stores a batch of tickets, replacing any tickets already stored under the same IDs.
+     *
+     * @param batch The tickets to be stored
+     */
+    default void putAll(List<TicketModel> batch) {
+        for (TicketModel ticket : batch) {
+            put(ticket);
+        }
+    }
+
+    /**
+     * Retrieves the ticket stored under the given ID.
+     *
+     * @param id The ID of the ticket to find
+     * @return The matching TicketModel or null if not found
+     */
+    TicketModel get(int id);
+
+    /**
+     * Replaces the ticket stored under the same ID, keeping its original position.
+     * Does nothing if no ticket with that ID is stored.
+     *
+     * @param ticket The ticket with updated information
+     * @return The ticket that was replaced, or null if no ticket had that ID
+     */
+    TicketModel replace(TicketModel ticket);
+
+    /**
+     * Removes the ticket stored under the given ID.
+     *
+     * @param id The ID of the ticket to remove
+     * @return The removed TicketModel or null if not found
+     */
+    TicketModel remove(int id);
+
+    /**
+     * @return The number of tickets currently stored
+     */
+    int size();
+
+    /**
+     * Visits every stored ticket in insertion order.
+     *
+     * @param action The action to perform on each ticket
+     */
+    void forEach(Consumer<? super TicketModel> action);
+
+    /**
+     * Collects the next tickets in insertion order after a given position.
+     * Every stored ticket has a position that never changes while it is stored and that is
+     * higher than the positions of all tickets stored before it, so a position can be used to
+     * resume a traversal even if the store is modified in between.
+     *
+     * @param afterPosition The position of the last ticket already seen, or -1 to start at the beginning
+     * @param limit The maximum number of tickets to collect
+     * @param page The list the tickets are added to
+     * @return The position of the last collected ticket, or afterPosition if none was collected
+     */
+    long collectPage(long afterPosition, int limit, List<TicketModel> page);
+
+    /**
+     * Returns a spliterator over the stored tickets in insertion order, for scans that divide
+     * the store into chunks processed in parallel. Splitting hands out the earlier part of the
+     * remaining tickets, so chunks keep insertion order among themselves.
+     * The store must not be modified during the scan unless it is thread-safe.
+     *
+     * @return A spliterator that never reports null
+     */
+    Spliterator<TicketModel> spliterator();
+
+    /**
+     * Returns a new list of all stored tickets in insertion order.
+     *
+     * @return A new List containing all stored tickets
+     */
+    List<TicketModel> values();
+}
@@ -0,0 +1,78 @@
+package repository;
+
+import models.TicketModel;
+
+/**
+ * Outcome of a versioned update.
+ * An update is only applied if the ticket it was made from is still the current version;
+ * otherwise the current version is returned so that the caller can reapply its change to it.
+ */
+public final class UpdateResult {
+
+    /**
+     * What happened to the update.
+     */
+    public enum Outcome {
+        /** The update was stored as the next version. */
+        UPDATED,
+        /** Another version was stored after the ticket was read; nothing was changed. */
+        CONFLICT,
+        /** The ticket no longer exists. */
+        NOT_FOUND
+    }
+
+    private static final UpdateResult NOT_FOUND = new UpdateResult(Outcome.NOT_FOUND, null);
+
+    private final Outcome outcome;
+    private final TicketModel ticket;
+
+    private UpdateResult(Outcome outcome, TicketModel ticket) {
+        this.outcome = outcome;
+        this.ticket = ticket;
+    }
+
+    /**
+     * @param ticket The ticket as stored by the update
+     * @return A result for an update that was applied
+     */
+    public static UpdateResult updated(TicketModel ticket) {
+        return new UpdateResult(Outcome.UPDATED, ticket);
+    }
+
+    /**
+     * @param current The version stored at the time of the update
+     * @return A result for an update that was rejected because the ticket had changed
+     */
+    public static UpdateResult conflict(TicketModel current) {
+        return new UpdateResult(Outcome.CONFLICT, current);
+    }
+
+    /**
+     * @return A result for an update of a ticket that does not exist
+     */
+    public static UpdateResult notFound() {
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return What happened to the update
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return true if the update was stored
+     */
+    public boolean isUpdated() {
+        return outcome == Outcome.UPDATED;
+    }
+
+    /**
+     * @return The stored ticket after an update, the current version after a conflict,
+     *         or null if the ticket was not found
+     */
+    public TicketModel getTicket() {
+        return ticket;
+    }
+}
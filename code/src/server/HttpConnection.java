@@ -0,0 +1,238 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves the HTTP/1.1 requests arriving on one client connection, on the connection's own thread.
+ * Connections are kept alive between requests unless the client asks otherwise. Pipelined
+ * requests are answered in order, and responses are only flushed once no further request is
+ * already waiting, so a pipelined burst goes out in as few writes as possible.
+ */
+final class HttpConnection implements Runnable {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final int MAX_HEADERS = 100;
+    private static final int MAX_BODY_LENGTH = 1024 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * A request that cannot be parsed; the connection is answered and closed.
+     */
+    private static final class BadRequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final Socket socket;
+    private final TicketApi api;
+    private final TicketServer server;
+
+    HttpConnection(Socket socket, TicketApi api, TicketServer server) {
+        this.socket = socket;
+        this.api = api;
+        this.server = server;
+    }
+
+    @Override
+    public void run() {
+        try (Socket client = socket) {
+            InputStream in = new BufferedInputStream(client.getInputStream(), BUFFER_SIZE);
+            OutputStream out = new BufferedOutputStream(client.getOutputStream(), BUFFER_SIZE);
+            while (true) {
+                HttpRequest request;
+                try {
+                    request = read(in);
+                } catch (BadRequestException e) {
+                    write(out, HttpResponse.error(e.status, e.getMessage()), false);
+                    out.flush();
+                    return;
+                }
+                if (request == null) {
+                    out.flush();
+                    return;
+                }
+                write(out, handle(request), request.keepAlive);
+                if (!request.keepAlive) {
+                    out.flush();
+                    return;
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Idle keep-alive connection; closing it is all there is to do
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            server.connectionClosed(socket);
+        }
+    }
+
+    private HttpResponse handle(HttpRequest request) {
+        try {
+            return api.handle(request);
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            return HttpResponse.error(500, e.toString());
+        }
+    }
+
+    /**
+     * Reads the next request from the connection.
+     *
+     * @return The request, or null if the client closed the connection between requests
+     */
+    private static HttpRequest read(InputStream in) throws IOException, BadRequestException {
+        String requestLine = readLine(in);
+        // Tolerate blank lines between pipelined requests
+        while (requestLine != null && requestLine.isEmpty()) {
+            requestLine = readLine(in);
+        }
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1.")) {
+            throw new BadRequestException(400, "Malformed request line");
+        }
+        boolean http10 = parts[2].equals("HTTP/1.0");
+
+        int contentLength = 0;
+        String connection = null;
+        for (int count = 0; ; count++) {
+            String header = readLine(in);
+            if (header == null) {
+                throw new BadRequestException(400, "Connection closed inside headers");
+            }
+            if (header.isEmpty()) {
+                break;
+            }
+            if (count == MAX_HEADERS) {
+                throw new BadRequestException(400, "Too many headers");
+            }
+            int colon = header.indexOf(':');
+            if (colon <= 0) {
+                throw new BadRequestException(400, "Malformed header");
+            }
+            String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = header.substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                try {
+                    contentLength = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new BadRequestException(400, "Invalid Content-Length");
+                }
+                if (contentLength < 0) {
+                    throw new BadRequestException(400, "Invalid Content-Length");
+                }
+                if (contentLength > MAX_BODY_LENGTH) {
+                    throw new BadRequestException(413, "Request body too large");
+                }
+            } else if (name.equals("transfer-encoding")) {
+                throw new BadRequestException(400, "Chunked request bodies are not supported");
+            } else if (name.equals("connection")) {
+                connection = value.toLowerCase(Locale.ROOT);
+            }
+        }
+        boolean keepAlive = http10 ? "keep-alive".equals(connection) : !"close".equals(connection);
+
+        String body = "";
+        if (contentLength > 0) {
+            byte[] bytes = in.readNBytes(contentLength);
+            if (bytes.length < contentLength) {
+                throw new BadRequestException(400, "Connection closed inside body");
+            }
+            body = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String target = parts[1];
+        int question = target.indexOf('?');
+        String path = decode(question < 0 ? target : target.substring(0, question));
+        Map<String, String> query = new HashMap<>();
+        if (question >= 0) {
+            for (String pair : target.substring(question + 1).split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int equals = pair.indexOf('=');
+                query.put(decode(equals < 0 ? pair : pair.substring(0, equals)),
+                        equals < 0 ? "" : decode(pair.substring(equals + 1)));
+            }
+        }
+        return new HttpRequest(parts[0], path, query, body, keepAlive);
+    }
+
+    private static String decode(String value) throws BadRequestException {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(400, "Malformed URL encoding");
+        }
+    }
+
+    /**
+     * Reads one line terminated by CRLF or LF.
+     *
+     * @return The line without its terminator, or null at the end of the stream before any byte
+     */
+    private static String readLine(InputStream in) throws IOException, BadRequestException {
+        ByteArrayOutputStream line = null;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                if (line == null) {
+                    return null;
+                }
+                throw new BadRequestException(400, "Connection closed inside a line");
+            }
+            if (line == null) {
+                line = new ByteArrayOutputStream(128);
+            }
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            if (line.size() == MAX_LINE_LENGTH) {
+                throw new BadRequestException(400, "Line too long");
+            }
+            line.write(b);
+        }
+    }
+
+    private static void write(OutputStream out, HttpResponse response, boolean keepAlive) throws IOException {
+        byte[] body = response.body == null ? new byte[0] : response.body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder(128);
+        head.append("HTTP/1.1 ").append(response.status).append(' ').append(response.reason()).append("\r\n");
+        if (response.body != null) {
+            head.append("Content-Type: ").append(response.contentType).append("\r\n");
+        }
+        head.append("Content-Length: ").append(body.length).append("\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.write(CRLF);
+        out.write(body);
+    }
+}
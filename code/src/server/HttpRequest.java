@@ -0,0 +1,54 @@
+package server;
+
+import java.util.Map;
+
+/**
+ * A parsed HTTP request: method, decoded path and query parameters, and the body as text.
+ */
+final class HttpRequest {
+
+    final String method;
+    final String path;
+    final Map<String, String> query;
+    final String body;
+    final boolean keepAlive;
+
+    HttpRequest(String method, String path, Map<String, String> query, String body, boolean keepAlive) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.body = body;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Returns a query parameter, treating an empty value as absent.
+     *
+     * @param name The parameter name
+     * @return The value, or null if the parameter is missing or empty
+     */
+    String param(String name) {
+        String value = query.get(name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Returns a numeric query parameter.
+     *
+     * @param name The parameter name
+     * @param defaultValue The value used when the parameter is missing
+     * @return The value of the parameter
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    int intParam(String name, int defaultValue) {
+        String value = param(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package server;
+
+/**
+ * An HTTP response with an optional JSON or plain text body.
+ */
+final class HttpResponse {
+
+    static final HttpResponse NO_CONTENT = new HttpResponse(204, null);
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    final int status;
+    final String body;
+    final String contentType;
+
+    HttpResponse(int status, String body) {
+        this(status, body, JSON);
+    }
+
+    private HttpResponse(int status, String body, String contentType) {
+        this.status = status;
+        this.body = body;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @param body The JSON body
+     * @return A 200 OK response
+     */
+    static HttpResponse ok(CharSequence body) {
+        return new HttpResponse(200, body.toString());
+    }
+
+    /**
+     * @param body The plain text body
+     * @return A 200 OK response
+     */
+    static HttpResponse text(CharSequence body) {
+        return new HttpResponse(200, body.toString(), TEXT);
+    }
+
+    /**
+     * Builds an error response with a JSON body of the form {"error": message}.
+     *
+     * @param status The HTTP status code
+     * @param message The error message
+     * @return The response
+     */
+    static HttpResponse error(int status, String message) {
+        return new HttpResponse(status, Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString());
+    }
+
+    /**
+     * @return The reason phrase of the status code
+     */
+    String reason() {
+        switch (status) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 409: return "Conflict";
+            case 413: return "Payload Too Large";
+            default: return status >= 500 ? "Internal Server Error" : "Unknown";
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package server;
+
+import models.TicketComment;
+import models.TicketModel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reading and writing for the ticket server.
+ * Parses objects into LinkedHashMaps, arrays into Lists, numbers into Longs or Doubles, and
+ * strings, booleans and null into their Java counterparts. Writes tickets with their comments,
+ * and reads them back with readTicket.
+ */
+public final class Json {
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON document.
+     *
+     * @param text The document
+     * @return The parsed value
+     * @throws IllegalArgumentException if the document is not valid JSON
+     */
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.position != text.length()) {
+            throw json.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position == text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': return readLiteral("true", Boolean.TRUE);
+            case 'f': return readLiteral("false", Boolean.FALSE);
+            case 'n': return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a field name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default: builder.append(escaped);
+            }
+        }
+    }
+
+    private Object readNumber() {
+        int start = position;
+        boolean decimal = false;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            return decimal ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error("Unexpected character '" + text.charAt(position) + "'");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at position " + position + ": " + message);
+    }
+
+    /**
+     * Appends a string as a quoted JSON string, or null.
+     *
+     * @param builder The builder to append to
+     * @param value The string to quote, or null
+     * @return The builder
+     */
+    public static StringBuilder quote(StringBuilder builder, String value) {
+        if (value == null) {
+            return builder.append("null");
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"');
+    }
+
+    /**
+     * Appends a ticket as a JSON object, including its version, its creation and update times in
+     * milliseconds since the epoch, and its comments.
+     *
+     * @param builder The builder to append to
+     * @param ticket The ticket to write
+     * @return The builder
+     */
+    public static StringBuilder ticket(StringBuilder builder, TicketModel ticket) {
+        builder.append("{\"id\":").append(ticket.getId());
+        builder.append(",\"version\":").append(ticket.getVersion());
+        builder.append(",\"createdAt\":").append(ticket.getCreatedAt());
+        builder.append(",\"updatedAt\":").append(ticket.getUpdatedAt());
+        quote(builder.append(",\"customerName\":"), ticket.getCustomerName());
+        quote(builder.append(",\"contactInfo\":"), ticket.getContactInfo());
+        quote(builder.append(",\"category\":"), ticket.getCategory());
+        quote(builder.append(",\"description\":"), ticket.getDescription());
+        quote(builder.append(",\"status\":"), ticket.getStatus());
+        quote(builder.append(",\"priority\":"), ticket.getPriority());
+        builder.append(",\"comments\":[");
+        boolean first = true;
+        for (TicketComment comment : ticket.getCommentLog()) {
+            if (!first) builder.append(',');
+            first = false;
+            quote(builder.append("{\"timestamp\":"), comment.getTimestamp().toString());
+            quote(builder.append(",\"author\":"), comment.getAuthor());
+            quote(builder.append(",\"text\":"), comment.getText());
+            builder.append('}');
+        }
+        return builder.append("]}");
+    }
+
+    /**
+     * Restores a ticket from the object written by the ticket method.
+     *
+     * @param fields The parsed JSON object
+     * @return The ticket, including its version, timestamps when present, and comments
+     * @throws IllegalArgumentException if a field is missing or has the wrong type
+     */
+    public static TicketModel readTicket(Map<String, Object> fields) {
+        TicketModel ticket = new TicketModel((int) number(fields, "id"), string(fields, "customerName"),
+                string(fields, "contactInfo"), string(fields, "category"), string(fields, "description"));
+        ticket.setStatus(string(fields, "status"));
+        ticket.setPriority(string(fields, "priority"));
+        ticket.setVersion(number(fields, "version"));
+        if (fields.containsKey("createdAt")) {
+            ticket.setCreatedAt(number(fields, "createdAt"));
+        }
+        if (fields.containsKey("updatedAt")) {
+            ticket.setUpdatedAt(number(fields, "updatedAt"));
+        }
+        Object comments = fields.get("comments");
+        if (comments instanceof List) {
+            for (Object item : (List<?>) comments) {
+                if (!(item instanceof Map)) {
+                    throw new IllegalArgumentException("Expected a comment object");
+                }
+                Map<?, ?> comment = (Map<?, ?>) item;
+                ticket.getCommentLog().append(new TicketComment(
+                        Instant.parse(String.valueOf(comment.get("timestamp"))),
+                        (String) comment.get("author"), (String) comment.get("text")));
+            }
+        }
+        return ticket;
+    }
+
+    private static long number(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof Long)) {
+            throw new IllegalArgumentException("Field " + name + " must be a number");
+        }
+        return (Long) value;
+    }
+
+    private static String string(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + name + " must be a string");
+        }
+        return (String) value;
+    }
+
+    /**
+     * Appends a list of tickets as a JSON array.
+     *
+     * @param builder The builder to append to
+     * @param tickets The tickets to write
+     * @return The builder
+     */
+    public static StringBuilder tickets(StringBuilder builder, List<TicketModel> tickets) {
+        builder.append('[');
+        for (int i = 0; i < tickets.size(); i++) {
+            if (i > 0) builder.append(',');
+            ticket(builder, tickets.get(i));
+        }
+        return builder.append(']');
+    }
+}
@@ -0,0 +1,326 @@
+package server;
+
+import dedup.DuplicateDetector;
+import metrics.MetricsRegistry;
+import models.TicketModel;
+import repository.TicketPage;
+import repository.TicketRepository;
+import repository.UpdateResult;
+import services.CreateResult;
+import services.CreateService;
+import services.DeleteService;
+import services.ReadService;
+import services.SearchService;
+import services.UpdateService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps HTTP requests onto the CRUD and search services.
+ *
+ * <pre>
+ * GET    /tickets/{id}                       read one ticket
+ * GET    /tickets?pageToken=&amp;pageSize=       read a page of tickets
+ * POST   /tickets                            create a ticket (object) or several (array)
+ * PUT    /tickets/{id}                       update status, priority or comment of a version
+ * PUT    /tickets                            update several versioned tickets, each checked on its own
+ * DELETE /tickets/{id}                       delete a ticket
+ * DELETE /tickets?ids=1,2,3                  delete several tickets
+ * GET    /search?customerName=&amp;category=&amp;status=&amp;priority=
+ * GET    /search/text?q=&amp;limit=
+ * GET    /search/names?prefix=&amp;limit=
+ * GET    /search/fuzzy?customerName=&amp;maxEdits=&amp;limit=
+ * GET    /metrics?format=text                service metrics as JSON, or as text
+ * </pre>
+ *
+ * An update must carry the version it was made from; if another version was stored since,
+ * the response is 409 Conflict with the current version of the ticket. A batch update answers
+ * 200 OK with the outcome of each item, in order, e.g.
+ * {@code {"updated":1,"results":[{"id":1,"outcome":"UPDATED","ticket":{...}},{"id":2,"outcome":"CONFLICT","current":{...}}]}}.
+ * With a DuplicateDetector, a created ticket that duplicates an earlier one is flagged or merged;
+ * a merged call is answered with 200 OK and the earlier ticket instead of 201 Created.
+ */
+final class TicketApi {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int DEFAULT_MAX_EDITS = 2;
+    private static final int SEARCH_CACHE_CAPACITY = 64;
+
+    private final TicketRepository repository;
+    private final CreateService createService;
+    private final ReadService readService;
+    private final UpdateService updateService;
+    private final DeleteService deleteService;
+    private final SearchService searchService;
+    private final MetricsRegistry metrics;
+
+    TicketApi(TicketRepository repository, MetricsRegistry metrics, DuplicateDetector duplicates) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.createService = new CreateService(repository, metrics, duplicates);
+        this.readService = new ReadService(repository, metrics);
+        this.updateService = new UpdateService(repository, metrics);
+        this.deleteService = new DeleteService(repository, metrics);
+        this.searchService = new SearchService(repository, SEARCH_CACHE_CAPACITY, metrics);
+    }
+
+    /**
+     * Handles one request.
+     *
+     * @param request The request
+     * @return The response
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    HttpResponse handle(HttpRequest request) {
+        String[] segments = request.path.split("/");
+        // The path starts with '/', so the first segment is empty
+        if (segments.length < 2) {
+            return HttpResponse.error(404, "No such resource: " + request.path);
+        }
+        String resource = segments[1];
+        String sub = segments.length > 2 ? segments[2] : null;
+        if (segments.length > 3) {
+            return HttpResponse.error(404, "No such resource: " + request.path);
+        }
+        if (resource.equals("tickets")) {
+            return sub == null ? tickets(request) : ticket(request, parseId(sub));
+        }
+        if (resource.equals("search")) {
+            return search(request, sub);
+        }
+        if (resource.equals("metrics") && sub == null) {
+            if (!request.method.equals("GET")) {
+                return HttpResponse.error(405, "Method not allowed: " + request.method);
+            }
+            return "text".equals(request.param("format")) ? HttpResponse.text(metrics.toText())
+                    : HttpResponse.ok(metrics.toJson());
+        }
+        return HttpResponse.error(404, "No such resource: " + request.path);
+    }
+
+    private HttpResponse tickets(HttpRequest request) {
+        switch (request.method) {
+            case "GET": {
+                TicketPage page = readService.readPage(request.param("pageToken"),
+                        request.intParam("pageSize", DEFAULT_PAGE_SIZE));
+                StringBuilder body = Json.tickets(new StringBuilder("{\"tickets\":"), page.getTickets());
+                return HttpResponse.ok(Json.quote(body.append(",\"nextToken\":"), page.getNextToken()).append('}'));
+            }
+            case "POST":
+                return create(Json.parse(request.body));
+            case "PUT":
+                return updateAll(Json.parse(request.body));
+            case "DELETE": {
+                String ids = request.param("ids");
+                if (ids == null) {
+                    throw new IllegalArgumentException("Missing ids parameter");
+                }
+                String[] parts = ids.split(",");
+                int[] parsed = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    parsed[i] = parseId(parts[i].trim());
+                }
+                return HttpResponse.ok("{\"deleted\":" + deleteService.deleteAll(parsed) + "}");
+            }
+            default:
+                return HttpResponse.error(405, "Method not allowed: " + request.method);
+        }
+    }
+
+    private HttpResponse ticket(HttpRequest request, int id) {
+        switch (request.method) {
+            case "GET": {
+                TicketModel ticket = readService.read(id);
+                return ticket == null ? notFound(id) : HttpResponse.ok(Json.ticket(new StringBuilder(), ticket));
+            }
+            case "PUT":
+                return update(id, asObject(Json.parse(request.body)));
+            case "DELETE":
+                return deleteService.delete(id) ? HttpResponse.NO_CONTENT : notFound(id);
+            default:
+                return HttpResponse.error(405, "Method not allowed: " + request.method);
+        }
+    }
+
+    private HttpResponse create(Object body) {
+        if (body instanceof List) {
+            List<?> items = (List<?>) body;
+            List<TicketModel> batch = new ArrayList<>(items.size());
+            int first = repository.reserveIds(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                batch.add(newTicket(first + i, asObject(items.get(i))));
+            }
+            List<TicketModel> stored = new ArrayList<>(batch.size());
+            for (CreateResult result : createService.createAllDeduplicated(batch)) {
+                stored.add(result.getTicket());
+            }
+            return new HttpResponse(201, Json.tickets(new StringBuilder(), stored).toString());
+        }
+        TicketModel ticket = newTicket(repository.getNextId(), asObject(body));
+        CreateResult result = createService.createDeduplicated(ticket);
+        return new HttpResponse(result.isCreated() ? 201 : 200,
+                Json.ticket(new StringBuilder(), result.getTicket()).toString());
+    }
+
+    private static TicketModel newTicket(int id, Map<String, Object> fields) {
+        TicketModel ticket = new TicketModel(id, requireString(fields, "customerName"),
+                requireString(fields, "contactInfo"), requireString(fields, "category"),
+                requireString(fields, "description"));
+        String status = optionalString(fields, "status");
+        String priority = optionalString(fields, "priority");
+        if (status != null) ticket.setStatus(status);
+        if (priority != null) ticket.setPriority(priority);
+        return ticket;
+    }
+
+    private HttpResponse update(int id, Map<String, Object> fields) {
+        if (!(fields.get("version") instanceof Long)) {
+            throw new IllegalArgumentException("Field version is required and must be a number");
+        }
+        TicketModel current = readService.read(id);
+        if (current == null) {
+            return notFound(id);
+        }
+        TicketModel draft = current.copy();
+        draft.setVersion((Long) fields.get("version"));
+        applyChanges(draft, fields);
+        UpdateResult result = updateService.update(draft);
+        switch (result.getOutcome()) {
+            case UPDATED:
+                return HttpResponse.ok(Json.ticket(new StringBuilder(), result.getTicket()));
+            case CONFLICT: {
+                StringBuilder body = new StringBuilder("{\"error\":\"Ticket was changed by another update\",\"current\":");
+                return new HttpResponse(409, Json.ticket(body, result.getTicket()).append('}').toString());
+            }
+            default:
+                return notFound(id);
+        }
+    }
+
+    private HttpResponse updateAll(Object body) {
+        if (!(body instanceof List)) {
+            throw new IllegalArgumentException("Expected an array of updates");
+        }
+        List<?> items = (List<?>) body;
+        int[] ids = new int[items.size()];
+        List<TicketModel> batch = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> fields = asObject(items.get(i));
+            if (!(fields.get("id") instanceof Long)) {
+                throw new IllegalArgumentException("Field id is required and must be a number");
+            }
+            if (!(fields.get("version") instanceof Long)) {
+                throw new IllegalArgumentException("Field version is required and must be a number");
+            }
+            ids[i] = ((Long) fields.get("id")).intValue();
+            TicketModel current = readService.read(ids[i]);
+            if (current != null) {
+                TicketModel draft = current.copy();
+                draft.setVersion((Long) fields.get("version"));
+                applyChanges(draft, fields);
+                batch.add(draft);
+            }
+        }
+        List<UpdateResult> results = batch.isEmpty() ? List.of() : updateService.updateAll(batch);
+        StringBuilder out = new StringBuilder();
+        int updated = 0;
+        int next = 0;
+        for (int i = 0; i < ids.length; i++) {
+            // Items whose ticket was not found when read were left out of the batch
+            UpdateResult result = next < batch.size() && batch.get(next).getId() == ids[i]
+                    ? results.get(next++) : UpdateResult.notFound();
+            out.append(i == 0 ? "" : ",").append("{\"id\":").append(ids[i])
+                    .append(",\"outcome\":\"").append(result.getOutcome()).append('"');
+            if (result.isUpdated()) {
+                updated++;
+                Json.ticket(out.append(",\"ticket\":"), result.getTicket());
+            } else if (result.getOutcome() == UpdateResult.Outcome.CONFLICT) {
+                Json.ticket(out.append(",\"current\":"), result.getTicket());
+            }
+            out.append('}');
+        }
+        return HttpResponse.ok("{\"updated\":" + updated + ",\"results\":[" + out + "]}");
+    }
+
+    /**
+     * Applies the status, priority and comment of an update to a draft.
+     */
+    private static void applyChanges(TicketModel draft, Map<String, Object> fields) {
+        String status = optionalString(fields, "status");
+        String priority = optionalString(fields, "priority");
+        String comment = optionalString(fields, "comment");
+        String author = optionalString(fields, "author");
+        if (status != null) draft.setStatus(status);
+        if (priority != null) draft.setPriority(priority);
+        if (comment != null) draft.addComment(author != null ? author : TicketModel.DEFAULT_AUTHOR, comment);
+    }
+
+    private HttpResponse search(HttpRequest request, String kind) {
+        if (!request.method.equals("GET")) {
+            return HttpResponse.error(405, "Method not allowed: " + request.method);
+        }
+        int limit = request.intParam("limit", DEFAULT_LIMIT);
+        if (kind == null) {
+            List<TicketModel> results = searchService.searchByCriteria(request.param("customerName"),
+                    request.param("category"), request.param("status"), request.param("priority"));
+            return HttpResponse.ok(Json.tickets(new StringBuilder(),
+                    results.size() > limit ? results.subList(0, Math.max(0, limit)) : results));
+        }
+        switch (kind) {
+            case "text":
+                return HttpResponse.ok(Json.tickets(new StringBuilder(),
+                        searchService.searchText(request.param("q"), limit)));
+            case "fuzzy":
+                return HttpResponse.ok(Json.tickets(new StringBuilder(), searchService.searchByFuzzyCustomerName(
+                        request.param("customerName"), request.intParam("maxEdits", DEFAULT_MAX_EDITS), limit)));
+            case "names": {
+                StringBuilder body = new StringBuilder("[");
+                for (String name : searchService.autocompleteCustomerName(request.param("prefix"), limit)) {
+                    if (body.length() > 1) body.append(',');
+                    Json.quote(body, name);
+                }
+                return HttpResponse.ok(body.append(']'));
+            }
+            default:
+                return HttpResponse.error(404, "No such resource: " + request.path);
+        }
+    }
+
+    private static HttpResponse notFound(int id) {
+        return HttpResponse.error(404, "Ticket not found: " + id);
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ticket ID: " + value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static String requireString(Map<String, Object> fields, String name) {
+        String value = optionalString(fields, name);
+        if (value == null) {
+            throw new IllegalArgumentException("Field " + name + " is required");
+        }
+        return value;
+    }
+
+    private static String optionalString(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + name + " must be a string");
+        }
+        return value == null || ((String) value).isEmpty() ? null : (String) value;
+    }
+}
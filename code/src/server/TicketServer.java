@@ -0,0 +1,223 @@
+package server;
+
+import dedup.DuplicateDetector;
+import metrics.MetricsRegistry;
+import persistence.TicketPersistence;
+import repository.ColumnarTicketStore;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import services.UpdateService;
+import sla.SlaEngine;
+import sla.SlaPolicy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/JSON front-end for the Call Center Ticketing System, so that many agents can work
+ * against one repository at the same time; see TicketApi for the resources it serves.
+ * Every connection is served on its own virtual thread, which blocks cheaply while waiting for
+ * the next request, so tens of thousands of idle keep-alive connections cost little more than
+ * their buffers. The repository must be safe for concurrent use, e.g. a ConcurrentTicketRepository.
+ *
+ * Service latencies, search distributions and repository and heap gauges are served at /metrics
+ * and, with --metrics-interval, also printed to standard output every given number of seconds.
+ * With --sla-tick, tickets are escalated by the default SlaPolicy, checked every given number of seconds.
+ * With --store columnar, tickets are held in a ColumnarTicketStore, which takes a fraction of the
+ * heap for large backlogs at the cost of decoding fields on every read.
+ * With --dedup, new tickets duplicating an open ticket created in the last --dedup-window
+ * minutes, 60 by default, are flagged or merged into it.
+ *
+ * Usage: java server.TicketServer [--port 8080] [--data directory] [--metrics-interval seconds]
+ *        [--sla-tick seconds] [--store concurrent|columnar] [--dedup flag|merge] [--dedup-window minutes]
+ */
+public final class TicketServer implements Closeable {
+
+    private static final int BACKLOG = 4096;
+    private static final int IDLE_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
+    private final MetricsRegistry metrics;
+    private final TicketApi api;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    /**
+     * Starts a server for a repository.
+     *
+     * @param repository The repository to serve, safe for concurrent use
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public TicketServer(TicketRepository repository, int port) throws IOException {
+        this(repository, port, null);
+    }
+
+    /**
+     * Starts a server for a repository that checks new tickets for duplicates.
+     *
+     * @param repository The repository to serve, safe for concurrent use
+     * @param port The port to listen on, or 0 for any free port
+     * @param duplicates The detector following the repository, or null to create every ticket as is
+     * @throws IOException if the port cannot be bound
+     */
+    public TicketServer(TicketRepository repository, int port, DuplicateDetector duplicates) throws IOException {
+        this.metrics = new MetricsRegistry();
+        metrics.registerHeapGauges();
+        metrics.gauge("server.connections", connections::size);
+        if (duplicates != null) {
+            metrics.gauge("dedup.tickets", duplicates::size);
+        }
+        this.api = new TicketApi(repository, metrics, duplicates);
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        this.acceptor = new Thread(this::accept, "ticket-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The metrics of the services behind the server
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The number of open client connections
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept() {
+        Thread.Builder builder = Thread.ofVirtual().name("ticket-connection-", 0);
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // The server socket was closed
+                return;
+            } catch (IOException e) {
+                continue;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            } catch (SocketException e) {
+                closeQuietly(socket);
+                continue;
+            }
+            connections.add(socket);
+            builder.start(new HttpConnection(socket, api, this));
+        }
+    }
+
+    /**
+     * Called by a connection once its socket is closed.
+     */
+    void connectionClosed(Socket socket) {
+        connections.remove(socket);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        String data = null;
+        long metricsInterval = 0;
+        long slaTick = 0;
+        String store = "concurrent";
+        String dedup = null;
+        long dedupWindow = 60;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[i + 1]); break;
+                case "--data": data = args[i + 1]; break;
+                case "--metrics-interval": metricsInterval = Long.parseLong(args[i + 1]); break;
+                case "--sla-tick": slaTick = Long.parseLong(args[i + 1]); break;
+                case "--store": store = args[i + 1]; break;
+                case "--dedup": dedup = args[i + 1]; break;
+                case "--dedup-window": dedupWindow = Long.parseLong(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        TicketRepository repository;
+        switch (store) {
+            case "concurrent": repository = new ConcurrentTicketRepository(); break;
+            case "columnar": repository = new ConcurrentTicketRepository(new ColumnarTicketStore(), 64); break;
+            default: throw new IllegalArgumentException("Unknown store: " + store);
+        }
+        TicketPersistence persistence = data == null ? null
+                : TicketPersistence.open(Paths.get(data), repository, true, 300);
+        DuplicateDetector duplicates = dedup == null ? null : new DuplicateDetector(repository,
+                DuplicateDetector.Action.valueOf(dedup.toUpperCase(Locale.ROOT)), Duration.ofMinutes(dedupWindow));
+        TicketServer server = new TicketServer(repository, port, duplicates);
+        if (slaTick > 0) {
+            MetricsRegistry metrics = server.getMetrics();
+            SlaEngine sla = new SlaEngine(repository, new UpdateService(repository, metrics), SlaPolicy.defaults(),
+                    Duration.ofSeconds(slaTick));
+            metrics.gauge("sla.pending", sla::getPendingCount);
+            metrics.gauge("sla.escalations", sla::getEscalationCount);
+            metrics.gauge("sla.status.changes", sla::getStatusChangeCount);
+            metrics.gauge("sla.conflicts", sla::getConflictCount);
+            sla.start();
+        }
+        if (metricsInterval > 0) {
+            server.getMetrics().startDump(System.out, metricsInterval, false);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                if (persistence != null) {
+                    persistence.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Could not shut down cleanly: " + e.getMessage());
+            }
+        }));
+        System.out.println("Ticket server listening on port " + server.getPort()
+                + (persistence == null ? " (in memory)" : ", " + persistence.getRecoveredTickets() + " ticket(s) restored"));
+    }
+}
@@ -0,0 +1,82 @@
+package services;
+
+import models.TicketModel;
+import repository.TicketDimension;
+import repository.TicketRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service class providing ticket statistics for supervisors in the Call Center Ticketing System.
+ * Counts by status, priority and category come from counters the repository keeps up to date
+ * on every create, update and delete, so they cost time proportional to the number of groups.
+ * Any other grouping or filter is answered by a parallel scan over the tickets.
+ */
+public class AggregationService {
+    /**
+     * Backlogs smaller than this are scanned on the calling thread, where splitting the work
+     * would cost more than it saves.
+     */
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    /**
+     * Repository instance for ticket data operations.
+     */
+    private TicketRepository repository;
+
+    /**
+     * Constructs an AggregationService with the specified ticket repository.
+     *
+     * @param repository The TicketRepository instance to be used for ticket statistics
+     */
+    public AggregationService(TicketRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Counts the tickets with the given status, priority and category.
+     * If any criterion is null or empty, it will be ignored.
+     *
+     * @param status The status to count (can be null)
+     * @param priority The priority to count (can be null)
+     * @param category The category to count (can be null)
+     * @return The number of matching tickets
+     */
+    public long count(String status, String priority, String category) {
+        return repository.countTickets(status, priority, category);
+    }
+
+    /**
+     * Counts the tickets grouped by any combination of status, priority and category.
+     *
+     * @param dimensions The fields to group by
+     * @return Map from the labels of each group's values to its number of tickets
+     */
+    public Map<List<String>, Long> countBy(TicketDimension... dimensions) {
+        return repository.countTicketsBy(dimensions);
+    }
+
+    /**
+     * Counts the tickets matching an arbitrary filter, grouped by an arbitrary key, e.g. open
+     * tickets per customer. Scans every ticket held in memory, in parallel for large backlogs,
+     * so the filter and classifier must be safe to call from several threads.
+     *
+     * @param filter Selects the tickets to count (can be null to count all tickets)
+     * @param classifier Returns the group of a ticket; must not return null
+     * @param <K> The type of the group keys
+     * @return Map from each group to its number of matching tickets
+     */
+    public <K> Map<K, Long> groupBy(Predicate<? super TicketModel> filter,
+                                    Function<? super TicketModel, ? extends K> classifier) {
+        List<TicketModel> tickets = repository.getAllTickets();
+        Stream<TicketModel> stream = tickets.size() < PARALLEL_THRESHOLD ? tickets.stream() : tickets.parallelStream();
+        if (filter != null) {
+            stream = stream.filter(filter);
+        }
+        return stream.collect(Collectors.groupingBy(classifier, Collectors.counting()));
+    }
+}
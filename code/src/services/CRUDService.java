@@ -1,10 +1,15 @@
 package services;
 
 import models.TicketModel;
+import repository.UpdateResult;
+import java.util.List;
 
 public interface CRUDService {
     void create(TicketModel ticket);
     TicketModel read(int id);
-    void update(TicketModel ticket);
+    UpdateResult update(TicketModel ticket);
     boolean delete(int id);
+    void createAll(List<TicketModel> tickets);
+    List<UpdateResult> updateAll(List<TicketModel> tickets);
+    int deleteAll(int[] ids);
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package services;
+
+import dedup.DuplicateMatch;
+import models.TicketModel;
+
+/**
+ * Outcome of creating a ticket through a CreateService that checks for duplicates.
+ */
+public final class CreateResult {
+
+    /**
+     * What happened to the new ticket.
+     */
+    public enum Outcome {
+        /** The ticket was created. */
+        CREATED,
+        /** The ticket was created with a comment naming the earlier ticket it duplicates. */
+        FLAGGED,
+        /** The call was added to the earlier ticket as a comment; no ticket was created. */
+        MERGED
+    }
+
+    private final Outcome outcome;
+    private final TicketModel ticket;
+    private final DuplicateMatch match;
+
+    private CreateResult(Outcome outcome, TicketModel ticket, DuplicateMatch match) {
+        this.outcome = outcome;
+        this.ticket = ticket;
+        this.match = match;
+    }
+
+    /**
+     * @param ticket The created ticket
+     * @param match The earlier ticket it duplicates, or null if it is not a duplicate
+     * @return A result for a ticket that was created
+     */
+    static CreateResult created(TicketModel ticket, DuplicateMatch match) {
+        return new CreateResult(match == null ? Outcome.CREATED : Outcome.FLAGGED, ticket, match);
+    }
+
+    /**
+     * @param original The earlier ticket as stored with the call added
+     * @param match The match that led to the merge
+     * @return A result for a call merged into an earlier ticket
+     */
+    static CreateResult merged(TicketModel original, DuplicateMatch match) {
+        return new CreateResult(Outcome.MERGED, original, match);
+    }
+
+    /**
+     * @return What happened to the new ticket
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return true if a ticket was created, flagged or not
+     */
+    public boolean isCreated() {
+        return outcome != Outcome.MERGED;
+    }
+
+    /**
+     * @return The created ticket, or the earlier ticket the call was merged into
+     */
+    public TicketModel getTicket() {
+        return ticket;
+    }
+
+    /**
+     * @return The earlier ticket the new one duplicates, or null if it is not a duplicate
+     */
+    public DuplicateMatch getMatch() {
+        return match;
+    }
+}
@@ -1,20 +1,52 @@
 package services;
 
+import dedup.DuplicateDetector;
+import dedup.DuplicateMatch;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import models.TicketModel;
+import models.TicketStatus;
 import repository.TicketRepository;
+import repository.UpdateResult;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
  * Abstract service class implementing the CRUDService interface, specifically focused on ticket creation.
  * This class demonstrates the Single Responsibility Principle by handling only creation-related operations.
+ * With a DuplicateDetector, every new ticket is first checked against the recent open tickets:
+ * a duplicate is either created with a comment naming the earlier ticket, or merged into it as
+ * a comment recording the repeat call, as the detector's action says.
  */
 public class CreateService implements CRUDService {
 
+    /**
+     * How long a call matching a reserved call waits for that call's ticket to be stored.
+     */
+    private static final long RESERVATION_WAIT_MILLIS = 100;
+
     /**
      * Repository instance for ticket data operations.
      */
     private TicketRepository repository;
 
+    /**
+     * Timers of the create operations, or null if the service is not instrumented.
+     */
+    private Timer createTimer;
+    private Timer createBatchTimer;
+    private LongAdder flaggedCount;
+    private LongAdder mergedCount;
+
+    /**
+     * Detector of duplicate calls, or null if every ticket is created as is.
+     */
+    private DuplicateDetector duplicates;
+
 
     /**
      * Constructs a CreateService with the specified ticket repository.
@@ -25,6 +57,49 @@ public class CreateService implements CRUDService {
         this.repository = repository;
     }
 
+    /**
+     * Constructs a CreateService that records the latency of every creation in the given registry,
+     * under the names create and create.batch, and registers the repository.tickets gauge.
+     *
+     * @param repository The TicketRepository instance to be used for ticket operations
+     * @param metrics The registry to record the metrics in
+     */
+    public CreateService(TicketRepository repository, MetricsRegistry metrics) {
+        this(repository, metrics, null);
+    }
+
+    /**
+     * Constructs a CreateService that checks new tickets for duplicates before creating them.
+     *
+     * @param repository The TicketRepository instance to be used for ticket operations
+     * @param duplicates The detector following the same repository
+     */
+    public CreateService(TicketRepository repository, DuplicateDetector duplicates) {
+        this.repository = repository;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Constructs an instrumented CreateService that checks new tickets for duplicates.
+     * Besides the timers and gauge, counts flagged and merged duplicates under create.flagged
+     * and create.merged.
+     *
+     * @param repository The TicketRepository instance to be used for ticket operations
+     * @param metrics The registry to record the metrics in
+     * @param duplicates The detector following the same repository, or null to create every ticket as is
+     */
+    public CreateService(TicketRepository repository, MetricsRegistry metrics, DuplicateDetector duplicates) {
+        this.repository = repository;
+        this.duplicates = duplicates;
+        this.createTimer = metrics.timer("create");
+        this.createBatchTimer = metrics.timer("create.batch");
+        metrics.gauge("repository.tickets", repository::getTicketCount);
+        if (duplicates != null) {
+            this.flaggedCount = metrics.counter("create.flagged");
+            this.mergedCount = metrics.counter("create.merged");
+        }
+    }
+
 
     /**
      * Creates a new ticket in the system.
@@ -34,11 +109,191 @@ public class CreateService implements CRUDService {
      */
     @Override
     public void create(TicketModel ticket) {
+        if (duplicates != null) {
+            createDeduplicated(ticket);
+            return;
+        }
+        if (createTimer == null) {
+            repository.createTicket(ticket);
+            return;
+        }
+        long start = System.nanoTime();
         repository.createTicket(ticket);
+        createTimer.record(start);
+    }
+
+    /**
+     * Creates a batch of tickets in the system in a single repository call.
+     * IDs for the batch should be taken from TicketRepository.reserveIds.
+     *
+     * @param tickets The TicketModel objects to be created
+     */
+    @Override
+    public void createAll(List<TicketModel> tickets) {
+        if (duplicates != null) {
+            createAllDeduplicated(tickets);
+            return;
+        }
+        if (createBatchTimer == null) {
+            repository.createTickets(tickets);
+            return;
+        }
+        long start = System.nanoTime();
+        repository.createTickets(tickets);
+        createBatchTimer.record(start);
+    }
+
+    /**
+     * Creates a ticket unless it duplicates an earlier one and the detector's action is MERGE,
+     * in which case the call is added to the earlier ticket instead. A flagged ticket carries a
+     * comment naming the earlier one. Without a detector, the ticket is always created.
+     * If the earlier ticket was closed or deleted in the meantime, or keeps changing, the
+     * ticket is created and flagged instead of merged.
+     * The check reserves the call in the detector, so of two concurrent calls duplicating each
+     * other the later one always finds the earlier; if that is not stored yet, it waits
+     * briefly for it, and checks again if it is never stored. If no match is stored after a
+     * few checks, the ticket is created as if it had none.
+     *
+     * @param ticket The TicketModel object to be created
+     * @return What happened, with the created ticket or the one the call was merged into
+     */
+    public CreateResult createDeduplicated(TicketModel ticket) {
+        long start = System.nanoTime();
+        DuplicateMatch match = duplicates == null ? null : duplicates.findOrReserve(ticket);
+        for (int attempt = 0; match != null && !awaitStored(match); attempt++) {
+            // The call matched was not created, e.g. it was itself a duplicate; look again,
+            // and give up on the match rather than flag a ticket that does not exist
+            match = attempt < 3 ? duplicates.findOrReserve(ticket) : null;
+        }
+        CreateResult result = match == null ? null : merge(ticket, match);
+        if (result != null) {
+            duplicates.release(ticket.getId());
+        } else {
+            flag(ticket, match);
+            try {
+                repository.createTicket(ticket);
+            } catch (RuntimeException e) {
+                if (duplicates != null) {
+                    duplicates.release(ticket.getId());
+                }
+                throw e;
+            }
+            result = CreateResult.created(ticket, match);
+        }
+        if (createTimer != null) {
+            createTimer.record(start);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a batch of tickets in a single repository call, merging or flagging the
+     * duplicates of earlier tickets as createDeduplicated does. A ticket duplicating an earlier
+     * one of the same batch cannot be merged into it, as neither is stored yet, and is created
+     * and flagged. A ticket matching a call reserved elsewhere that is not stored after a brief
+     * wait is created without a match.
+     *
+     * @param tickets The TicketModel objects to be created
+     * @return The result for each ticket, in the order of the batch
+     */
+    public List<CreateResult> createAllDeduplicated(List<TicketModel> tickets) {
+        long start = System.nanoTime();
+        List<CreateResult> results = new ArrayList<>(tickets.size());
+        List<TicketModel> batch = new ArrayList<>(tickets.size());
+        Set<Integer> batchIds = new HashSet<>();
+        for (TicketModel ticket : tickets) {
+            DuplicateMatch match = duplicates == null ? null : duplicates.findOrReserve(ticket);
+            if (match != null && !batchIds.contains(match.getTicketId()) && !awaitStored(match)) {
+                match = null;
+            }
+            CreateResult result = match == null ? null : merge(ticket, match);
+            if (result != null) {
+                duplicates.release(ticket.getId());
+            } else {
+                flag(ticket, match);
+                batch.add(ticket);
+                batchIds.add(ticket.getId());
+                result = CreateResult.created(ticket, match);
+            }
+            results.add(result);
+        }
+        if (!batch.isEmpty()) {
+            try {
+                repository.createTickets(batch);
+            } catch (RuntimeException e) {
+                if (duplicates != null) {
+                    for (TicketModel ticket : batch) {
+                        duplicates.release(ticket.getId());
+                    }
+                }
+                throw e;
+            }
+        }
+        if (createBatchTimer != null) {
+            createBatchTimer.record(start);
+        }
+        return results;
+    }
+
+    /**
+     * Adds a call to the ticket it duplicates if the detector merges duplicates, retrying a few
+     * times if the ticket changes meanwhile.
+     *
+     * @return The result, or null if the call is to be created as a ticket of its own
+     */
+    private CreateResult merge(TicketModel ticket, DuplicateMatch match) {
+        if (duplicates.getAction() != DuplicateDetector.Action.MERGE) {
+            return null;
+        }
+        for (int attempt = 0; attempt < 3; attempt++) {
+            TicketModel original = repository.getTicketById(match.getTicketId());
+            if (original == null || original.getTicketStatus() == TicketStatus.RESOLVED
+                    || original.getTicketStatus() == TicketStatus.CLOSED) {
+                return null;
+            }
+            TicketModel draft = original.copy();
+            draft.addComment(DuplicateDetector.AUTHOR, "Repeat call from " + ticket.getCustomerName()
+                    + " (" + ticket.getContactInfo() + "): " + ticket.getDescription());
+            UpdateResult updated = repository.compareAndUpdate(draft);
+            if (updated.isUpdated()) {
+                if (mergedCount != null) {
+                    mergedCount.increment();
+                }
+                return CreateResult.merged(updated.getTicket(), match);
+            }
+            if (updated.getOutcome() == UpdateResult.Outcome.NOT_FOUND) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits briefly for the ticket a call matched, if it is a call another thread reserved
+     * and is still creating.
+     *
+     * @return false if the ticket is not stored, e.g. because its reservation was released
+     */
+    private boolean awaitStored(DuplicateMatch match) {
+        int id = match.getTicketId();
+        return repository.getTicketById(id) != null
+                || duplicates.awaitCreated(id, RESERVATION_WAIT_MILLIS) && repository.getTicketById(id) != null;
+    }
+
+    private void flag(TicketModel ticket, DuplicateMatch match) {
+        if (match == null) {
+            return;
+        }
+        ticket.addComment(DuplicateDetector.AUTHOR, match.describe());
+        if (flaggedCount != null) {
+            flaggedCount.increment();
+        }
     }
 
     // Unused methods from interface - demonstrate polymorphism
     @Override public TicketModel read(int id) { return null; }
-    @Override public void update(TicketModel ticket) {}
+    @Override public UpdateResult update(TicketModel ticket) { return null; }
     @Override public boolean delete(int id) { return false; }
+    @Override public List<UpdateResult> updateAll(List<TicketModel> tickets) { return null; }
+    @Override public int deleteAll(int[] ids) { return 0; }
 }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package services;
 
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import models.TicketModel;
 import repository.TicketRepository;
+import repository.UpdateResult;
+import java.util.List;
 
 
 /**
@@ -17,6 +21,12 @@ public class DeleteService implements CRUDService {
      */
     private TicketRepository repository;
 
+    /**
+     * Timers of the delete operations, or null if the service is not instrumented.
+     */
+    private Timer deleteTimer;
+    private Timer deleteBatchTimer;
+
 
     /**
      * Constructs a DeleteService with the specified ticket repository.
@@ -28,6 +38,19 @@ public class DeleteService implements CRUDService {
         this.repository = repository;
     }
 
+    /**
+     * Constructs a DeleteService that records the latency of every deletion in the given registry,
+     * under the names delete and delete.batch.
+     *
+     * @param repository The TicketRepository instance to be used for ticket operations
+     * @param metrics The registry to record the metrics in
+     */
+    public DeleteService(TicketRepository repository, MetricsRegistry metrics) {
+        this.repository = repository;
+        this.deleteTimer = metrics.timer("delete");
+        this.deleteBatchTimer = metrics.timer("delete.batch");
+    }
+
 
     /**
      * Deletes a ticket from the system by its ID.
@@ -38,11 +61,36 @@ public class DeleteService implements CRUDService {
      */
     @Override
     public boolean delete(int id) {
-        return repository.deleteTicket(id);
+        if (deleteTimer == null) {
+            return repository.deleteTicket(id);
+        }
+        long start = System.nanoTime();
+        boolean deleted = repository.deleteTicket(id);
+        deleteTimer.record(start);
+        return deleted;
+    }
+
+    /**
+     * Deletes a batch of tickets from the system in a single repository call.
+     *
+     * @param ids The unique identifiers of the tickets to be deleted
+     * @return The number of tickets that were found and deleted
+     */
+    @Override
+    public int deleteAll(int[] ids) {
+        if (deleteBatchTimer == null) {
+            return repository.deleteTickets(ids);
+        }
+        long start = System.nanoTime();
+        int deleted = repository.deleteTickets(ids);
+        deleteBatchTimer.record(start);
+        return deleted;
     }
 
     // Unused methods from interface
     @Override public void create(TicketModel ticket) {}
     @Override public TicketModel read(int id) { return null; }
-    @Override public void update(TicketModel ticket) {}
+    @Override public UpdateResult update(TicketModel ticket) { return null; }
+    @Override public void createAll(List<TicketModel> tickets) {}
+    @Override public List<UpdateResult> updateAll(List<TicketModel> tickets) { return null; }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package services;
+
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.RepositoryListener;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Queues of open tickets waiting for an agent, one skill queue per category.
+ * Each queue is a lock-free skip list ordered by priority, highest first, and then by age.
+ * Ticket IDs are handed out in creation order, so the ID serves as the age and a ticket keeps
+ * its place when it is requeued. Priority, category and ID are packed into a single long key,
+ * which makes ordering a plain number comparison.
+ * The queue listens to repository changes: tickets are queued while their status is Open and
+ * dropped or moved as soon as their status, priority or category changes.
+ * Taking a ticket removes its key from the skip list, which succeeds for exactly one caller,
+ * so agents never take the same queued ticket and never wait on a shared lock.
+ */
+public class DispatchQueue implements RepositoryListener {
+
+    private static final long NONE = -1;
+    private static final int PRIORITIES = TicketPriority.values().length;
+
+    private final Map<Integer, NavigableSet<Long>> byCategory = new ConcurrentHashMap<>();
+
+    /**
+     * The key each queued ticket is currently stored under.
+     */
+    private final Map<Integer, Long> queuedKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Queues the ticket if it is open, or moves or removes its existing entry.
+     *
+     * @param ticket The ticket in its current state
+     */
+    public void offer(TicketModel ticket) {
+        long key = ticket.getTicketStatus() == TicketStatus.OPEN ? keyOf(ticket) : NONE;
+        queuedKeys.compute(ticket.getId(), (id, current) -> {
+            if (current != null && current == key) {
+                return current;
+            }
+            if (current != null) {
+                queueOf(current).remove(current);
+            }
+            if (key == NONE) {
+                return null;
+            }
+            byCategory.computeIfAbsent(categoryOf(key), category -> new ConcurrentSkipListSet<>()).add(key);
+            return key;
+        });
+    }
+
+    /**
+     * Removes a ticket from the queues.
+     *
+     * @param id The ID of the ticket
+     */
+    public void remove(int id) {
+        queuedKeys.computeIfPresent(id, (k, current) -> {
+            queueOf(current).remove(current);
+            return null;
+        });
+    }
+
+    /**
+     * Takes the most urgent ticket queued in any of the given categories: the one with the
+     * highest priority and, among those, the oldest.
+     * A ticket is taken by at most one caller; a caller that loses a race moves on to the next
+     * ticket. The taken ticket may have been changed since it was queued, so the caller must
+     * check that it is still open before working on it.
+     *
+     * @param categoryIds The dictionary IDs of the categories to take from, or null for all categories
+     * @return The ID of the taken ticket, or -1 if the queues are empty
+     */
+    public int take(int[] categoryIds) {
+        while (true) {
+            NavigableSet<Long> bestQueue = null;
+            long best = NONE;
+            if (categoryIds == null) {
+                for (NavigableSet<Long> queue : byCategory.values()) {
+                    long head = head(queue);
+                    if (head != NONE && (best == NONE || moreUrgent(head, best))) {
+                        best = head;
+                        bestQueue = queue;
+                    }
+                }
+            } else {
+                for (int categoryId : categoryIds) {
+                    NavigableSet<Long> queue = byCategory.get(categoryId);
+                    long head = queue == null ? NONE : head(queue);
+                    if (head != NONE && (best == NONE || moreUrgent(head, best))) {
+                        best = head;
+                        bestQueue = queue;
+                    }
+                }
+            }
+            if (bestQueue == null) {
+                return -1;
+            }
+            if (bestQueue.remove(best)) {
+                int id = idOf(best);
+                queuedKeys.remove(id, best);
+                return id;
+            }
+            // Another agent took the ticket first; look again
+        }
+    }
+
+    /**
+     * @return The number of tickets waiting in all queues
+     */
+    public int size() {
+        return queuedKeys.size();
+    }
+
+    @Override
+    public void ticketCreated(TicketModel ticket) {
+        offer(ticket);
+    }
+
+    @Override
+    public void ticketUpdated(TicketModel ticket) {
+        offer(ticket);
+    }
+
+    @Override
+    public void ticketDeleted(int id) {
+        remove(id);
+    }
+
+    @Override
+    public void ticketArchived(TicketModel ticket) {
+        remove(ticket.getId());
+    }
+
+    @Override
+    public void ticketUnarchived(TicketModel ticket) {
+        offer(ticket);
+    }
+
+    /**
+     * Packs a ticket into its queue key: the inverted priority in the top byte, so that higher
+     * priorities sort first, then the category ID, then the ticket ID in the low 32 bits.
+     */
+    private static long keyOf(TicketModel ticket) {
+        long rank = PRIORITIES - 1 - ticket.getTicketPriority().ordinal();
+        return rank << 56 | (long) ticket.getCategoryId() << 32 | (ticket.getId() & 0xFFFFFFFFL);
+    }
+
+    private static int categoryOf(long key) {
+        return (int) (key >>> 32) & 0xFFFFFF;
+    }
+
+    private static int idOf(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Compares keys of different categories by priority and then by age, ignoring the category.
+     */
+    private static boolean moreUrgent(long key, long other) {
+        long rank = key >>> 56;
+        long otherRank = other >>> 56;
+        return rank != otherRank ? rank < otherRank : idOf(key) < idOf(other);
+    }
+
+    private NavigableSet<Long> queueOf(long key) {
+        return byCategory.get(categoryOf(key));
+    }
+
+    private static long head(NavigableSet<Long> queue) {
+        // Keys are never negative, so this is the first key, or null if the queue is empty
+        Long head = queue.ceiling(0L);
+        return head == null ? NONE : head;
+    }
+}
@@ -0,0 +1,118 @@
+package services;
+
+import models.CategoryDictionary;
+import models.TicketModel;
+import models.TicketStatus;
+import repository.TicketRepository;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Service class that routes open tickets to agents in the Call Center Ticketing System.
+ * Instead of picking ticket IDs from the full ticket list, an agent asks for the next ticket
+ * and receives the most urgent open ticket in the categories they handle.
+ * Claims are atomic: every open ticket goes to exactly one agent, even when many agents claim
+ * at once. Use a ConcurrentTicketRepository when agents claim from several threads.
+ */
+public class DispatchService {
+    /**
+     * Repository instance for ticket data operations.
+     */
+    private TicketRepository repository;
+
+    /**
+     * Skill queues of the open tickets, kept current by the repository.
+     */
+    private DispatchQueue queue;
+
+    /**
+     * Constructs a DispatchService with the specified ticket repository.
+     * Queues the open tickets already held in memory and registers the queue with the
+     * repository so that later changes are routed too.
+     *
+     * @param repository The TicketRepository instance to be used for dispatching
+     */
+    public DispatchService(TicketRepository repository) {
+        this.repository = repository;
+        this.queue = new DispatchQueue();
+        repository.addListener(queue);
+        repository.streamTickets().forEach(queue::offer);
+    }
+
+    /**
+     * Claims the next ticket in any category for an agent.
+     *
+     * @param agent The name of the agent claiming the ticket
+     * @return The claimed ticket, or null if no ticket is waiting
+     */
+    public TicketModel claimNext(String agent) {
+        return claim(agent, null);
+    }
+
+    /**
+     * Claims the next ticket in the categories an agent handles.
+     * The ticket with the highest priority is chosen, the oldest first among equal priorities.
+     * Its status is set to In Progress and a comment records the agent who claimed it.
+     *
+     * @param agent The name of the agent claiming the ticket
+     * @param skills The categories the agent handles; null or empty for all categories
+     * @return The claimed ticket, or null if no ticket is waiting in those categories
+     */
+    public TicketModel claimNext(String agent, Collection<String> skills) {
+        if (skills == null || skills.isEmpty()) {
+            return claim(agent, null);
+        }
+        int[] categoryIds = new int[skills.size()];
+        int count = 0;
+        for (String skill : skills) {
+            int categoryId = CategoryDictionary.lookup(skill);
+            if (categoryId >= 0) {
+                categoryIds[count++] = categoryId;
+            }
+        }
+        return count == 0 ? null : claim(agent, Arrays.copyOf(categoryIds, count));
+    }
+
+    /**
+     * Returns a claimed ticket to the queue by setting its status back to Open.
+     * The ticket keeps its place among tickets of the same priority.
+     *
+     * @param id The ID of the ticket to release
+     * @return true if the ticket was found and released, false otherwise
+     */
+    public boolean release(int id) {
+        return repository.modifyTicket(id, ticket -> ticket.setStatus(TicketStatus.OPEN));
+    }
+
+    /**
+     * @return The number of open tickets waiting to be claimed
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes tickets from the queues until one can be moved from Open to In Progress.
+     * The status is checked under the repository's per-ticket lock, so a ticket changed after it
+     * was queued, or claimed through a stale queue entry, is skipped rather than claimed twice.
+     */
+    private TicketModel claim(String agent, int[] categoryIds) {
+        TicketModel[] claimed = new TicketModel[1];
+        while (true) {
+            int id = queue.take(categoryIds);
+            if (id < 0) {
+                return null;
+            }
+            repository.modifyTicket(id, ticket -> {
+                if (ticket.getTicketStatus() == TicketStatus.OPEN) {
+                    ticket.setStatus(TicketStatus.IN_PROGRESS);
+                    ticket.addComment(agent, "Claimed by " + agent);
+                    claimed[0] = ticket;
+                }
+            });
+            if (claimed[0] != null) {
+                return claimed[0];
+            }
+        }
+    }
+}
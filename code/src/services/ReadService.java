@@ -1,9 +1,15 @@
 package services;
 
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import models.TicketModel;
+import repository.TicketPage;
 import repository.TicketRepository;
+import repository.UpdateResult;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 
 /**
@@ -17,6 +23,14 @@ public class ReadService implements CRUDService {
      */
     private TicketRepository repository;
 
+    /**
+     * Timers and counters of the read operations, or null if the service is not instrumented.
+     */
+    private Timer readTimer;
+    private Timer readAllTimer;
+    private Timer readPageTimer;
+    private LongAdder misses;
+
     /**
      * Constructs a ReadService with the specified ticket repository.
      *
@@ -26,15 +40,40 @@ public class ReadService implements CRUDService {
         this.repository = repository;
     }
 
+    /**
+     * Constructs a ReadService that records the latency of every read in the given registry,
+     * under the names read, read.all and read.page, and counts reads of unknown IDs as read.misses.
+     *
+     * @param repository The TicketRepository instance to be used for ticket operations
+     * @param metrics The registry to record the metrics in
+     */
+    public ReadService(TicketRepository repository, MetricsRegistry metrics) {
+        this.repository = repository;
+        this.readTimer = metrics.timer("read");
+        this.readAllTimer = metrics.timer("read.all");
+        this.readPageTimer = metrics.timer("read.page");
+        this.misses = metrics.counter("read.misses");
+    }
+
     /**
      * Retrieves a specific ticket by its ID.
+     * The ticket is a snapshot of the current version; edit a copy() to update it.
      *
      * @param id The unique identifier of the ticket to retrieve
      * @return The TicketModel object if found, null otherwise
      */
     @Override
     public TicketModel read(int id) {
-        return repository.getTicketById(id);
+        if (readTimer == null) {
+            return repository.getTicketById(id);
+        }
+        long start = System.nanoTime();
+        TicketModel ticket = repository.getTicketById(id);
+        readTimer.record(start);
+        if (ticket == null) {
+            misses.increment();
+        }
+        return ticket;
     }
 
     /**
@@ -43,11 +82,47 @@ public class ReadService implements CRUDService {
      * @return A List containing all TicketModel objects in the system
      */
     public List<TicketModel> readAll() {
-        return repository.getAllTickets();
+        if (readAllTimer == null) {
+            return repository.getAllTickets();
+        }
+        long start = System.nanoTime();
+        List<TicketModel> tickets = repository.getAllTickets();
+        readAllTimer.record(start);
+        return tickets;
+    }
+
+    /**
+     * Retrieves one page of tickets.
+     * Pass the token of the returned page back in to read the following page.
+     *
+     * @param continuationToken The token returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of tickets on the page
+     * @return A TicketPage with the tickets and the token for the following page
+     */
+    public TicketPage readPage(String continuationToken, int pageSize) {
+        if (readPageTimer == null) {
+            return repository.getTicketPage(continuationToken, pageSize);
+        }
+        long start = System.nanoTime();
+        TicketPage page = repository.getTicketPage(continuationToken, pageSize);
+        readPageTimer.record(start);
+        return page;
+    }
+
+    /**
+     * Returns a lazy stream over all tickets, fetched from the repository as it is consumed.
+     *
+     * @return A Stream of TicketModel objects in insertion order
+     */
+    public Stream<TicketModel> streamAll() {
+        return repository.streamTickets();
     }
 
     // Unused methods from interface
     @Override public void create(TicketModel ticket) {}
-    @Override public void update(TicketModel ticket) {}
+    @Override public UpdateResult update(TicketModel ticket) { return null; }
     @Override public boolean delete(int id) { return false; }
+    @Override public void createAll(List<TicketModel> tickets) {}
+    @Override public List<UpdateResult> updateAll(List<TicketModel> tickets) { return null; }
+    @Override public int deleteAll(int[] ids) { return 0; }
 }
\ No newline at end of file
@@ -0,0 +1,380 @@
+package services;
+
+import models.CategoryDictionary;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.RepositoryListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+
+/**
+ * Bounded cache of searchByCriteria results, evicting the least recently used entry when full.
+ * Entries are keyed on the normalized criteria, so "open" and "Open" share an entry.
+ * The cache listens to repository changes and drops exactly the entries whose set of results
+ * a change can affect: those that held a deleted ticket, and those that a created or updated
+ * ticket enters or leaves. An update that keeps a ticket in a result, such as a new comment,
+ * replaces the cached ticket with its new version instead, so the entry stays cached.
+ */
+public class SearchResultCache implements RepositoryListener {
+
+    /**
+     * Normalized search criteria; null fields and a category ID of -1 are not filtered on.
+     * The category is keyed by its dictionary ID, so it is matched exactly as the index matches it.
+     */
+    private static final class Key {
+        final String customerName;
+        final int categoryId;
+        final TicketStatus status;
+        final TicketPriority priority;
+
+        Key(String customerName, int categoryId, TicketStatus status, TicketPriority priority) {
+            this.customerName = customerName;
+            this.categoryId = categoryId;
+            this.status = status;
+            this.priority = priority;
+        }
+
+        boolean matches(TicketModel ticket) {
+            return (customerName == null || customerName.equals(normalize(ticket.getCustomerName())))
+                    && (categoryId < 0 || categoryId == ticket.getCategoryId())
+                    && (status == null || status == ticket.getTicketStatus())
+                    && (priority == null || priority == ticket.getTicketPriority());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return Objects.equals(customerName, key.customerName) && categoryId == key.categoryId
+                    && status == key.status && priority == key.priority;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(customerName, categoryId, status, priority);
+        }
+    }
+
+    /**
+     * Cached results together with their ticket IDs in sorted order, for fast membership checks,
+     * and the position of each ID in the results.
+     */
+    private static final class Entry {
+        final List<TicketModel> results;
+        final int[] sortedIds;
+        final int[] positions;
+
+        Entry(List<TicketModel> results) {
+            this.results = results;
+            long[] pairs = new long[results.size()];
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = (long) results.get(i).getId() << 32 | i;
+            }
+            Arrays.sort(pairs);
+            this.sortedIds = new int[pairs.length];
+            this.positions = new int[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                sortedIds[i] = (int) (pairs[i] >> 32);
+                positions[i] = (int) pairs[i];
+            }
+        }
+
+        /**
+         * Creates an entry for results holding the same tickets as another entry, in the same order.
+         */
+        Entry(List<TicketModel> results, Entry previous) {
+            this.results = results;
+            this.sortedIds = previous.sortedIds;
+            this.positions = previous.positions;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(sortedIds, id) >= 0;
+        }
+
+        /**
+         * @return The position of the ticket in the results, or -1 if it is not one of them
+         */
+        int positionOf(int id) {
+            int found = Arrays.binarySearch(sortedIds, id);
+            return found >= 0 ? positions[found] : -1;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs a cache holding at most the given number of result lists.
+     *
+     * @param capacity The maximum number of cached queries
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SearchResultCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > SearchResultCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached results for the given criteria, running the search and caching its
+     * results on a miss. Criteria with an unknown status, priority or category match nothing and
+     * are passed straight to the search; a category seen for the first time later would not
+     * invalidate their empty results.
+     * Results computed while a change was being applied are returned but not cached, since
+     * they may already be out of date.
+     *
+     * @param customerName The customer name criterion (can be null or empty)
+     * @param category The category criterion (can be null or empty)
+     * @param status The status criterion (can be null or empty)
+     * @param priority The priority criterion (can be null or empty)
+     * @param search Runs the search on a miss
+     * @return The results, as an unmodifiable list
+     */
+    public List<TicketModel> get(String customerName, String category, String status, String priority,
+                                 Supplier<List<TicketModel>> search) {
+        TicketStatus statusValue = isSet(status) ? TicketStatus.lookup(status) : null;
+        TicketPriority priorityValue = isSet(priority) ? TicketPriority.lookup(priority) : null;
+        int categoryId = isSet(category) ? CategoryDictionary.lookup(category) : -1;
+        if ((isSet(status) && statusValue == null) || (isSet(priority) && priorityValue == null)
+                || (isSet(category) && categoryId < 0)) {
+            return Collections.unmodifiableList(search.get());
+        }
+        Key key = new Key(isSet(customerName) ? normalize(customerName) : null,
+                categoryId, statusValue, priorityValue);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.results;
+            }
+        }
+        misses.increment();
+        long before = generation.get();
+        List<TicketModel> results = Collections.unmodifiableList(search.get());
+        synchronized (entries) {
+            if (generation.get() == before) {
+                entries.put(key, new Entry(results));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Removes every cached entry.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return The number of cached queries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The maximum number of cached queries
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of searches answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of searches that had to run against the repository
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries dropped to make room for new ones
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of entries dropped because a change affected their results
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return String.format("SearchResultCache[size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, invalidations=%d]",
+                size(), capacity, hitCount, getMissCount(), total == 0 ? 0.0 : 100.0 * hitCount / total,
+                getEvictionCount(), getInvalidationCount());
+    }
+
+    @Override
+    public void ticketCreated(TicketModel ticket) {
+        invalidate((key, entry) -> key.matches(ticket));
+    }
+
+    @Override
+    public void ticketUpdated(TicketModel ticket) {
+        refresh(Collections.singletonList(ticket));
+    }
+
+    @Override
+    public void ticketDeleted(int id) {
+        invalidate((key, entry) -> entry.contains(id));
+    }
+
+    @Override
+    public void ticketArchived(TicketModel ticket) {
+        // Archived tickets are still found, but as copies rather than the cached live objects
+        invalidate((key, entry) -> entry.contains(ticket.getId()));
+    }
+
+    @Override
+    public void ticketUnarchived(TicketModel ticket) {
+        ticketUpdated(ticket);
+    }
+
+    @Override
+    public void ticketsCreated(List<TicketModel> tickets) {
+        invalidate((key, entry) -> anyMatch(tickets, key::matches));
+    }
+
+    @Override
+    public void ticketsUpdated(List<TicketModel> tickets) {
+        refresh(tickets);
+    }
+
+    @Override
+    public void ticketsDeleted(int[] ids) {
+        invalidate((key, entry) -> {
+            for (int id : ids) {
+                if (entry.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Drops the entries affected by a change. The generation is advanced first, so that a
+     * search already running cannot cache results that miss the change.
+     */
+    private void invalidate(BiPredicate<Key, Entry> affected) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> cached = iterator.next();
+                if (affected.test(cached.getKey(), cached.getValue())) {
+                    iterator.remove();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies updated tickets to the cached entries. Entries that an updated ticket enters or
+     * leaves are dropped; entries that hold an updated ticket and still match it get a copy of
+     * their results with the new version of the ticket, leaving lists already returned unchanged.
+     */
+    private void refresh(List<TicketModel> updated) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> cached = iterator.next();
+                Key key = cached.getKey();
+                Entry entry = cached.getValue();
+                List<TicketModel> refreshed = null;
+                boolean affected = false;
+                for (TicketModel ticket : updated) {
+                    int position = entry.positionOf(ticket.getId());
+                    if ((position >= 0) != key.matches(ticket)) {
+                        affected = true;
+                        break;
+                    }
+                    if (position >= 0) {
+                        if (refreshed == null) {
+                            refreshed = new ArrayList<>(entry.results);
+                        }
+                        refreshed.set(position, ticket);
+                    }
+                }
+                if (affected) {
+                    iterator.remove();
+                    invalidations.increment();
+                } else if (refreshed != null) {
+                    cached.setValue(new Entry(Collections.unmodifiableList(refreshed), entry));
+                }
+            }
+        }
+    }
+
+    private static boolean anyMatch(List<TicketModel> tickets, Predicate<TicketModel> predicate) {
+        for (TicketModel ticket : tickets) {
+            if (predicate.test(ticket)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isSet(String criterion) {
+        return criterion != null && !criterion.isEmpty();
+    }
+}
@@ -1,8 +1,13 @@
 package services;
 
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import models.TicketModel;
 import repository.TicketRepository;
 import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
 /**
  * Service class providing search functionality for tickets in the Call Center Ticketing System.
@@ -14,6 +19,22 @@ public class SearchService {
      */
     private TicketRepository repository;
 
+    /**
+     * Cache of searchByCriteria results, or null if caching is disabled.
+     */
+    private SearchResultCache cache;
+
+    /**
+     * Timers and distributions of the searches, or null if the service is not instrumented.
+     */
+    private Timer criteriaTimer;
+    private Histogram criteriaScanned;
+    private Histogram criteriaResults;
+    private Timer textTimer;
+    private Timer fuzzyTimer;
+    private Timer namesTimer;
+    private Timer filterTimer;
+
     /**
      * Constructs a SearchService with the specified ticket repository.
      *
@@ -23,6 +44,58 @@ public class SearchService {
         this.repository = repository;
     }
 
+    /**
+     * Constructs a SearchService that caches the results of searchByCriteria.
+     * The cache registers itself with the repository so that changes invalidate
+     * the affected results.
+     *
+     * @param repository The TicketRepository instance to be used for ticket search operations
+     * @param cacheCapacity The maximum number of distinct searches to keep cached
+     */
+    public SearchService(TicketRepository repository, int cacheCapacity) {
+        this.repository = repository;
+        this.cache = new SearchResultCache(cacheCapacity);
+        repository.addListener(cache);
+    }
+
+    /**
+     * Constructs a SearchService that records the latency of every search in the given registry.
+     * searchByCriteria is timed as search.criteria, with the number of tickets it examined and
+     * returned as the search.criteria.scanned and search.criteria.results distributions; the other
+     * searches are timed as search.text, search.fuzzy, search.names and search.filter.
+     *
+     * @param repository The TicketRepository instance to be used for ticket search operations
+     * @param metrics The registry to record the metrics in
+     */
+    public SearchService(TicketRepository repository, MetricsRegistry metrics) {
+        this.repository = repository;
+        instrument(metrics);
+    }
+
+    /**
+     * Constructs a SearchService that caches the results of searchByCriteria and records the
+     * latency of every search in the given registry, like SearchService(repository, metrics).
+     * Cache hits examine no tickets, so only misses are recorded in search.criteria.scanned.
+     *
+     * @param repository The TicketRepository instance to be used for ticket search operations
+     * @param cacheCapacity The maximum number of distinct searches to keep cached
+     * @param metrics The registry to record the metrics in
+     */
+    public SearchService(TicketRepository repository, int cacheCapacity, MetricsRegistry metrics) {
+        this(repository, cacheCapacity);
+        instrument(metrics);
+    }
+
+    private void instrument(MetricsRegistry metrics) {
+        criteriaTimer = metrics.timer("search.criteria");
+        criteriaScanned = metrics.histogram("search.criteria.scanned");
+        criteriaResults = metrics.histogram("search.criteria.results");
+        textTimer = metrics.timer("search.text");
+        fuzzyTimer = metrics.timer("search.fuzzy");
+        namesTimer = metrics.timer("search.names");
+        filterTimer = metrics.timer("search.filter");
+    }
+
     /**
      * Searches for tickets using multiple criteria.
      * If any criterion is null or empty, it will be ignored in the search.
@@ -31,10 +104,121 @@ public class SearchService {
      * @param category The category to search for (can be null)
      * @param status The status to search for (can be null)
      * @param priority The priority to search for (can be null)
-     * @return List of tickets matching all non-null criteria
+     * @return List of tickets matching all non-null criteria; unmodifiable when caching is enabled
      */
     public List<TicketModel> searchByCriteria(String customerName, String category,
                                               String status, String priority) {
-        return repository.searchByCriteria(customerName, category, status, priority);
+        if (criteriaTimer == null) {
+            if (cache == null) {
+                return repository.searchByCriteria(customerName, category, status, priority);
+            }
+            return cache.get(customerName, category, status, priority,
+                    () -> repository.searchByCriteria(customerName, category, status, priority));
+        }
+        long start = System.nanoTime();
+        List<TicketModel> results;
+        if (cache == null) {
+            results = repository.searchByCriteria(customerName, category, status, priority, criteriaScanned);
+        } else {
+            results = cache.get(customerName, category, status, priority,
+                    () -> repository.searchByCriteria(customerName, category, status, priority, criteriaScanned));
+        }
+        criteriaTimer.record(start);
+        criteriaResults.record(results.size());
+        return results;
+    }
+
+    /**
+     * Returns the result cache, for example to read its hit, miss and eviction counters.
+     *
+     * @return The SearchResultCache, or null if caching is disabled
+     */
+    public SearchResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Suggests customer names matching what has been typed so far.
+     *
+     * @param prefix The beginning of the customer name (or of one of its words)
+     * @param limit The maximum number of suggestions
+     * @return List of customer names, names starting with the prefix first
+     */
+    public List<String> autocompleteCustomerName(String prefix, int limit) {
+        if (namesTimer == null) {
+            return repository.suggestCustomerNames(prefix, limit);
+        }
+        long start = System.nanoTime();
+        List<String> names = repository.suggestCustomerNames(prefix, limit);
+        namesTimer.record(start);
+        return names;
+    }
+
+    /**
+     * Searches for tickets by customer name, tolerating typos.
+     *
+     * @param customerName The customer name, possibly misspelled
+     * @param maxEdits The maximum number of wrong, missing, extra or swapped letters
+     * @param limit The maximum number of tickets to return
+     * @return List of tickets of the closest matching customers
+     */
+    public List<TicketModel> searchByFuzzyCustomerName(String customerName, int maxEdits, int limit) {
+        if (fuzzyTimer == null) {
+            return repository.searchByFuzzyCustomerName(customerName, maxEdits, limit);
+        }
+        long start = System.nanoTime();
+        List<TicketModel> tickets = repository.searchByFuzzyCustomerName(customerName, maxEdits, limit);
+        fuzzyTimer.record(start);
+        return tickets;
+    }
+
+    /**
+     * Searches ticket descriptions and comments for the given words.
+     * Words must all occur in a ticket; use OR between words for alternatives and
+     * double quotes for an exact phrase.
+     *
+     * @param query The words or phrases to search for
+     * @param limit The maximum number of tickets to return
+     * @return List of matching tickets, most relevant first
+     */
+    public List<TicketModel> searchText(String query, int limit) {
+        return searchText(query, limit, null);
+    }
+
+    /**
+     * Searches ticket descriptions and comments among some tickets only, such as those found
+     * by searchByCriteria; the limit applies to the tickets allowed, best match first.
+     *
+     * @param query The words or phrases to search for
+     * @param limit The maximum number of tickets to return
+     * @param allowedIds Tells which ticket IDs may be returned, or null to allow all
+     * @return List of matching allowed tickets, most relevant first
+     */
+    public List<TicketModel> searchText(String query, int limit, IntPredicate allowedIds) {
+        if (textTimer == null) {
+            return repository.searchText(query, limit, allowedIds);
+        }
+        long start = System.nanoTime();
+        List<TicketModel> tickets = repository.searchText(query, limit, allowedIds);
+        textTimer.record(start);
+        return tickets;
+    }
+
+    /**
+     * Searches for tickets matching an arbitrary condition by scanning all tickets in parallel.
+     * Use searchByCriteria where possible; this is for conditions it cannot express.
+     *
+     * @param filter The condition tickets must satisfy; must be safe to call from several threads
+     * @param limit The maximum number of tickets to return
+     * @return List of the first matching tickets, in the order they were created
+     */
+    public List<TicketModel> searchByFilter(Predicate<? super TicketModel> filter, int limit) {
+        if (filterTimer == null) {
+            return repository.scanTickets(filter, limit);
+        }
+        long start = System.nanoTime();
+        List<TicketModel> tickets = repository.scanTickets(filter, limit);
+        filterTimer.record(start);
+        return tickets;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,12 @@
 package services;
 
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import models.TicketModel;
 import repository.TicketRepository;
+import repository.UpdateResult;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service class implementing the CRUDService interface, specifically focused on ticket update operations.
@@ -16,6 +21,13 @@ public class UpdateService implements CRUDService {
      */
     private TicketRepository repository;
 
+    /**
+     * Timers and counters of the update operations, or null if the service is not instrumented.
+     */
+    private Timer updateTimer;
+    private Timer updateBatchTimer;
+    private LongAdder conflicts;
+
     /**
      * Constructs an UpdateService with the specified ticket repository.
             * Uses dependency injection to maintain loose coupling between service and repository layers.
@@ -27,18 +39,72 @@ public class UpdateService implements CRUDService {
     }
 
     /**
-     * Updates an existing ticket in the system.
-     * Delegates the update operation to the repository layer.
+     * Constructs an UpdateService that records the latency of every update in the given registry,
+     * under the names update and update.batch, and counts rejected stale updates as update.conflicts.
+     *
+     * @param repository The TicketRepository instance to be used for ticket operations
+     * @param metrics The registry to record the metrics in
+     */
+    public UpdateService(TicketRepository repository, MetricsRegistry metrics) {
+        this.repository = repository;
+        this.updateTimer = metrics.timer("update");
+        this.updateBatchTimer = metrics.timer("update.batch");
+        this.conflicts = metrics.counter("update.conflicts");
+    }
+
+    /**
+     * Updates an existing ticket in the system, unless it changed since it was read.
+     * Pass a copy() of the ticket returned by the ReadService with the changes applied.
+     * If another version was stored in the meantime nothing is changed and the result holds
+     * the current version, so the change can be shown to the agent again or reapplied.
+     *
+     * @param ticket The edited copy of the ticket
+     * @return The outcome of the update
+     * @throws IllegalArgumentException if the ticket is a stored ticket changed in place
+     */
+    @Override
+    public UpdateResult update(TicketModel ticket) {
+        if (updateTimer == null) {
+            return repository.compareAndUpdate(ticket);
+        }
+        long start = System.nanoTime();
+        UpdateResult result = repository.compareAndUpdate(ticket);
+        updateTimer.record(start);
+        if (result.getOutcome() == UpdateResult.Outcome.CONFLICT) {
+            conflicts.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Updates a batch of existing tickets in a single repository call.
+     * As with update, each ticket is only stored if it did not change since it was read;
+     * the others are left unchanged and reported with their current version.
      *
-     * @param ticket The TicketModel object containing the updated ticket information
+     * @param tickets Edited copies of the tickets returned by the ReadService
+     * @return The outcome of each update, in the order of the batch
+     * @throws IllegalArgumentException if a ticket is a stored ticket changed in place
      */
     @Override
-    public void update(TicketModel ticket) {
-        repository.updateTicket(ticket);
+    public List<UpdateResult> updateAll(List<TicketModel> tickets) {
+        if (updateBatchTimer == null) {
+            return repository.updateTickets(tickets);
+        }
+        long start = System.nanoTime();
+        List<UpdateResult> results = repository.updateTickets(tickets);
+        updateBatchTimer.record(start);
+        for (UpdateResult result : results) {
+            if (result.getOutcome() == UpdateResult.Outcome.CONFLICT) {
+                conflicts.increment();
+            }
+        }
+        return results;
     }
 
     // Unused methods from interface
     @Override public void create(TicketModel ticket) {}
     @Override public TicketModel read(int id) { return null; }
     @Override public boolean delete(int id) { return false; }
+    @Override public void createAll(List<TicketModel> tickets) {}
+    @Override public int deleteAll(int[] ids) { return 0; }
 }
\ No newline at end of file
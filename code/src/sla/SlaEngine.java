@@ -0,0 +1,319 @@
+package sla;
+
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import repository.RepositoryListener;
+import repository.TicketRepository;
+import repository.UpdateResult;
+import services.UpdateService;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Enforces an SlaPolicy on the tickets of a repository.
+ * Every ticket with a rule for its status and priority has a deadline: the time of its last
+ * change plus the rule's limit. Deadlines are kept in a TimingWheel keyed by ticket ID and are
+ * moved whenever the repository reports a change, so any update restarts the clock. Once a
+ * deadline passes, the ticket's priority is raised or its status changed through the
+ * UpdateService, with a comment explaining why; the new version then gets its own deadline.
+ * Expired deadlines are collected tick by tick and acted on in a batch, outside the lock that
+ * guards the wheel, so agents' updates are never held up by escalations. An escalation that
+ * races an agent's update loses and is dropped, since that update restarts the clock anyway.
+ * Tickets in the archive have no deadline.
+ */
+public final class SlaEngine implements RepositoryListener, Closeable {
+
+    /**
+     * Author of the comments added to escalated tickets.
+     */
+    public static final String AUTHOR = "SLA";
+
+    private static final TicketPriority[] PRIORITIES = TicketPriority.values();
+
+    private final TicketRepository repository;
+    private final UpdateService updateService;
+    private final SlaPolicy policy;
+    private final long tickMillis;
+
+    /**
+     * Pending deadlines; guarded by its own monitor.
+     */
+    private final TimingWheel wheel;
+
+    /**
+     * Serializes advanceTo and guards the batch of expired ticket IDs.
+     */
+    private final Object advanceLock = new Object();
+    private final IntConsumer collector = this::collect;
+    private int[] expired = new int[1024];
+    private int expiredCount;
+
+    private final LongAdder escalations = new LongAdder();
+    private final LongAdder statusChanges = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Constructs an engine, schedules the deadlines of the tickets held in memory and starts
+     * following the repository's changes. Call start to act on deadlines as they pass, or
+     * advanceTo to drive the engine by hand.
+     *
+     * @param repository The repository whose tickets to watch
+     * @param updateService The service through which escalations are stored
+     * @param policy The rules deciding deadlines and actions
+     * @param tick The resolution of deadlines; deadlines are acted on up to one tick late
+     * @throws IllegalArgumentException if the tick is shorter than a millisecond
+     */
+    public SlaEngine(TicketRepository repository, UpdateService updateService, SlaPolicy policy, Duration tick) {
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond: " + tick);
+        }
+        this.repository = repository;
+        this.updateService = updateService;
+        this.policy = policy;
+        this.tickMillis = tick.toMillis();
+        this.wheel = new TimingWheel(System.currentTimeMillis() / tickMillis);
+        repository.addListener(this);
+        repository.streamTickets().forEach(this::schedule);
+    }
+
+    /**
+     * Starts acting on deadlines as they pass, on a daemon thread that advances once per tick.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sla-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::advanceQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Acts on every deadline that passed up to the given time.
+     *
+     * @param nowMillis The current time in milliseconds since the epoch
+     * @return The number of tickets escalated or moved to another status
+     */
+    public int advanceTo(long nowMillis) {
+        synchronized (advanceLock) {
+            expiredCount = 0;
+            synchronized (wheel) {
+                wheel.advance(nowMillis / tickMillis, collector);
+            }
+            int applied = 0;
+            for (int i = 0; i < expiredCount; i++) {
+                if (expire(expired[i], nowMillis)) {
+                    applied++;
+                }
+            }
+            return applied;
+        }
+    }
+
+    /**
+     * @return The number of tickets with a pending deadline
+     */
+    public int getPendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Returns the deadline of a ticket, rounded up to the engine's tick.
+     *
+     * @param id The ID of the ticket
+     * @return The deadline in milliseconds since the epoch, or -1 if the ticket has none
+     */
+    public long getDeadline(int id) {
+        long deadline;
+        synchronized (wheel) {
+            deadline = wheel.getDeadline(id);
+        }
+        return deadline < 0 ? -1 : deadline * tickMillis;
+    }
+
+    /**
+     * @return The number of tickets whose priority was raised
+     */
+    public long getEscalationCount() {
+        return escalations.sum();
+    }
+
+    /**
+     * @return The number of tickets moved to another status
+     */
+    public long getStatusChangeCount() {
+        return statusChanges.sum();
+    }
+
+    /**
+     * @return The number of escalations dropped because the ticket changed in the meantime
+     */
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    /**
+     * Stops acting on deadlines and following the repository.
+     */
+    @Override
+    public synchronized void close() {
+        repository.removeListener(this);
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    @Override
+    public void ticketCreated(TicketModel ticket) {
+        schedule(ticket);
+    }
+
+    @Override
+    public void ticketUpdated(TicketModel ticket) {
+        schedule(ticket);
+    }
+
+    @Override
+    public void ticketUnarchived(TicketModel ticket) {
+        schedule(ticket);
+    }
+
+    @Override
+    public void ticketDeleted(int id) {
+        synchronized (wheel) {
+            wheel.cancel(id);
+        }
+    }
+
+    @Override
+    public void ticketArchived(TicketModel ticket) {
+        ticketDeleted(ticket.getId());
+    }
+
+    @Override
+    public void ticketsCreated(List<TicketModel> tickets) {
+        scheduleAll(tickets);
+    }
+
+    @Override
+    public void ticketsUpdated(List<TicketModel> tickets) {
+        scheduleAll(tickets);
+    }
+
+    @Override
+    public void ticketsDeleted(int[] ids) {
+        synchronized (wheel) {
+            for (int id : ids) {
+                wheel.cancel(id);
+            }
+        }
+    }
+
+    private void schedule(TicketModel ticket) {
+        synchronized (wheel) {
+            scheduleLocked(ticket);
+        }
+    }
+
+    private void scheduleAll(List<TicketModel> tickets) {
+        synchronized (wheel) {
+            for (TicketModel ticket : tickets) {
+                scheduleLocked(ticket);
+            }
+        }
+    }
+
+    private void scheduleLocked(TicketModel ticket) {
+        long limit = policy.getLimitMillis(ticket.getTicketStatus(), ticket.getTicketPriority());
+        if (limit == 0) {
+            wheel.cancel(ticket.getId());
+        } else {
+            // Round up, so a deadline is never acted on before it has passed
+            wheel.schedule(ticket.getId(), Math.ceilDiv(ticket.getUpdatedAt() + limit, tickMillis));
+        }
+    }
+
+    private void collect(int id) {
+        if (expiredCount == expired.length) {
+            expired = Arrays.copyOf(expired, expiredCount * 2);
+        }
+        expired[expiredCount++] = id;
+    }
+
+    /**
+     * Escalates a ticket whose deadline expired, unless it changed after the deadline was set.
+     *
+     * @return true if the ticket was updated
+     */
+    private boolean expire(int id, long nowMillis) {
+        TicketModel ticket = repository.getTicketById(id);
+        if (ticket == null) {
+            return false;
+        }
+        TicketStatus status = ticket.getTicketStatus();
+        TicketPriority priority = ticket.getTicketPriority();
+        long limit = policy.getLimitMillis(status, priority);
+        if (limit == 0) {
+            return false;
+        }
+        if (ticket.getUpdatedAt() + limit > nowMillis) {
+            // Changed since the deadline was collected; its update already set the new deadline
+            return false;
+        }
+        TicketModel draft = ticket.copy();
+        TicketStatus target = policy.getTargetStatus(status, priority);
+        if (target != null) {
+            draft.setStatus(target);
+            draft.addComment(AUTHOR, "No change for " + format(limit) + ", status changed from "
+                    + status.getLabel() + " to " + target.getLabel());
+        } else {
+            TicketPriority raised = PRIORITIES[priority.ordinal() + 1];
+            draft.setPriority(raised);
+            draft.addComment(AUTHOR, "No change for " + format(limit) + ", priority raised from "
+                    + priority.getLabel() + " to " + raised.getLabel());
+        }
+        UpdateResult result = updateService.update(draft);
+        if (!result.isUpdated()) {
+            conflicts.increment();
+            return false;
+        }
+        (target != null ? statusChanges : escalations).increment();
+        return true;
+    }
+
+    private void advanceQuietly() {
+        try {
+            advanceTo(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            System.err.println("SLA escalation failed: " + e.getMessage());
+        }
+    }
+
+    private static String format(long millis) {
+        Duration duration = Duration.ofMillis(millis);
+        if (duration.toDaysPart() > 0 && duration.toHoursPart() == 0 && duration.toMinutesPart() == 0) {
+            return duration.toDays() + " day(s)";
+        }
+        if (duration.toMinutesPart() == 0 && duration.toSecondsPart() == 0 && duration.toHours() > 0) {
+            return duration.toHours() + " hour(s)";
+        }
+        if (duration.toSecondsPart() == 0 && duration.toMillisPart() == 0 && duration.toMinutes() > 0) {
+            return duration.toMinutes() + " minute(s)";
+        }
+        return millis + " ms";
+    }
+}
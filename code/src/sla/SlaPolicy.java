@@ -0,0 +1,136 @@
+package sla;
+
+import models.TicketPriority;
+import models.TicketStatus;
+import java.time.Duration;
+
+/**
+ * Service-level rules: for every combination of status and priority, how long a ticket may go
+ * without any change, and what happens to it when that time is up. The action either raises the
+ * priority by one level, or moves the ticket to another status.
+ * Rules are looked up from arrays indexed by status and priority, so finding the deadline of a
+ * ticket does not allocate.
+ */
+public final class SlaPolicy {
+
+    private static final int STATUSES = TicketStatus.values().length;
+    private static final int PRIORITIES = TicketPriority.values().length;
+
+    /**
+     * Milliseconds a ticket may go unchanged, or 0 for no deadline, by status and priority.
+     */
+    private final long[] limits = new long[STATUSES * PRIORITIES];
+
+    /**
+     * Status to move the ticket to when the time is up, or null to raise its priority instead.
+     */
+    private final TicketStatus[] targets = new TicketStatus[STATUSES * PRIORITIES];
+
+    /**
+     * Constructs a policy without rules; no ticket has a deadline.
+     */
+    public SlaPolicy() {
+    }
+
+    /**
+     * Returns the default policy: open tickets are escalated after 24 hours at Low, 4 hours at
+     * Medium and 1 hour at High; tickets in progress after 3 days at Low, 1 day at Medium and 8 hours
+     * at High; and resolved tickets are closed after 7 days without a change.
+     *
+     * @return A new policy with the default rules
+     */
+    public static SlaPolicy defaults() {
+        SlaPolicy policy = new SlaPolicy();
+        policy.escalateAfter(TicketStatus.OPEN, TicketPriority.LOW, Duration.ofHours(24));
+        policy.escalateAfter(TicketStatus.OPEN, TicketPriority.MEDIUM, Duration.ofHours(4));
+        policy.escalateAfter(TicketStatus.OPEN, TicketPriority.HIGH, Duration.ofHours(1));
+        policy.escalateAfter(TicketStatus.IN_PROGRESS, TicketPriority.LOW, Duration.ofDays(3));
+        policy.escalateAfter(TicketStatus.IN_PROGRESS, TicketPriority.MEDIUM, Duration.ofDays(1));
+        policy.escalateAfter(TicketStatus.IN_PROGRESS, TicketPriority.HIGH, Duration.ofHours(8));
+        for (TicketPriority priority : TicketPriority.values()) {
+            policy.moveAfter(TicketStatus.RESOLVED, priority, Duration.ofDays(7), TicketStatus.CLOSED);
+        }
+        return policy;
+    }
+
+    /**
+     * Raises the priority of tickets that stay unchanged at the given status and priority for
+     * the given time. The raised priority then starts its own deadline, if it has a rule.
+     *
+     * @param status The status the rule applies to
+     * @param priority The priority the rule applies to; must be below Critical
+     * @param after How long the ticket may go unchanged
+     * @return This policy
+     * @throws IllegalArgumentException if the priority is Critical or the duration is not positive
+     */
+    public SlaPolicy escalateAfter(TicketStatus status, TicketPriority priority, Duration after) {
+        if (priority.ordinal() == PRIORITIES - 1) {
+            throw new IllegalArgumentException("Cannot escalate above " + priority);
+        }
+        return setRule(status, priority, after, null);
+    }
+
+    /**
+     * Moves tickets that stay unchanged at the given status and priority for the given time to
+     * another status.
+     *
+     * @param status The status the rule applies to
+     * @param priority The priority the rule applies to
+     * @param after How long the ticket may go unchanged
+     * @param target The status to move the ticket to
+     * @return This policy
+     * @throws IllegalArgumentException if the target equals the status or the duration is not positive
+     */
+    public SlaPolicy moveAfter(TicketStatus status, TicketPriority priority, Duration after, TicketStatus target) {
+        if (target == status) {
+            throw new IllegalArgumentException("Target status must differ from " + status);
+        }
+        return setRule(status, priority, after, target);
+    }
+
+    /**
+     * Removes the rule for a status and priority, so such tickets have no deadline.
+     *
+     * @param status The status
+     * @param priority The priority
+     * @return This policy
+     */
+    public SlaPolicy clear(TicketStatus status, TicketPriority priority) {
+        int rule = indexOf(status, priority);
+        limits[rule] = 0;
+        targets[rule] = null;
+        return this;
+    }
+
+    /**
+     * @param status The status of a ticket
+     * @param priority The priority of a ticket
+     * @return Milliseconds the ticket may go unchanged, or 0 if it has no deadline
+     */
+    public long getLimitMillis(TicketStatus status, TicketPriority priority) {
+        return limits[indexOf(status, priority)];
+    }
+
+    /**
+     * @param status The status of a ticket
+     * @param priority The priority of a ticket
+     * @return The status the ticket is moved to when its time is up, or null if its priority is raised
+     */
+    public TicketStatus getTargetStatus(TicketStatus status, TicketPriority priority) {
+        return targets[indexOf(status, priority)];
+    }
+
+    private SlaPolicy setRule(TicketStatus status, TicketPriority priority, Duration after, TicketStatus target) {
+        if (after.isNegative() || after.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive: " + after);
+        }
+        int rule = indexOf(status, priority);
+        limits[rule] = after.toMillis();
+        targets[rule] = target;
+        return this;
+    }
+
+    private static int indexOf(TicketStatus status, TicketPriority priority) {
+        return status.ordinal() * PRIORITIES + priority.ordinal();
+    }
+}
@@ -0,0 +1,225 @@
+package sla;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hierarchical timing wheel holding at most one deadline per non-negative int key, such as a
+ * ticket ID.
+ * Time advances in ticks. Each of the four levels has 64 slots: a slot of level 0 covers one tick,
+ * a slot of level 1 covers 64 ticks, and so on, so the wheel spans 64^4 (about 16.7 million) ticks
+ * with 256 slots. A deadline goes to the lowest level whose range reaches it; when time enters the
+ * range of a higher-level slot, its deadlines are cascaded down, and when a level-0 slot's tick
+ * comes, all its deadlines expire together. Deadlines further away wait in the top level and are
+ * cascaded again until they come into range.
+ * Scheduling, rescheduling and cancelling take constant time and do not allocate: each slot is a
+ * doubly linked list threaded through arrays indexed by key, which grow with the highest key.
+ * Not thread-safe.
+ */
+public final class TimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+    private static final int NONE = -1;
+
+    /**
+     * First key of each slot's list, level by level.
+     */
+    private final int[] heads = new int[LEVELS * SLOTS];
+
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    private int[] slotOf = new int[0];
+    private long[] deadlines = new long[0];
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * Constructs an empty wheel.
+     *
+     * @param startTick The current tick
+     */
+    public TimingWheel(long startTick) {
+        this.currentTick = startTick;
+        Arrays.fill(heads, NONE);
+    }
+
+    /**
+     * Schedules the deadline of a key, replacing its current deadline if it has one.
+     * A deadline that is not after the current tick expires on the next tick.
+     *
+     * @param key The key, at least 0
+     * @param deadlineTick The tick at which the key expires
+     * @throws IllegalArgumentException if the key is negative
+     */
+    public void schedule(int key, long deadlineTick) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        }
+        ensureCapacity(key);
+        if (slotOf[key] != NONE) {
+            unlink(key);
+        } else {
+            size++;
+        }
+        deadlines[key] = deadlineTick;
+        // The slot of the current tick has already expired, so overdue keys go to the next one
+        link(key, deadlineTick <= currentTick ? (int) ((currentTick + 1) & SLOT_MASK) : slotFor(deadlineTick));
+    }
+
+    /**
+     * Cancels the deadline of a key.
+     *
+     * @param key The key
+     * @return true if the key had a deadline
+     */
+    public boolean cancel(int key) {
+        if (!isScheduled(key)) {
+            return false;
+        }
+        unlink(key);
+        size--;
+        return true;
+    }
+
+    /**
+     * @param key The key
+     * @return true if the key has a deadline that has not expired yet
+     */
+    public boolean isScheduled(int key) {
+        return key >= 0 && key < slotOf.length && slotOf[key] != NONE;
+    }
+
+    /**
+     * @param key The key
+     * @return The deadline tick of the key, or -1 if it has none
+     */
+    public long getDeadline(int key) {
+        return isScheduled(key) ? deadlines[key] : -1;
+    }
+
+    /**
+     * @return The number of keys with a pending deadline
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The tick the wheel has advanced to
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Advances the wheel tick by tick up to the given tick and expires the keys whose deadlines
+     * are passed, slot by slot. Each expired key is unscheduled before it is handed over, so the
+     * handler may schedule it again. Does nothing if the tick is not after the current one.
+     *
+     * @param tick The tick to advance to
+     * @param expired Receives the expired keys
+     * @return The number of expired keys
+     */
+    public int advance(long tick, IntConsumer expired) {
+        int count = 0;
+        while (currentTick < tick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                // Cascade a higher-level slot once time enters its range
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+            }
+            int slot = (int) (currentTick & SLOT_MASK);
+            int key = heads[slot];
+            heads[slot] = NONE;
+            while (key != NONE) {
+                int following = next[key];
+                slotOf[key] = NONE;
+                if (deadlines[key] > currentTick) {
+                    link(key, slotFor(deadlines[key]));
+                } else {
+                    size--;
+                    count++;
+                    expired.accept(key);
+                }
+                key = following;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves the deadlines of a slot to the slots matching their remaining time.
+     */
+    private void cascade(int slot) {
+        int key = heads[slot];
+        heads[slot] = NONE;
+        while (key != NONE) {
+            int following = next[key];
+            link(key, slotFor(deadlines[key]));
+            key = following;
+        }
+    }
+
+    /**
+     * Returns the slot of a deadline: the slot of the lowest level whose range reaches it.
+     * A deadline cascaded on its own tick goes to the level-0 slot about to expire.
+     */
+    private int slotFor(long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            return (int) (currentTick & SLOT_MASK);
+        }
+        long placed = delta < MAX_SPAN ? deadlineTick : currentTick + MAX_SPAN - 1;
+        delta = placed - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        return level * SLOTS + (int) ((placed >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private void link(int key, int slot) {
+        int head = heads[slot];
+        next[key] = head;
+        previous[key] = NONE;
+        if (head != NONE) {
+            previous[head] = key;
+        }
+        heads[slot] = key;
+        slotOf[key] = slot;
+    }
+
+    private void unlink(int key) {
+        int before = previous[key];
+        int after = next[key];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            heads[slotOf[key]] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+        slotOf[key] = NONE;
+    }
+
+    private void ensureCapacity(int key) {
+        if (key < slotOf.length) {
+            return;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(1024, Math.max(key + 1L, slotOf.length * 2L)));
+        int old = slotOf.length;
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        Arrays.fill(slotOf, old, capacity, NONE);
+    }
+}
@@ -0,0 +1,57 @@
+package transfer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats for ticket dumps.
+ */
+public enum DumpFormat {
+
+    /**
+     * Comma-separated values as described by RFC 4180, with a header row naming the columns.
+     * Fields containing commas, quotes or line breaks are quoted; an unquoted empty field is a
+     * missing value, a quoted one an empty string. Comments are held in one column as a JSON array.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line, in the form the ticket server returns tickets. On import, a line
+     * may also hold an array of such objects, as the server's ticket list is written.
+     */
+    JSON_LINES;
+
+    /**
+     * Chooses the format from a file name: files ending in .csv are CSV, files ending in .json,
+     * .jsonl or .ndjson are JSON lines.
+     *
+     * @param path The file
+     * @return The format of the file
+     * @throws IllegalArgumentException if the extension is not recognized
+     */
+    public static DumpFormat forPath(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return JSON_LINES;
+        }
+        throw new IllegalArgumentException("Cannot tell the format of " + path + "; use .csv or .jsonl");
+    }
+
+    /**
+     * Parses a format name: "csv", or "jsonl", "json" or "ndjson" for JSON lines.
+     *
+     * @param name The format name
+     * @return The matching format
+     * @throws IllegalArgumentException if the name is not a known format
+     */
+    public static DumpFormat fromString(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "csv": return CSV;
+            case "json": case "jsonl": case "ndjson": case "json_lines": return JSON_LINES;
+            default: throw new IllegalArgumentException("Unknown dump format: " + name);
+        }
+    }
+}
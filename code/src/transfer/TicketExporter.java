@@ -0,0 +1,137 @@
+package transfer;
+
+import models.TicketModel;
+import repository.TicketRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Exports the tickets held in memory to a CSV or JSON lines dump.
+ * Tickets are read through streamTickets a page at a time and encoded row by row into a
+ * direct buffer that is written to the file whenever it fills up, so memory use does not grow
+ * with the number of tickets and no list of all tickets is built. The dump is written to a
+ * temporary file that replaces the target only once complete. Archived tickets are not exported.
+ */
+public final class TicketExporter {
+
+    private final TicketRepository repository;
+    private final int bufferBytes;
+
+    /**
+     * Constructs an exporter with a 1 MiB write buffer.
+     *
+     * @param repository The repository to export
+     */
+    public TicketExporter(TicketRepository repository) {
+        this(repository, 1 << 20);
+    }
+
+    /**
+     * Constructs an exporter.
+     *
+     * @param repository The repository to export
+     * @param bufferBytes The number of bytes collected before each write
+     * @throws IllegalArgumentException if the buffer size is below 1 KiB
+     */
+    public TicketExporter(TicketRepository repository, int bufferBytes) {
+        if (bufferBytes < 1024) {
+            throw new IllegalArgumentException("Buffer must hold at least 1024 bytes: " + bufferBytes);
+        }
+        this.repository = repository;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Exports to a file in the format given by its extension.
+     *
+     * @param path The file to write
+     * @return The number of tickets and bytes written, and the throughput
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the extension is unknown
+     */
+    public TransferResult export(Path path) throws IOException {
+        return export(path, DumpFormat.forPath(path));
+    }
+
+    /**
+     * Exports to a file, replacing it if it exists.
+     *
+     * @param path The file to write
+     * @param format The format to write
+     * @return The number of tickets and bytes written, and the throughput
+     * @throws IOException if the file cannot be written
+     */
+    public TransferResult export(Path path, DumpFormat format) throws IOException {
+        long start = System.nanoTime();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferBytes);
+        StringBuilder row = new StringBuilder(512);
+        char[] chars = new char[512];
+        long rows = 0;
+        long bytes;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (format == DumpFormat.CSV) {
+                TicketRows.csvHeader(row);
+            }
+            Iterator<TicketModel> tickets = repository.streamTickets().iterator();
+            while (true) {
+                if (row.length() > chars.length) {
+                    chars = new char[Math.max(row.length(), chars.length * 2)];
+                }
+                row.getChars(0, row.length(), chars, 0);
+                encode(encoder, CharBuffer.wrap(chars, 0, row.length()), buffer, channel, false);
+                row.setLength(0);
+                if (!tickets.hasNext()) {
+                    break;
+                }
+                TicketModel ticket = tickets.next();
+                if (format == DumpFormat.CSV) {
+                    TicketRows.csv(row, ticket);
+                } else {
+                    TicketRows.jsonLine(row, ticket);
+                }
+                rows++;
+            }
+            encode(encoder, CharBuffer.allocate(0), buffer, channel, true);
+            while (encoder.flush(buffer) == CoderResult.OVERFLOW) {
+                drain(buffer, channel);
+            }
+            drain(buffer, channel);
+            channel.force(true);
+            bytes = channel.size();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new TransferResult(rows, 0, bytes, System.nanoTime() - start, List.of());
+    }
+
+    private static void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer buffer,
+                               FileChannel channel, boolean endOfInput) throws IOException {
+        while (encoder.encode(chars, buffer, endOfInput) == CoderResult.OVERFLOW) {
+            drain(buffer, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
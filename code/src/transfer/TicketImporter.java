@@ -0,0 +1,550 @@
+package transfer;
+
+import models.TicketModel;
+import repository.TicketRepository;
+import server.Json;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Imports ticket dumps into a repository through a pipeline of three stages.
+ * The calling thread reads the file through a FileChannel in chunks of about chunkBytes, cut
+ * at the last record boundary, which is a line break outside quoted CSV fields. Parser threads decode and
+ * parse the chunks in parallel and group the tickets into batches, and a single writer thread
+ * stores each batch with createTickets, so it is indexed in one pass and, when the repository
+ * is persisted, logged as one record. The stages are joined by bounded queues: when the writer
+ * falls behind, the parsers and then the reader wait, so only a few chunks and batches per
+ * parser are in memory whatever the size of the file.
+ * Tickets keep the IDs in the file. Rows without an ID get new ones, reserved in blocks, so
+ * they are unique but not in file order; batches are stored in the order they are parsed.
+ * A row that cannot be parsed, or whose ID is already taken, is rejected and reported, and
+ * the rest of the file is still imported. Rows with and without IDs should not be mixed in one
+ * file, since a new ID may be handed out before a row further on claims it.
+ */
+public final class TicketImporter {
+
+    /**
+     * Number of rejected rows whose errors are kept for the result.
+     */
+    private static final int MAX_ERRORS = 100;
+
+    /**
+     * Number of IDs a parser reserves at a time for rows without one.
+     */
+    private static final int ID_BLOCK = 1024;
+
+    /**
+     * Length beyond which a record is taken for a damaged file rather than read into memory.
+     */
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+
+    /**
+     * How often a stage waiting on a queue checks whether another stage failed.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    private static final Chunk NO_MORE_CHUNKS = new Chunk(new byte[0], 0, 0, 0, null);
+    private static final List<TicketModel> NO_MORE_BATCHES = List.of();
+
+    private final TicketRepository repository;
+    private final int parserThreads;
+    private final int batchSize;
+    private final int chunkBytes;
+    private final LongAdder imported = new LongAdder();
+
+    /**
+     * Constructs an importer with one parser per processor, batches of 1,000 tickets and 1 MiB chunks.
+     *
+     * @param repository The repository to import into
+     */
+    public TicketImporter(TicketRepository repository) {
+        this(repository, Runtime.getRuntime().availableProcessors(), 1000, 1 << 20);
+    }
+
+    /**
+     * Constructs an importer.
+     *
+     * @param repository The repository to import into
+     * @param parserThreads The number of threads parsing rows
+     * @param batchSize The number of tickets stored at a time
+     * @param chunkBytes The size of the chunks the file is read in; a row longer than this gets a larger chunk
+     * @throws IllegalArgumentException if a count or size is not positive
+     */
+    public TicketImporter(TicketRepository repository, int parserThreads, int batchSize, int chunkBytes) {
+        if (parserThreads < 1 || batchSize < 1 || chunkBytes < 1) {
+            throw new IllegalArgumentException("Threads, batch size and chunk size must be positive");
+        }
+        this.repository = repository;
+        this.parserThreads = parserThreads;
+        this.batchSize = batchSize;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Imports a file in the format given by its extension.
+     *
+     * @param path The file to import
+     * @return The number of tickets imported and rejected, and the throughput
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the extension is unknown or a CSV header is invalid
+     */
+    public TransferResult importFile(Path path) throws IOException {
+        return importFile(path, DumpFormat.forPath(path));
+    }
+
+    /**
+     * Imports a file, returning once every ticket in it is stored or rejected.
+     *
+     * @param path The file to import
+     * @param format The format of the file
+     * @return The number of tickets imported and rejected, and the throughput
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a CSV header is invalid
+     */
+    public TransferResult importFile(Path path, DumpFormat format) throws IOException {
+        return new Pipeline(format).run(path);
+    }
+
+    /**
+     * @return The number of tickets this importer stored so far, including those of imports still running
+     */
+    public long getImportedCount() {
+        return imported.sum();
+    }
+
+    /**
+     * Reserves IDs for rows without one. Serialized with advanceNextId, since the plain
+     * repository does not guard its ID counter.
+     */
+    private synchronized int reserveIds(int count) {
+        return repository.reserveIds(count);
+    }
+
+    private synchronized void advanceNextId(int id) {
+        repository.advanceNextId(id);
+    }
+
+    /**
+     * Bytes of whole records handed from the reader to a parser.
+     */
+    private static final class Chunk {
+        final byte[] data;
+        final int offset;
+        final int end;
+        final long firstLine;
+        final int[] columns;
+
+        Chunk(byte[] data, int offset, int end, long firstLine, int[] columns) {
+            this.data = data;
+            this.offset = offset;
+            this.end = end;
+            this.firstLine = firstLine;
+            this.columns = columns;
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * The queues and counters of a single import.
+     */
+    private final class Pipeline {
+
+        private final DumpFormat format;
+        private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(2 * parserThreads);
+        private final BlockingQueue<List<TicketModel>> batches = new ArrayBlockingQueue<>(2 * parserThreads);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final List<String> errors = new ArrayList<>();
+        private volatile Throwable failure;
+
+        Pipeline(DumpFormat format) {
+            this.format = format;
+        }
+
+        TransferResult run(Path path) throws IOException {
+            long start = System.nanoTime();
+            List<Thread> threads = new ArrayList<>(parserThreads + 1);
+            for (int i = 0; i < parserThreads; i++) {
+                threads.add(startStage("ticket-import-parser-" + i, new Parser()));
+            }
+            threads.add(startStage("ticket-import-writer", this::write));
+            long bytes = 0;
+            try {
+                bytes = read(path);
+                for (int i = 0; i < parserThreads; i++) {
+                    put(chunks, NO_MORE_CHUNKS);
+                }
+            } catch (CancellationException e) {
+                // Another stage failed; its error is reported below
+            } catch (Throwable e) {
+                fail(e);
+            }
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            Throwable cause = failure;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause != null) {
+                throw new IOException("Import failed", cause);
+            }
+            synchronized (errors) {
+                return new TransferResult(rows.sum(), rejected.sum(), bytes, System.nanoTime() - start, errors);
+            }
+        }
+
+        /**
+         * Reads the file and queues it chunk by chunk, each ending at a record boundary.
+         *
+         * @return The number of bytes read
+         */
+        private long read(Path path) throws IOException, InterruptedException {
+            boolean csv = format == DumpFormat.CSV;
+            int[] columns = null;
+            long bytes = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                byte[] data = new byte[chunkBytes];
+                int offset = 0;      // start of the first record not yet queued
+                int boundary = 0;    // end of the last whole record, or at most offset if none
+                int length = 0;      // bytes in data
+                long line = 1;       // line number at offset
+                long lines = 0;      // line breaks between offset and length
+                long linesAtBoundary = 0;
+                boolean quoted = false;
+                boolean closed = false;
+                byte previous = '\n';
+                while (true) {
+                    if (length == data.length) {
+                        if (boundary <= offset) {
+                            // A single record fills the chunk
+                            if (data.length - offset >= MAX_RECORD_BYTES) {
+                                throw new IllegalArgumentException("line " + line + ": record longer than "
+                                        + MAX_RECORD_BYTES + " bytes" + (quoted ? ", probably an unclosed quote" : ""));
+                            }
+                            data = Arrays.copyOf(data, data.length * 2);
+                        } else {
+                            put(chunks, new Chunk(data, offset, boundary, line, columns));
+                            int tail = length - boundary;
+                            byte[] next = new byte[Math.max(chunkBytes, tail * 2)];
+                            System.arraycopy(data, boundary, next, 0, tail);
+                            data = next;
+                            offset = 0;
+                            boundary = 0;
+                            length = tail;
+                            line += linesAtBoundary;
+                            lines -= linesAtBoundary;
+                            linesAtBoundary = 0;
+                        }
+                    }
+                    int scanned = length;
+                    int read = channel.read(ByteBuffer.wrap(data, length, data.length - length));
+                    if (read < 0) {
+                        break;
+                    }
+                    length += read;
+                    if (bytes == 0 && length >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB
+                            && (data[2] & 0xFF) == 0xBF) {
+                        // Skip the byte order mark some spreadsheets write
+                        offset = 3;
+                        scanned = 3;
+                    }
+                    bytes += read;
+                    for (int i = scanned; i < length; i++) {
+                        byte b = data[i];
+                        byte before = previous;
+                        previous = b;
+                        if (b == '"' && csv) {
+                            // A quote opens a field only at its start, or again right after a
+                            // closing quote for a doubled one; elsewhere it is a stray character
+                            // that the parser rejects, and must not hide the record boundaries
+                            if (quoted) {
+                                quoted = false;
+                                closed = true;
+                            } else if (closed || before == ',' || before == '\n') {
+                                quoted = true;
+                                closed = false;
+                            }
+                            continue;
+                        }
+                        closed = false;
+                        if (b == '\n') {
+                            lines++;
+                            if (quoted) {
+                                continue;
+                            }
+                            if (csv && columns == null) {
+                                columns = header(data, offset, i);
+                                offset = i + 1;
+                                line += lines;
+                                lines = 0;
+                            } else {
+                                boundary = i + 1;
+                                linesAtBoundary = lines;
+                            }
+                        }
+                    }
+                }
+                if (csv && columns == null && length > offset) {
+                    columns = header(data, offset, length);
+                    offset = length;
+                }
+                if (length > offset) {
+                    put(chunks, new Chunk(data, offset, length, line, columns));
+                }
+            }
+            return bytes;
+        }
+
+        private int[] header(byte[] data, int offset, int end) {
+            List<String> names = new ArrayList<>();
+            new TicketRows.CsvReader(new String(data, offset, end - offset, StandardCharsets.UTF_8), 1).next(names);
+            return TicketRows.columnsOf(names);
+        }
+
+        /**
+         * Stores the parsed batches until every parser is done.
+         */
+        private void write() throws InterruptedException {
+            Set<Integer> ids = new HashSet<>();
+            int finished = 0;
+            while (finished < parserThreads) {
+                List<TicketModel> batch = take(batches);
+                if (batch == NO_MORE_BATCHES) {
+                    finished++;
+                    continue;
+                }
+                int maxId = 0;
+                for (TicketModel ticket : batch) {
+                    maxId = Math.max(maxId, ticket.getId());
+                }
+                // Advanced before the check, so that new tickets no longer take the batch's IDs
+                advanceNextId(maxId + 1);
+                while (!batch.isEmpty()) {
+                    ids.clear();
+                    for (Iterator<TicketModel> iterator = batch.iterator(); iterator.hasNext(); ) {
+                        int id = iterator.next().getId();
+                        if (!ids.add(id) || repository.getTicketById(id) != null) {
+                            iterator.remove();
+                            reject("ticket " + id + " already exists");
+                        }
+                    }
+                    if (store(batch)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Creates a checked batch, which the repository refuses as a whole if a ticket was
+         * created meanwhile under one of its IDs given explicitly, e.g. by another import.
+         *
+         * @return false if the batch was refused and must be checked again
+         */
+        private boolean store(List<TicketModel> batch) {
+            if (batch.isEmpty()) {
+                return true;
+            }
+            try {
+                repository.createTickets(batch);
+            } catch (IllegalArgumentException e) {
+                for (TicketModel ticket : batch) {
+                    if (repository.getTicketById(ticket.getId()) != null) {
+                        return false;
+                    }
+                }
+                throw e;
+            }
+            rows.add(batch.size());
+            imported.add(batch.size());
+            return true;
+        }
+
+        /**
+         * Parses chunks into batches of tickets, reserving IDs for rows without one.
+         */
+        private final class Parser implements Stage, IntSupplier {
+
+            private List<TicketModel> batch = new ArrayList<>(batchSize);
+            private int nextId;
+            private int lastId;
+
+            @Override
+            public void run() throws InterruptedException {
+                List<String> record = new ArrayList<>();
+                for (Chunk chunk = take(chunks); chunk != NO_MORE_CHUNKS; chunk = take(chunks)) {
+                    String text = new String(chunk.data, chunk.offset, chunk.end - chunk.offset, StandardCharsets.UTF_8);
+                    if (format == DumpFormat.CSV) {
+                        parseCsv(text, chunk, record);
+                    } else {
+                        parseJsonLines(text, chunk.firstLine);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    put(batches, batch);
+                }
+                put(batches, NO_MORE_BATCHES);
+            }
+
+            private void parseCsv(String text, Chunk chunk, List<String> record) throws InterruptedException {
+                TicketRows.CsvReader reader = new TicketRows.CsvReader(text, chunk.firstLine);
+                while (true) {
+                    try {
+                        if (!reader.next(record)) {
+                            return;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        reject("line " + reader.getRecordLine() + ": " + e.getMessage());
+                        reader.skipRecord();
+                        continue;
+                    }
+                    TicketModel ticket;
+                    try {
+                        ticket = TicketRows.fromCsv(record, chunk.columns, this);
+                    } catch (RuntimeException e) {
+                        reject("line " + reader.getRecordLine() + ": " + e.getMessage());
+                        continue;
+                    }
+                    add(ticket);
+                }
+            }
+
+            private void parseJsonLines(String text, long line) throws InterruptedException {
+                int position = 0;
+                for (; position < text.length(); line++) {
+                    int end = text.indexOf('\n', position);
+                    if (end < 0) {
+                        end = text.length();
+                    }
+                    String row = text.substring(position, end);
+                    position = end + 1;
+                    if (row.isBlank()) {
+                        continue;
+                    }
+                    List<TicketModel> tickets = new ArrayList<>(1);
+                    try {
+                        Object value = Json.parse(row);
+                        // A whole array on one line, as the server's ticket list is written, is accepted too
+                        for (Object item : value instanceof List ? (List<?>) value : List.of(value)) {
+                            tickets.add(TicketRows.fromJson(item, this));
+                        }
+                    } catch (RuntimeException e) {
+                        reject("line " + line + ": " + e.getMessage());
+                        continue;
+                    }
+                    for (TicketModel ticket : tickets) {
+                        add(ticket);
+                    }
+                }
+            }
+
+            private void add(TicketModel ticket) throws InterruptedException {
+                batch.add(ticket);
+                if (batch.size() == batchSize) {
+                    put(batches, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            @Override
+            public int getAsInt() {
+                if (nextId == lastId) {
+                    nextId = reserveIds(ID_BLOCK);
+                    lastId = nextId + ID_BLOCK;
+                }
+                return nextId++;
+            }
+        }
+
+        private void reject(String error) {
+            rejected.increment();
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(error);
+                }
+            }
+        }
+
+        private Thread startStage(String name, Stage stage) {
+            Thread thread = new Thread(() -> {
+                try {
+                    stage.run();
+                } catch (CancellationException e) {
+                    // Another stage failed first
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }, name);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+
+        private void fail(Throwable e) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * Queues an item, waiting while the queue is full unless another stage failed.
+         */
+        private <T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        }
+
+        /**
+         * Takes an item, waiting while the queue is empty unless another stage failed.
+         */
+        private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            T item;
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            return item;
+        }
+
+        private void checkFailure() {
+            if (failure != null) {
+                throw new CancellationException("Import aborted");
+            }
+        }
+    }
+}
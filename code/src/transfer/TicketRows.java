@@ -0,0 +1,417 @@
+package transfer;
+
+import models.TicketComment;
+import models.TicketModel;
+import models.TicketPriority;
+import models.TicketStatus;
+import server.Json;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Converts tickets to and from the rows of a dump.
+ * Both formats carry the same fields; only the customer name and category are required when
+ * importing. A missing ID asks for a new one, missing times are set when the ticket is stored,
+ * and a missing status or priority takes the default of a new ticket. Times are written as
+ * ISO-8601 instants in CSV and milliseconds since the epoch in JSON, and either is accepted on
+ * import.
+ */
+final class TicketRows {
+
+    static final int ID = 0;
+    static final int CREATED_AT = 1;
+    static final int UPDATED_AT = 2;
+    static final int CUSTOMER_NAME = 3;
+    static final int CONTACT_INFO = 4;
+    static final int CATEGORY = 5;
+    static final int DESCRIPTION = 6;
+    static final int STATUS = 7;
+    static final int PRIORITY = 8;
+    static final int COMMENTS = 9;
+
+    /**
+     * Column names, in the order the exporter writes them and indexed by the constants above.
+     */
+    static final String[] COLUMNS = {"id", "createdAt", "updatedAt", "customerName", "contactInfo",
+            "category", "description", "status", "priority", "comments"};
+
+    private TicketRows() {
+    }
+
+    /**
+     * Maps the columns of a CSV header to field indexes.
+     *
+     * @param header The names in the header row
+     * @return The field index of each column
+     * @throws IllegalArgumentException if a name is unknown or repeated, or a required column is missing
+     */
+    static int[] columnsOf(List<String> header) {
+        int[] columns = new int[header.size()];
+        boolean[] seen = new boolean[COLUMNS.length];
+        for (int i = 0; i < columns.length; i++) {
+            String name = header.get(i) == null ? "" : header.get(i).trim();
+            int field = fieldOf(name);
+            if (field < 0) {
+                throw new IllegalArgumentException("Unknown column: " + name);
+            }
+            if (seen[field]) {
+                throw new IllegalArgumentException("Repeated column: " + name);
+            }
+            seen[field] = true;
+            columns[i] = field;
+        }
+        if (!seen[CUSTOMER_NAME] || !seen[CATEGORY]) {
+            throw new IllegalArgumentException("Header must name the customerName and category columns");
+        }
+        return columns;
+    }
+
+    private static int fieldOf(String name) {
+        for (int field = 0; field < COLUMNS.length; field++) {
+            if (COLUMNS[field].equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a ticket from the values of a CSV record.
+     *
+     * @param record The values of the record, null for unquoted empty fields
+     * @param columns The field index of each column, from columnsOf
+     * @param newIds Supplies the ID of a record that has none
+     * @return The ticket
+     * @throws IllegalArgumentException if the record does not match the header or a value is invalid
+     */
+    static TicketModel fromCsv(List<String> record, int[] columns, IntSupplier newIds) {
+        if (record.size() != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " fields but found " + record.size());
+        }
+        String[] fields = new String[COLUMNS.length];
+        for (int i = 0; i < columns.length; i++) {
+            fields[columns[i]] = record.get(i);
+        }
+        String id = fields[ID];
+        TicketModel ticket = create(isBlank(id) ? newIds.getAsInt() : parseId(id.trim()), fields[CUSTOMER_NAME],
+                fields[CONTACT_INFO], fields[CATEGORY], fields[DESCRIPTION], fields[STATUS], fields[PRIORITY]);
+        ticket.setCreatedAt(parseTime(fields[CREATED_AT]));
+        ticket.setUpdatedAt(parseTime(fields[UPDATED_AT]));
+        if (!isBlank(fields[COMMENTS])) {
+            addComments(ticket, Json.parse(fields[COMMENTS]));
+        }
+        return ticket;
+    }
+
+    /**
+     * Builds a ticket from a JSON object. A version field, as written by the server, is ignored.
+     *
+     * @param value The parsed JSON line
+     * @param newIds Supplies the ID of an object that has none
+     * @return The ticket
+     * @throws IllegalArgumentException if the value is not an object or a field is invalid
+     */
+    static TicketModel fromJson(Object value, IntSupplier newIds) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Map<?, ?> fields = (Map<?, ?>) value;
+        Object id = fields.get(COLUMNS[ID]);
+        TicketModel ticket = create(id == null ? newIds.getAsInt() : parseId(id), string(fields, CUSTOMER_NAME),
+                string(fields, CONTACT_INFO), string(fields, CATEGORY), string(fields, DESCRIPTION),
+                string(fields, STATUS), string(fields, PRIORITY));
+        ticket.setCreatedAt(time(fields.get(COLUMNS[CREATED_AT])));
+        ticket.setUpdatedAt(time(fields.get(COLUMNS[UPDATED_AT])));
+        Object comments = fields.get(COLUMNS[COMMENTS]);
+        if (comments != null) {
+            addComments(ticket, comments);
+        }
+        return ticket;
+    }
+
+    private static TicketModel create(int id, String customerName, String contactInfo, String category,
+                                      String description, String status, String priority) {
+        if (isBlank(customerName)) {
+            throw new IllegalArgumentException("Missing customerName");
+        }
+        if (isBlank(category)) {
+            throw new IllegalArgumentException("Missing category");
+        }
+        TicketModel ticket = new TicketModel(id, customerName, contactInfo, category, description);
+        if (!isBlank(status)) {
+            ticket.setStatus(TicketStatus.fromString(status));
+        }
+        if (!isBlank(priority)) {
+            ticket.setPriority(TicketPriority.fromString(priority));
+        }
+        return ticket;
+    }
+
+    private static int parseId(Object value) {
+        long id = value instanceof Long ? (Long) value : Long.parseLong(String.valueOf(value));
+        if (id < 1 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid id: " + value);
+        }
+        return (int) id;
+    }
+
+    private static long time(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Invalid time: " + value);
+        }
+        return parseTime((String) value);
+    }
+
+    /**
+     * Parses a time given as milliseconds since the epoch or as an ISO-8601 instant.
+     *
+     * @return The time in milliseconds since the epoch, or 0 if the value is blank
+     */
+    private static long parseTime(String value) {
+        if (isBlank(value)) {
+            return 0;
+        }
+        String text = value.trim();
+        try {
+            return text.chars().allMatch(Character::isDigit) ? Long.parseLong(text) : Instant.parse(text).toEpochMilli();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid time: " + value);
+        }
+    }
+
+    private static void addComments(TicketModel ticket, Object comments) {
+        if (!(comments instanceof List)) {
+            throw new IllegalArgumentException("Expected an array of comments");
+        }
+        for (Object item : (List<?>) comments) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("Expected a comment object");
+            }
+            Map<?, ?> comment = (Map<?, ?>) item;
+            long timestamp = time(comment.get("timestamp"));
+            ticket.getCommentLog().append(new TicketComment(Instant.ofEpochMilli(timestamp),
+                    (String) comment.get("author"), (String) comment.get("text")));
+        }
+    }
+
+    private static String string(Map<?, ?> fields, int field) {
+        Object value = fields.get(COLUMNS[field]);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + COLUMNS[field] + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Appends the CSV header row, ending with a line break.
+     *
+     * @param builder The builder to append to
+     * @return The builder
+     */
+    static StringBuilder csvHeader(StringBuilder builder) {
+        return builder.append(String.join(",", COLUMNS)).append("\r\n");
+    }
+
+    /**
+     * Appends a ticket as a CSV row with the columns of csvHeader, ending with a line break.
+     *
+     * @param builder The builder to append to
+     * @param ticket The ticket to write
+     * @return The builder
+     */
+    static StringBuilder csv(StringBuilder builder, TicketModel ticket) {
+        builder.append(ticket.getId()).append(',');
+        appendTime(builder, ticket.getCreatedAt()).append(',');
+        appendTime(builder, ticket.getUpdatedAt()).append(',');
+        csvField(builder, ticket.getCustomerName()).append(',');
+        csvField(builder, ticket.getContactInfo()).append(',');
+        csvField(builder, ticket.getCategory()).append(',');
+        csvField(builder, ticket.getDescription()).append(',');
+        builder.append(ticket.getStatus()).append(',');
+        builder.append(ticket.getPriority()).append(',');
+        if (!ticket.getCommentLog().isEmpty()) {
+            StringBuilder comments = new StringBuilder();
+            comments.append('[');
+            boolean first = true;
+            for (TicketComment comment : ticket.getCommentLog()) {
+                if (!first) comments.append(',');
+                first = false;
+                Json.quote(comments.append("{\"timestamp\":"), comment.getTimestamp().toString());
+                Json.quote(comments.append(",\"author\":"), comment.getAuthor());
+                Json.quote(comments.append(",\"text\":"), comment.getText());
+                comments.append('}');
+            }
+            csvField(builder, comments.append(']').toString());
+        }
+        return builder.append("\r\n");
+    }
+
+    /**
+     * Appends a ticket as one line of JSON, ending with a line break.
+     *
+     * @param builder The builder to append to
+     * @param ticket The ticket to write
+     * @return The builder
+     */
+    static StringBuilder jsonLine(StringBuilder builder, TicketModel ticket) {
+        return Json.ticket(builder, ticket).append('\n');
+    }
+
+    private static StringBuilder appendTime(StringBuilder builder, long millis) {
+        return millis == 0 ? builder : builder.append(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * Appends a CSV field, quoting it if it contains a comma, quote or line break, or is empty.
+     * A null value is written as an unquoted empty field.
+     */
+    private static StringBuilder csvField(StringBuilder builder, String value) {
+        if (value == null) {
+            return builder;
+        }
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return builder.append(value);
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                builder.append('"');
+            }
+            builder.append(c);
+        }
+        return builder.append('"');
+    }
+
+    /**
+     * Reads the records of CSV text one at a time.
+     * A record ends at a line break outside quotes; blank lines are skipped.
+     */
+    static final class CsvReader {
+
+        private final String text;
+        private final StringBuilder field = new StringBuilder();
+        private int position;
+        private long line;
+        private long recordLine;
+
+        /**
+         * @param text The CSV text, starting at the beginning of a record
+         * @param firstLine The line number of the first character of the text
+         */
+        CsvReader(String text, long firstLine) {
+            this.text = text;
+            this.line = firstLine;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @param record Receives the values of the record, null for unquoted empty fields
+         * @return false if there are no more records
+         * @throws IllegalArgumentException if a quoted field is not closed or is followed by other characters
+         */
+        boolean next(List<String> record) {
+            record.clear();
+            while (position < text.length() && (text.charAt(position) == '\n' || text.charAt(position) == '\r')) {
+                if (text.charAt(position++) == '\n') {
+                    line++;
+                }
+            }
+            if (position == text.length()) {
+                return false;
+            }
+            recordLine = line;
+            while (true) {
+                field.setLength(0);
+                boolean quoted = position < text.length() && text.charAt(position) == '"';
+                if (quoted) {
+                    position++;
+                    while (true) {
+                        if (position == text.length()) {
+                            throw new IllegalArgumentException("Unterminated quoted field");
+                        }
+                        char c = text.charAt(position++);
+                        if (c == '"') {
+                            if (position < text.length() && text.charAt(position) == '"') {
+                                field.append('"');
+                                position++;
+                            } else {
+                                break;
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append(c);
+                        }
+                    }
+                } else {
+                    while (position < text.length()) {
+                        char c = text.charAt(position);
+                        if (c == ',' || c == '\n' || c == '\r') {
+                            break;
+                        }
+                        if (c == '"') {
+                            throw new IllegalArgumentException("Quote inside an unquoted field");
+                        }
+                        field.append(c);
+                        position++;
+                    }
+                }
+                record.add(quoted || field.length() > 0 ? field.toString() : null);
+                if (position == text.length()) {
+                    return true;
+                }
+                char c = text.charAt(position++);
+                if (c == ',') {
+                    continue;
+                }
+                if (c == '\r' && position < text.length() && text.charAt(position) == '\n') {
+                    position++;
+                }
+                if (c == '\r' || c == '\n') {
+                    line++;
+                    return true;
+                }
+                throw new IllegalArgumentException("Unexpected character after a quoted field: " + c);
+            }
+        }
+
+        /**
+         * Skips the rest of the current line after a malformed record, so reading can resume.
+         */
+        void skipRecord() {
+            while (position < text.length()) {
+                if (text.charAt(position++) == '\n') {
+                    line++;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return The line on which the last record read starts
+         */
+        long getRecordLine() {
+            return recordLine;
+        }
+    }
+}
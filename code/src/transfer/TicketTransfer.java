@@ -0,0 +1,93 @@
+package transfer;
+
+import persistence.TicketPersistence;
+import repository.ConcurrentTicketRepository;
+import repository.TicketRepository;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line tool that imports a dump into a data directory, or exports one from it.
+ * Without --data, an import only parses and stores the file in memory, which checks it and
+ * measures throughput. After an import, a snapshot is written so the next start does not have
+ * to replay the imported batches from the log.
+ *
+ * Usage: java transfer.TicketTransfer import|export file [--data directory] [--format csv|jsonl]
+ *        [--threads n] [--batch 1000]
+ */
+public class TicketTransfer {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println("Usage: java transfer.TicketTransfer import|export file [--data directory]"
+                    + " [--format csv|jsonl] [--threads n] [--batch 1000]");
+            System.exit(2);
+        }
+        boolean importing = args[0].equals("import");
+        Path file = Paths.get(args[1]);
+        String data = null;
+        DumpFormat format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = 1000;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--data": data = args[i + 1]; break;
+                case "--format": format = DumpFormat.fromString(args[i + 1]); break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--batch": batchSize = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (format == null) {
+            format = DumpFormat.forPath(file);
+        }
+        if (!importing && data == null) {
+            throw new IllegalArgumentException("Export needs --data");
+        }
+
+        TicketRepository repository = new ConcurrentTicketRepository();
+        // Batches are made durable by the snapshot at the end, not one by one
+        TicketPersistence persistence = data == null ? null
+                : TicketPersistence.open(Paths.get(data), repository, false, 0);
+        try {
+            TransferResult result;
+            if (importing) {
+                TicketImporter importer = new TicketImporter(repository, threads, batchSize, 1 << 20);
+                ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "ticket-import-progress");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                long start = System.nanoTime();
+                progress.scheduleAtFixedRate(() -> System.out.printf("  %,d rows, %,.0f rows/s%n",
+                        importer.getImportedCount(), importer.getImportedCount() * 1e9 / (System.nanoTime() - start)),
+                        5, 5, TimeUnit.SECONDS);
+                try {
+                    result = importer.importFile(file, format);
+                } finally {
+                    progress.shutdownNow();
+                }
+                if (persistence != null) {
+                    persistence.checkpoint();
+                }
+            } else {
+                result = new TicketExporter(repository).export(file, format);
+            }
+            System.out.println((importing ? "Imported " : "Exported ") + result);
+            for (String error : result.getErrors()) {
+                System.out.println("  rejected " + error);
+            }
+            if (result.getRejected() > result.getErrors().size()) {
+                System.out.printf("  ... and %,d more%n", result.getRejected() - result.getErrors().size());
+            }
+        } finally {
+            if (persistence != null) {
+                persistence.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package transfer;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of an import or export: how many rows were transferred or rejected, how many bytes
+ * were read or written, and how long it took.
+ */
+public final class TransferResult {
+
+    private final long rows;
+    private final long rejected;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final List<String> errors;
+
+    /**
+     * @param rows The number of rows transferred
+     * @param rejected The number of rows rejected
+     * @param bytes The number of bytes read or written
+     * @param elapsedNanos The time taken in nanoseconds
+     * @param errors Descriptions of the first rejected rows
+     */
+    public TransferResult(long rows, long rejected, long bytes, long elapsedNanos, List<String> errors) {
+        this.rows = rows;
+        this.rejected = rejected;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.errors = List.copyOf(errors);
+    }
+
+    public long getRows() { return rows; }
+    public long getRejected() { return rejected; }
+    public long getBytes() { return bytes; }
+    public Duration getElapsed() { return Duration.ofNanos(elapsedNanos); }
+
+    /**
+     * @return Descriptions of the first rejected rows, with their line numbers
+     */
+    public List<String> getErrors() { return errors; }
+
+    /**
+     * @return The number of rows transferred per second
+     */
+    public double getRowsPerSecond() {
+        return rows * 1e9 / Math.max(1, elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows (%,d rejected), %,.1f MB in %.2f s: %,.0f rows/s",
+                rows, rejected, bytes / 1e6, elapsedNanos / 1e9, getRowsPerSecond());
+    }
+}